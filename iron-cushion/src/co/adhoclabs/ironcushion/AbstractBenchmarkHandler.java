@@ -1,6 +1,7 @@
 package co.adhoclabs.ironcushion;
 
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
@@ -9,18 +10,133 @@ import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ExceptionEvent;
 import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
 
+import co.adhoclabs.ironcushion.OpenLoopScheduler.ConnectionSchedule;
+import co.adhoclabs.ironcushion.OpenLoopScheduler.ScheduledHandler;
+
 /**
- * Abstract superclass for handlers used in the benchmark.
+ * Abstract superclass for handlers used in the benchmark. Each step of the
+ * benchmark replaces the handler on every connection in the
+ * {@link ConnectionPool}, and then calls {@link #start(Channel)}.
+ * 
+ * When run open loop, requests are sent from the timer thread of the
+ * {@link OpenLoopScheduler} as well as from the I/O thread, and so subclasses
+ * must hold their own lock while sending requests or processing responses.
  * 
  * @author Michael Parker (michael.g.parker@gmail.com)
  */
-public abstract class AbstractBenchmarkHandler extends SimpleChannelUpstreamHandler {
+public abstract class AbstractBenchmarkHandler extends SimpleChannelUpstreamHandler
+		implements ScheduledHandler {
+	/**
+	 * Returned by {@link #getNextRequestStartTime(AbstractConnectionStatistics)}
+	 * if the next request is not yet due.
+	 */
+	protected static final long NOT_DUE = Long.MIN_VALUE;
+
 	protected final CountDownLatch countDownLatch;
+	/**
+	 * The requests written but not yet answered, which number at most the pipeline depth.
+	 */
+	protected final PendingRequests pendingRequests;
+	/**
+	 * The schedule of requests if run open loop, or {@code null} if run closed loop.
+	 */
+	protected final ConnectionSchedule connectionSchedule;
+	/**
+	 * The warm-up of this connection before its operations are measured.
+	 */
+	protected final Warmup warmup;
+	/**
+	 * The number of nanoseconds after which no more requests are sent, or
+	 * {@code 0} if the step is bounded only by its number of operations.
+	 */
+	private final long durationNanos;
+	/**
+	 * The time this connection started the step, from which its warm-up and
+	 * duration are timed.
+	 */
+	private long stepStartTime;
 
-	protected AbstractBenchmarkHandler(CountDownLatch countDownLatch) {
+	protected AbstractBenchmarkHandler(CountDownLatch countDownLatch, int pipelineDepth,
+			ConnectionSchedule connectionSchedule, Warmup warmup, int durationSecs) {
 		this.countDownLatch = countDownLatch;
+		this.pendingRequests = new PendingRequests(pipelineDepth);
+		this.connectionSchedule = connectionSchedule;
+		this.warmup = warmup;
+		this.durationNanos = TimeUnit.SECONDS.toNanos(durationSecs);
+	}
+
+	/**
+	 * Starts timing the warm-up and duration, which must be called when the step starts.
+	 */
+	protected void startStep() {
+		stepStartTime = System.nanoTime();
+	}
+
+	/**
+	 * @param numOperationsCompleted the number of operations this connection has completed
+	 * @return {@code true} if the warm-up of this connection has ended
+	 */
+	protected boolean isWarmupOver(int numOperationsCompleted) {
+		return warmup.isOver(stepStartTime, numOperationsCompleted);
+	}
+
+	/**
+	 * Returns whether the duration of the step has passed, after which no more
+	 * requests are sent, and the connection finishes once all pending requests
+	 * are answered.
+	 *
+	 * @return {@code true} if the step has a duration and it has passed
+	 */
+	protected boolean isDurationOver() {
+		return (durationNanos > 0) && ((System.nanoTime() - stepStartTime) >= durationNanos);
+	}
+	
+	/**
+	 * Returns the start time of the next request if it can be sent now. When run
+	 * closed loop this is always the current time. When run open loop this is the
+	 * time it was scheduled to start, or {@link #NOT_DUE} if it is not yet due.
+	 * 
+	 * @param connectionStatistics the statistics to record a late request to
+	 * @return the start time of the next request, or {@link #NOT_DUE}
+	 */
+	protected long getNextRequestStartTime(AbstractConnectionStatistics connectionStatistics) {
+		long now = System.nanoTime();
+		if (connectionSchedule == null) {
+			return now;
+		} else if (!connectionSchedule.isDue(now)) {
+			return NOT_DUE;
+		}
+		return connectionSchedule.take(now, connectionStatistics);
+	}
+	
+	/**
+	 * If run open loop, arms the timer to send the next request when it is due.
+	 * 
+	 * @param channel the channel to send the next request on
+	 * @param readyToSend whether the next request can be sent once it is due
+	 */
+	protected void scheduleNextRequest(Channel channel, boolean readyToSend) {
+		if (connectionSchedule != null) {
+			connectionSchedule.arm(this, channel, readyToSend);
+		}
 	}
 	
+	/**
+	 * Starts performing the requests of this step on the given connection.
+	 * 
+	 * @param channel the connected channel, whose pipeline contains this handler
+	 */
+	public abstract void start(Channel channel);
+
+	/**
+	 * Called when all requests of this step are complete. The connection is
+	 * left open for the next step.
+	 */
+	protected void finished() {
+		// Allow the main thread to continue.
+		countDownLatch.countDown();
+	}
+
 	protected void close(Channel channel) {
 		ChannelFuture channelFuture = channel.close();
 		channelFuture.addListener(new ChannelFutureListener() {
@@ -0,0 +1,52 @@
+package co.adhoclabs.ironcushion;
+
+import java.util.concurrent.CountDownLatch;
+
+import co.adhoclabs.ironcushion.OpenLoopScheduler.ConnectionSchedule;
+
+/**
+ * Abstract superclass for factories of the handlers used in each step of the
+ * benchmark. A handler is installed on every connection in the
+ * {@link ConnectionPool} at the start of the step.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public abstract class AbstractBenchmarkHandlerFactory {
+	protected final CountDownLatch countDownLatch;
+	protected final int pipelineDepth;
+	protected final Warmup warmup;
+	/**
+	 * The number of seconds each connection sends requests, or {@code 0} if
+	 * the step is bounded only by its number of operations.
+	 */
+	protected final int durationSecs;
+	private final OpenLoopScheduler openLoopScheduler;
+
+	protected AbstractBenchmarkHandlerFactory(int numConnections, int pipelineDepth,
+			OpenLoopScheduler openLoopScheduler, Warmup warmup, int durationSecs) {
+		this.countDownLatch = new CountDownLatch(numConnections);
+		this.pipelineDepth = pipelineDepth;
+		this.openLoopScheduler = openLoopScheduler;
+		this.warmup = warmup;
+		this.durationSecs = durationSecs;
+	}
+
+	/**
+	 * @return the schedule for a new connection, or {@code null} if run closed loop
+	 */
+	protected ConnectionSchedule newConnectionSchedule() {
+		return (openLoopScheduler == null) ? null : openLoopScheduler.newConnectionSchedule();
+	}
+
+	/**
+	 * Returns the handler that performs this step on the given connection.
+	 *
+	 * @param connectionNum the number of the connection
+	 * @return the handler for the connection
+	 */
+	public abstract AbstractBenchmarkHandler newHandler(int connectionNum);
+
+	public CountDownLatch getCountDownLatch() {
+		return countDownLatch;
+	}
+}
@@ -8,13 +8,34 @@ package co.adhoclabs.ironcushion;
 public abstract class AbstractConnectionStatistics {
 	private long jsonBytesSent;
 	private long jsonBytesReceived;
+	private long lateRequests;
+	private boolean completedDuringWarmup;
 	
 	protected final Timer localProcessingTimer;
 	protected final Timer sendDataTimer;
+	protected final IntervalStatistics intervalStatistics;
+	protected final ResponseCounts responseCounts;
 
-	protected AbstractConnectionStatistics() {
+	/**
+	 * @param numOperationTypes the number of types of operations whose latencies are recorded
+	 */
+	protected AbstractConnectionStatistics(int numOperationTypes) {
+		this(new IntervalStatistics(numOperationTypes), numOperationTypes);
+	}
+
+	/**
+	 * @param intervalStatistics the interval statistics to also record to,
+	 *        which may be shared with the statistics of the same connection
+	 *        during its warm-up
+	 * @param numOperationTypes the number of types of operations whose latencies are recorded
+	 */
+	protected AbstractConnectionStatistics(IntervalStatistics intervalStatistics, int numOperationTypes) {
+		this.intervalStatistics = intervalStatistics;
+		responseCounts = new ResponseCounts(numOperationTypes);
 		jsonBytesSent = 0;
 		jsonBytesReceived = 0;
+		lateRequests = 0;
+		completedDuringWarmup = false;
 		
 		localProcessingTimer = new Timer();
 		sendDataTimer = new Timer();
@@ -27,6 +48,7 @@ public abstract class AbstractConnectionStatistics {
 	 */
 	public void sentJsonBytes(long numBytes) {
 		jsonBytesSent += numBytes;
+		intervalStatistics.sentJsonBytes(numBytes);
 	}
 	
 	/**
@@ -43,6 +65,7 @@ public abstract class AbstractConnectionStatistics {
 	 */
 	public void receivedJsonBytes(long numBytes) {
 		jsonBytesReceived += numBytes;
+		intervalStatistics.receivedJsonBytes(numBytes);
 	}
 	
 	/**
@@ -53,7 +76,51 @@ public abstract class AbstractConnectionStatistics {
 	}
 	
 	/**
-	 * Stops whichever timer is running.
+	 * @return the statistics recorded since the last interval was reported
+	 */
+	public IntervalStatistics getIntervalStatistics() {
+		return intervalStatistics;
+	}
+	
+	/**
+	 * @return the number of responses to each type of operation by status class and error reason
+	 */
+	public ResponseCounts getResponseCounts() {
+		return responseCounts;
+	}
+	
+	/**
+	 * Records that a request was sent later than its scheduled start time.
+	 */
+	public void lateRequest() {
+		lateRequests++;
+	}
+	
+	/**
+	 * @return the number of requests sent later than their scheduled start times
+	 */
+	public long getLateRequests() {
+		return lateRequests;
+	}
+	
+	/**
+	 * Records that the connection completed all its operations during its
+	 * warm-up, and so these statistics measured none of them.
+	 */
+	public void completedDuringWarmup() {
+		completedDuringWarmup = true;
+	}
+	
+	/**
+	 * @return {@code true} if the connection never performed its operations,
+	 *         such as because connecting to the database timed out
+	 */
+	public boolean timedOut() {
+		return !completedDuringWarmup && (getTotalTimeNanos() == 0);
+	}
+	
+	/**
+	 * Stops whichever timer is running, leaving no timer running.
 	 */
 	public abstract void stop();
 	
@@ -63,10 +130,10 @@ public abstract class AbstractConnectionStatistics {
 	public abstract void startLocalProcessing();
 	
 	/**
-	 * @return the number of milliseconds spent on local processing
+	 * @return the number of nanoseconds spent on local processing
 	 */
-	public long getLocalProcessingTimeMillis() {
-		return localProcessingTimer.getTotalTimeMillis();
+	public long getLocalProcessingTimeNanos() {
+		return localProcessingTimer.getTotalTimeNanos();
 	}
 	
 	/**
@@ -75,14 +142,14 @@ public abstract class AbstractConnectionStatistics {
 	public abstract void startSendData();
 	
 	/**
-	 * @return the number of milliseconds spent on sending data
+	 * @return the number of nanoseconds spent on sending data
 	 */
-	public long getSendDataTimeMillis() {
-		return sendDataTimer.getTotalTimeMillis();
+	public long getSendDataTimeNanos() {
+		return sendDataTimer.getTotalTimeNanos();
 	}
 	
 	/**
-	 * @return the total number of milliseconds spent
+	 * @return the total number of nanoseconds spent
 	 */
-	public abstract long getTotalTimeMillis();
+	public abstract long getTotalTimeNanos();
 }
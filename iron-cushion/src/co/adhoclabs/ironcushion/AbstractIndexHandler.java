@@ -0,0 +1,188 @@
+package co.adhoclabs.ironcushion;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.util.CharsetUtil;
+import org.json.simple.JSONObject;
+
+import co.adhoclabs.ironcushion.IndexConnectionStatistics.RunningConnectionTimer;
+
+/**
+ * Superclass for handlers that prepare an index and then build it. Only one
+ * connection sends these requests, one after another, and the other
+ * connections finish immediately.
+ *
+ * <p>A subclass sends the requests that prepare the index, and calls
+ * {@link #startBuild(Channel)} once it is prepared. This class then sends the
+ * request that builds the index, and finishes once it is answered.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public abstract class AbstractIndexHandler extends AbstractBenchmarkHandler {
+	protected final IndexConnectionStatistics connectionStatistics;
+	protected final JsonReplyScanner jsonReplyScanner;
+	private final boolean buildsIndex;
+	private final RequestEncoder requestEncoder;
+	private final SendDataChannelFuture sendDataChannelFuture;
+
+	private long requestStartTime;
+	private long prepareStartTime;
+	/**
+	 * Whether the request that builds the index was sent.
+	 */
+	private boolean building;
+
+	/**
+	 * @param buildsIndex whether this connection prepares the index and builds
+	 *        it, instead of finishing immediately
+	 */
+	protected AbstractIndexHandler(IndexConnectionStatistics connectionStatistics, boolean buildsIndex,
+			CountDownLatch countDownLatch, RequestEncoder requestEncoder, Warmup warmup) {
+		super(countDownLatch, 1, null, warmup, 0);
+
+		this.connectionStatistics = connectionStatistics;
+		this.jsonReplyScanner = new JsonReplyScanner();
+		this.buildsIndex = buildsIndex;
+		this.requestEncoder = requestEncoder;
+		this.sendDataChannelFuture = new SendDataChannelFuture();
+	}
+
+	/**
+	 * The {@link ChannelFutureListener} called after a request is sent.
+	 */
+	private final class SendDataChannelFuture implements ChannelFutureListener {
+		@Override
+		public void operationComplete(ChannelFuture channelFuture) throws Exception {
+			synchronized (AbstractIndexHandler.this) {
+				if (connectionStatistics.getRunningConnectionTimer() == RunningConnectionTimer.SEND_DATA) {
+					connectionStatistics.startRemoteProcessing();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sends a request with the given body, or without a body if it is
+	 * {@code null}.
+	 */
+	protected void sendRequest(Channel channel, HttpMethod method, String path, JSONObject body) {
+		connectionStatistics.startLocalProcessing();
+		ChannelBuffer content = null;
+		if (body != null) {
+			content = ChannelBuffers.copiedBuffer(body.toString(), CharsetUtil.UTF_8);
+			connectionStatistics.sentJsonBytes(content.readableBytes());
+		}
+		ChannelBuffer encodedRequest = requestEncoder.encode(method, path, content);
+
+		connectionStatistics.startSendData();
+		requestStartTime = System.nanoTime();
+		ChannelFuture channelFuture = channel.write(encodedRequest);
+		channelFuture.addListener(sendDataChannelFuture);
+	}
+
+	/**
+	 * Returns the reason of a failed response, or {@code null} if its content
+	 * has no {@code error} field.
+	 */
+	private String getErrorReason(HttpResponse response) {
+		if (response.isChunked()) {
+			return null;
+		}
+		return jsonReplyScanner.scan(response.getContent()) ? jsonReplyScanner.getError() : null;
+	}
+
+	private void finish() {
+		connectionStatistics.stop();
+		finished();
+	}
+
+	/**
+	 * Records a successful request that prepares the index.
+	 */
+	protected void recordPrepareSuccess(int statusCode) {
+		connectionStatistics.getResponseCounts().recordSuccess(IndexConnectionStatistics.PREPARE, statusCode);
+	}
+
+	/**
+	 * Records a failed request that prepares the index, and finishes without
+	 * building it.
+	 */
+	protected void prepareFailed(HttpResponse response, int statusCode) {
+		connectionStatistics.getResponseCounts().recordFailure(IndexConnectionStatistics.PREPARE,
+				statusCode, getErrorReason(response));
+		finish();
+	}
+
+	/**
+	 * Records the time taken to prepare the index, and sends the request that
+	 * builds it.
+	 */
+	protected void startBuild(Channel channel) {
+		connectionStatistics.prepared(System.nanoTime() - prepareStartTime);
+		building = true;
+		sendBuildRequest(channel);
+	}
+
+	/**
+	 * Sends the first request that prepares the index.
+	 */
+	protected abstract void sendPrepareRequest(Channel channel);
+
+	/**
+	 * Handles the response to a request that prepares the index.
+	 */
+	protected abstract void receivedPrepareResponse(Channel channel, HttpResponse response, int statusCode);
+
+	/**
+	 * Sends the request that builds the index, whose response is returned
+	 * only once the index is up to date.
+	 */
+	protected abstract void sendBuildRequest(Channel channel);
+
+	public synchronized void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+		connectionStatistics.startLocalProcessing();
+		long latency = System.nanoTime() - requestStartTime;
+
+		HttpResponse response = (HttpResponse) e.getMessage();
+		int statusCode = response.getStatus().getCode();
+		connectionStatistics.receivedJsonBytes(response.getContent().readableBytes());
+		if (!building) {
+			receivedPrepareResponse(e.getChannel(), response, statusCode);
+			return;
+		}
+
+		ResponseCounts responseCounts = connectionStatistics.getResponseCounts();
+		if (ResponseCounts.isSuccess(statusCode)) {
+			responseCounts.recordSuccess(IndexConnectionStatistics.BUILD, statusCode);
+			connectionStatistics.built(latency);
+		} else {
+			responseCounts.recordFailure(IndexConnectionStatistics.BUILD, statusCode, getErrorReason(response));
+		}
+		finish();
+	}
+
+	@Override
+	public synchronized void requestScheduled(Channel channel) {
+		// This handler is never run open loop.
+	}
+
+	@Override
+	public synchronized void start(Channel channel) {
+		startStep();
+		if (!buildsIndex) {
+			finished();
+			return;
+		}
+		prepareStartTime = System.nanoTime();
+		sendPrepareRequest(channel);
+	}
+}
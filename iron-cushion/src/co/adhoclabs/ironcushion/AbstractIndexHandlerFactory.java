@@ -0,0 +1,55 @@
+package co.adhoclabs.ironcushion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Abstract superclass for factories of the {@link AbstractIndexHandler}
+ * instances that prepare an index and build it, which only the first
+ * connection does.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public abstract class AbstractIndexHandlerFactory extends AbstractBenchmarkHandlerFactory {
+	private final List<IndexConnectionStatistics> allConnectionStatistics;
+	protected final RequestEncoder requestEncoder;
+
+	/**
+	 * @param operationNames the names of the types of operations, indexed by
+	 *        {@link IndexConnectionStatistics#PREPARE} and
+	 *        {@link IndexConnectionStatistics#BUILD}
+	 */
+	protected AbstractIndexHandlerFactory(int numConnections, String[] operationNames,
+			RequestEncoder requestEncoder, Warmup warmup) {
+		super(numConnections, 1, null, warmup, 0);
+
+		this.allConnectionStatistics = new ArrayList<IndexConnectionStatistics>(numConnections);
+		for (int i = 0; i < numConnections; ++i) {
+			this.allConnectionStatistics.add(new IndexConnectionStatistics(operationNames));
+		}
+		this.requestEncoder = requestEncoder;
+	}
+
+	/**
+	 * @return the {@link IndexConnectionStatistics} of the connection that
+	 *         built the index
+	 */
+	public IndexConnectionStatistics getConnectionStatistics() {
+		return allConnectionStatistics.get(0);
+	}
+
+	/**
+	 * Returns the handler for a connection.
+	 *
+	 * @param connectionStatistics the statistics of the connection
+	 * @param buildsIndex whether the connection prepares the index and builds it
+	 * @return the handler for the connection
+	 */
+	protected abstract AbstractIndexHandler newHandler(IndexConnectionStatistics connectionStatistics,
+			boolean buildsIndex);
+
+	@Override
+	public AbstractBenchmarkHandler newHandler(int connectionNum) {
+		return newHandler(allConnectionStatistics.get(connectionNum), (connectionNum == 0));
+	}
+}
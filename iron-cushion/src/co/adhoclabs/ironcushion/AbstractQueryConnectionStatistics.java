@@ -0,0 +1,146 @@
+package co.adhoclabs.ironcushion;
+
+/**
+ * Superclass for statistics of a connection performing queries of several
+ * types, such as view queries or Mango {@code _find} queries. The remote
+ * processing time and latencies are recorded separately for each type.
+ *
+ * @param <T> the enumeration over the types of queries
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public abstract class AbstractQueryConnectionStatistics<T extends Enum<T>> extends AbstractConnectionStatistics {
+	private final Timer[] remoteProcessingTimers;
+	private final LatencyHistogram[] latencies;
+
+	/**
+	 * @param intervalStatistics the interval statistics to also record to
+	 * @param numTypes the number of types of queries
+	 */
+	protected AbstractQueryConnectionStatistics(IntervalStatistics intervalStatistics, int numTypes) {
+		super(intervalStatistics, numTypes);
+		remoteProcessingTimers = new Timer[numTypes];
+		latencies = new LatencyHistogram[numTypes];
+		for (int i = 0; i < numTypes; ++i) {
+			remoteProcessingTimers[i] = new Timer();
+			latencies[i] = new LatencyHistogram();
+		}
+	}
+
+	/**
+	 * An enumeration over all timers.
+	 */
+	public enum RunningConnectionTimer {
+		LOCAL_PROCESSING,
+		SEND_DATA,
+		REMOTE_PROCESSING,
+	}
+
+	private RunningConnectionTimer runningTimer;
+	/**
+	 * The type of query whose remote processing is timed, if
+	 * {@link RunningConnectionTimer#REMOTE_PROCESSING} is running.
+	 */
+	private T runningType;
+
+	/**
+	 * @return the currently running timer
+	 */
+	public RunningConnectionTimer getRunningConnectionTimer() {
+		return runningTimer;
+	}
+
+	@Override
+	public void stop() {
+		if (runningTimer != null) {
+			switch (runningTimer) {
+			case LOCAL_PROCESSING:
+				localProcessingTimer.stop();
+				break;
+			case SEND_DATA:
+				sendDataTimer.stop();
+				break;
+			case REMOTE_PROCESSING:
+				remoteProcessingTimers[runningType.ordinal()].stop();
+				break;
+			default:
+				break;
+			}
+			runningTimer = null;
+			runningType = null;
+		}
+	}
+
+	@Override
+	public void startLocalProcessing() {
+		if (runningTimer == RunningConnectionTimer.LOCAL_PROCESSING) {
+			return;
+		}
+		stop();
+		localProcessingTimer.start();
+		runningTimer = RunningConnectionTimer.LOCAL_PROCESSING;
+	}
+
+	@Override
+	public void startSendData() {
+		if (runningTimer == RunningConnectionTimer.SEND_DATA) {
+			return;
+		}
+		stop();
+		sendDataTimer.start();
+		runningTimer = RunningConnectionTimer.SEND_DATA;
+	}
+
+	/**
+	 * Starts the timer for remote processing of the given type of query.
+	 *
+	 * @param type the type of query awaiting a response
+	 */
+	public void startRemoteProcessing(T type) {
+		if ((runningTimer == RunningConnectionTimer.REMOTE_PROCESSING) && (runningType == type)) {
+			return;
+		}
+		stop();
+		remoteProcessingTimers[type.ordinal()].start();
+		runningTimer = RunningConnectionTimer.REMOTE_PROCESSING;
+		runningType = type;
+	}
+
+	/**
+	 * @param type the type of query
+	 * @return the number of nanoseconds spent on remote processing of queries of that type
+	 */
+	public long getRemoteProcessingTimeNanos(T type) {
+		return remoteProcessingTimers[type.ordinal()].getTotalTimeNanos();
+	}
+
+	/**
+	 * Records the latency of a successful request, from sending it until
+	 * receiving its complete response.
+	 *
+	 * @param type the type of query
+	 * @param nanos the latency in nanoseconds
+	 */
+	protected void recordLatency(T type, long nanos) {
+		latencies[type.ordinal()].record(nanos);
+		intervalStatistics.recordLatency(type.ordinal(), nanos);
+	}
+
+	/**
+	 * @param type the type of query
+	 * @return the latencies of all successful requests of that type
+	 */
+	public LatencyHistogram getLatencies(T type) {
+		return latencies[type.ordinal()];
+	}
+
+	@Override
+	public long getTotalTimeNanos() {
+		long totalTimeNanos = localProcessingTimer.getTotalTimeNanos() +
+				sendDataTimer.getTotalTimeNanos();
+		for (Timer remoteProcessingTimer : remoteProcessingTimers) {
+			totalTimeNanos += remoteProcessingTimer.getTotalTimeNanos();
+		}
+		return totalTimeNanos;
+	}
+}
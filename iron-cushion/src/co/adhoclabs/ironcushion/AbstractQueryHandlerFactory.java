@@ -0,0 +1,80 @@
+package co.adhoclabs.ironcushion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Abstract superclass for factories of handlers for connections that perform
+ * queries, such as view queries or Mango {@code _find} queries. The statistics
+ * of each connection are recorded separately during and after its
+ * {@link Warmup}.
+ *
+ * @param <S> the type of the statistics of each connection
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public abstract class AbstractQueryHandlerFactory<S extends AbstractQueryConnectionStatistics<?>>
+		extends AbstractBenchmarkHandlerFactory {
+	private final List<S> allWarmupConnectionStatistics;
+	private final List<S> allConnectionStatistics;
+	protected final RequestEncoder requestEncoder;
+
+	/**
+	 * @param numOperationTypes the number of types of queries
+	 */
+	protected AbstractQueryHandlerFactory(int numConnections, int pipelineDepth,
+			OpenLoopScheduler openLoopScheduler, int numOperationTypes, RequestEncoder requestEncoder,
+			Warmup warmup, int durationSecs) {
+		super(numConnections, pipelineDepth, openLoopScheduler, warmup, durationSecs);
+
+		this.allWarmupConnectionStatistics = new ArrayList<S>(numConnections);
+		this.allConnectionStatistics = new ArrayList<S>(numConnections);
+		for (int i = 0; i < numConnections; ++i) {
+			// Report intervals of the warm-up and measured queries together.
+			IntervalStatistics intervalStatistics = new IntervalStatistics(numOperationTypes);
+			this.allWarmupConnectionStatistics.add(newConnectionStatistics(intervalStatistics));
+			this.allConnectionStatistics.add(newConnectionStatistics(intervalStatistics));
+		}
+		this.requestEncoder = requestEncoder;
+	}
+
+	/**
+	 * Returns new statistics for a connection. This is called by the
+	 * constructor, and so must not depend on fields of the subclass.
+	 *
+	 * @param intervalStatistics the interval statistics to also record to
+	 * @return the statistics
+	 */
+	protected abstract S newConnectionStatistics(IntervalStatistics intervalStatistics);
+
+	/**
+	 * @return the statistics used by connections after their warm-up
+	 */
+	public List<S> getAllConnectionStatistics() {
+		return allConnectionStatistics;
+	}
+
+	/**
+	 * @return the statistics used by connections during and after their warm-up
+	 */
+	public StepStatistics<S> getStepStatistics() {
+		return new StepStatistics<S>(allWarmupConnectionStatistics, allConnectionStatistics);
+	}
+
+	/**
+	 * Returns the handler that performs the queries of a connection.
+	 *
+	 * @param warmupConnectionStatistics the statistics of the connection during its warm-up
+	 * @param connectionStatistics the statistics of the connection after its warm-up
+	 * @param connectionNum the number of the connection
+	 * @return the handler for the connection
+	 */
+	protected abstract AbstractBenchmarkHandler newHandler(S warmupConnectionStatistics,
+			S connectionStatistics, int connectionNum);
+
+	@Override
+	public AbstractBenchmarkHandler newHandler(int connectionNum) {
+		return newHandler(allWarmupConnectionStatistics.get(connectionNum),
+				allConnectionStatistics.get(connectionNum), connectionNum);
+	}
+}
@@ -1,19 +1,34 @@
 package co.adhoclabs.ironcushion;
 
+import java.io.File;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Random;
 
 import co.adhoclabs.ironcushion.BenchmarkResults.BulkInsertBenchmarkResults;
+import co.adhoclabs.ironcushion.BenchmarkResults.ChangesBenchmarkResults;
+import co.adhoclabs.ironcushion.BenchmarkResults.ConnectBenchmarkResults;
 import co.adhoclabs.ironcushion.BenchmarkResults.CrudBenchmarkResults;
+import co.adhoclabs.ironcushion.BenchmarkResults.FindBenchmarkResults;
+import co.adhoclabs.ironcushion.BenchmarkResults.IndexBenchmarkResults;
+import co.adhoclabs.ironcushion.BenchmarkResults.ViewBenchmarkResults;
 import co.adhoclabs.ironcushion.bulkinsert.BulkInsertConnectionStatistics;
+import co.adhoclabs.ironcushion.bulkinsert.BulkInsertCorpus;
 import co.adhoclabs.ironcushion.bulkinsert.BulkInsertDocumentGenerator;
+import co.adhoclabs.ironcushion.bulkinsert.BulkInsertProducerPool;
 import co.adhoclabs.ironcushion.crud.CrudConnectionStatistics;
 import co.adhoclabs.ironcushion.crud.CrudOperations;
 import co.adhoclabs.ironcushion.crud.CrudOperations.CrudOperationCounts;
+import co.adhoclabs.ironcushion.find.FindConnectionStatistics;
+import co.adhoclabs.ironcushion.find.FindIndexes;
+import co.adhoclabs.ironcushion.find.FindQueries;
+import co.adhoclabs.ironcushion.view.ViewConnectionStatistics;
+import co.adhoclabs.ironcushion.view.ViewDesignDocument;
+import co.adhoclabs.ironcushion.view.ViewQueries;
 
 /**
  * The Iron Cushion benchmark for CouchDB.
@@ -21,9 +36,66 @@ import co.adhoclabs.ironcushion.crud.CrudOperations.CrudOperationCounts;
  * @author Michael Parker (michael.g.parker@gmail.com)
  */
 public class Benchmark {
-	private static void performBulkInserts(ParsedArguments parsedArguments,
+	/**
+	 * Prints a warning for each resource that the benchmark itself saturated
+	 * during the last step performed.
+	 */
+	private static void printSaturationWarnings(HttpReactor httpReactor) {
+		for (String warning : httpReactor.getClientProfile().getSaturationWarnings()) {
+			System.out.println("WARNING: " + warning);
+		}
+	}
+
+	private static ConnectBenchmarkResults connect(HttpReactor httpReactor) throws BenchmarkException {
+		// Establish the connections used by all following steps.
+		System.out.println("Starting connect benchmark...");
+		ConnectStatistics connectStatistics = httpReactor.connect();
+		ConnectBenchmarkResults connectBenchmarkResults = BenchmarkResults.getConnectResults(
+				connectStatistics, httpReactor.getClientProfile());
+		System.out.println("CONNECT BENCHMARK RESULTS:");
+		System.out.println(connectBenchmarkResults.toString("  "));
+		System.out.println();
+		return connectBenchmarkResults;
+	}
+
+	private static List<BulkInsertDocumentGenerator> createBulkInsertDocumentGenerators(
+			ParsedArguments parsedArguments, DocumentSchema schema, String[] words,
+			Random rng, DocumentIds documentIds, BulkInsertProducerPool producerPool,
+			List<ValueGenerator> allValueGenerators) {
+		int numBulkInsertOperations = parsedArguments.numBulkInsertOperations;
+		if ((numBulkInsertOperations == 0) && (parsedArguments.bulkInsertDuration > 0)) {
+			// Generate bulk inserts until the duration passes.
+			numBulkInsertOperations = documentIds.getMaxBulkInsertOperations();
+		}
+		List<BulkInsertDocumentGenerator> allBulkInsertDocumentGenerators = new ArrayList<BulkInsertDocumentGenerator>(
+				parsedArguments.numConnections);
+		for (int i = 0; i < parsedArguments.numConnections; ++i) {
+			ValueGenerator valueGenerator = new ValueGenerator(words, rng);
+			// Keep a copy, from which the bulk inserted documents can be regenerated.
+			allValueGenerators.add(valueGenerator.copy());
+			BulkInsertDocumentGenerator bulkInsertDocumentGenerator;
+			if (producerPool != null) {
+				bulkInsertDocumentGenerator = BulkInsertDocumentGenerator.produced(
+						schema, valueGenerator, documentIds, i,
+						parsedArguments.numDocumentsPerBulkInsert,
+						numBulkInsertOperations,
+						producerPool, parsedArguments.producerQueueCapacity);
+			} else {
+				bulkInsertDocumentGenerator = BulkInsertDocumentGenerator.onDemand(
+						schema, valueGenerator, documentIds, i,
+						parsedArguments.numDocumentsPerBulkInsert,
+						numBulkInsertOperations);
+			}
+			allBulkInsertDocumentGenerators.add(bulkInsertDocumentGenerator);
+		}
+		return allBulkInsertDocumentGenerators;
+	}
+
+	private static BulkInsertBenchmarkResults performBulkInserts(ParsedArguments parsedArguments,
 			DocumentSchema schema, HttpReactor httpReactor, String[] words,
-			Random rng) throws BenchmarkException {
+			int seed, Random rng, DocumentIds documentIds, int[] allBulkInsertOperations,
+			List<ValueGenerator> allValueGenerators, DocumentRegistry documentRegistry,
+			ResultsExporter resultsExporter) throws BenchmarkException {
 
 		// Create the bulk insert path.
 		StringBuilder sb = new StringBuilder();
@@ -31,53 +103,258 @@ public class Benchmark {
 		sb.append('/').append("_bulk_docs");
 		String bulkInsertPath = sb.toString();
 
-		List<BulkInsertDocumentGenerator> allBulkInsertDocumentGenerators = new ArrayList<BulkInsertDocumentGenerator>(
-				parsedArguments.numConnections);
-		for (int i = 0; i < parsedArguments.numConnections; ++i) {
-			BulkInsertDocumentGenerator bulkInsertDocumentGenerator = BulkInsertDocumentGenerator.onDemand(
-					schema, new ValueGenerator(words, rng), i,
-					parsedArguments.numDocumentsPerBulkInsert,
-					parsedArguments.numBulkInsertOperations);
-			allBulkInsertDocumentGenerators.add(bulkInsertDocumentGenerator);
+		BulkInsertProducerPool producerPool = null;
+		List<BulkInsertDocumentGenerator> allBulkInsertDocumentGenerators;
+		if (parsedArguments.bulkInsertCorpusFile != null) {
+			// Always seed the generators, so that the CRUD operations are the same
+			// whether or not the corpus is written.
+			List<BulkInsertDocumentGenerator> onDemandGenerators = createBulkInsertDocumentGenerators(
+					parsedArguments, schema, words, rng, documentIds, null, allValueGenerators);
+			File corpusFile = parsedArguments.bulkInsertCorpusFile;
+			if (!corpusFile.exists()) {
+				System.out.println("Writing bulk insert corpus " + corpusFile + "...");
+				BulkInsertCorpus.write(corpusFile, seed, schema, onDemandGenerators,
+						parsedArguments.numDocumentsPerBulkInsert);
+			}
+			allBulkInsertDocumentGenerators = BulkInsertCorpus.map(corpusFile, seed, schema,
+					parsedArguments.numConnections,
+					parsedArguments.numBulkInsertOperations,
+					parsedArguments.numDocumentsPerBulkInsert);
+		} else {
+			if (parsedArguments.producerThreads > 0) {
+				producerPool = new BulkInsertProducerPool(parsedArguments.producerThreads);
+			}
+			allBulkInsertDocumentGenerators = createBulkInsertDocumentGenerators(
+					parsedArguments, schema, words, rng, documentIds, producerPool, allValueGenerators);
 		}
 
 		// Perform the bulk insert operations.
 		System.out.println("Starting bulk insert benchmark...");
-		List<BulkInsertConnectionStatistics> allBulkInsertConnectionStatistics = httpReactor.performBulkInserts(
-				allBulkInsertDocumentGenerators, bulkInsertPath);
+		StepStatistics<BulkInsertConnectionStatistics> bulkInsertStepStatistics;
+		try {
+			bulkInsertStepStatistics = httpReactor.performBulkInserts(
+					allBulkInsertDocumentGenerators, documentRegistry, bulkInsertPath);
+		} finally {
+			if (producerPool != null) {
+				producerPool.release();
+			}
+		}
+		for (int i = 0; i < allBulkInsertOperations.length; ++i) {
+			allBulkInsertOperations[i] = (int) bulkInsertStepStatistics.getResponses(i, 0);
+		}
+		if (httpReactor.getWarmup().isEnabled()) {
+			BulkInsertBenchmarkResults warmupResults = BenchmarkResults.getBulkInsertResults(
+					parsedArguments, bulkInsertStepStatistics.warmupConnectionStatistics,
+					httpReactor.getClientProfile());
+			System.out.println("BULK INSERT WARM-UP RESULTS:");
+			System.out.println(warmupResults.toString("  "));
+			System.out.println();
+			resultsExporter.addStepResults("bulkInsertWarmup", warmupResults);
+		}
 		BulkInsertBenchmarkResults bulkInsertBenchmarkResults =
-				BenchmarkResults.getBulkInsertResults(parsedArguments, allBulkInsertConnectionStatistics);
+				BenchmarkResults.getBulkInsertResults(parsedArguments,
+						bulkInsertStepStatistics.measuredConnectionStatistics,
+						httpReactor.getClientProfile());
 		System.out.println("BULK INSERT BENCHMARK RESULTS:");
 		System.out.println(bulkInsertBenchmarkResults.toString("  "));
+		printSaturationWarnings(httpReactor);
 		System.out.println();
+		return bulkInsertBenchmarkResults;
+	}
+
+	/**
+	 * Returns the fields of documents that views or indexes are defined on.
+	 *
+	 * @param fields the fields provided by the given argument, or {@code null} for all
+	 * @param argumentName the name of the argument, such as {@code view_fields}
+	 * @param purpose what the fields are for, such as {@code views}
+	 */
+	private static List<String> getScalarFields(List<String> fields, DocumentSchema schema,
+			String argumentName, String purpose) {
+		List<String> scalarFieldNames = schema.getScalarFieldNames();
+		if (fields == null) {
+			if (scalarFieldNames.isEmpty()) {
+				throw new IllegalArgumentException(
+						"Document schema must have a string, boolean, integer, or float field for " + purpose);
+			}
+			return scalarFieldNames;
+		}
+		for (String field : fields) {
+			if (!scalarFieldNames.contains(field)) {
+				throw new IllegalArgumentException("Value --" + argumentName + " has field " + field +
+						", which is not a string, boolean, integer, or float in the document schema");
+			}
+		}
+		return fields;
 	}
 
-	private static void performCrudOperations(ParsedArguments parsedArguments,
+	private static IndexBenchmarkResults buildViewIndex(ParsedArguments parsedArguments,
+			HttpReactor httpReactor, List<String> viewFields, String designDocumentPath)
+			throws BenchmarkException {
+		StringBuilder sb = new StringBuilder();
+		sb.append(designDocumentPath).append("/_view/");
+		sb.append(ViewDesignDocument.ALL_FIELDS_VIEW_NAME).append("?reduce=false&limit=0");
+		String buildPath = sb.toString();
+
+		// Install the design document and build its index.
+		System.out.println("Starting view index benchmark...");
+		IndexConnectionStatistics connectionStatistics = httpReactor.buildViewIndex(
+				ViewDesignDocument.create(viewFields, parsedArguments.viewReduce),
+				designDocumentPath, buildPath);
+		IndexBenchmarkResults viewIndexBenchmarkResults = BenchmarkResults.getIndexResults(
+				connectionStatistics, httpReactor.getClientProfile());
+		System.out.println("VIEW INDEX BENCHMARK RESULTS:");
+		System.out.println(viewIndexBenchmarkResults.toString("  "));
+		System.out.println();
+		return viewIndexBenchmarkResults;
+	}
+
+	private static ViewBenchmarkResults performViewQueries(ParsedArguments parsedArguments,
+			WrittenValues writtenValues, HttpReactor httpReactor, String[] words, Random rng,
+			List<String> viewFields, ResultsExporter resultsExporter) throws BenchmarkException {
+		// Create the design document path.
+		StringBuilder sb = new StringBuilder();
+		sb.append('/').append(parsedArguments.databaseName);
+		sb.append('/').append(ViewDesignDocument.ID);
+		String designDocumentPath = sb.toString();
+
+		resultsExporter.addStepResults("viewIndex",
+				buildViewIndex(parsedArguments, httpReactor, viewFields, designDocumentPath));
+
+		// Create the view queries to perform.
+		String viewsPath = designDocumentPath + "/_view/";
+		List<ViewQueries> allViewQueries = new ArrayList<ViewQueries>(parsedArguments.numConnections);
+		for (int i = 0; i < parsedArguments.numConnections; ++i) {
+			allViewQueries.add(ViewQueries.createViewQueries(
+					writtenValues, new ValueGenerator(words, rng), viewFields, viewsPath, parsedArguments));
+		}
+
+		// Perform the view queries.
+		System.out.println("Starting view benchmark...");
+		StepStatistics<ViewConnectionStatistics> viewStepStatistics = httpReactor.performViewQueries(
+				allViewQueries);
+		if (httpReactor.getWarmup().isEnabled()) {
+			ViewBenchmarkResults warmupResults = BenchmarkResults.getViewResults(
+					viewStepStatistics.warmupConnectionStatistics, httpReactor.getClientProfile());
+			System.out.println("VIEW WARM-UP RESULTS:");
+			System.out.println(warmupResults.toString("  "));
+			System.out.println();
+			resultsExporter.addStepResults("viewWarmup", warmupResults);
+		}
+		ViewBenchmarkResults viewBenchmarkResults = BenchmarkResults.getViewResults(
+				viewStepStatistics.measuredConnectionStatistics, httpReactor.getClientProfile());
+		System.out.println("VIEW BENCHMARK RESULTS:");
+		System.out.println(viewBenchmarkResults.toString("  "));
+		printSaturationWarnings(httpReactor);
+		System.out.println();
+		return viewBenchmarkResults;
+	}
+
+	private static IndexBenchmarkResults buildFindIndexes(HttpReactor httpReactor,
+			List<String> findFields, String indexPath, String findPath) throws BenchmarkException {
+		// Create the indexes and build them.
+		System.out.println("Starting find index benchmark...");
+		IndexConnectionStatistics connectionStatistics = httpReactor.buildFindIndexes(
+				FindIndexes.create(findFields), FindIndexes.createBuildQuery(findFields),
+				indexPath, findPath);
+		IndexBenchmarkResults findIndexBenchmarkResults = BenchmarkResults.getIndexResults(
+				connectionStatistics, httpReactor.getClientProfile());
+		System.out.println("FIND INDEX BENCHMARK RESULTS:");
+		System.out.println(findIndexBenchmarkResults.toString("  "));
+		System.out.println();
+		return findIndexBenchmarkResults;
+	}
+
+	private static FindBenchmarkResults performFindQueries(ParsedArguments parsedArguments,
+			WrittenValues writtenValues, HttpReactor httpReactor, String[] words, Random rng,
+			List<String> findFields, ResultsExporter resultsExporter) throws BenchmarkException {
+		// Create the index and query paths.
+		StringBuilder sb = new StringBuilder();
+		sb.append('/').append(parsedArguments.databaseName);
+		String databasePath = sb.toString();
+		String findPath = databasePath + "/_find";
+
+		resultsExporter.addStepResults("findIndex",
+				buildFindIndexes(httpReactor, findFields, databasePath + "/_index", findPath));
+
+		// Create the _find queries to perform.
+		List<FindQueries> allFindQueries = new ArrayList<FindQueries>(parsedArguments.numConnections);
+		for (int i = 0; i < parsedArguments.numConnections; ++i) {
+			allFindQueries.add(FindQueries.createFindQueries(
+					writtenValues, new ValueGenerator(words, rng), findFields, parsedArguments));
+		}
+
+		// Perform the _find queries.
+		System.out.println("Starting find benchmark...");
+		StepStatistics<FindConnectionStatistics> findStepStatistics = httpReactor.performFindQueries(
+				allFindQueries, findPath);
+		if (httpReactor.getWarmup().isEnabled()) {
+			FindBenchmarkResults warmupResults = BenchmarkResults.getFindResults(
+					findStepStatistics.warmupConnectionStatistics, httpReactor.getClientProfile());
+			System.out.println("FIND WARM-UP RESULTS:");
+			System.out.println(warmupResults.toString("  "));
+			System.out.println();
+			resultsExporter.addStepResults("findWarmup", warmupResults);
+		}
+		FindBenchmarkResults findBenchmarkResults = BenchmarkResults.getFindResults(
+				findStepStatistics.measuredConnectionStatistics, httpReactor.getClientProfile());
+		System.out.println("FIND BENCHMARK RESULTS:");
+		System.out.println(findBenchmarkResults.toString("  "));
+		printSaturationWarnings(httpReactor);
+		System.out.println();
+		return findBenchmarkResults;
+	}
+
+	private static CrudBenchmarkResults performCrudOperations(ParsedArguments parsedArguments,
 			DocumentSchema schema, HttpReactor httpReactor, String[] words,
-			Random rng, CrudOperationCounts crudOperationCounts) throws BenchmarkException {
+			Random rng, CrudOperationCounts crudOperationCounts, DocumentIds documentIds,
+			int[] allBulkInsertOperations, DocumentRegistry documentRegistry,
+			ResultsExporter resultsExporter) throws BenchmarkException {
 		// Create the CRUD operation path.
 		StringBuilder sb = new StringBuilder();
 		sb.append('/').append(parsedArguments.databaseName);
 		String crudPath = sb.toString();
 
-		// Create the CRUD operations to perform.
+		// Create the CRUD operations to perform, whose reads skip documents deleted by any connection.
 		List<CrudOperations> allCrudOperations = new ArrayList<CrudOperations>(
 				parsedArguments.numConnections);
+		BitSet deletedDocumentIds = new BitSet();
 		for (int i = 0; i < parsedArguments.numConnections; ++i) {
 			CrudOperations crudOperations = CrudOperations.createCrudOperations(
-					i, schema, new ValueGenerator(words, rng), parsedArguments, crudOperationCounts);
+					i, schema, new ValueGenerator(words, rng), parsedArguments, crudOperationCounts,
+					documentIds, allBulkInsertOperations, documentRegistry, deletedDocumentIds);
 			allCrudOperations.add(crudOperations);
 		}
 
 		// Perform the CRUD operations.
 		System.out.println("Starting CRUD benchmark...");
-		List<CrudConnectionStatistics> allCrudConnectionStatistics = httpReactor.performCrudOperations(
+		StepStatistics<CrudConnectionStatistics> crudStepStatistics = httpReactor.performCrudOperations(
 				allCrudOperations, crudPath);
+		if (httpReactor.getWarmup().isEnabled()) {
+			CrudBenchmarkResults warmupResults = BenchmarkResults.getCrudResults(
+					parsedArguments.numConnections, crudStepStatistics.warmupConnectionStatistics,
+					httpReactor.getClientProfile());
+			System.out.println("CRUD WARM-UP RESULTS:");
+			System.out.println(warmupResults.toString("  "));
+			System.out.println();
+			resultsExporter.addStepResults("crudWarmup", warmupResults);
+		}
 		CrudBenchmarkResults crudBenchmarkResults = BenchmarkResults.getCrudResults(
-				parsedArguments.numConnections, crudOperationCounts, allCrudConnectionStatistics);
+				parsedArguments.numConnections, crudStepStatistics.measuredConnectionStatistics,
+				httpReactor.getClientProfile());
 		System.out.println("CRUD BENCHMARK RESULTS:");
 		System.out.println(crudBenchmarkResults.toString("  "));
+		printSaturationWarnings(httpReactor);
 		System.out.println();
+		if (httpReactor.getAllChangesConnectionStatistics() != null) {
+			ChangesBenchmarkResults changesBenchmarkResults = BenchmarkResults.getChangesResults(
+					httpReactor.getAllChangesConnectionStatistics(), httpReactor.getClientProfile());
+			System.out.println("CHANGES BENCHMARK RESULTS:");
+			System.out.println(changesBenchmarkResults.toString("  "));
+			System.out.println();
+			resultsExporter.addStepResults("changes", changesBenchmarkResults);
+		}
+		return crudBenchmarkResults;
 	}
 
 	public static void main(String[] args) throws BenchmarkException {
@@ -86,18 +363,17 @@ public class Benchmark {
 				parsedArguments);
 		int numInsertedDocumentsPerConnection = crudOperationCounts.numCreateOperations +
 				(parsedArguments.numDocumentsPerBulkInsert * parsedArguments.numBulkInsertOperations);
-		if (crudOperationCounts.numDeleteOperations > numInsertedDocumentsPerConnection) {
+		// Steps bounded only by their duration perform an unknown number of operations.
+		if ((parsedArguments.bulkInsertDuration == 0) && (parsedArguments.numCrudOperations > 0) &&
+				(crudOperationCounts.numDeleteOperations > numInsertedDocumentsPerConnection)) {
 			throw new IllegalArgumentException(
 					crudOperationCounts.numDeleteOperations + " docs deleted > " +
 						numInsertedDocumentsPerConnection + " docs inserted per connection");
 		}
 
-		Random rng = null;
-		if (parsedArguments.seed != null) {
-			rng = new Random(parsedArguments.seed);
-		} else {
-			rng = new Random();
-		}
+		// Choose a seed if none was provided, so that it can be exported with the results.
+		int seed = (parsedArguments.seed != null) ? parsedArguments.seed : new Random().nextInt();
+		Random rng = new Random(seed);
 
 		// Create the document schema.
 		DocumentSchema schema = null;
@@ -106,6 +382,16 @@ public class Benchmark {
 		} else if (parsedArguments.xmlDocumentSchemaFile != null) {
 			schema = DocumentSchema.createSchemaFromXml(parsedArguments.xmlDocumentSchemaFile);
 		}
+		// View queries are performed only if their number or duration is provided.
+		List<String> viewFields = null;
+		if ((parsedArguments.numViewQueries > 0) || (parsedArguments.viewDuration > 0)) {
+			viewFields = getScalarFields(parsedArguments.viewFields, schema, "view_fields", "views");
+		}
+		// Likewise for _find queries.
+		List<String> findFields = null;
+		if ((parsedArguments.numFindQueries > 0) || (parsedArguments.findDuration > 0)) {
+			findFields = getScalarFields(parsedArguments.findFields, schema, "find_fields", "indexes");
+		}
 
 		// Create the address of the server.
 		URI databaseUri;
@@ -129,12 +415,51 @@ public class Benchmark {
 
 		InetSocketAddress databaseAddress = new InetSocketAddress(
 				databaseUri.getHost(), port);
-		HttpReactor httpReactor = new HttpReactor(parsedArguments, databaseAddress, authString, https);
+		HttpReactor httpReactor = new HttpReactor(parsedArguments, seed, databaseAddress, authString, https);
 		String[] words = ValueGenerator.createWords(rng);
 
-		// Perform the bulk inserts.
-		performBulkInserts(parsedArguments, schema, httpReactor, words, rng);
-		// Perform the CRUD operations.
-		performCrudOperations(parsedArguments, schema, httpReactor, words, rng, crudOperationCounts);
+		ResultsExporter resultsExporter = new ResultsExporter(parsedArguments, seed);
+		DocumentIds documentIds = new DocumentIds(parsedArguments.numConnections,
+				parsedArguments.numDocumentsPerBulkInsert);
+		int[] allBulkInsertOperations = new int[parsedArguments.numConnections];
+		List<ValueGenerator> allBulkInsertValueGenerators = new ArrayList<ValueGenerator>(
+				parsedArguments.numConnections);
+		DocumentRegistry documentRegistry = parsedArguments.useDocumentRegistry ? new DocumentRegistry() : null;
+		try {
+			// Establish the connections.
+			resultsExporter.addStepResults("connect", connect(httpReactor));
+			// Perform the bulk inserts.
+			resultsExporter.addStepResults("bulkInsert",
+					performBulkInserts(parsedArguments, schema, httpReactor, words, seed, rng,
+							documentIds, allBulkInsertOperations, allBulkInsertValueGenerators,
+							documentRegistry, resultsExporter));
+			// Sample the values of bulk inserted documents for the queries of their fields.
+			WrittenValues writtenValues = null;
+			if ((viewFields != null) || (findFields != null)) {
+				writtenValues = WrittenValues.create(schema, allBulkInsertValueGenerators,
+						allBulkInsertOperations, parsedArguments.numDocumentsPerBulkInsert);
+			}
+			// Perform the view queries.
+			if (viewFields != null) {
+				resultsExporter.addStepResults("view", performViewQueries(
+						parsedArguments, writtenValues, httpReactor, words, rng, viewFields, resultsExporter));
+			}
+			// Perform the _find queries.
+			if (findFields != null) {
+				resultsExporter.addStepResults("find", performFindQueries(
+						parsedArguments, writtenValues, httpReactor, words, rng, findFields, resultsExporter));
+			}
+			// Perform the CRUD operations.
+			resultsExporter.addStepResults("crud", performCrudOperations(
+					parsedArguments, schema, httpReactor, words, rng, crudOperationCounts,
+					documentIds, allBulkInsertOperations, documentRegistry, resultsExporter));
+		} finally {
+			httpReactor.release();
+		}
+
+		if (parsedArguments.resultsFile != null) {
+			resultsExporter.write(parsedArguments.resultsFile, parsedArguments.resultsFormat);
+			System.out.println("Wrote results to " + parsedArguments.resultsFile);
+		}
 	}
 }
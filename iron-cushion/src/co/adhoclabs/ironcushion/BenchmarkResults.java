@@ -5,9 +5,17 @@ import java.util.Formatter;
 import java.util.List;
 import java.util.Locale;
 
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
 import co.adhoclabs.ironcushion.bulkinsert.BulkInsertConnectionStatistics;
+import co.adhoclabs.ironcushion.changes.ChangesConnectionStatistics;
 import co.adhoclabs.ironcushion.crud.CrudConnectionStatistics;
 import co.adhoclabs.ironcushion.crud.CrudOperations;
+import co.adhoclabs.ironcushion.find.FindConnectionStatistics;
+import co.adhoclabs.ironcushion.find.FindQueries;
+import co.adhoclabs.ironcushion.view.ViewConnectionStatistics;
+import co.adhoclabs.ironcushion.view.ViewQueries;
 
 /**
  * The results of the benchmark.
@@ -15,17 +23,33 @@ import co.adhoclabs.ironcushion.crud.CrudOperations;
  * @author Michael Parker (michael.g.parker@gmail.com)
  */
 public abstract class BenchmarkResults {
+	/**
+	 * The time taken by the slowest connection, in nanoseconds.
+	 */
 	public final long timeTaken;
 	public final long totalJsonBytesSent;
 	public final long totalJsonBytesReceived;
+	/**
+	 * The number of requests sent later than scheduled when run open loop.
+	 */
+	public final long lateRequests;
+	/**
+	 * The resources used by the benchmark itself.
+	 */
+	public final ClientProfile clientProfile;
 
-	private BenchmarkResults(long timeTaken, long totalJsonBytesSent, long totalJsonBytesReceived) {
+	private BenchmarkResults(long timeTaken, long totalJsonBytesSent, long totalJsonBytesReceived,
+			long lateRequests, ClientProfile clientProfile) {
 		this.timeTaken = timeTaken;
 		this.totalJsonBytesSent = totalJsonBytesSent;
 		this.totalJsonBytesReceived = totalJsonBytesReceived;
+		this.lateRequests = lateRequests;
+		this.clientProfile = clientProfile;
 	}
 
-	private static final double MILLIS_PER_SEC = 1000.0;
+	private static final double NANOS_PER_SEC = 1000000000.0;
+	private static final double NANOS_PER_MILLI = 1000000.0;
+	private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
 
 	protected static Formatter getFormatter(StringBuilder sb) {
 		return new Formatter(sb, Locale.getDefault());
@@ -41,6 +65,116 @@ public abstract class BenchmarkResults {
 		return new Formatter().format("%,.3f", value).toString();
 	}
 
+	protected static String formatUtilizations(double[] utilizations) {
+		StringBuilder sb = new StringBuilder();
+		Formatter formatter = getFormatter(sb);
+		for (int i = 0; i < utilizations.length; ++i) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			formatter.format("%.1f%%", 100.0 * utilizations[i]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Appends the resources used by the benchmark itself.
+	 */
+	protected void appendClientProfile(StringBuilder sb, String indent) {
+		sb.append(indent).append("ioThreadUtilization={").append(formatUtilizations(clientProfile.ioThreadUtilizations)).append("}\n");
+		sb.append(indent).append("processCpuUtilization=").append(formatUtilizations(
+				new double[] { clientProfile.getProcessCpuUtilization() })).append("\n");
+		sb.append(indent).append("gcCount=").append(format(clientProfile.gcCount)).append("\n");
+		sb.append(indent).append("gcCollectionTime=").append(format(clientProfile.gcCollectionTimeNanos / NANOS_PER_MILLI)).append(" ms\n");
+		sb.append(indent).append("allocationRate=").append(format(clientProfile.getAllocationRate() / BYTES_PER_MEGABYTE)).append(" MB/sec\n");
+	}
+
+	@SuppressWarnings("unchecked")
+	private static JSONArray toJsonArray(double[] values) {
+		JSONArray array = new JSONArray();
+		for (double value : values) {
+			array.add(value);
+		}
+		return array;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static JSONArray toJsonArray(long[] values) {
+		JSONArray array = new JSONArray();
+		for (long value : values) {
+			array.add(value);
+		}
+		return array;
+	}
+
+	/**
+	 * Returns these results as JSON. All times are in nanoseconds, and all
+	 * rates are per second.
+	 * 
+	 * @return the JSON of these results
+	 */
+	@SuppressWarnings("unchecked")
+	public JSONObject toJson() {
+		JSONObject json = new JSONObject();
+		json.put("timeTaken", timeTaken);
+		json.put("totalJsonBytesSent", totalJsonBytesSent);
+		json.put("totalJsonBytesReceived", totalJsonBytesReceived);
+		json.put("lateRequests", lateRequests);
+		json.put("ioThreadUtilization", toJsonArray(clientProfile.ioThreadUtilizations));
+		json.put("processCpuTime", clientProfile.processCpuTimeNanos);
+		json.put("processCpuUtilization", clientProfile.getProcessCpuUtilization());
+		json.put("gcCount", clientProfile.gcCount);
+		json.put("gcCollectionTime", clientProfile.gcCollectionTimeNanos);
+		json.put("allocatedBytes", clientProfile.allocatedBytes);
+		return json;
+	}
+
+	/**
+	 * Benchmark results for establishing connections.
+	 */
+	public static final class ConnectBenchmarkResults extends BenchmarkResults {
+		public final int numConnections;
+		public final int failedConnections;
+		public final LatencyStatistics connectLatencyStatistics;
+
+		private ConnectBenchmarkResults(long timeTaken,
+				ClientProfile clientProfile,
+				int numConnections,
+				int failedConnections,
+				LatencyStatistics connectLatencyStatistics) {
+			super(timeTaken, 0, 0, 0, clientProfile);
+
+			this.numConnections = numConnections;
+			this.failedConnections = failedConnections;
+			this.connectLatencyStatistics = connectLatencyStatistics;
+		}
+
+		@Override
+		public String toString() {
+			return toString("");
+		}
+
+		public String toString(String indent) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(indent).append("timeTaken=").append(format(timeTaken / NANOS_PER_SEC)).append(" secs\n");
+			sb.append(indent).append("numConnections=").append(format(numConnections)).append("\n");
+			sb.append(indent).append("failedConnections=").append(format(failedConnections)).append("\n");
+			appendClientProfile(sb, indent);
+			sb.append(indent).append("connectLatency={").append(connectLatencyStatistics).append("}");
+			return sb.toString();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public JSONObject toJson() {
+			JSONObject json = super.toJson();
+			json.put("numConnections", numConnections);
+			json.put("failedConnections", failedConnections);
+			json.put("connectLatency", connectLatencyStatistics.toJson());
+			return json;
+		}
+	}
+
 	/**
 	 * Benchmark results for bulk insertions.
 	 */
@@ -49,30 +183,65 @@ public abstract class BenchmarkResults {
 		public final SampleStatistics sendDataStatistics;
 		public final SampleStatistics remoteProcessingStatistics;
 		public final SampleStatistics receiveDataStatistics;
+		public final LatencyStatistics bulkInsertLatencyStatistics;
 
 		public final double remoteProcessingRate;
 		public final double localInsertRate;
 		public final int timeouts;
+		/**
+		 * The number of bulk inserts that waited for a producer thread to generate their buffers.
+		 */
+		public final long producerWaits;
+		/**
+		 * The total time bulk inserts waited for producer threads, in nanoseconds.
+		 */
+		public final long producerWaitTime;
+		/**
+		 * The responses to bulk inserts by status class and error reason.
+		 */
+		public final ResponseCounts responseCounts;
+		/**
+		 * The number of documents inserted by successful bulk inserts.
+		 */
+		public final long insertedDocuments;
+		/**
+		 * The errors of documents that successful bulk inserts did not insert.
+		 */
+		public final ErrorCounts documentErrors;
 
 		private BulkInsertBenchmarkResults(long timeTaken,
 				long totalJsonBytesSent,
 				long totalJsonBytesReceived,
+				long lateRequests,
+				ClientProfile clientProfile,
 				SampleStatistics localProcessingStatistics,
 				SampleStatistics sendDataStatistics,
 				SampleStatistics remoteProcessingStatistics,
 				SampleStatistics receiveDataStatistics,
+				LatencyStatistics bulkInsertLatencyStatistics,
 				double remoteProcessingRate,
 				double localInsertRate,
-				int timeouts) {
-			super(timeTaken, totalJsonBytesSent, totalJsonBytesReceived);
+				int timeouts,
+				long producerWaits,
+				long producerWaitTime,
+				ResponseCounts responseCounts,
+				long insertedDocuments,
+				ErrorCounts documentErrors) {
+			super(timeTaken, totalJsonBytesSent, totalJsonBytesReceived, lateRequests, clientProfile);
 
 			this.localProcessingStatistics = localProcessingStatistics;
 			this.sendDataStatistics = sendDataStatistics;
 			this.remoteProcessingStatistics = remoteProcessingStatistics;
 			this.receiveDataStatistics = receiveDataStatistics;
+			this.bulkInsertLatencyStatistics = bulkInsertLatencyStatistics;
 			this.remoteProcessingRate = remoteProcessingRate;
 			this.localInsertRate = localInsertRate;
 			this.timeouts = timeouts;
+			this.producerWaits = producerWaits;
+			this.producerWaitTime = producerWaitTime;
+			this.responseCounts = responseCounts;
+			this.insertedDocuments = insertedDocuments;
+			this.documentErrors = documentErrors;
 		}
 
 		@Override
@@ -82,18 +251,46 @@ public abstract class BenchmarkResults {
 
 		public String toString(String indent) {
 			StringBuilder sb = new StringBuilder();
-			sb.append(indent).append("timeTaken=").append(format(timeTaken / MILLIS_PER_SEC)).append(" secs\n");
+			sb.append(indent).append("timeTaken=").append(format(timeTaken / NANOS_PER_SEC)).append(" secs\n");
 			sb.append(indent).append("connectionTimeouts=").append(format(timeouts)).append("\n");
 			sb.append(indent).append("totalJsonBytesSent=").append(format(totalJsonBytesSent)).append(" bytes\n");
 			sb.append(indent).append("totalJsonBytesReceived=").append(format(totalJsonBytesReceived)).append(" bytes\n");
+			sb.append(indent).append("lateRequests=").append(format(lateRequests)).append("\n");
+			appendClientProfile(sb, indent);
+			sb.append(indent).append("producerWaits=").append(format(producerWaits)).append("\n");
+			sb.append(indent).append("producerWaitTime=").append(format(producerWaitTime / NANOS_PER_MILLI)).append(" ms\n");
+			sb.append(indent).append("bulkInsertResponses={").append(responseCounts.toString(0)).append("}\n");
+			sb.append(indent).append("insertedDocuments=").append(format(insertedDocuments)).append("\n");
+			sb.append(indent).append("documentErrors={").append(documentErrors).append("}\n");
 			sb.append(indent).append("localProcessing={").append(localProcessingStatistics).append("}\n");
 			sb.append(indent).append("sendData={").append(sendDataStatistics).append("}\n");
 			sb.append(indent).append("remoteProcessing={").append(remoteProcessingStatistics).append("}\n");
 			sb.append(indent).append("receiveData={").append(receiveDataStatistics).append("}\n");
+			sb.append(indent).append("bulkInsertLatency={").append(bulkInsertLatencyStatistics).append("}\n");
 			sb.append(indent).append("remoteProcessingRate=").append(format(remoteProcessingRate)).append(" docs/sec\n");
 			sb.append(indent).append("localInsertRate=").append(format(localInsertRate)).append(" docs/sec");
 			return sb.toString();
 		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public JSONObject toJson() {
+			JSONObject json = super.toJson();
+			json.put("connectionTimeouts", timeouts);
+			json.put("producerWaits", producerWaits);
+			json.put("producerWaitTime", producerWaitTime);
+			json.put("bulkInsertResponses", responseCounts.toJson(0));
+			json.put("insertedDocuments", insertedDocuments);
+			json.put("documentErrors", documentErrors.toJson());
+			json.put("localProcessing", localProcessingStatistics.toJson());
+			json.put("sendData", sendDataStatistics.toJson());
+			json.put("remoteProcessing", remoteProcessingStatistics.toJson());
+			json.put("receiveData", receiveDataStatistics.toJson());
+			json.put("bulkInsertLatency", bulkInsertLatencyStatistics.toJson());
+			json.put("remoteProcessingRate", remoteProcessingRate);
+			json.put("localInsertRate", localInsertRate);
+			return json;
+		}
 	}
 
 	/**
@@ -106,28 +303,44 @@ public abstract class BenchmarkResults {
 		public final SampleStatistics remoteReadProcessingStatistics;
 		public final SampleStatistics remoteUpdateProcessingStatistics;
 		public final SampleStatistics remoteDeleteProcessingStatistics;
+		public final LatencyStatistics createLatencyStatistics;
+		public final LatencyStatistics readLatencyStatistics;
+		public final LatencyStatistics updateLatencyStatistics;
+		public final LatencyStatistics deleteLatencyStatistics;
 
 		public final double remoteCreateProcessingRate;
 		public final double remoteReadProcessingRate;
 		public final double remoteUpdateProcessingRate;
 		public final double remoteDeleteProcessingRate;
 		public final int timeouts;
+		/**
+		 * The responses to each type of operation by status class and error
+		 * reason, indexed by {@link CrudOperations.Type}.
+		 */
+		public final ResponseCounts responseCounts;
 
 		public CrudBenchmarkResults(long timeTaken,
 				long totalJsonBytesSent,
 				long totalJsonBytesReceived,
+				long lateRequests,
+				ClientProfile clientProfile,
 				SampleStatistics localProcessingStatistics,
 				SampleStatistics sendDataStatistics,
 				SampleStatistics remoteCreateProcessingStatistics,
 				SampleStatistics remoteReadProcessingStatistics,
 				SampleStatistics remoteUpdateProcessingStatistics,
 				SampleStatistics remoteDeleteProcessingStatistics,
+				LatencyStatistics createLatencyStatistics,
+				LatencyStatistics readLatencyStatistics,
+				LatencyStatistics updateLatencyStatistics,
+				LatencyStatistics deleteLatencyStatistics,
 				double remoteCreateProcessingRate,
 				double remoteReadProcessingRate,
 				double remoteUpdateProcessingRate,
 				double remoteDeleteProcessingRate,
-				int timeouts) {
-			super(timeTaken, totalJsonBytesSent, totalJsonBytesReceived);
+				int timeouts,
+				ResponseCounts responseCounts) {
+			super(timeTaken, totalJsonBytesSent, totalJsonBytesReceived, lateRequests, clientProfile);
 
 			this.localProcessingStatistics = localProcessingStatistics;
 			this.sendDataStatistics = sendDataStatistics;
@@ -135,11 +348,16 @@ public abstract class BenchmarkResults {
 			this.remoteReadProcessingStatistics = remoteReadProcessingStatistics;
 			this.remoteUpdateProcessingStatistics = remoteUpdateProcessingStatistics;
 			this.remoteDeleteProcessingStatistics = remoteDeleteProcessingStatistics;
+			this.createLatencyStatistics = createLatencyStatistics;
+			this.readLatencyStatistics = readLatencyStatistics;
+			this.updateLatencyStatistics = updateLatencyStatistics;
+			this.deleteLatencyStatistics = deleteLatencyStatistics;
 			this.remoteCreateProcessingRate = remoteCreateProcessingRate;
 			this.remoteReadProcessingRate = remoteReadProcessingRate;
 			this.remoteUpdateProcessingRate = remoteUpdateProcessingRate;
 			this.remoteDeleteProcessingRate = remoteDeleteProcessingRate;
 			this.timeouts = timeouts;
+			this.responseCounts = responseCounts;
 		}
 
 		@Override
@@ -149,22 +367,476 @@ public abstract class BenchmarkResults {
 
 		public String toString(String indent) {
 			StringBuilder sb = new StringBuilder();
-			sb.append(indent).append("timeTaken=").append(format(timeTaken / MILLIS_PER_SEC)).append(" secs\n");
+			sb.append(indent).append("timeTaken=").append(format(timeTaken / NANOS_PER_SEC)).append(" secs\n");
 			sb.append(indent).append("connectionTimeouts=").append(format(timeouts)).append("\n");
 			sb.append(indent).append("totalJsonBytesSent=").append(format(totalJsonBytesSent)).append(" bytes\n");
 			sb.append(indent).append("totalJsonBytesReceived=").append(format(totalJsonBytesReceived)).append(" bytes\n");
+			sb.append(indent).append("lateRequests=").append(format(lateRequests)).append("\n");
+			appendClientProfile(sb, indent);
+			for (CrudOperations.Type type : CrudOperations.Type.values()) {
+				sb.append(indent).append(CrudConnectionStatistics.OPERATION_NAMES[type.ordinal()])
+						.append("Responses={").append(responseCounts.toString(type.ordinal())).append("}\n");
+			}
 			sb.append(indent).append("localProcessing={").append(localProcessingStatistics).append("}\n");
 			sb.append(indent).append("sendData={").append(sendDataStatistics).append("}\n");
 			sb.append(indent).append("remoteCreateProcessing={").append(remoteCreateProcessingStatistics).append("}\n");
 			sb.append(indent).append("remoteReadProcessing={").append(remoteReadProcessingStatistics).append("}\n");
 			sb.append(indent).append("remoteUpdateProcessing={").append(remoteUpdateProcessingStatistics).append("}\n");
 			sb.append(indent).append("remoteDeleteProcessing={").append(remoteDeleteProcessingStatistics).append("}\n");
+			sb.append(indent).append("createLatency={").append(createLatencyStatistics).append("}\n");
+			sb.append(indent).append("readLatency={").append(readLatencyStatistics).append("}\n");
+			sb.append(indent).append("updateLatency={").append(updateLatencyStatistics).append("}\n");
+			sb.append(indent).append("deleteLatency={").append(deleteLatencyStatistics).append("}\n");
 			sb.append(indent).append("remoteCreateProcessingRate=").append(format(remoteCreateProcessingRate)).append(" docs/sec\n");
 			sb.append(indent).append("remoteReadProcessingRate=").append(format(remoteReadProcessingRate)).append(" docs/sec\n");
 			sb.append(indent).append("remoteUpdateProcessingRate=").append(format(remoteUpdateProcessingRate)).append(" docs/sec\n");
 			sb.append(indent).append("remoteDeleteProcessingRate=").append(format(remoteDeleteProcessingRate)).append(" docs/sec");
 			return sb.toString();
 		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public JSONObject toJson() {
+			JSONObject json = super.toJson();
+			json.put("connectionTimeouts", timeouts);
+			json.put("localProcessing", localProcessingStatistics.toJson());
+			json.put("sendData", sendDataStatistics.toJson());
+			json.put("remoteCreateProcessing", remoteCreateProcessingStatistics.toJson());
+			json.put("remoteReadProcessing", remoteReadProcessingStatistics.toJson());
+			json.put("remoteUpdateProcessing", remoteUpdateProcessingStatistics.toJson());
+			json.put("remoteDeleteProcessing", remoteDeleteProcessingStatistics.toJson());
+			json.put("createLatency", createLatencyStatistics.toJson());
+			json.put("readLatency", readLatencyStatistics.toJson());
+			json.put("updateLatency", updateLatencyStatistics.toJson());
+			json.put("deleteLatency", deleteLatencyStatistics.toJson());
+			json.put("remoteCreateProcessingRate", remoteCreateProcessingRate);
+			json.put("remoteReadProcessingRate", remoteReadProcessingRate);
+			json.put("remoteUpdateProcessingRate", remoteUpdateProcessingRate);
+			json.put("remoteDeleteProcessingRate", remoteDeleteProcessingRate);
+			for (CrudOperations.Type type : CrudOperations.Type.values()) {
+				json.put(CrudConnectionStatistics.OPERATION_NAMES[type.ordinal()] + "Responses",
+						responseCounts.toJson(type.ordinal()));
+			}
+			return json;
+		}
+	}
+
+	/**
+	 * Benchmark results for preparing an index and building it, such as
+	 * installing the design document of the views or creating the Mango
+	 * indexes of {@code _find} queries.
+	 */
+	public static final class IndexBenchmarkResults extends BenchmarkResults {
+		/**
+		 * The names of the types of operations, indexed by
+		 * {@link IndexConnectionStatistics#PREPARE} and
+		 * {@link IndexConnectionStatistics#BUILD}.
+		 */
+		public final String[] operationNames;
+		/**
+		 * The time taken to prepare the index, in nanoseconds.
+		 */
+		public final long prepareTime;
+		/**
+		 * The time taken to build the index after preparing it, in
+		 * nanoseconds.
+		 */
+		public final long buildTime;
+		/**
+		 * The responses to preparing and building by status class and error
+		 * reason, in the order of {@link #operationNames}.
+		 */
+		public final ResponseCounts responseCounts;
+
+		private IndexBenchmarkResults(long timeTaken,
+				long totalJsonBytesSent,
+				long totalJsonBytesReceived,
+				ClientProfile clientProfile,
+				String[] operationNames,
+				long prepareTime,
+				long buildTime,
+				ResponseCounts responseCounts) {
+			super(timeTaken, totalJsonBytesSent, totalJsonBytesReceived, 0, clientProfile);
+
+			this.operationNames = operationNames;
+			this.prepareTime = prepareTime;
+			this.buildTime = buildTime;
+			this.responseCounts = responseCounts;
+		}
+
+		@Override
+		public String toString() {
+			return toString("");
+		}
+
+		public String toString(String indent) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(indent).append("timeTaken=").append(format(timeTaken / NANOS_PER_SEC)).append(" secs\n");
+			sb.append(indent).append("totalJsonBytesSent=").append(format(totalJsonBytesSent)).append(" bytes\n");
+			sb.append(indent).append("totalJsonBytesReceived=").append(format(totalJsonBytesReceived)).append(" bytes\n");
+			appendClientProfile(sb, indent);
+			for (int i = 0; i < operationNames.length; ++i) {
+				sb.append(indent).append(operationNames[i])
+						.append("Responses={").append(responseCounts.toString(i)).append("}\n");
+			}
+			sb.append(indent).append(operationNames[IndexConnectionStatistics.PREPARE])
+					.append("Time=").append(format(prepareTime / NANOS_PER_SEC)).append(" secs\n");
+			sb.append(indent).append(operationNames[IndexConnectionStatistics.BUILD])
+					.append("Time=").append(format(buildTime / NANOS_PER_SEC)).append(" secs");
+			return sb.toString();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public JSONObject toJson() {
+			JSONObject json = super.toJson();
+			json.put(operationNames[IndexConnectionStatistics.PREPARE] + "Time", prepareTime);
+			json.put(operationNames[IndexConnectionStatistics.BUILD] + "Time", buildTime);
+			for (int i = 0; i < operationNames.length; ++i) {
+				json.put(operationNames[i] + "Responses", responseCounts.toJson(i));
+			}
+			return json;
+		}
+	}
+
+	/**
+	 * Superclass for benchmark results for queries of several types, such as
+	 * view queries or Mango {@code _find} queries. The statistics of each type
+	 * of query are indexed by the ordinal of its type.
+	 */
+	public static abstract class QueryBenchmarkResults extends BenchmarkResults {
+		/**
+		 * The names of the types of queries, in the order of their types.
+		 */
+		public final String[] operationNames;
+		public final SampleStatistics localProcessingStatistics;
+		public final SampleStatistics sendDataStatistics;
+		public final SampleStatistics[] remoteProcessingStatistics;
+		public final LatencyStatistics[] latencyStatistics;
+		/**
+		 * The number of requests of each type answered per second of remote processing.
+		 */
+		public final double[] remoteProcessingRates;
+		public final int timeouts;
+		/**
+		 * The responses to each type of query by status class and error reason.
+		 */
+		public final ResponseCounts responseCounts;
+		/**
+		 * The unit of {@link #remoteProcessingRates}.
+		 */
+		private final String rateUnit;
+
+		private QueryBenchmarkResults(long timeTaken,
+				long totalJsonBytesSent,
+				long totalJsonBytesReceived,
+				long lateRequests,
+				ClientProfile clientProfile,
+				String[] operationNames,
+				String rateUnit,
+				SampleStatistics localProcessingStatistics,
+				SampleStatistics sendDataStatistics,
+				SampleStatistics[] remoteProcessingStatistics,
+				LatencyStatistics[] latencyStatistics,
+				double[] remoteProcessingRates,
+				int timeouts,
+				ResponseCounts responseCounts) {
+			super(timeTaken, totalJsonBytesSent, totalJsonBytesReceived, lateRequests, clientProfile);
+
+			this.operationNames = operationNames;
+			this.rateUnit = rateUnit;
+			this.localProcessingStatistics = localProcessingStatistics;
+			this.sendDataStatistics = sendDataStatistics;
+			this.remoteProcessingStatistics = remoteProcessingStatistics;
+			this.latencyStatistics = latencyStatistics;
+			this.remoteProcessingRates = remoteProcessingRates;
+			this.timeouts = timeouts;
+			this.responseCounts = responseCounts;
+		}
+
+		/**
+		 * Returns the name of the given type of query, capitalized to follow
+		 * another word.
+		 */
+		private String getCapitalizedName(int type) {
+			String name = operationNames[type];
+			return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+		}
+
+		/**
+		 * Appends the line of the statistics specific to the given type of query.
+		 */
+		protected abstract void appendTypeStatistics(StringBuilder sb, String name, int type);
+
+		/**
+		 * Adds the statistics specific to the given type of query to its JSON.
+		 */
+		protected abstract void putTypeStatistics(JSONObject json, String name, int type);
+
+		@Override
+		public String toString() {
+			return toString("");
+		}
+
+		public String toString(String indent) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(indent).append("timeTaken=").append(format(timeTaken / NANOS_PER_SEC)).append(" secs\n");
+			sb.append(indent).append("connectionTimeouts=").append(format(timeouts)).append("\n");
+			sb.append(indent).append("totalJsonBytesSent=").append(format(totalJsonBytesSent)).append(" bytes\n");
+			sb.append(indent).append("totalJsonBytesReceived=").append(format(totalJsonBytesReceived)).append(" bytes\n");
+			sb.append(indent).append("lateRequests=").append(format(lateRequests)).append("\n");
+			appendClientProfile(sb, indent);
+			for (int i = 0; i < operationNames.length; ++i) {
+				sb.append(indent).append(operationNames[i])
+						.append("Responses={").append(responseCounts.toString(i)).append("}\n");
+			}
+			sb.append(indent).append("localProcessing={").append(localProcessingStatistics).append("}\n");
+			sb.append(indent).append("sendData={").append(sendDataStatistics).append("}\n");
+			for (int i = 0; i < operationNames.length; ++i) {
+				sb.append(indent).append("remote").append(getCapitalizedName(i)).append("Processing={")
+						.append(remoteProcessingStatistics[i]).append("}\n");
+			}
+			for (int i = 0; i < operationNames.length; ++i) {
+				sb.append(indent).append(operationNames[i])
+						.append("Latency={").append(latencyStatistics[i]).append("}\n");
+			}
+			for (int i = 0; i < operationNames.length; ++i) {
+				sb.append(indent);
+				appendTypeStatistics(sb, operationNames[i], i);
+				sb.append("\n");
+			}
+			for (int i = 0; i < operationNames.length; ++i) {
+				sb.append(indent).append("remote").append(getCapitalizedName(i)).append("ProcessingRate=")
+						.append(format(remoteProcessingRates[i])).append(' ').append(rateUnit);
+				if (i < operationNames.length - 1) {
+					sb.append("\n");
+				}
+			}
+			return sb.toString();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public JSONObject toJson() {
+			JSONObject json = super.toJson();
+			json.put("connectionTimeouts", timeouts);
+			json.put("localProcessing", localProcessingStatistics.toJson());
+			json.put("sendData", sendDataStatistics.toJson());
+			for (int i = 0; i < operationNames.length; ++i) {
+				String name = operationNames[i];
+				String capitalizedName = getCapitalizedName(i);
+				json.put("remote" + capitalizedName + "Processing", remoteProcessingStatistics[i].toJson());
+				json.put(name + "Latency", latencyStatistics[i].toJson());
+				putTypeStatistics(json, name, i);
+				json.put("remote" + capitalizedName + "ProcessingRate", remoteProcessingRates[i]);
+				json.put(name + "Responses", responseCounts.toJson(i));
+			}
+			return json;
+		}
+	}
+
+	/**
+	 * Benchmark results for view queries. The statistics of each type of query
+	 * are indexed by {@link ViewQueries.Type}.
+	 */
+	public static final class ViewBenchmarkResults extends QueryBenchmarkResults {
+		/**
+		 * The number of rows returned by successful queries of each type.
+		 */
+		public final long[] rows;
+		/**
+		 * The number of rows of each type of query returned per second of remote processing.
+		 */
+		public final double[] rowRates;
+
+		private ViewBenchmarkResults(long timeTaken,
+				long totalJsonBytesSent,
+				long totalJsonBytesReceived,
+				long lateRequests,
+				ClientProfile clientProfile,
+				SampleStatistics localProcessingStatistics,
+				SampleStatistics sendDataStatistics,
+				SampleStatistics[] remoteProcessingStatistics,
+				LatencyStatistics[] latencyStatistics,
+				long[] rows,
+				double[] remoteProcessingRates,
+				double[] rowRates,
+				int timeouts,
+				ResponseCounts responseCounts) {
+			super(timeTaken, totalJsonBytesSent, totalJsonBytesReceived, lateRequests, clientProfile,
+					ViewConnectionStatistics.OPERATION_NAMES, "queries/sec",
+					localProcessingStatistics, sendDataStatistics, remoteProcessingStatistics,
+					latencyStatistics, remoteProcessingRates, timeouts, responseCounts);
+
+			this.rows = rows;
+			this.rowRates = rowRates;
+		}
+
+		@Override
+		protected void appendTypeStatistics(StringBuilder sb, String name, int type) {
+			sb.append(name).append("Rows=").append(format(rows[type]))
+					.append(", ").append(name).append("RowRate=").append(format(rowRates[type]))
+					.append(" rows/sec");
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		protected void putTypeStatistics(JSONObject json, String name, int type) {
+			json.put(name + "Rows", rows[type]);
+			json.put(name + "RowRate", rowRates[type]);
+		}
+	}
+
+	/**
+	 * Benchmark results for Mango {@code _find} queries. The statistics of
+	 * each type of query are indexed by {@link FindQueries.Type}, and count
+	 * each page of a query as a request.
+	 */
+	public static final class FindBenchmarkResults extends QueryBenchmarkResults {
+		/**
+		 * The number of documents returned by successful requests of each type.
+		 */
+		public final long[] docs;
+		/**
+		 * The number of documents examined by the server for successful
+		 * requests of each type, from their execution statistics.
+		 */
+		public final long[] docsExamined;
+		/**
+		 * The number of documents examined per document returned for each type.
+		 */
+		public final double[] docsExaminedPerDoc;
+		/**
+		 * The number of successful requests of each type for a page after the
+		 * first, by following a bookmark.
+		 */
+		public final long[] followingPages;
+
+		private FindBenchmarkResults(long timeTaken,
+				long totalJsonBytesSent,
+				long totalJsonBytesReceived,
+				long lateRequests,
+				ClientProfile clientProfile,
+				SampleStatistics localProcessingStatistics,
+				SampleStatistics sendDataStatistics,
+				SampleStatistics[] remoteProcessingStatistics,
+				LatencyStatistics[] latencyStatistics,
+				long[] docs,
+				long[] docsExamined,
+				double[] docsExaminedPerDoc,
+				long[] followingPages,
+				double[] remoteProcessingRates,
+				int timeouts,
+				ResponseCounts responseCounts) {
+			super(timeTaken, totalJsonBytesSent, totalJsonBytesReceived, lateRequests, clientProfile,
+					FindConnectionStatistics.OPERATION_NAMES, "requests/sec",
+					localProcessingStatistics, sendDataStatistics, remoteProcessingStatistics,
+					latencyStatistics, remoteProcessingRates, timeouts, responseCounts);
+
+			this.docs = docs;
+			this.docsExamined = docsExamined;
+			this.docsExaminedPerDoc = docsExaminedPerDoc;
+			this.followingPages = followingPages;
+		}
+
+		@Override
+		protected void appendTypeStatistics(StringBuilder sb, String name, int type) {
+			sb.append(name).append("Docs=").append(format(docs[type]))
+					.append(", ").append(name).append("DocsExamined=").append(format(docsExamined[type]))
+					.append(", ").append(name).append("DocsExaminedPerDoc=")
+					.append(format(docsExaminedPerDoc[type]))
+					.append(", ").append(name).append("FollowingPages=").append(format(followingPages[type]));
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		protected void putTypeStatistics(JSONObject json, String name, int type) {
+			json.put(name + "Docs", docs[type]);
+			json.put(name + "DocsExamined", docsExamined[type]);
+			json.put(name + "DocsExaminedPerDoc", docsExaminedPerDoc[type]);
+			json.put(name + "FollowingPages", followingPages[type]);
+		}
+	}
+
+	/**
+	 * Benchmark results for consuming the changes feed while the CRUD
+	 * operations are performed.
+	 */
+	public static final class ChangesBenchmarkResults extends BenchmarkResults {
+		/**
+		 * The number of changes received, summed over all connections.
+		 */
+		public final long changes;
+		/**
+		 * The latencies from sending each write until receiving its change.
+		 */
+		public final LatencyStatistics changeLatencyStatistics;
+		/**
+		 * The number of changes received per second, summed over all connections.
+		 */
+		public final double changeRate;
+		/**
+		 * The number of bytes of the feed received per second, summed over all connections.
+		 */
+		public final double feedRate;
+		/**
+		 * The responses to each type of request by status class and error
+		 * reason, in the order of {@link ChangesConnectionStatistics#OPERATION_NAMES}.
+		 */
+		public final ResponseCounts responseCounts;
+
+		private ChangesBenchmarkResults(long timeTaken,
+				long totalJsonBytesReceived,
+				ClientProfile clientProfile,
+				long changes,
+				LatencyStatistics changeLatencyStatistics,
+				double changeRate,
+				double feedRate,
+				ResponseCounts responseCounts) {
+			super(timeTaken, 0, totalJsonBytesReceived, 0, clientProfile);
+
+			this.changes = changes;
+			this.changeLatencyStatistics = changeLatencyStatistics;
+			this.changeRate = changeRate;
+			this.feedRate = feedRate;
+			this.responseCounts = responseCounts;
+		}
+
+		@Override
+		public String toString() {
+			return toString("");
+		}
+
+		public String toString(String indent) {
+			// The resources used by the benchmark are those of the CRUD operations.
+			StringBuilder sb = new StringBuilder();
+			sb.append(indent).append("timeTaken=").append(format(timeTaken / NANOS_PER_SEC)).append(" secs\n");
+			sb.append(indent).append("totalJsonBytesReceived=").append(format(totalJsonBytesReceived)).append(" bytes\n");
+			for (int i = 0; i < ChangesConnectionStatistics.OPERATION_NAMES.length; ++i) {
+				sb.append(indent).append(ChangesConnectionStatistics.OPERATION_NAMES[i])
+						.append("Responses={").append(responseCounts.toString(i)).append("}\n");
+			}
+			sb.append(indent).append("changes=").append(format(changes)).append("\n");
+			sb.append(indent).append("changeLatency={").append(changeLatencyStatistics).append("}\n");
+			sb.append(indent).append("changeRate=").append(format(changeRate)).append(" changes/sec\n");
+			sb.append(indent).append("feedRate=").append(format(feedRate)).append(" bytes/sec");
+			return sb.toString();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public JSONObject toJson() {
+			JSONObject json = super.toJson();
+			json.put("changes", changes);
+			json.put("changeLatency", changeLatencyStatistics.toJson());
+			json.put("changeRate", changeRate);
+			json.put("feedRate", feedRate);
+			for (int i = 0; i < ChangesConnectionStatistics.OPERATION_NAMES.length; ++i) {
+				json.put(ChangesConnectionStatistics.OPERATION_NAMES[i] + "Responses",
+						responseCounts.toJson(i));
+			}
+			return json;
+		}
 	}
 
 	private static long getTimeTaken(
@@ -172,7 +844,7 @@ public abstract class BenchmarkResults {
 		// The time taken is the maximum time taken by any connection.
 		long maxTimeTaken = 0;
 		for (AbstractConnectionStatistics connectionStatistics : allConnectionStatistics) {
-			long timeTaken = connectionStatistics.getTotalTimeMillis();
+			long timeTaken = connectionStatistics.getTotalTimeNanos();
 			if (timeTaken > maxTimeTaken) {
 				maxTimeTaken = timeTaken;
 			}
@@ -198,12 +870,30 @@ public abstract class BenchmarkResults {
 		return totalJsonBytesReceived;
 	}
 
+	private static long getLateRequests(
+			List<? extends AbstractConnectionStatistics> allConnectionStatistics) {
+		long lateRequests = 0;
+		for (AbstractConnectionStatistics connectionStatistics : allConnectionStatistics) {
+			lateRequests += connectionStatistics.getLateRequests();
+		}
+		return lateRequests;
+	}
+
+	private static ResponseCounts getResponseCounts(
+			List<? extends AbstractConnectionStatistics> allConnectionStatistics, int numOperationTypes) {
+		ResponseCounts responseCounts = new ResponseCounts(numOperationTypes);
+		for (AbstractConnectionStatistics connectionStatistics : allConnectionStatistics) {
+			responseCounts.add(connectionStatistics.getResponseCounts());
+		}
+		return responseCounts;
+	}
+
 	private static SampleStatistics getLocalProcessingStatistics(
 			List<? extends AbstractConnectionStatistics> allConnectionStatistics) {
 		long[] values = new long[allConnectionStatistics.size()];
 		for (int i = 0; i < allConnectionStatistics.size(); ++i) {
 			AbstractConnectionStatistics connectionStatistics = allConnectionStatistics.get(i);
-			values[i] = connectionStatistics.getLocalProcessingTimeMillis();
+			values[i] = connectionStatistics.getLocalProcessingTimeNanos();
 		}
 		return SampleStatistics.statisticsForPopulation(values);
 	}
@@ -213,23 +903,53 @@ public abstract class BenchmarkResults {
 		long[] values = new long[allConnectionStatistics.size()];
 		for (int i = 0; i < allConnectionStatistics.size(); ++i) {
 			AbstractConnectionStatistics connectionStatistics = allConnectionStatistics.get(i);
-			values[i] = connectionStatistics.getSendDataTimeMillis();
+			values[i] = connectionStatistics.getSendDataTimeNanos();
 		}
 		return SampleStatistics.statisticsForPopulation(values);
 	}
 
+	private static LatencyStatistics getLatencyStatistics(
+			List<CrudConnectionStatistics> allConnectionStatistics, CrudOperations.Type type) {
+		LatencyHistogram latencies = new LatencyHistogram();
+		for (CrudConnectionStatistics connectionStatistics : allConnectionStatistics) {
+			latencies.add(connectionStatistics.getLatencies(type));
+		}
+		return LatencyStatistics.statisticsForHistogram(latencies);
+	}
+
+	/**
+	 * Returns benchmark results for establishing connections.
+	 * 
+	 * @param connectStatistics the statistics for establishing connections
+	 * @param clientProfile the resources used by the benchmark itself while connecting
+	 * @return the benchmark results
+	 */
+	public static ConnectBenchmarkResults getConnectResults(
+			ConnectStatistics connectStatistics, ClientProfile clientProfile) {
+		LatencyHistogram connectLatencies = connectStatistics.getConnectLatencies();
+		int failedConnections = connectStatistics.getNumFailedConnections();
+		return new ConnectBenchmarkResults(connectStatistics.getTimeTakenNanos(),
+				clientProfile,
+				(int) connectLatencies.getTotalCount() + failedConnections,
+				failedConnections,
+				LatencyStatistics.statisticsForHistogram(connectLatencies));
+	}
+
 	/**
 	 * Returns benchmark results for the connection statistics for bulk inserts.
 	 * 
 	 * @param allConnectionStatistics the bulk insert connection statistics
+	 * @param clientProfile the resources used by the benchmark itself during the bulk inserts
 	 * @return the benchmark results
 	 */
 	public static BulkInsertBenchmarkResults getBulkInsertResults(
 			ParsedArguments parsedArguments,
-			List<BulkInsertConnectionStatistics> allConnectionStatistics) {
+			List<BulkInsertConnectionStatistics> allConnectionStatistics,
+			ClientProfile clientProfile) {
 		long timeTaken = getTimeTaken(allConnectionStatistics);
 		long totalJsonBytesSent = getTotalJsonBytesSent(allConnectionStatistics);
 		long totalJsonBytesReceived = getTotalJsonBytesReceived(allConnectionStatistics);
+		long lateRequests = getLateRequests(allConnectionStatistics);
 
 		long[] values = new long[allConnectionStatistics.size()];
 		// Get statistics for local processing.
@@ -239,64 +959,98 @@ public abstract class BenchmarkResults {
 		// Get statistics for remote processing.
 		for (int i = 0; i < allConnectionStatistics.size(); ++i) {
 			BulkInsertConnectionStatistics connectionStatistics = allConnectionStatistics.get(i);
-			values[i] = connectionStatistics.getRemoteProcessingTimeMillis();
+			values[i] = connectionStatistics.getRemoteProcessingTimeNanos();
 		}
 		SampleStatistics remoteProcessingStatistics = SampleStatistics.statisticsForPopulation(values);
 		// Get statistics for receiving data.
 		for (int i = 0; i < allConnectionStatistics.size(); ++i) {
 			BulkInsertConnectionStatistics connectionStatistics = allConnectionStatistics.get(i);
-			values[i] = connectionStatistics.getReceivedDataTimeMillis();
+			values[i] = connectionStatistics.getReceivedDataTimeNanos();
 		}
 		SampleStatistics receiveDataStatistics = SampleStatistics.statisticsForPopulation(values);
+		// Get statistics for the latency of each bulk insert.
+		LatencyHistogram bulkInsertLatencies = new LatencyHistogram();
+		for (BulkInsertConnectionStatistics connectionStatistics : allConnectionStatistics) {
+			bulkInsertLatencies.add(connectionStatistics.getBulkInsertLatencies());
+		}
+		LatencyStatistics bulkInsertLatencyStatistics = LatencyStatistics.statisticsForHistogram(
+				bulkInsertLatencies);
+
+		// Count the responses, and the documents that were and were not inserted.
+		ResponseCounts responseCounts = getResponseCounts(allConnectionStatistics,
+				BulkInsertConnectionStatistics.OPERATION_NAMES.length);
+		long insertedDocuments = 0;
+		ErrorCounts documentErrors = new ErrorCounts();
+		for (BulkInsertConnectionStatistics connectionStatistics : allConnectionStatistics) {
+			insertedDocuments += connectionStatistics.getInsertedDocuments();
+			documentErrors.add(connectionStatistics.getDocumentErrors());
+		}
 
 		// Calculate the rate of documents inserted per second.
-		long numBulkInsertedDocs = (parsedArguments.numDocumentsPerBulkInsert *
-				parsedArguments.numBulkInsertOperations);
 		double remoteProcessingRate = 0;
 		double localInsertRate = 0;
 
 		//Calculate timeouts
 		int timeouts = 0;
 		for (BulkInsertConnectionStatistics connectionStatistics : allConnectionStatistics) {
-			if (connectionStatistics.getTotalTimeMillis()==0)
+			if (connectionStatistics.timedOut())
 				timeouts++;
 		}		
 
+		long producerWaits = 0;
+		long producerWaitTime = 0;
+		for (BulkInsertConnectionStatistics connectionStatistics : allConnectionStatistics) {
+			producerWaits += connectionStatistics.getProducerWaits();
+			producerWaitTime += connectionStatistics.getProducerWaitTimeNanos();
+		}
+
 		for (BulkInsertConnectionStatistics connectionStatistics : allConnectionStatistics) {
-			if (connectionStatistics.getRemoteProcessingTimeMillis() != 0)
-				remoteProcessingRate += (MILLIS_PER_SEC * numBulkInsertedDocs /
-						connectionStatistics.getRemoteProcessingTimeMillis());
-			long nonLocalProcessingTime = connectionStatistics.getSendDataTimeMillis() +
-					connectionStatistics.getRemoteProcessingTimeMillis() +
-					connectionStatistics.getReceivedDataTimeMillis();
+			long numBulkInsertedDocs = connectionStatistics.getInsertedDocuments();
+			if (connectionStatistics.getRemoteProcessingTimeNanos() != 0)
+				remoteProcessingRate += (NANOS_PER_SEC * numBulkInsertedDocs /
+						connectionStatistics.getRemoteProcessingTimeNanos());
+			long nonLocalProcessingTime = connectionStatistics.getSendDataTimeNanos() +
+					connectionStatistics.getRemoteProcessingTimeNanos() +
+					connectionStatistics.getReceivedDataTimeNanos();
 			if (nonLocalProcessingTime != 0)
-				localInsertRate += (MILLIS_PER_SEC * numBulkInsertedDocs / nonLocalProcessingTime);
+				localInsertRate += (NANOS_PER_SEC * numBulkInsertedDocs / nonLocalProcessingTime);
 		}
 
 		return new BulkInsertBenchmarkResults(timeTaken,
 				totalJsonBytesSent,
 				totalJsonBytesReceived,
+				lateRequests,
+				clientProfile,
 				localProcessingStatistics,
 				sendDataStatistics,
 				remoteProcessingStatistics,
 				receiveDataStatistics,
+				bulkInsertLatencyStatistics,
 				remoteProcessingRate,
 				localInsertRate,
-				timeouts);
+				timeouts,
+				producerWaits,
+				producerWaitTime,
+				responseCounts,
+				insertedDocuments,
+				documentErrors);
 	}
 
 	/**
 	 * Returns benchmark results for the connection statistics for CRUD operations.
 	 * 
 	 * @param allConnectionStatistics the CRUD connection statistics
+	 * @param clientProfile the resources used by the benchmark itself during the CRUD operations
 	 * @return the benchmark results
 	 */
 	public static CrudBenchmarkResults getCrudResults(
-			int numConnections, CrudOperations.CrudOperationCounts operationCounts,
-			List<CrudConnectionStatistics> allConnectionStatistics) {
+			int numConnections,
+			List<CrudConnectionStatistics> allConnectionStatistics,
+			ClientProfile clientProfile) {
 		long timeTaken = getTimeTaken(allConnectionStatistics);
 		long totalJsonBytesSent = getTotalJsonBytesSent(allConnectionStatistics);
 		long totalJsonBytesReceived = getTotalJsonBytesReceived(allConnectionStatistics);
+		long lateRequests = getLateRequests(allConnectionStatistics);
 
 		long[] values = new long[allConnectionStatistics.size()];
 		// Get statistics for local processing.
@@ -306,82 +1060,300 @@ public abstract class BenchmarkResults {
 		// Get statistics for remote processing of create operations.
 		for (int i = 0; i < allConnectionStatistics.size(); ++i) {
 			CrudConnectionStatistics connectionStatistics = allConnectionStatistics.get(i);
-			values[i] = connectionStatistics.getRemoteCreateProcessingTimeMillis();
+			values[i] = connectionStatistics.getRemoteCreateProcessingTimeNanos();
 		}
 		SampleStatistics remoteCreateProcessingStatistics = SampleStatistics.statisticsForPopulation(values);
 		// Get statistics for remote processing of read operations.
 		for (int i = 0; i < allConnectionStatistics.size(); ++i) {
 			CrudConnectionStatistics connectionStatistics = allConnectionStatistics.get(i);
-			values[i] = connectionStatistics.getRemoteReadProcessingTimeMillis();
+			values[i] = connectionStatistics.getRemoteReadProcessingTimeNanos();
 		}
 		SampleStatistics remoteReadProcessingStatistics = SampleStatistics.statisticsForPopulation(values);
 		// Get statistics for remote processing of update operations.
 		for (int i = 0; i < allConnectionStatistics.size(); ++i) {
 			CrudConnectionStatistics connectionStatistics = allConnectionStatistics.get(i);
-			values[i] = connectionStatistics.getRemoteUpdateProcessingTimeMillis();
+			values[i] = connectionStatistics.getRemoteUpdateProcessingTimeNanos();
 		}
 		SampleStatistics remoteUpdateProcessingStatistics = SampleStatistics.statisticsForPopulation(values);
 		// Get statistics for remote processing of delete operations.
 		for (int i = 0; i < allConnectionStatistics.size(); ++i) {
 			CrudConnectionStatistics connectionStatistics = allConnectionStatistics.get(i);
-			values[i] = connectionStatistics.getRemoteDeleteProcessingTimeMillis();
+			values[i] = connectionStatistics.getRemoteDeleteProcessingTimeNanos();
 		}
 		SampleStatistics remoteDeleteProcessingStatistics = SampleStatistics.statisticsForPopulation(values);
+		// Get statistics for the latency of each type of operation.
+		LatencyStatistics createLatencyStatistics = getLatencyStatistics(
+				allConnectionStatistics, CrudOperations.Type.CREATE);
+		LatencyStatistics readLatencyStatistics = getLatencyStatistics(
+				allConnectionStatistics, CrudOperations.Type.READ);
+		LatencyStatistics updateLatencyStatistics = getLatencyStatistics(
+				allConnectionStatistics, CrudOperations.Type.UPDATE);
+		LatencyStatistics deleteLatencyStatistics = getLatencyStatistics(
+				allConnectionStatistics, CrudOperations.Type.DELETE);
 
 		// Calculate timeouts
 		int timeouts = 0;
 		for (CrudConnectionStatistics connectionStatistics : allConnectionStatistics) {
-			if (connectionStatistics.getTotalTimeMillis()==0)
+			if (connectionStatistics.timedOut())
 				timeouts++;
 		}
 
 		// Calculate the rate of documents created per second.
 		double createRate = 0;
 		for (CrudConnectionStatistics connectionStatistics : allConnectionStatistics) {
-			if (connectionStatistics.getRemoteCreateProcessingTimeMillis()!=0)
-				createRate += (operationCounts.numCreateOperations /
-						(connectionStatistics.getRemoteCreateProcessingTimeMillis() / MILLIS_PER_SEC));
+			if (connectionStatistics.getRemoteCreateProcessingTimeNanos()!=0)
+				createRate += (connectionStatistics.getResponseCounts().getSuccesses(CrudOperations.Type.CREATE.ordinal()) /
+						(connectionStatistics.getRemoteCreateProcessingTimeNanos() / NANOS_PER_SEC));
 		}
 		// Calculate the rate of documents read per second.
 		double readRate = 0;
 		for (CrudConnectionStatistics connectionStatistics : allConnectionStatistics) {
-			if (connectionStatistics.getRemoteReadProcessingTimeMillis()!=0)
-				readRate += (operationCounts.numReadOperations /
-						(connectionStatistics.getRemoteReadProcessingTimeMillis() / MILLIS_PER_SEC));
+			if (connectionStatistics.getRemoteReadProcessingTimeNanos()!=0)
+				readRate += (connectionStatistics.getResponseCounts().getSuccesses(CrudOperations.Type.READ.ordinal()) /
+						(connectionStatistics.getRemoteReadProcessingTimeNanos() / NANOS_PER_SEC));
 		}
 		// Calculate the rate of documents updated per second.
 		double updateRate = 0;
 		for (CrudConnectionStatistics connectionStatistics : allConnectionStatistics) {
-			if (connectionStatistics.getRemoteUpdateProcessingTimeMillis()!=0)
-				updateRate += (operationCounts.numUpdateOperations /
-						(connectionStatistics.getRemoteUpdateProcessingTimeMillis() / MILLIS_PER_SEC));
+			if (connectionStatistics.getRemoteUpdateProcessingTimeNanos()!=0)
+				updateRate += (connectionStatistics.getResponseCounts().getSuccesses(CrudOperations.Type.UPDATE.ordinal()) /
+						(connectionStatistics.getRemoteUpdateProcessingTimeNanos() / NANOS_PER_SEC));
 		}
 		// Calculate the rate of documents deleted per second.
 		double deleteRate = 0;
 		for (CrudConnectionStatistics connectionStatistics : allConnectionStatistics) {
-			if (connectionStatistics.getRemoteDeleteProcessingTimeMillis()!=0)
-				deleteRate += (operationCounts.numDeleteOperations /
-						(connectionStatistics.getRemoteDeleteProcessingTimeMillis() / MILLIS_PER_SEC));
+			if (connectionStatistics.getRemoteDeleteProcessingTimeNanos()!=0)
+				deleteRate += (connectionStatistics.getResponseCounts().getSuccesses(CrudOperations.Type.DELETE.ordinal()) /
+						(connectionStatistics.getRemoteDeleteProcessingTimeNanos() / NANOS_PER_SEC));
 		}
 
 		return new CrudBenchmarkResults(timeTaken,
 				totalJsonBytesSent,
 				totalJsonBytesReceived,
+				lateRequests,
+				clientProfile,
 				localProcessingStatistics,
 				sendDataStatistics,
 				remoteCreateProcessingStatistics,
 				remoteReadProcessingStatistics,
 				remoteUpdateProcessingStatistics,
 				remoteDeleteProcessingStatistics,
+				createLatencyStatistics,
+				readLatencyStatistics,
+				updateLatencyStatistics,
+				deleteLatencyStatistics,
 				createRate,
 				readRate,
 				updateRate,
 				deleteRate,
-				timeouts);
+				timeouts,
+				getResponseCounts(allConnectionStatistics, CrudConnectionStatistics.OPERATION_NAMES.length));
+	}
+
+	/**
+	 * Returns benchmark results for preparing an index and building it, such
+	 * as installing the design document of the views or creating the Mango
+	 * indexes of {@code _find} queries.
+	 * 
+	 * @param connectionStatistics the statistics of the connection that built the index
+	 * @param clientProfile the resources used by the benchmark itself while building the index
+	 * @return the benchmark results
+	 */
+	public static IndexBenchmarkResults getIndexResults(
+			IndexConnectionStatistics connectionStatistics,
+			ClientProfile clientProfile) {
+		return new IndexBenchmarkResults(connectionStatistics.getTotalTimeNanos(),
+				connectionStatistics.getJsonBytesSent(),
+				connectionStatistics.getJsonBytesReceived(),
+				clientProfile,
+				connectionStatistics.getOperationNames(),
+				connectionStatistics.getPrepareTimeNanos(),
+				connectionStatistics.getBuildTimeNanos(),
+				connectionStatistics.getResponseCounts());
+	}
+
+	private static <T extends Enum<T>> SampleStatistics[] getRemoteProcessingStatistics(
+			List<? extends AbstractQueryConnectionStatistics<T>> allConnectionStatistics, T[] types) {
+		SampleStatistics[] remoteProcessingStatistics = new SampleStatistics[types.length];
+		long[] values = new long[allConnectionStatistics.size()];
+		for (T type : types) {
+			for (int i = 0; i < allConnectionStatistics.size(); ++i) {
+				values[i] = allConnectionStatistics.get(i).getRemoteProcessingTimeNanos(type);
+			}
+			remoteProcessingStatistics[type.ordinal()] = SampleStatistics.statisticsForPopulation(values);
+		}
+		return remoteProcessingStatistics;
+	}
+
+	private static <T extends Enum<T>> LatencyStatistics[] getLatencyStatistics(
+			List<? extends AbstractQueryConnectionStatistics<T>> allConnectionStatistics, T[] types) {
+		LatencyStatistics[] latencyStatistics = new LatencyStatistics[types.length];
+		for (T type : types) {
+			LatencyHistogram latencies = new LatencyHistogram();
+			for (AbstractQueryConnectionStatistics<T> connectionStatistics : allConnectionStatistics) {
+				latencies.add(connectionStatistics.getLatencies(type));
+			}
+			latencyStatistics[type.ordinal()] = LatencyStatistics.statisticsForHistogram(latencies);
+		}
+		return latencyStatistics;
+	}
+
+	/**
+	 * Returns the number of successful requests of each type answered per
+	 * second of remote processing.
+	 */
+	private static <T extends Enum<T>> double[] getRemoteProcessingRates(
+			List<? extends AbstractQueryConnectionStatistics<T>> allConnectionStatistics, T[] types) {
+		double[] remoteProcessingRates = new double[types.length];
+		for (T type : types) {
+			for (AbstractQueryConnectionStatistics<T> connectionStatistics : allConnectionStatistics) {
+				long remoteProcessingTimeNanos = connectionStatistics.getRemoteProcessingTimeNanos(type);
+				if (remoteProcessingTimeNanos != 0) {
+					remoteProcessingRates[type.ordinal()] +=
+							(connectionStatistics.getResponseCounts().getSuccesses(type.ordinal()) /
+							(remoteProcessingTimeNanos / NANOS_PER_SEC));
+				}
+			}
+		}
+		return remoteProcessingRates;
+	}
+
+	private static int getTimeouts(List<? extends AbstractConnectionStatistics> allConnectionStatistics) {
+		int timeouts = 0;
+		for (AbstractConnectionStatistics connectionStatistics : allConnectionStatistics) {
+			if (connectionStatistics.timedOut())
+				timeouts++;
+		}
+		return timeouts;
+	}
+
+	/**
+	 * Returns benchmark results for the connection statistics for view queries.
+	 * 
+	 * @param allConnectionStatistics the view query connection statistics
+	 * @param clientProfile the resources used by the benchmark itself during the view queries
+	 * @return the benchmark results
+	 */
+	public static ViewBenchmarkResults getViewResults(
+			List<ViewConnectionStatistics> allConnectionStatistics,
+			ClientProfile clientProfile) {
+		ViewQueries.Type[] types = ViewQueries.Type.values();
+		// Calculate the rates of rows per second.
+		long[] rows = new long[types.length];
+		double[] rowRates = new double[types.length];
+		for (ViewQueries.Type type : types) {
+			int i = type.ordinal();
+			for (ViewConnectionStatistics connectionStatistics : allConnectionStatistics) {
+				long connectionRows = connectionStatistics.getRows(type);
+				rows[i] += connectionRows;
+				long remoteProcessingTimeNanos = connectionStatistics.getRemoteProcessingTimeNanos(type);
+				if (remoteProcessingTimeNanos != 0) {
+					rowRates[i] += (connectionRows / (remoteProcessingTimeNanos / NANOS_PER_SEC));
+				}
+			}
+		}
+
+		return new ViewBenchmarkResults(getTimeTaken(allConnectionStatistics),
+				getTotalJsonBytesSent(allConnectionStatistics),
+				getTotalJsonBytesReceived(allConnectionStatistics),
+				getLateRequests(allConnectionStatistics),
+				clientProfile,
+				getLocalProcessingStatistics(allConnectionStatistics),
+				getSendDataStatistics(allConnectionStatistics),
+				getRemoteProcessingStatistics(allConnectionStatistics, types),
+				getLatencyStatistics(allConnectionStatistics, types),
+				rows,
+				getRemoteProcessingRates(allConnectionStatistics, types),
+				rowRates,
+				getTimeouts(allConnectionStatistics),
+				getResponseCounts(allConnectionStatistics, ViewConnectionStatistics.OPERATION_NAMES.length));
 	}
 
 	/**
-	 * Essential statistics about a data set.
+	 * Returns benchmark results for the connection statistics for
+	 * {@code _find} queries.
+	 * 
+	 * @param allConnectionStatistics the {@code _find} query connection statistics
+	 * @param clientProfile the resources used by the benchmark itself during the {@code _find} queries
+	 * @return the benchmark results
+	 */
+	public static FindBenchmarkResults getFindResults(
+			List<FindConnectionStatistics> allConnectionStatistics,
+			ClientProfile clientProfile) {
+		FindQueries.Type[] types = FindQueries.Type.values();
+		// Sum the documents of each type.
+		long[] docs = new long[types.length];
+		long[] docsExamined = new long[types.length];
+		double[] docsExaminedPerDoc = new double[types.length];
+		long[] followingPages = new long[types.length];
+		for (FindQueries.Type type : types) {
+			int i = type.ordinal();
+			for (FindConnectionStatistics connectionStatistics : allConnectionStatistics) {
+				docs[i] += connectionStatistics.getDocs(type);
+				docsExamined[i] += connectionStatistics.getDocsExamined(type);
+				followingPages[i] += connectionStatistics.getFollowingPages(type);
+			}
+			if (docs[i] != 0) {
+				docsExaminedPerDoc[i] = ((double) docsExamined[i]) / docs[i];
+			}
+		}
+
+		return new FindBenchmarkResults(getTimeTaken(allConnectionStatistics),
+				getTotalJsonBytesSent(allConnectionStatistics),
+				getTotalJsonBytesReceived(allConnectionStatistics),
+				getLateRequests(allConnectionStatistics),
+				clientProfile,
+				getLocalProcessingStatistics(allConnectionStatistics),
+				getSendDataStatistics(allConnectionStatistics),
+				getRemoteProcessingStatistics(allConnectionStatistics, types),
+				getLatencyStatistics(allConnectionStatistics, types),
+				docs,
+				docsExamined,
+				docsExaminedPerDoc,
+				followingPages,
+				getRemoteProcessingRates(allConnectionStatistics, types),
+				getTimeouts(allConnectionStatistics),
+				getResponseCounts(allConnectionStatistics, FindConnectionStatistics.OPERATION_NAMES.length));
+	}
+
+	/**
+	 * Returns benchmark results for the connection statistics for consuming
+	 * the changes feed.
+	 * 
+	 * @param allConnectionStatistics the changes feed connection statistics
+	 * @param clientProfile the resources used by the benchmark itself during the CRUD operations
+	 * @return the benchmark results
+	 */
+	public static ChangesBenchmarkResults getChangesResults(
+			List<ChangesConnectionStatistics> allConnectionStatistics,
+			ClientProfile clientProfile) {
+		long changes = 0;
+		LatencyHistogram changeLatencies = new LatencyHistogram();
+		double changeRate = 0;
+		double feedRate = 0;
+		for (ChangesConnectionStatistics connectionStatistics : allConnectionStatistics) {
+			changes += connectionStatistics.getChanges();
+			changeLatencies.add(connectionStatistics.getChangeLatencies());
+			// Each connection reads the feed for its entire time.
+			long totalTimeNanos = connectionStatistics.getTotalTimeNanos();
+			if (totalTimeNanos != 0) {
+				changeRate += (connectionStatistics.getChanges() / (totalTimeNanos / NANOS_PER_SEC));
+				feedRate += (connectionStatistics.getJsonBytesReceived() / (totalTimeNanos / NANOS_PER_SEC));
+			}
+		}
+
+		return new ChangesBenchmarkResults(getTimeTaken(allConnectionStatistics),
+				getTotalJsonBytesReceived(allConnectionStatistics),
+				clientProfile,
+				changes,
+				LatencyStatistics.statisticsForHistogram(changeLatencies),
+				changeRate,
+				feedRate,
+				getResponseCounts(allConnectionStatistics, ChangesConnectionStatistics.OPERATION_NAMES.length));
+	}
+
+	/**
+	 * Essential statistics about a data set of times in nanoseconds.
 	 */
 	public static final class SampleStatistics {
 		public final double min;
@@ -390,20 +1362,26 @@ public abstract class BenchmarkResults {
 		public final double mean;
 		public final double median;
 		public final double deviation;
+		/**
+		 * The value for each connection, in the order of the connections.
+		 */
+		public final long[] values;
 
 		public SampleStatistics(double min, double max, long sum,
-				double mean, double median, double deviation) {
+				double mean, double median, double deviation, long[] values) {
 			this.min = min;
 			this.max = max;
 			this.sum = sum;
 			this.mean = mean;
 			this.median = median;
 			this.deviation = deviation;
+			this.values = values;
 		}
 
-		private static SampleStatistics statisticsForPopulation(long[] values) {
+		private static SampleStatistics statisticsForPopulation(long[] connectionValues) {
 			// Make a copy of the array before sorting as a courtesy.
-			values = Arrays.copyOf(values, values.length);
+			connectionValues = Arrays.copyOf(connectionValues, connectionValues.length);
+			long[] values = Arrays.copyOf(connectionValues, connectionValues.length);
 			Arrays.sort(values);
 
 			// Find the minimum and maximum.
@@ -433,15 +1411,31 @@ public abstract class BenchmarkResults {
 			double variance = numerator / values.length;
 			double deviation = Math.sqrt(variance);
 
-			return new SampleStatistics(min, max, sum, mean, median, deviation);
+			return new SampleStatistics(min, max, sum, mean, median, deviation, connectionValues);
+		}
+
+		/**
+		 * @return the JSON of these statistics, with times in nanoseconds
+		 */
+		@SuppressWarnings("unchecked")
+		public JSONObject toJson() {
+			JSONObject json = new JSONObject();
+			json.put("min", min);
+			json.put("max", max);
+			json.put("sum", sum);
+			json.put("mean", mean);
+			json.put("median", median);
+			json.put("sd", deviation);
+			json.put("values", toJsonArray(values));
+			return json;
 		}
 
 		public String toString() {
 			StringBuilder sb = new StringBuilder();
-			sb.append("min=").append(format(min / MILLIS_PER_SEC)).append(" secs, ");
-			sb.append("max=").append(format(max / MILLIS_PER_SEC)).append(" secs, ");
-			sb.append("median=").append(format(median / MILLIS_PER_SEC)).append(" secs, ");
-			sb.append("sd=").append(format(deviation / MILLIS_PER_SEC)).append(" secs");
+			sb.append("min=").append(format(min / NANOS_PER_SEC)).append(" secs, ");
+			sb.append("max=").append(format(max / NANOS_PER_SEC)).append(" secs, ");
+			sb.append("median=").append(format(median / NANOS_PER_SEC)).append(" secs, ");
+			sb.append("sd=").append(format(deviation / NANOS_PER_SEC)).append(" secs");
 			return sb.toString();
 		}
 
@@ -451,4 +1445,78 @@ public abstract class BenchmarkResults {
 			return sb.toString();
 		}
 	}
+
+	/**
+	 * Percentiles of the latencies of individual requests.
+	 */
+	public static final class LatencyStatistics {
+		public final long count;
+		public final long p50;
+		public final long p90;
+		public final long p99;
+		public final long p999;
+		public final long p9999;
+		public final long max;
+		/**
+		 * Pairs of the highest latency and the count of each non-empty bucket
+		 * of the histogram, as returned by {@link LatencyHistogram#getNonEmptyBuckets()}.
+		 */
+		public final long[][] buckets;
+
+		public LatencyStatistics(long count, long p50, long p90, long p99,
+				long p999, long p9999, long max, long[][] buckets) {
+			this.count = count;
+			this.p50 = p50;
+			this.p90 = p90;
+			this.p99 = p99;
+			this.p999 = p999;
+			this.p9999 = p9999;
+			this.max = max;
+			this.buckets = buckets;
+		}
+
+		static LatencyStatistics statisticsForHistogram(LatencyHistogram histogram) {
+			return new LatencyStatistics(histogram.getTotalCount(),
+					histogram.getValueAtPercentile(50.0),
+					histogram.getValueAtPercentile(90.0),
+					histogram.getValueAtPercentile(99.0),
+					histogram.getValueAtPercentile(99.9),
+					histogram.getValueAtPercentile(99.99),
+					histogram.getMaxNanos(),
+					histogram.getNonEmptyBuckets());
+		}
+
+		/**
+		 * @return the JSON of these statistics, with latencies in nanoseconds
+		 */
+		@SuppressWarnings("unchecked")
+		public JSONObject toJson() {
+			JSONObject json = new JSONObject();
+			json.put("count", count);
+			json.put("p50", p50);
+			json.put("p90", p90);
+			json.put("p99", p99);
+			json.put("p999", p999);
+			json.put("p9999", p9999);
+			json.put("max", max);
+			JSONArray histogram = new JSONArray();
+			for (long[] bucket : buckets) {
+				histogram.add(toJsonArray(bucket));
+			}
+			json.put("histogram", histogram);
+			return json;
+		}
+
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append("count=").append(format(count)).append(", ");
+			sb.append("p50=").append(format(p50 / NANOS_PER_MILLI)).append(" ms, ");
+			sb.append("p90=").append(format(p90 / NANOS_PER_MILLI)).append(" ms, ");
+			sb.append("p99=").append(format(p99 / NANOS_PER_MILLI)).append(" ms, ");
+			sb.append("p99.9=").append(format(p999 / NANOS_PER_MILLI)).append(" ms, ");
+			sb.append("p99.99=").append(format(p9999 / NANOS_PER_MILLI)).append(" ms, ");
+			sb.append("max=").append(format(max / NANOS_PER_MILLI)).append(" ms");
+			return sb.toString();
+		}
+	}
 }
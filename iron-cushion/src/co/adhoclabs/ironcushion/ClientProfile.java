@@ -0,0 +1,122 @@
+package co.adhoclabs.ironcushion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The resources used by the benchmark itself during a step, as measured by
+ * {@link ClientProfiler}.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class ClientProfile {
+	/**
+	 * The utilization of an I/O thread above which it is saturated.
+	 */
+	private static final double IO_THREAD_SATURATION = 0.9;
+	/**
+	 * The utilization of all processors above which the process is saturated.
+	 */
+	private static final double PROCESS_CPU_SATURATION = 0.9;
+	/**
+	 * The fraction of time spent collecting garbage above which the process is saturated.
+	 */
+	private static final double GC_COLLECTION_TIME_SATURATION = 0.1;
+	private static final double NANOS_PER_SEC = 1000000000.0;
+
+	public final long elapsedTimeNanos;
+	/**
+	 * The fraction of time each I/O thread spent using the CPU.
+	 */
+	public final double[] ioThreadUtilizations;
+	public final long processCpuTimeNanos;
+	public final int numProcessors;
+	/**
+	 * The number of garbage collections, summed over all collectors.
+	 */
+	public final long gcCount;
+	/**
+	 * The time spent collecting garbage, summed over all collectors. This is
+	 * not the time that the application was paused, because it includes the
+	 * time that concurrent collectors ran alongside the application, and does
+	 * not describe how long each pause was.
+	 */
+	public final long gcCollectionTimeNanos;
+	public final long allocatedBytes;
+
+	public ClientProfile(long elapsedTimeNanos, double[] ioThreadUtilizations,
+			long processCpuTimeNanos, int numProcessors, long gcCount, long gcCollectionTimeNanos,
+			long allocatedBytes) {
+		this.elapsedTimeNanos = elapsedTimeNanos;
+		this.ioThreadUtilizations = ioThreadUtilizations;
+		this.processCpuTimeNanos = processCpuTimeNanos;
+		this.numProcessors = numProcessors;
+		this.gcCount = gcCount;
+		this.gcCollectionTimeNanos = gcCollectionTimeNanos;
+		this.allocatedBytes = allocatedBytes;
+	}
+
+	/**
+	 * @param numIoThreads the number of I/O threads
+	 * @return the profile of a step that was not performed
+	 */
+	public static ClientProfile empty(int numIoThreads) {
+		return new ClientProfile(0, new double[numIoThreads], 0, 1, 0, 0, 0);
+	}
+
+	/**
+	 * @return the fraction of the CPU time of all processors used by the process,
+	 *         between {@code 0} and {@code 1}
+	 */
+	public double getProcessCpuUtilization() {
+		if (elapsedTimeNanos <= 0) {
+			return 0;
+		}
+		return Math.min(1.0, ((double) processCpuTimeNanos) / elapsedTimeNanos / numProcessors);
+	}
+
+	/**
+	 * @return the fraction of time spent collecting garbage
+	 */
+	public double getGcCollectionTimeFraction() {
+		if (elapsedTimeNanos <= 0) {
+			return 0;
+		}
+		return Math.min(1.0, ((double) gcCollectionTimeNanos) / elapsedTimeNanos);
+	}
+
+	/**
+	 * @return the number of bytes allocated per second
+	 */
+	public double getAllocationRate() {
+		if (elapsedTimeNanos <= 0) {
+			return 0;
+		}
+		return NANOS_PER_SEC * allocatedBytes / elapsedTimeNanos;
+	}
+
+	/**
+	 * Returns a warning for each resource that the benchmark saturated, in
+	 * which case the results may describe the benchmark instead of the database.
+	 *
+	 * @return the warnings, which are empty if the benchmark was not saturated
+	 */
+	public List<String> getSaturationWarnings() {
+		List<String> warnings = new ArrayList<String>();
+		for (int i = 0; i < ioThreadUtilizations.length; ++i) {
+			if (ioThreadUtilizations[i] >= IO_THREAD_SATURATION) {
+				warnings.add(String.format("I/O thread #%d used the CPU %.1f%% of the time, so increase io_threads",
+						i + 1, 100.0 * ioThreadUtilizations[i]));
+			}
+		}
+		if (getProcessCpuUtilization() >= PROCESS_CPU_SATURATION) {
+			warnings.add(String.format("The benchmark used %.1f%% of the CPU of all %d processors",
+					100.0 * getProcessCpuUtilization(), numProcessors));
+		}
+		if (getGcCollectionTimeFraction() >= GC_COLLECTION_TIME_SATURATION) {
+			warnings.add(String.format("Garbage collection took %.1f%% of the time",
+					100.0 * getGcCollectionTimeFraction()));
+		}
+		return warnings;
+	}
+}
@@ -0,0 +1,180 @@
+package co.adhoclabs.ironcushion;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how much of the machine running the benchmark was used by the
+ * benchmark itself during a step: the CPU time of the process and of each
+ * I/O thread, the time that the garbage collectors report spending, and the
+ * bytes allocated by all threads. If the benchmark is saturated, then its results describe the
+ * benchmark instead of the database.
+ *
+ * <p>The CPU time of the process and the allocated bytes are only measured on
+ * JVMs that provide the {@code com.sun.management} extensions, and are
+ * otherwise {@code 0}. The extensions are only referenced by
+ * {@link Extensions}, and so other JVMs do not fail to load this class.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class ClientProfiler {
+	/**
+	 * The measurements that require the {@code com.sun.management} extensions.
+	 * This class is loaded only when created, and so if the extensions are
+	 * missing then creating it throws a {@link LinkageError}.
+	 */
+	private static final class Extensions {
+		private final com.sun.management.OperatingSystemMXBean operatingSystemMXBean;
+		private final com.sun.management.ThreadMXBean threadMXBean;
+
+		private Extensions() {
+			java.lang.management.OperatingSystemMXBean operatingSystemMXBean =
+					ManagementFactory.getOperatingSystemMXBean();
+			this.operatingSystemMXBean = (operatingSystemMXBean instanceof com.sun.management.OperatingSystemMXBean) ?
+					(com.sun.management.OperatingSystemMXBean) operatingSystemMXBean : null;
+			java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+			com.sun.management.ThreadMXBean allocationMXBean = null;
+			if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+				allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+				if (allocationMXBean.isThreadAllocatedMemorySupported() &&
+						!allocationMXBean.isThreadAllocatedMemoryEnabled()) {
+					allocationMXBean.setThreadAllocatedMemoryEnabled(true);
+				}
+				if (!allocationMXBean.isThreadAllocatedMemoryEnabled()) {
+					allocationMXBean = null;
+				}
+			}
+			this.threadMXBean = allocationMXBean;
+		}
+
+		private long getProcessCpuTimeNanos() {
+			if (operatingSystemMXBean == null) {
+				return 0;
+			}
+			return Math.max(0, operatingSystemMXBean.getProcessCpuTime());
+		}
+
+		private void getAllocatedBytes(Map<Long, Long> allocatedBytes) {
+			if (threadMXBean == null) {
+				return;
+			}
+			long[] threadIds = threadMXBean.getAllThreadIds();
+			long[] threadAllocatedBytes = threadMXBean.getThreadAllocatedBytes(threadIds);
+			for (int i = 0; i < threadIds.length; ++i) {
+				// The value is -1 for a thread that has ended.
+				if (threadAllocatedBytes[i] >= 0) {
+					allocatedBytes.put(threadIds[i], threadAllocatedBytes[i]);
+				}
+			}
+		}
+	}
+
+	private final IoWorkerPool ioWorkerPool;
+	private final int numProcessors;
+	/**
+	 * The {@code com.sun.management} extensions, or {@code null} if the JVM
+	 * does not provide them.
+	 */
+	private final Extensions extensions;
+	private final List<GarbageCollectorMXBean> garbageCollectorMXBeans;
+
+	/**
+	 * @param ioWorkerPool the threads performing all network I/O
+	 */
+	public ClientProfiler(IoWorkerPool ioWorkerPool) {
+		this.ioWorkerPool = ioWorkerPool;
+		this.numProcessors = Runtime.getRuntime().availableProcessors();
+
+		Extensions extensions = null;
+		try {
+			extensions = new Extensions();
+		} catch (LinkageError e) {
+			// The JVM does not provide the extensions.
+		}
+		this.extensions = extensions;
+		this.garbageCollectorMXBeans = ManagementFactory.getGarbageCollectorMXBeans();
+	}
+
+	/**
+	 * The resources used by the benchmark so far, at the start of a step.
+	 */
+	public static final class Snapshot {
+		private final long time;
+		private final long[] ioThreadCpuTimesNanos;
+		private final long processCpuTimeNanos;
+		private final long gcCount;
+		private final long gcCollectionTimeMillis;
+		/**
+		 * The bytes allocated by each thread so far, by its identifier.
+		 */
+		private final Map<Long, Long> allocatedBytes;
+
+		private Snapshot(long time, long[] ioThreadCpuTimesNanos, long processCpuTimeNanos,
+				long gcCount, long gcCollectionTimeMillis, Map<Long, Long> allocatedBytes) {
+			this.time = time;
+			this.ioThreadCpuTimesNanos = ioThreadCpuTimesNanos;
+			this.processCpuTimeNanos = processCpuTimeNanos;
+			this.gcCount = gcCount;
+			this.gcCollectionTimeMillis = gcCollectionTimeMillis;
+			this.allocatedBytes = allocatedBytes;
+		}
+	}
+
+	private long getProcessCpuTimeNanos() {
+		return (extensions != null) ? extensions.getProcessCpuTimeNanos() : 0;
+	}
+
+	private Map<Long, Long> getAllocatedBytes() {
+		Map<Long, Long> allocatedBytes = new HashMap<Long, Long>();
+		if (extensions != null) {
+			extensions.getAllocatedBytes(allocatedBytes);
+		}
+		return allocatedBytes;
+	}
+
+	/**
+	 * @return the resources used by the benchmark so far
+	 */
+	public Snapshot snapshot() {
+		long gcCount = 0;
+		long gcCollectionTimeMillis = 0;
+		for (GarbageCollectorMXBean garbageCollectorMXBean : garbageCollectorMXBeans) {
+			// Each value is -1 if undefined for the collector.
+			gcCount += Math.max(0, garbageCollectorMXBean.getCollectionCount());
+			gcCollectionTimeMillis += Math.max(0, garbageCollectorMXBean.getCollectionTime());
+		}
+		return new Snapshot(System.nanoTime(), ioWorkerPool.getCpuTimesNanos(),
+				getProcessCpuTimeNanos(), gcCount, gcCollectionTimeMillis, getAllocatedBytes());
+	}
+
+	/**
+	 * Returns the resources used by the benchmark since the given snapshot. The
+	 * bytes allocated by threads that ended since are not included.
+	 *
+	 * @param start the snapshot at the start of the step
+	 * @return the resources used by the step
+	 */
+	public ClientProfile getProfile(Snapshot start) {
+		Snapshot end = snapshot();
+		long elapsedTimeNanos = end.time - start.time;
+
+		long allocatedBytes = 0;
+		for (Map.Entry<Long, Long> entry : end.allocatedBytes.entrySet()) {
+			Long startAllocatedBytes = start.allocatedBytes.get(entry.getKey());
+			allocatedBytes += entry.getValue() - ((startAllocatedBytes != null) ? startAllocatedBytes : 0);
+		}
+
+		return new ClientProfile(elapsedTimeNanos,
+				IoWorkerPool.getUtilizations(start.ioThreadCpuTimesNanos,
+						end.ioThreadCpuTimesNanos, elapsedTimeNanos),
+				end.processCpuTimeNanos - start.processCpuTimeNanos,
+				numProcessors,
+				end.gcCount - start.gcCount,
+				TimeUnit.MILLISECONDS.toNanos(end.gcCollectionTimeMillis - start.gcCollectionTimeMillis),
+				allocatedBytes);
+	}
+}
@@ -0,0 +1,278 @@
+package co.adhoclabs.ironcushion;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the results of baseline runs of the benchmark with the results of
+ * candidate runs, as written to {@code --results_filename} by
+ * {@link Benchmark}. For each rate and latency percentile of each step, it
+ * reports the mean and confidence interval across the runs of each, the change
+ * of the candidate from the baseline, and the p-value of Welch's t-test. A
+ * change for the worse beyond the regression threshold is reported as a
+ * regression, unless both have repeated runs and the change is not
+ * significant. A rate or latency percentile of the baseline runs that is
+ * missing from any candidate run is reported as missing. If any regression is
+ * found or any value is missing, the exit status is {@code 1}.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class Compare {
+	/**
+	 * The keys of rates, which are better when higher.
+	 */
+	private static final Pattern RATE_KEY = Pattern.compile("steps\\.(\\w+)\\.(\\w+Rate)");
+	/**
+	 * The keys of latency percentiles, which are better when lower.
+	 */
+	private static final Pattern LATENCY_KEY = Pattern.compile(
+			"steps\\.(\\w+)\\.(\\w+Latency)\\.(p50|p90|p99|p999|p9999|max)");
+	private static final String PARAMETERS_PREFIX = "parameters.";
+	/**
+	 * The parameters that only choose where results are written, and so are
+	 * expected to differ between runs.
+	 */
+	private static final Set<String> OUTPUT_PARAMETERS = new HashSet<String>(Arrays.asList(
+			"resultsFile", "resultsFormat", "intervalFile", "intervalFormat"));
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	private static final String BASELINE_FILENAMES_PREFIX = "--baseline_filenames=";
+	private static final String CANDIDATE_FILENAMES_PREFIX = "--candidate_filenames=";
+	private static final String REGRESSION_THRESHOLD_PREFIX = "--regression_threshold=";
+	private static final String SIGNIFICANCE_LEVEL_PREFIX = "--significance_level=";
+
+	private static List<File> filesForArgument(String arg, String argumentPrefix) {
+		List<File> files = new ArrayList<File>();
+		for (String filename : arg.substring(argumentPrefix.length()).split(",")) {
+			if (filename.isEmpty()) {
+				continue;
+			}
+			File file = new File(filename);
+			if (!file.exists()) {
+				throw new IllegalArgumentException("Filename " + filename + " does not exist");
+			}
+			files.add(file);
+		}
+		return files;
+	}
+
+	/**
+	 * The outcome of comparing a key.
+	 */
+	private enum Outcome {
+		/**
+		 * The key is not in every baseline run, and so is not compared.
+		 */
+		SKIPPED,
+		UNCHANGED,
+		REGRESSION,
+		/**
+		 * The key is in every baseline run but missing from a candidate run.
+		 */
+		MISSING
+	}
+
+	private final double regressionThreshold;
+	private final double significanceLevel;
+	private final List<Map<String, String>> baselineResults;
+	private final List<Map<String, String>> candidateResults;
+
+	private Compare(double regressionThreshold, double significanceLevel,
+			List<Map<String, String>> baselineResults, List<Map<String, String>> candidateResults) {
+		this.regressionThreshold = regressionThreshold;
+		this.significanceLevel = significanceLevel;
+		this.baselineResults = baselineResults;
+		this.candidateResults = candidateResults;
+	}
+
+	private static List<Map<String, String>> readAll(List<File> resultsFiles) throws BenchmarkException {
+		List<Map<String, String>> allResults = new ArrayList<Map<String, String>>(resultsFiles.size());
+		for (File resultsFile : resultsFiles) {
+			allResults.add(ResultsExporter.read(resultsFile));
+		}
+		return allResults;
+	}
+
+	/**
+	 * Returns the value of the given key in every run, or {@code null} if it is
+	 * missing or not a number in any run.
+	 */
+	private static double[] valuesForKey(List<Map<String, String>> allResults, String key) {
+		double[] values = new double[allResults.size()];
+		for (int i = 0; i < values.length; ++i) {
+			String value = allResults.get(i).get(key);
+			if ((value == null) || value.isEmpty()) {
+				return null;
+			}
+			try {
+				values[i] = Double.parseDouble(value);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+		return values;
+	}
+
+	private void printDifferentParameters() {
+		Set<String> differentParameters = new TreeSet<String>();
+		Map<String, String> firstResults = baselineResults.get(0);
+		List<Map<String, String>> allResults = new ArrayList<Map<String, String>>(baselineResults);
+		allResults.addAll(candidateResults);
+		for (Map<String, String> results : allResults) {
+			for (Map.Entry<String, String> entry : results.entrySet()) {
+				String key = entry.getKey();
+				if (!key.startsWith(PARAMETERS_PREFIX)) {
+					continue;
+				}
+				String parameter = key.substring(PARAMETERS_PREFIX.length());
+				if (!OUTPUT_PARAMETERS.contains(parameter) && !entry.getValue().equals(firstResults.get(key))) {
+					differentParameters.add(parameter);
+				}
+			}
+		}
+		if (!differentParameters.isEmpty()) {
+			System.out.println("  Runs have different values of: " + differentParameters);
+		}
+	}
+
+	private String formatSample(WelchTTest.Sample sample, double scale, String units) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(BenchmarkResults.format(sample.mean / scale));
+		double confidenceInterval = sample.confidenceInterval(significanceLevel);
+		if (!Double.isNaN(confidenceInterval)) {
+			sb.append(" +/- ").append(BenchmarkResults.format(confidenceInterval / scale));
+		}
+		sb.append(' ').append(units);
+		return sb.toString();
+	}
+
+	/**
+	 * Prints the comparison of the given key, and returns its outcome.
+	 */
+	private Outcome compare(String name, String key, boolean higherIsBetter, double scale, String units) {
+		double[] baselineValues = valuesForKey(baselineResults, key);
+		if (baselineValues == null) {
+			return Outcome.SKIPPED;
+		}
+		double[] candidateValues = valuesForKey(candidateResults, key);
+		if (candidateValues == null) {
+			System.out.println("  " + name + ": MISSING from candidate runs");
+			return Outcome.MISSING;
+		}
+		WelchTTest.Sample baseline = new WelchTTest.Sample(baselineValues);
+		WelchTTest.Sample candidate = new WelchTTest.Sample(candidateValues);
+		double change = 100.0 * (candidate.mean - baseline.mean) / baseline.mean;
+		double pValue = WelchTTest.pValue(baseline, candidate);
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("  ").append(name);
+		sb.append(": baseline=").append(formatSample(baseline, scale, units));
+		sb.append(", candidate=").append(formatSample(candidate, scale, units));
+		sb.append(", change=");
+		if (Double.isNaN(change) || Double.isInfinite(change)) {
+			sb.append("n/a");
+		} else {
+			sb.append((change >= 0) ? "+" : "").append(BenchmarkResults.format(change)).append('%');
+		}
+		if (!Double.isNaN(pValue)) {
+			sb.append(", p=").append(String.format("%.4f", pValue));
+		}
+
+		Outcome outcome = Outcome.UNCHANGED;
+		double worsening = higherIsBetter ? -change : change;
+		boolean significant = Double.isNaN(pValue) || (pValue < significanceLevel);
+		if (!Double.isInfinite(change) && (Math.abs(worsening) > regressionThreshold) && significant) {
+			if (worsening > 0) {
+				sb.append(" REGRESSION");
+				outcome = Outcome.REGRESSION;
+			} else {
+				sb.append(" improvement");
+			}
+		}
+		System.out.println(sb.toString());
+		return outcome;
+	}
+
+	/**
+	 * Prints the comparison of every rate and latency percentile that is in
+	 * all baseline runs, and returns the number of regressions and values
+	 * missing from candidate runs.
+	 */
+	private int compareAll() {
+		System.out.println("COMPARISON RESULTS (" + baselineResults.size() + " baseline runs, " +
+				candidateResults.size() + " candidate runs, significance level " + significanceLevel + "):");
+		if ((baselineResults.size() < 2) || (candidateResults.size() < 2)) {
+			System.out.println("  Significance is not tested unless both have at least 2 runs");
+		}
+		printDifferentParameters();
+
+		int[] outcomeCounts = new int[Outcome.values().length];
+		for (String key : baselineResults.get(0).keySet()) {
+			Matcher matcher = RATE_KEY.matcher(key);
+			if (matcher.matches()) {
+				String name = matcher.group(1) + "." + matcher.group(2);
+				outcomeCounts[compare(name, key, true, 1, "/sec").ordinal()]++;
+				continue;
+			}
+			matcher = LATENCY_KEY.matcher(key);
+			if (matcher.matches()) {
+				String name = matcher.group(1) + "." + matcher.group(2) + "." + matcher.group(3);
+				outcomeCounts[compare(name, key, false, NANOS_PER_MILLI, "ms").ordinal()]++;
+			}
+		}
+		int numRegressions = outcomeCounts[Outcome.REGRESSION.ordinal()];
+		int numMissing = outcomeCounts[Outcome.MISSING.ordinal()];
+		System.out.println("  regressions=" + numRegressions + ", missing=" + numMissing);
+		return numRegressions + numMissing;
+	}
+
+	public static void main(String[] args) throws BenchmarkException {
+		List<File> baselineFiles = null;
+		List<File> candidateFiles = null;
+		double regressionThreshold = 5.0;
+		double significanceLevel = 0.05;
+
+		for (String arg : args) {
+			if (arg.startsWith(BASELINE_FILENAMES_PREFIX)) {
+				baselineFiles = filesForArgument(arg, BASELINE_FILENAMES_PREFIX);
+			} else if (arg.startsWith(CANDIDATE_FILENAMES_PREFIX)) {
+				candidateFiles = filesForArgument(arg, CANDIDATE_FILENAMES_PREFIX);
+			} else if (arg.startsWith(REGRESSION_THRESHOLD_PREFIX)) {
+				regressionThreshold = Double.parseDouble(
+						arg.substring(REGRESSION_THRESHOLD_PREFIX.length()));
+			} else if (arg.startsWith(SIGNIFICANCE_LEVEL_PREFIX)) {
+				significanceLevel = Double.parseDouble(
+						arg.substring(SIGNIFICANCE_LEVEL_PREFIX.length()));
+			} else {
+				throw new IllegalArgumentException("Unrecognized command line argument: " + arg);
+			}
+		}
+
+		if ((baselineFiles == null) || baselineFiles.isEmpty()) {
+			throw new IllegalArgumentException("Value --baseline_filenames must be provided");
+		}
+		if ((candidateFiles == null) || candidateFiles.isEmpty()) {
+			throw new IllegalArgumentException("Value --candidate_filenames must be provided");
+		}
+		if (regressionThreshold < 0) {
+			throw new IllegalArgumentException("Value --regression_threshold must be >= 0");
+		}
+		if ((significanceLevel <= 0) || (significanceLevel >= 1)) {
+			throw new IllegalArgumentException("Value --significance_level must be > 0 and < 1");
+		}
+
+		Compare compare = new Compare(regressionThreshold, significanceLevel,
+				readAll(baselineFiles), readAll(candidateFiles));
+		if (compare.compareAll() > 0) {
+			System.exit(1);
+		}
+	}
+}
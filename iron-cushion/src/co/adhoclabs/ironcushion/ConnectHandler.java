@@ -0,0 +1,70 @@
+package co.adhoclabs.ironcushion;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.ExceptionEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.handler.ssl.SslHandler;
+
+/**
+ * The handler installed on a new connection, which records how long it takes
+ * to connect and, if using HTTPS, to complete the TLS handshake. It is replaced
+ * by the handler of the first step of the benchmark.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class ConnectHandler extends SimpleChannelUpstreamHandler {
+	private final ConnectStatistics connectStatistics;
+	private final CountDownLatch countDownLatch;
+	private final boolean https;
+	private final long startTime;
+
+	public ConnectHandler(ConnectStatistics connectStatistics, CountDownLatch countDownLatch,
+			boolean https) {
+		this.connectStatistics = connectStatistics;
+		this.countDownLatch = countDownLatch;
+		this.https = https;
+		// The pipeline is created immediately before connecting.
+		this.startTime = System.nanoTime();
+	}
+
+	private void connected() {
+		connectStatistics.connected(System.nanoTime() - startTime);
+		countDownLatch.countDown();
+	}
+
+	@Override
+	public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) {
+		if (!https) {
+			connected();
+			return;
+		}
+
+		// Begin the handshake, and the connection is established once it completes.
+		SslHandler sslHandler = ctx.getPipeline().get(SslHandler.class);
+		ChannelFuture handshakeFuture = sslHandler.handshake();
+		handshakeFuture.addListener(new ChannelFutureListener() {
+			@Override
+			public void operationComplete(ChannelFuture channelFuture) throws Exception {
+				if (channelFuture.isSuccess()) {
+					connected();
+				} else {
+					connectStatistics.failed();
+					countDownLatch.countDown();
+					channelFuture.getChannel().close();
+				}
+			}
+		});
+	}
+
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) {
+		// A failed connection attempt or handshake is recorded by its future.
+		e.getCause().printStackTrace();
+		e.getChannel().close();
+	}
+}
@@ -0,0 +1,64 @@
+package co.adhoclabs.ironcushion;
+
+/**
+ * Statistics for establishing the connections of a {@link ConnectionPool}.
+ * Connections are established concurrently by different I/O threads, and so
+ * all methods are synchronized.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class ConnectStatistics {
+	private final LatencyHistogram connectLatencies;
+	private int numFailedConnections;
+	private long timeTakenNanos;
+
+	public ConnectStatistics() {
+		connectLatencies = new LatencyHistogram();
+		numFailedConnections = 0;
+		timeTakenNanos = 0;
+	}
+
+	/**
+	 * Records that a connection was established, including any TLS handshake.
+	 *
+	 * @param nanos the time taken to establish the connection in nanoseconds
+	 */
+	public synchronized void connected(long nanos) {
+		connectLatencies.record(nanos);
+	}
+
+	/**
+	 * Records that a connection could not be established.
+	 */
+	public synchronized void failed() {
+		numFailedConnections++;
+	}
+
+	/**
+	 * @param timeTakenNanos the time taken to establish all connections in nanoseconds
+	 */
+	public synchronized void setTimeTakenNanos(long timeTakenNanos) {
+		this.timeTakenNanos = timeTakenNanos;
+	}
+
+	/**
+	 * @return the latencies of all established connections
+	 */
+	public synchronized LatencyHistogram getConnectLatencies() {
+		return connectLatencies;
+	}
+
+	/**
+	 * @return the number of connections that could not be established
+	 */
+	public synchronized int getNumFailedConnections() {
+		return numFailedConnections;
+	}
+
+	/**
+	 * @return the time taken to establish all connections in nanoseconds
+	 */
+	public synchronized long getTimeTakenNanos() {
+		return timeTakenNanos;
+	}
+}
@@ -0,0 +1,174 @@
+package co.adhoclabs.ironcushion;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+
+import javax.net.ssl.SSLEngine;
+
+import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.socket.ClientSocketChannelFactory;
+import org.jboss.netty.handler.codec.http.HttpChunkAggregator;
+import org.jboss.netty.handler.codec.http.HttpResponseDecoder;
+import org.jboss.netty.handler.ssl.SslHandler;
+
+import co.adhoclabs.ironcushion.securechat.SecureChatSslContextFactory;
+
+/**
+ * The keep-alive connections to the database, which are established once and
+ * then used by every step of the benchmark. Each step replaces the last
+ * handler in the pipeline of every connection with its own handler, so that
+ * neither the TCP connection nor the TLS session is set up again.
+ *
+ * <p>Unless a pool aggregates chunks, its handlers receive each chunk of a
+ * chunked response as it arrives, such as each change of a continuous feed.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class ConnectionPool {
+	/**
+	 * The name of the handler that each step replaces.
+	 */
+	private static final String HANDLER_NAME = "handler";
+
+	private final ClientBootstrap clientBootstrap;
+	private final InetSocketAddress databaseAddress;
+	private final boolean https;
+	private final boolean aggregateChunks;
+	private final Channel[] channels;
+
+	/**
+	 * @param aggregateChunks whether the chunks of a response are aggregated
+	 *        into a single response before its handler receives it
+	 */
+	public ConnectionPool(ClientSocketChannelFactory channelFactory, InetSocketAddress databaseAddress,
+			boolean https, boolean aggregateChunks, int numConnections, int timeoutDelay) {
+		this.clientBootstrap = new ClientBootstrap(channelFactory);
+		// Timeout control
+		clientBootstrap.setOption("connectTimeoutMillis", timeoutDelay);
+		this.databaseAddress = databaseAddress;
+		this.https = https;
+		this.aggregateChunks = aggregateChunks;
+		this.channels = new Channel[numConnections];
+	}
+
+	/**
+	 * The {@link ChannelPipelineFactory} for new connections.
+	 */
+	private final class ConnectPipelineFactory implements ChannelPipelineFactory {
+		private final ConnectStatistics connectStatistics;
+		private final CountDownLatch countDownLatch;
+
+		private ConnectPipelineFactory(ConnectStatistics connectStatistics,
+				CountDownLatch countDownLatch) {
+			this.connectStatistics = connectStatistics;
+			this.countDownLatch = countDownLatch;
+		}
+
+		@Override
+		public ChannelPipeline getPipeline() throws Exception {
+			ChannelPipeline pipeline = Channels.pipeline();
+			if (https) {
+				SSLEngine engine =
+						SecureChatSslContextFactory.getClientContext().createSSLEngine();
+				engine.setUseClientMode(true);
+				pipeline.addLast("ssl", new SslHandler(engine));
+			}
+			// Requests are encoded by the RequestEncoder of each handler.
+			pipeline.addLast("decoder", new HttpResponseDecoder());
+			//pipeline.addLast("decompressor", new HttpContentDecompressor());
+			if (aggregateChunks) {
+				pipeline.addLast("aggregator", new HttpChunkAggregator(10485760));
+			}
+			pipeline.addLast(HANDLER_NAME, new ConnectHandler(connectStatistics, countDownLatch, https));
+			return pipeline;
+		}
+	}
+
+	private boolean isConnected(int connectionNum) {
+		Channel channel = channels[connectionNum];
+		return (channel != null) && channel.isConnected();
+	}
+
+	/**
+	 * Establishes every connection that is not already connected, and waits
+	 * until each attempt succeeds or fails.
+	 *
+	 * @return the statistics for establishing the connections
+	 * @throws BenchmarkException if interrupted while waiting
+	 */
+	public ConnectStatistics connect() throws BenchmarkException {
+		int numToConnect = 0;
+		for (int i = 0; i < channels.length; ++i) {
+			if (!isConnected(i)) {
+				numToConnect++;
+			}
+		}
+
+		final ConnectStatistics connectStatistics = new ConnectStatistics();
+		final CountDownLatch countDownLatch = new CountDownLatch(numToConnect);
+		clientBootstrap.setPipelineFactory(new ConnectPipelineFactory(connectStatistics, countDownLatch));
+
+		long startTime = System.nanoTime();
+		for (int i = 0; i < channels.length; ++i) {
+			if (isConnected(i)) {
+				continue;
+			}
+			ChannelFuture future = clientBootstrap.connect(databaseAddress);
+			channels[i] = future.getChannel();
+			future.addListener(new ChannelFutureListener() {
+				@Override
+				public void operationComplete(ChannelFuture channelFuture) throws Exception {
+					if (!channelFuture.isSuccess()) {
+						connectStatistics.failed();
+						countDownLatch.countDown();
+					}
+				}
+			});
+		}
+
+		try {
+			// Wait until all connection attempts succeed or fail.
+			countDownLatch.await();
+		} catch (InterruptedException e) {
+			throw new BenchmarkException(e);
+		}
+		connectStatistics.setTimeTakenNanos(System.nanoTime() - startTime);
+		return connectStatistics;
+	}
+
+	/**
+	 * Installs a handler for the given step on every connection and starts it.
+	 * A connection that could not be established completes the step immediately.
+	 *
+	 * @param handlerFactory the factory of handlers for the step
+	 */
+	public void start(AbstractBenchmarkHandlerFactory handlerFactory) {
+		for (int i = 0; i < channels.length; ++i) {
+			if (!isConnected(i)) {
+				handlerFactory.getCountDownLatch().countDown();
+				continue;
+			}
+			Channel channel = channels[i];
+			AbstractBenchmarkHandler handler = handlerFactory.newHandler(i);
+			channel.getPipeline().replace(HANDLER_NAME, HANDLER_NAME, handler);
+			handler.start(channel);
+		}
+	}
+
+	/**
+	 * Closes all connections after all steps are performed.
+	 */
+	public void close() {
+		for (Channel channel : channels) {
+			if (channel != null) {
+				channel.close().awaitUninterruptibly();
+			}
+		}
+	}
+}
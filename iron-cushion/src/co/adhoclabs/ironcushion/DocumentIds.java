@@ -0,0 +1,84 @@
+package co.adhoclabs.ironcushion;
+
+/**
+ * The layout of the integer identifiers of all documents. The bulk insert
+ * operations of the connections are interleaved, so that the identifiers of
+ * the first bulk insert operation of every connection come before those of
+ * the second, and so on. This allows each connection to perform any number of
+ * bulk insert operations when a step is bounded by its duration. The documents
+ * created by CRUD operations follow all bulk inserted documents, and are
+ * likewise interleaved by connection.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class DocumentIds {
+	private final int numConnections;
+	private final int numDocumentsPerBulkInsert;
+
+	/**
+	 * @param numConnections the number of connections
+	 * @param numDocumentsPerBulkInsert the number of documents in each bulk insert operation
+	 */
+	public DocumentIds(int numConnections, int numDocumentsPerBulkInsert) {
+		this.numConnections = numConnections;
+		this.numDocumentsPerBulkInsert = numDocumentsPerBulkInsert;
+	}
+
+	/**
+	 * @return the maximum number of bulk insert operations by each connection
+	 *         whose documents have identifiers that fit in an {@code int}
+	 */
+	public int getMaxBulkInsertOperations() {
+		if (numDocumentsPerBulkInsert == 0) {
+			return Integer.MAX_VALUE;
+		}
+		return Integer.MAX_VALUE / numConnections / numDocumentsPerBulkInsert;
+	}
+
+	/**
+	 * @param connectionNum the number of the connection
+	 * @param insertOperation the index of the bulk insert operation by the connection
+	 * @return the identifier of the first document inserted by the operation
+	 */
+	public int getFirstBulkInsertedId(int connectionNum, int insertOperation) {
+		return ((insertOperation * numConnections) + connectionNum) * numDocumentsPerBulkInsert;
+	}
+
+	/**
+	 * @param connectionNum the number of the connection
+	 * @param documentIndex the index of the document among all bulk inserted by the connection
+	 * @return the identifier of the document
+	 */
+	public int getBulkInsertedId(int connectionNum, int documentIndex) {
+		return getFirstBulkInsertedId(connectionNum, documentIndex / numDocumentsPerBulkInsert) +
+				(documentIndex % numDocumentsPerBulkInsert);
+	}
+
+	/**
+	 * @param numBulkInsertOperations the maximum number of bulk insert operations by any connection
+	 * @return the identifier of the first document created by CRUD operations,
+	 *         which follows all bulk inserted documents
+	 */
+	public int getFirstCreatedId(int numBulkInsertOperations) {
+		return getFirstBulkInsertedId(0, numBulkInsertOperations);
+	}
+
+	/**
+	 * @param firstCreatedId the value returned by {@link #getFirstCreatedId(int)}
+	 * @return the maximum number of documents created by each connection whose
+	 *         identifiers fit in an {@code int}
+	 */
+	public int getMaxCreatedDocuments(int firstCreatedId) {
+		return (Integer.MAX_VALUE - firstCreatedId) / numConnections;
+	}
+
+	/**
+	 * @param firstCreatedId the value returned by {@link #getFirstCreatedId(int)}
+	 * @param connectionNum the number of the connection
+	 * @param documentIndex the index of the document among all created by the connection
+	 * @return the identifier of the document
+	 */
+	public int getCreatedId(int firstCreatedId, int connectionNum, int documentIndex) {
+		return firstCreatedId + (documentIndex * numConnections) + connectionNum;
+	}
+}
@@ -0,0 +1,399 @@
+package co.adhoclabs.ironcushion;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The documents known to be live in the database and the current
+ * {@code _rev} of each, shared by all connections, so that any connection can
+ * update or delete any live document without first reading it.
+ *
+ * <p>Because the identifiers from {@link DocumentIds} are dense integers, the
+ * registry is indexed by identifier instead of hashing. The identifiers are
+ * divided into blocks, each of which has a bitmap of its live documents and
+ * primitive arrays of the generation and digest of each revision. This uses
+ * about 21 bytes per document without boxing, and a block is allocated only
+ * once one of its identifiers is registered.
+ *
+ * <p>An operation that updates or deletes a document first checks it out, so
+ * that no other operation chooses it, and then checks it in once its response
+ * arrives. A document that was checked out or deleted is not registered again
+ * by a read that raced the update or delete.
+ *
+ * <p>Only revisions of the form {@code N-<32 hex digits>} used by CouchDB are
+ * stored. A document with any other revision is not registered.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class DocumentRegistry {
+	private static final int BLOCK_SHIFT = 16;
+	private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+	private static final int NUM_BLOCKS = (Integer.MAX_VALUE >> BLOCK_SHIFT) + 1;
+	private static final int NUM_DIGEST_CHARS = 32;
+	private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+
+	/**
+	 * The documents with consecutive identifiers, whose fields are guarded by
+	 * the block.
+	 */
+	private static final class Block {
+		/**
+		 * Bit {@code i % 64} of word {@code i / 64} is set if document {@code i} is live.
+		 */
+		private final long[] live = new long[BLOCK_SIZE / 64];
+		/**
+		 * The bit of each document that is checked out by a pending operation.
+		 */
+		private final long[] checkedOut = new long[BLOCK_SIZE / 64];
+		/**
+		 * The bit of each document that was deleted.
+		 */
+		private final long[] deleted = new long[BLOCK_SIZE / 64];
+		private final int[] generations = new int[BLOCK_SIZE];
+		/**
+		 * The high and then the low 64 bits of the digest of each revision.
+		 */
+		private final long[] digests = new long[2 * BLOCK_SIZE];
+	}
+
+	private final AtomicReferenceArray<Block> blocks;
+	private final AtomicLong numLiveDocuments;
+	/**
+	 * One more than the greatest identifier registered.
+	 */
+	private final AtomicInteger endId;
+
+	public DocumentRegistry() {
+		this.blocks = new AtomicReferenceArray<Block>(NUM_BLOCKS);
+		this.numLiveDocuments = new AtomicLong();
+		this.endId = new AtomicInteger();
+	}
+
+	private Block getBlock(int id) {
+		return blocks.get(id >>> BLOCK_SHIFT);
+	}
+
+	private Block getOrCreateBlock(int id) {
+		int blockNum = id >>> BLOCK_SHIFT;
+		Block block = blocks.get(blockNum);
+		if (block == null) {
+			blocks.compareAndSet(blockNum, null, new Block());
+			block = blocks.get(blockNum);
+		}
+		return block;
+	}
+
+	/**
+	 * Returns the integer value of the given identifier, or {@code -1} if it
+	 * is not a non-negative integer.
+	 */
+	private static int parseId(String id) {
+		if ((id == null) || id.isEmpty() || (id.length() > 10)) {
+			return -1;
+		}
+		long value = 0;
+		for (int i = 0; i < id.length(); ++i) {
+			char c = id.charAt(i);
+			if ((c < '0') || (c > '9')) {
+				return -1;
+			}
+			value = (10 * value) + (c - '0');
+		}
+		return (value <= Integer.MAX_VALUE) ? (int) value : -1;
+	}
+
+	private static int hexValue(char c) {
+		if ((c >= '0') && (c <= '9')) {
+			return c - '0';
+		} else if ((c >= 'a') && (c <= 'f')) {
+			return c - 'a' + 10;
+		} else if ((c >= 'A') && (c <= 'F')) {
+			return c - 'A' + 10;
+		}
+		return -1;
+	}
+
+	private static boolean isDigest(String rev, int startIndex) {
+		for (int i = startIndex; i < rev.length(); ++i) {
+			if (hexValue(rev.charAt(i)) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns 64 bits of the digest of a revision, starting at the given index.
+	 */
+	private static long parseDigest(String rev, int startIndex) {
+		long bits = 0;
+		for (int i = startIndex; i < startIndex + (NUM_DIGEST_CHARS / 2); ++i) {
+			bits = (bits << 4) | hexValue(rev.charAt(i));
+		}
+		return bits;
+	}
+
+	private static void appendDigest(char[] chars, int startIndex, long bits) {
+		for (int i = (NUM_DIGEST_CHARS / 2) - 1; i >= 0; --i) {
+			chars[startIndex + i] = HEX_CHARS[(int) (bits & 0xf)];
+			bits >>>= 4;
+		}
+	}
+
+	private static boolean isSet(long[] bits, int index) {
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	private static void set(long[] bits, int index) {
+		bits[index >>> 6] |= 1L << index;
+	}
+
+	private static void clear(long[] bits, int index) {
+		bits[index >>> 6] &= ~(1L << index);
+	}
+
+	/**
+	 * Returns the generation of the given revision, or {@code -1} if the
+	 * revision cannot be stored.
+	 */
+	private static int parseGeneration(String rev) {
+		int separatorIndex = (rev != null) ? rev.indexOf('-') : -1;
+		if ((separatorIndex <= 0) || (separatorIndex > 9) ||
+				(rev.length() != separatorIndex + 1 + NUM_DIGEST_CHARS)) {
+			return -1;
+		}
+		int generation = parseId(rev.substring(0, separatorIndex));
+		if ((generation <= 0) || !isDigest(rev, separatorIndex + 1)) {
+			return -1;
+		}
+		return generation;
+	}
+
+	private void updateEndId(int id) {
+		while (true) {
+			int currentEndId = endId.get();
+			if ((id < currentEndId) || endId.compareAndSet(currentEndId, id + 1)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Records that the document with the given identifier is live with the
+	 * given revision, or not live if the revision cannot be stored.
+	 *
+	 * @param id the identifier of the document
+	 * @param rev the current revision of the document
+	 * @param ifNewer whether to do nothing if the document is checked out or
+	 *        deleted, or is live with a revision that is not older
+	 */
+	private void put(int id, String rev, boolean ifNewer) {
+		int generation = parseGeneration(rev);
+		Block block = getOrCreateBlock(id);
+		int index = id & BLOCK_MASK;
+		synchronized (block) {
+			if (ifNewer && (isSet(block.checkedOut, index) || isSet(block.deleted, index) ||
+					(isSet(block.live, index) && (block.generations[index] >= generation)))) {
+				return;
+			}
+			clear(block.checkedOut, index);
+			if (generation < 0) {
+				if (isSet(block.live, index)) {
+					clear(block.live, index);
+					numLiveDocuments.decrementAndGet();
+				}
+				return;
+			}
+			int digestIndex = rev.indexOf('-') + 1;
+			block.generations[index] = generation;
+			block.digests[2 * index] = parseDigest(rev, digestIndex);
+			block.digests[(2 * index) + 1] = parseDigest(rev, digestIndex + (NUM_DIGEST_CHARS / 2));
+			if (!isSet(block.live, index)) {
+				set(block.live, index);
+				numLiveDocuments.incrementAndGet();
+			}
+		}
+		updateEndId(id);
+	}
+
+	/**
+	 * Records that the document with the given identifier is live with the
+	 * given revision, because it was created. Does nothing if the identifier is
+	 * not an integer, and removes the document if the revision cannot be stored.
+	 *
+	 * @param id the identifier of the document
+	 * @param rev the current revision of the document
+	 */
+	public void put(String id, String rev) {
+		int intId = parseId(id);
+		if (intId >= 0) {
+			put(intId, rev, false);
+		}
+	}
+
+	/**
+	 * Records that the document with the given identifier is live with the
+	 * given revision, because it was read. Does nothing if the document is
+	 * checked out or was deleted since, or if it is registered with a revision
+	 * that is not older.
+	 *
+	 * @param id the identifier of the document
+	 * @param rev the revision of the document that was read
+	 */
+	public void putIfNewer(String id, String rev) {
+		int intId = parseId(id);
+		if ((intId >= 0) && (parseGeneration(rev) > 0)) {
+			put(intId, rev, true);
+		}
+	}
+
+	private static String getRev(Block block, int index) {
+		char[] chars = new char[11 + NUM_DIGEST_CHARS];
+		String generation = String.valueOf(block.generations[index]);
+		generation.getChars(0, generation.length(), chars, 0);
+		int separatorIndex = generation.length();
+		chars[separatorIndex] = '-';
+		appendDigest(chars, separatorIndex + 1, block.digests[2 * index]);
+		appendDigest(chars, separatorIndex + 1 + (NUM_DIGEST_CHARS / 2), block.digests[(2 * index) + 1]);
+		return new String(chars, 0, separatorIndex + 1 + NUM_DIGEST_CHARS);
+	}
+
+	/**
+	 * @param id the identifier of the document
+	 * @return the current revision of the document, or {@code null} if not live
+	 */
+	public String getRev(int id) {
+		Block block = getBlock(id);
+		if (block == null) {
+			return null;
+		}
+		int index = id & BLOCK_MASK;
+		synchronized (block) {
+			if ((block.live[index >>> 6] & (1L << index)) == 0) {
+				return null;
+			}
+			return getRev(block, index);
+		}
+	}
+
+	/**
+	 * Checks out the document with the given identifier, so that no other
+	 * operation chooses it until it is checked in.
+	 *
+	 * @param id the identifier of the document
+	 * @return the revision of the document, or {@code null} if it was not live
+	 */
+	public String checkOut(int id) {
+		Block block = getBlock(id);
+		if (block == null) {
+			return null;
+		}
+		int index = id & BLOCK_MASK;
+		synchronized (block) {
+			if (!isSet(block.live, index)) {
+				return null;
+			}
+			clear(block.live, index);
+			set(block.checkedOut, index);
+			numLiveDocuments.decrementAndGet();
+			return getRev(block, index);
+		}
+	}
+
+	/**
+	 * Checks in the document with the given identifier, which is live with the
+	 * given revision. This is the new revision if the operation that checked it
+	 * out succeeded, or the revision it was checked out with otherwise.
+	 *
+	 * @param id the identifier of the checked out document
+	 * @param rev the current revision of the document
+	 */
+	public void checkIn(int id, String rev) {
+		put(id, rev, false);
+	}
+
+	/**
+	 * Checks in the document with the given identifier, which was deleted and
+	 * so is never registered again.
+	 *
+	 * @param id the identifier of the checked out document
+	 */
+	public void checkInDeleted(int id) {
+		Block block = getOrCreateBlock(id);
+		int index = id & BLOCK_MASK;
+		synchronized (block) {
+			clear(block.checkedOut, index);
+			set(block.deleted, index);
+		}
+	}
+
+	/**
+	 * Returns the first live identifier in the given block that is not less
+	 * than the given index, or {@code -1} if there is none.
+	 */
+	private static int nextLiveIndex(Block block, int index) {
+		synchronized (block) {
+			int wordIndex = index >>> 6;
+			long word = block.live[wordIndex] & (-1L << index);
+			while (true) {
+				if (word != 0) {
+					return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+				}
+				if (++wordIndex == block.live.length) {
+					return -1;
+				}
+				word = block.live[wordIndex];
+			}
+		}
+	}
+
+	/**
+	 * Returns the first live identifier that is not less than the given
+	 * identifier, continuing from {@code 0} after the greatest registered. A
+	 * document may be checked out by another connection after it is returned.
+	 *
+	 * @param id the identifier to start from
+	 * @return the live identifier, or {@code -1} if no document is live
+	 */
+	public int nextLiveId(int id) {
+		int endId = getEndId();
+		if ((numLiveDocuments.get() == 0) || (endId == 0)) {
+			return -1;
+		}
+		if ((id < 0) || (id >= endId)) {
+			id = 0;
+		}
+		int startBlockNum = id >>> BLOCK_SHIFT;
+		int endBlockNum = ((endId - 1) >>> BLOCK_SHIFT) + 1;
+		// Visit the first block again from its start after wrapping around.
+		for (int i = 0; i <= endBlockNum; ++i) {
+			int blockNum = (startBlockNum + i) % endBlockNum;
+			Block block = blocks.get(blockNum);
+			if (block == null) {
+				continue;
+			}
+			int startIndex = (i == 0) ? (id & BLOCK_MASK) : 0;
+			int index = nextLiveIndex(block, startIndex);
+			if (index >= 0) {
+				return (blockNum << BLOCK_SHIFT) + index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return one more than the greatest identifier registered
+	 */
+	public int getEndId() {
+		return endId.get();
+	}
+
+	/**
+	 * @return the number of documents that are live
+	 */
+	public long getNumLiveDocuments() {
+		return numLiveDocuments.get();
+	}
+}
@@ -234,6 +234,59 @@ public class DocumentSchema {
 		return null;
 	}
 	
+	private static void compileArray(ArrayValue value, DocumentSerializer.Compiler compiler) {
+		compiler.appendLiteral("[");
+		int index = 0;
+		for (Value element : value.elements) {
+			if (index++ > 0) {
+				compiler.appendLiteral(",");
+			}
+			compileValue(element, compiler);
+		}
+		compiler.appendLiteral("]");
+	}
+
+	private static void compileEntries(ObjectValue value, DocumentSerializer.Compiler compiler) {
+		int index = 0;
+		for (ObjectValue.Entry entry : value.entries) {
+			if (index++ > 0) {
+				compiler.appendLiteral(",");
+			}
+			compiler.appendName(entry.name);
+			compileValue(entry.value, compiler);
+		}
+	}
+
+	private static void compileValue(Value value, DocumentSerializer.Compiler compiler) {
+		switch (value.getType()) {
+		case ARRAY:
+			compileArray((ArrayValue) value, compiler);
+			break;
+		case OBJECT:
+			compiler.appendLiteral("{");
+			compileEntries((ObjectValue) value, compiler);
+			compiler.appendLiteral("}");
+			break;
+		case STRING:
+			compiler.appendString();
+			break;
+		case BOOLEAN:
+			compiler.appendBoolean();
+			break;
+		case INTEGER:
+			compiler.appendInteger();
+			break;
+		case FLOAT:
+			compiler.appendFloat();
+			break;
+		case NULL:
+			compiler.appendLiteral("null");
+			break;
+		default:
+			break;
+		}
+	}
+	
 	private final ObjectValue root;
 	
 	private DocumentSchema(ObjectValue root) {
@@ -447,6 +500,19 @@ public class DocumentSchema {
 		return getObject(root, generator);
 	}
 	
+	/**
+	 * Returns a {@link DocumentSerializer} that writes new documents that
+	 * conform to the schema directly as UTF-8 JSON.
+	 * 
+	 * @return the compiled serializer for the schema
+	 */
+	public DocumentSerializer compileSerializer() {
+		DocumentSerializer.Compiler compiler = new DocumentSerializer.Compiler();
+		compiler.appendLiteral("{");
+		compileEntries(root, compiler);
+		return compiler.compile(root.entries.isEmpty());
+	}
+	
 	/**
 	 * Replaces a randomly chosen value in the given JSON.
 	 * 
@@ -463,6 +529,44 @@ public class DocumentSchema {
 		json.put(entry.name, newValue);
 	}
 	
+	/**
+	 * @return the names of the top-level fields whose values are strings,
+	 *         booleans, integers, or floats, in the order of the schema
+	 */
+	public List<String> getScalarFieldNames() {
+		List<String> names = new ArrayList<String>();
+		for (ObjectValue.Entry entry : root.entries) {
+			switch (entry.value.getType()) {
+			case STRING:
+			case BOOLEAN:
+			case INTEGER:
+			case FLOAT:
+				names.add(entry.name);
+				break;
+			default:
+				break;
+			}
+		}
+		return names;
+	}
+	
+	/**
+	 * Returns a new value for the top-level field with the given name, as it
+	 * would appear in a new document.
+	 * 
+	 * @param name the name of the field
+	 * @param generator the generator for the value
+	 * @return the new value, or {@code null} if there is no such field
+	 */
+	public Object getNewValue(String name, ValueGenerator generator) {
+		for (ObjectValue.Entry entry : root.entries) {
+			if (entry.name.equals(name)) {
+				return getObject(entry.value, generator);
+			}
+		}
+		return null;
+	}
+	
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
 		root.toString(sb);
@@ -0,0 +1,261 @@
+package co.adhoclabs.ironcushion;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.util.CharsetUtil;
+
+/**
+ * Writes documents that conform to a {@link DocumentSchema} directly to a
+ * {@link ChannelBuffer} as UTF-8 JSON. The schema is compiled once into a plan
+ * of steps, where each step either writes a constant sequence of bytes, such
+ * as the braces, names, and separators of an object, or writes a value from a
+ * {@link ValueGenerator}. No {@code JSONObject} tree, boxed value, or
+ * {@link String} is created for a written document.
+ *
+ * <p>Each document is written with a {@code _id} field last. Values are
+ * generated in the same order as by {@link DocumentSchema#getNewDocument}. A
+ * serializer has no mutable state, and so may be shared by all connections.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class DocumentSerializer {
+	private static final byte STEP_LITERAL = 0;
+	private static final byte STEP_STRING = 1;
+	private static final byte STEP_BOOLEAN = 2;
+	private static final byte STEP_INTEGER = 3;
+	private static final byte STEP_FLOAT = 4;
+
+	private static final byte[] TRUE = "true".getBytes(CharsetUtil.US_ASCII);
+	private static final byte[] FALSE = "false".getBytes(CharsetUtil.US_ASCII);
+	private static final byte[] MIN_INTEGER = String.valueOf(Integer.MIN_VALUE)
+			.getBytes(CharsetUtil.US_ASCII);
+	/**
+	 * Scales a float so that its eight digits after the decimal point, which
+	 * are enough to distinguish every value returned by
+	 * {@link ValueGenerator#nextFloat()}, are its integer part.
+	 */
+	private static final int FLOAT_SCALE = 100000000;
+
+	/**
+	 * Compiles the steps of a plan, merging consecutive constant bytes into
+	 * one literal step.
+	 */
+	static final class Compiler {
+		private final List<Byte> steps;
+		private final List<byte[]> literals;
+		private final ByteArrayOutputStream literal;
+
+		Compiler() {
+			steps = new ArrayList<Byte>();
+			literals = new ArrayList<byte[]>();
+			literal = new ByteArrayOutputStream();
+		}
+
+		private void flushLiteral() {
+			if (literal.size() > 0) {
+				steps.add(STEP_LITERAL);
+				literals.add(literal.toByteArray());
+				literal.reset();
+			}
+		}
+
+		/**
+		 * Appends the given constant characters.
+		 */
+		void appendLiteral(String value) {
+			byte[] bytes = value.getBytes(CharsetUtil.UTF_8);
+			literal.write(bytes, 0, bytes.length);
+		}
+
+		/**
+		 * Appends the given name and the following colon of an object entry.
+		 */
+		void appendName(String name) {
+			appendLiteral(quote(name));
+			appendLiteral(":");
+		}
+
+		/**
+		 * Appends a value from the {@link ValueGenerator}.
+		 */
+		void appendValue(byte step) {
+			flushLiteral();
+			steps.add(step);
+		}
+
+		void appendString() {
+			appendValue(STEP_STRING);
+		}
+
+		void appendBoolean() {
+			appendValue(STEP_BOOLEAN);
+		}
+
+		void appendInteger() {
+			appendValue(STEP_INTEGER);
+		}
+
+		void appendFloat() {
+			appendValue(STEP_FLOAT);
+		}
+
+		/**
+		 * Returns the compiled serializer, given whether the root object is
+		 * empty, and so whether the {@code _id} field is preceded by a comma.
+		 * The closing brace of the root object is appended by this method.
+		 */
+		DocumentSerializer compile(boolean emptyRoot) {
+			// The closing brace is its own last step, so that the _id precedes it.
+			flushLiteral();
+			appendLiteral("}");
+			flushLiteral();
+			byte[] compiledSteps = new byte[steps.size()];
+			for (int i = 0; i < compiledSteps.length; ++i) {
+				compiledSteps[i] = steps.get(i);
+			}
+			byte[][] compiledLiterals = literals.toArray(new byte[literals.size()][]);
+			byte[] idPrefix = ((emptyRoot ? "" : ",") + "\"_id\":\"").getBytes(CharsetUtil.US_ASCII);
+			return new DocumentSerializer(compiledSteps, compiledLiterals, idPrefix);
+		}
+	}
+
+	/**
+	 * Returns the given string as a quoted JSON string.
+	 */
+	private static String quote(String value) {
+		StringBuilder sb = new StringBuilder(value.length() + 2);
+		sb.append('"');
+		for (int i = 0; i < value.length(); ++i) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\b':
+				sb.append("\\b");
+				break;
+			case '\f':
+				sb.append("\\f");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < ' ') {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+				break;
+			}
+		}
+		sb.append('"');
+		return sb.toString();
+	}
+
+	private final byte[] steps;
+	private final byte[][] literals;
+	private final byte[] idPrefix;
+
+	private DocumentSerializer(byte[] steps, byte[][] literals, byte[] idPrefix) {
+		this.steps = steps;
+		this.literals = literals;
+		this.idPrefix = idPrefix;
+	}
+
+	/**
+	 * Writes a new document that conforms to the schema, with the given
+	 * {@code _id}, to the given buffer.
+	 *
+	 * @param buffer the buffer to write the document to
+	 * @param generator the generator for values in the document
+	 * @param documentId the value of the {@code _id} field
+	 */
+	public void write(ChannelBuffer buffer, ValueGenerator generator, int documentId) {
+		int literalIndex = 0;
+		// The last step is the literal closing brace of the root.
+		final int lastStep = steps.length - 1;
+		for (int i = 0; i < lastStep; ++i) {
+			switch (steps[i]) {
+			case STEP_LITERAL:
+				buffer.writeBytes(literals[literalIndex++]);
+				break;
+			case STEP_STRING:
+				buffer.writeByte('"');
+				generator.writeString(buffer);
+				buffer.writeByte('"');
+				break;
+			case STEP_BOOLEAN:
+				buffer.writeBytes(generator.nextBoolean() ? TRUE : FALSE);
+				break;
+			case STEP_INTEGER:
+				writeInteger(buffer, generator.nextInt());
+				break;
+			case STEP_FLOAT:
+				writeFloat(buffer, generator.nextFloat());
+				break;
+			default:
+				break;
+			}
+		}
+		buffer.writeBytes(idPrefix);
+		writeInteger(buffer, documentId);
+		buffer.writeByte('"');
+		buffer.writeBytes(literals[literalIndex]);
+	}
+
+	private static void writeDigits(ChannelBuffer buffer, int value, int divisor) {
+		for (; divisor > 0; divisor /= 10) {
+			buffer.writeByte('0' + ((value / divisor) % 10));
+		}
+	}
+
+	private static void writeInteger(ChannelBuffer buffer, int value) {
+		if (value == Integer.MIN_VALUE) {
+			// Its magnitude is not representable as an int.
+			buffer.writeBytes(MIN_INTEGER);
+			return;
+		}
+		if (value < 0) {
+			buffer.writeByte('-');
+			value = -value;
+		}
+		int divisor = 1;
+		while ((divisor <= (Integer.MAX_VALUE / 10)) && ((divisor * 10) <= value)) {
+			divisor *= 10;
+		}
+		writeDigits(buffer, value, divisor);
+	}
+
+	/**
+	 * Writes a float in {@code [0, 1)} with up to eight digits
+	 * after the decimal point, omitting trailing zeros.
+	 */
+	private static void writeFloat(ChannelBuffer buffer, float value) {
+		int scaled = (int) (value * (double) FLOAT_SCALE);
+		buffer.writeByte('0');
+		buffer.writeByte('.');
+		if (scaled == 0) {
+			buffer.writeByte('0');
+			return;
+		}
+		int divisor = FLOAT_SCALE / 10;
+		while ((scaled % 10) == 0) {
+			scaled /= 10;
+			divisor /= 10;
+		}
+		writeDigits(buffer, scaled, divisor);
+	}
+}
@@ -0,0 +1,92 @@
+package co.adhoclabs.ironcushion;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.json.simple.JSONObject;
+
+/**
+ * The number of errors of each reason returned by CouchDB, such as
+ * {@code conflict}, {@code not_found}, or {@code forbidden}.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class ErrorCounts {
+	/**
+	 * The reason recorded for a failed response without an {@code error} field.
+	 */
+	public static final String UNKNOWN_REASON = "unknown";
+
+	/**
+	 * The count of each reason, sorted by reason. Each count is an array of
+	 * one element so that it can be incremented in place.
+	 */
+	private final Map<String, long[]> counts;
+	private long total;
+
+	public ErrorCounts() {
+		counts = new TreeMap<String, long[]>();
+		total = 0;
+	}
+
+	/**
+	 * Records an error.
+	 *
+	 * @param reason the value of the {@code error} field, or {@code null} if absent
+	 */
+	public void record(String reason) {
+		add((reason != null) ? reason : UNKNOWN_REASON, 1);
+	}
+
+	private void add(String reason, long count) {
+		long[] reasonCount = counts.get(reason);
+		if (reasonCount == null) {
+			reasonCount = new long[1];
+			counts.put(reason, reasonCount);
+		}
+		reasonCount[0] += count;
+		total += count;
+	}
+
+	/**
+	 * Adds the counts of the given errors to these errors.
+	 *
+	 * @param errorCounts the errors to add
+	 */
+	public void add(ErrorCounts errorCounts) {
+		for (Map.Entry<String, long[]> entry : errorCounts.counts.entrySet()) {
+			add(entry.getKey(), entry.getValue()[0]);
+		}
+	}
+
+	/**
+	 * @return the total number of errors of all reasons
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return the JSON of the count of each reason
+	 */
+	@SuppressWarnings("unchecked")
+	public JSONObject toJson() {
+		JSONObject json = new JSONObject();
+		for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+			json.put(entry.getKey(), entry.getValue()[0]);
+		}
+		return json;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(entry.getKey()).append('=').append(BenchmarkResults.format(entry.getValue()[0]));
+		}
+		return sb.toString();
+	}
+}
@@ -1,20 +1,32 @@
 package co.adhoclabs.ironcushion;
 
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.net.InetSocketAddress;
 import java.util.List;
-import java.util.concurrent.Executors;
+import java.util.Random;
 
-import org.jboss.netty.bootstrap.ClientBootstrap;
-import org.jboss.netty.channel.Channel;
-import org.jboss.netty.channel.ChannelFuture;
-import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.json.simple.JSONObject;
 
 import co.adhoclabs.ironcushion.bulkinsert.BulkInsertConnectionStatistics;
 import co.adhoclabs.ironcushion.bulkinsert.BulkInsertDocumentGenerator;
-import co.adhoclabs.ironcushion.bulkinsert.BulkInsertPipelineFactory;
+import co.adhoclabs.ironcushion.bulkinsert.BulkInsertHandlerFactory;
+import co.adhoclabs.ironcushion.changes.ChangesConnectionStatistics;
+import co.adhoclabs.ironcushion.changes.ChangesHandler;
+import co.adhoclabs.ironcushion.changes.ChangesHandlerFactory;
 import co.adhoclabs.ironcushion.crud.CrudConnectionStatistics;
 import co.adhoclabs.ironcushion.crud.CrudOperations;
-import co.adhoclabs.ironcushion.crud.CrudPipelineFactory;
+import co.adhoclabs.ironcushion.crud.CrudHandlerFactory;
+import co.adhoclabs.ironcushion.find.FindConnectionStatistics;
+import co.adhoclabs.ironcushion.find.FindHandlerFactory;
+import co.adhoclabs.ironcushion.find.FindIndexHandlerFactory;
+import co.adhoclabs.ironcushion.find.FindQueries;
+import co.adhoclabs.ironcushion.view.ViewConnectionStatistics;
+import co.adhoclabs.ironcushion.view.ViewHandlerFactory;
+import co.adhoclabs.ironcushion.view.ViewIndexHandlerFactory;
+import co.adhoclabs.ironcushion.view.ViewQueries;
 
 /**
  * The networking engine that asynchronously executes HTTP requests.
@@ -25,77 +37,327 @@ import co.adhoclabs.ironcushion.crud.CrudPipelineFactory;
 
 public class HttpReactor {
 	private final int numConnections;
-	private final InetSocketAddress databaseAddress;
-	private final String authString;
-	private final String host;
-	private final boolean https;
-	private final int timeoutDelay;
+	private final int pipelineDepth;
+	private final RequestEncoder requestEncoder;
+	private final double bulkInsertTargetRate;
+	private final double crudTargetRate;
+	private final double viewTargetRate;
+	private final double findTargetRate;
+	private final int bulkInsertDuration;
+	private final int crudDuration;
+	private final int viewDuration;
+	private final int findDuration;
+	private final OpenLoopScheduler.ArrivalDistribution arrivalDistribution;
+	private final Random rng;
+	private final IoWorkerPool ioWorkerPool;
+	private final ConnectionPool connectionPool;
+	private final int numChangesConnections;
+	private final ChangesHandler.Feed changesFeed;
+	/**
+	 * The connections consuming the changes feed, or {@code null} if none do.
+	 */
+	private final ConnectionPool changesConnectionPool;
+	private List<ChangesConnectionStatistics> allChangesConnectionStatistics;
+	private final ClientProfiler clientProfiler;
+	private ClientProfile clientProfile;
+	private final int reportInterval;
+	private final IntervalReporter.Format intervalFormat;
+	private final PrintWriter intervalWriter;
+	private final Warmup warmup;
 
-	public HttpReactor(ParsedArguments parsedArguments, InetSocketAddress databaseAddress, String authString, boolean https) {
+	public HttpReactor(ParsedArguments parsedArguments, int seed, InetSocketAddress databaseAddress,
+			String authString, boolean https) throws BenchmarkException {
 		this.numConnections = parsedArguments.numConnections;
-		this.databaseAddress = databaseAddress;
-		this.host = databaseAddress.getHostName();
-		this.authString = authString;
-		this.https = https;
-		this.timeoutDelay = parsedArguments.timeoutDelay;
+		this.pipelineDepth = parsedArguments.pipelineDepth;
+		this.requestEncoder = new RequestEncoder(databaseAddress.getHostName(), authString);
+		this.bulkInsertTargetRate = parsedArguments.bulkInsertTargetRate;
+		this.crudTargetRate = parsedArguments.crudTargetRate;
+		this.viewTargetRate = parsedArguments.viewTargetRate;
+		this.findTargetRate = parsedArguments.findTargetRate;
+		this.bulkInsertDuration = parsedArguments.bulkInsertDuration;
+		this.crudDuration = parsedArguments.crudDuration;
+		this.viewDuration = parsedArguments.viewDuration;
+		this.findDuration = parsedArguments.findDuration;
+		this.arrivalDistribution = parsedArguments.arrivalDistribution;
+		this.rng = new Random(seed);
+		this.warmup = new Warmup(parsedArguments.warmupOperations, parsedArguments.warmupSeconds);
+
+		// Every step uses the same connections and I/O threads.
+		this.ioWorkerPool = new IoWorkerPool(parsedArguments.ioThreads);
+		this.connectionPool = new ConnectionPool(ioWorkerPool.getChannelFactory(), databaseAddress,
+				https, true, numConnections, parsedArguments.timeoutDelay);
+		this.numChangesConnections = parsedArguments.numChangesConnections;
+		this.changesFeed = parsedArguments.changesFeed;
+		if (numChangesConnections > 0) {
+			// Changes are parsed as they arrive, and so their chunks are not aggregated.
+			this.changesConnectionPool = new ConnectionPool(ioWorkerPool.getChannelFactory(),
+					databaseAddress, https, false, numChangesConnections, parsedArguments.timeoutDelay);
+		} else {
+			this.changesConnectionPool = null;
+		}
+		this.clientProfiler = new ClientProfiler(ioWorkerPool);
+		this.clientProfile = ClientProfile.empty(parsedArguments.ioThreads);
+
+		this.reportInterval = parsedArguments.reportInterval;
+		this.intervalFormat = parsedArguments.intervalFormat;
+		if (parsedArguments.intervalFile != null) {
+			try {
+				this.intervalWriter = new PrintWriter(new OutputStreamWriter(
+						new FileOutputStream(parsedArguments.intervalFile), "UTF-8"));
+			} catch (IOException e) {
+				throw new BenchmarkException(e);
+			}
+			if (intervalFormat == IntervalReporter.Format.CSV) {
+				intervalWriter.println(IntervalReporter.CSV_HEADER);
+			}
+		} else {
+			this.intervalWriter = null;
+		}
+	}
+
+	/**
+	 * Returns the reporter of intervals for the given step.
+	 * 
+	 * @param stepName the name of the step
+	 * @param operationNames the name of each type of operation in the step
+	 * @param allConnectionStatistics the statistics of every connection performing the step
+	 * @return the reporter, or {@code null} if intervals are not reported
+	 */
+	private IntervalReporter newIntervalReporter(String stepName, String[] operationNames,
+			List<? extends AbstractConnectionStatistics> allConnectionStatistics) {
+		if (reportInterval <= 0) {
+			return null;
+		}
+		return new IntervalReporter(stepName, operationNames, allConnectionStatistics,
+				reportInterval, intervalWriter, intervalFormat);
 	}
 
-	private void run(AbstractBenchmarkPipelineFactory channelPipelineFactory)
+	/**
+	 * Returns the scheduler for running a phase open loop at the given rate.
+	 * 
+	 * @param targetRate the target number of requests per second, or {@code 0}
+	 * @return the scheduler, or {@code null} if the phase runs closed loop
+	 */
+	private OpenLoopScheduler newOpenLoopScheduler(double targetRate) {
+		if (targetRate <= 0) {
+			return null;
+		}
+		return new OpenLoopScheduler(targetRate, numConnections, arrivalDistribution, rng);
+	}
+
+	/**
+	 * Establishes all connections to the database, which are then used by
+	 * every step of the benchmark.
+	 * 
+	 * @return the statistics for establishing the connections
+	 * @throws BenchmarkException if interrupted while connecting
+	 */
+	public ConnectStatistics connect() throws BenchmarkException {
+		ClientProfiler.Snapshot startSnapshot = clientProfiler.snapshot();
+		try {
+			return connectionPool.connect();
+		} finally {
+			clientProfile = clientProfiler.getProfile(startSnapshot);
+		}
+	}
+
+	private void run(AbstractBenchmarkHandlerFactory handlerFactory,
+			OpenLoopScheduler openLoopScheduler, IntervalReporter intervalReporter)
 			throws BenchmarkException {
 		try {
-			// Create the connections to the server.
-			ClientBootstrap clientBootstrap = new ClientBootstrap(
-					new NioClientSocketChannelFactory(
-							Executors.newCachedThreadPool(),
-							Executors.newCachedThreadPool()));
-			clientBootstrap.setPipelineFactory(channelPipelineFactory);
-
-			//Timeout control
-			clientBootstrap.setOption("connectTimeoutMillis", timeoutDelay);
-			ChannelFuture future = null;
-
-			for (int i = 0; i < numConnections; ++i) {
-				future = clientBootstrap.connect(databaseAddress);
+			run(handlerFactory, intervalReporter);
+		} finally {
+			if (openLoopScheduler != null) {
+				openLoopScheduler.stop();
 			}
+		}
+	}
 
-			// Wait until the connection attempt succeeds or fails.
-			future.awaitUninterruptibly();
-			if (!future.isSuccess()) {
-				future.getCause().printStackTrace();
-				clientBootstrap.releaseExternalResources();
-				return;
-			}
+	private void run(AbstractBenchmarkHandlerFactory handlerFactory, IntervalReporter intervalReporter)
+			throws BenchmarkException {
+		// Replace any connections closed by an error in an earlier step.
+		connectionPool.connect();
 
-			// Wait for all connections to complete their tasks.
-			channelPipelineFactory.getCountDownLatch().await();
+		ClientProfiler.Snapshot startSnapshot = clientProfiler.snapshot();
+		if (intervalReporter != null) {
+			intervalReporter.start();
+		}
+		try {
+			connectionPool.start(handlerFactory);
 
-			// Shut down executor threads to exit.
-			clientBootstrap.releaseExternalResources();
+			// Wait for all connections to complete their tasks.
+			handlerFactory.getCountDownLatch().await();
 		} catch (InterruptedException e) {
 			throw new BenchmarkException(e);
+		} finally {
+			if (intervalReporter != null) {
+				intervalReporter.stop();
+			}
+			clientProfile = clientProfiler.getProfile(startSnapshot);
+		}
+	}
+
+	/**
+	 * @return the resources used by the benchmark itself during the last step
+	 *         performed
+	 */
+	public ClientProfile getClientProfile() {
+		return clientProfile;
+	}
+
+	/**
+	 * @return the warm-up of each connection at the start of each step
+	 */
+	public Warmup getWarmup() {
+		return warmup;
+	}
+
+	/**
+	 * @return the statistics of the connections that consumed the changes feed
+	 *         during the last CRUD operations, or {@code null} if none did
+	 */
+	public List<ChangesConnectionStatistics> getAllChangesConnectionStatistics() {
+		return allChangesConnectionStatistics;
+	}
+
+	/**
+	 * Closes all connections and I/O threads after all steps are performed.
+	 */
+	public void release() {
+		connectionPool.close();
+		if (changesConnectionPool != null) {
+			changesConnectionPool.close();
+		}
+		ioWorkerPool.release();
+		if (intervalWriter != null) {
+			intervalWriter.close();
 		}
 	}
 
-	public List<BulkInsertConnectionStatistics> performBulkInserts(
+	public StepStatistics<BulkInsertConnectionStatistics> performBulkInserts(
 			List<BulkInsertDocumentGenerator> allBulkInsertDocumentGenerators,
-			String bulkInsertPath) throws BenchmarkException {
+			DocumentRegistry documentRegistry, String bulkInsertPath) throws BenchmarkException {
 		// Run the bulk inserts.
-		BulkInsertPipelineFactory bulkInsertPipelineFactory = new BulkInsertPipelineFactory(
-				numConnections, allBulkInsertDocumentGenerators, bulkInsertPath, authString, host, https);
-		run(bulkInsertPipelineFactory);
+		OpenLoopScheduler openLoopScheduler = newOpenLoopScheduler(bulkInsertTargetRate);
+		BulkInsertHandlerFactory bulkInsertHandlerFactory = new BulkInsertHandlerFactory(
+				numConnections, pipelineDepth, openLoopScheduler,
+				allBulkInsertDocumentGenerators, documentRegistry, bulkInsertPath, requestEncoder, warmup,
+				bulkInsertDuration);
+		run(bulkInsertHandlerFactory, openLoopScheduler, newIntervalReporter("bulk_insert",
+				BulkInsertConnectionStatistics.OPERATION_NAMES,
+				bulkInsertHandlerFactory.getAllConnectionStatistics()));
+
+		// Return the times for each connection.
+		return bulkInsertHandlerFactory.getStepStatistics();
+	}
+
+	public IndexConnectionStatistics buildViewIndex(JSONObject designDocument,
+			String designDocumentPath, String buildPath) throws BenchmarkException {
+		// Install the design document and build its index on one connection.
+		ViewIndexHandlerFactory viewIndexHandlerFactory = new ViewIndexHandlerFactory(
+				numConnections, designDocument, designDocumentPath, buildPath, requestEncoder, warmup);
+		run(viewIndexHandlerFactory, null);
+
+		return viewIndexHandlerFactory.getConnectionStatistics();
+	}
+
+	public StepStatistics<ViewConnectionStatistics> performViewQueries(List<ViewQueries> allViewQueries)
+			throws BenchmarkException {
+		// Run the view queries.
+		OpenLoopScheduler openLoopScheduler = newOpenLoopScheduler(viewTargetRate);
+		ViewHandlerFactory viewHandlerFactory = new ViewHandlerFactory(
+				numConnections, pipelineDepth, openLoopScheduler,
+				allViewQueries, requestEncoder, warmup, viewDuration);
+		run(viewHandlerFactory, openLoopScheduler, newIntervalReporter("view",
+				ViewConnectionStatistics.OPERATION_NAMES,
+				viewHandlerFactory.getAllConnectionStatistics()));
 
 		// Return the times for each connection.
-		return bulkInsertPipelineFactory.getAllConnectionStatistics();
+		return viewHandlerFactory.getStepStatistics();
+	}
+
+	public IndexConnectionStatistics buildFindIndexes(List<JSONObject> indexes,
+			JSONObject buildQuery, String indexPath, String findPath) throws BenchmarkException {
+		// Create the indexes and build them on one connection.
+		FindIndexHandlerFactory findIndexHandlerFactory = new FindIndexHandlerFactory(
+				numConnections, indexes, buildQuery, indexPath, findPath, requestEncoder, warmup);
+		run(findIndexHandlerFactory, null);
+
+		return findIndexHandlerFactory.getConnectionStatistics();
+	}
+
+	public StepStatistics<FindConnectionStatistics> performFindQueries(List<FindQueries> allFindQueries,
+			String findPath) throws BenchmarkException {
+		// Run the _find queries.
+		OpenLoopScheduler openLoopScheduler = newOpenLoopScheduler(findTargetRate);
+		FindHandlerFactory findHandlerFactory = new FindHandlerFactory(
+				numConnections, pipelineDepth, openLoopScheduler,
+				allFindQueries, findPath, requestEncoder, warmup, findDuration);
+		run(findHandlerFactory, openLoopScheduler, newIntervalReporter("find",
+				FindConnectionStatistics.OPERATION_NAMES,
+				findHandlerFactory.getAllConnectionStatistics()));
+
+		// Return the times for each connection.
+		return findHandlerFactory.getStepStatistics();
+	}
+
+	/**
+	 * Starts consuming the changes feed, and waits until every connection will
+	 * see all writes that follow.
+	 */
+	private ChangesHandlerFactory startChangesConsumers(String databasePath) throws BenchmarkException {
+		ChangesHandlerFactory changesHandlerFactory = new ChangesHandlerFactory(
+				numChangesConnections, changesFeed, databasePath, requestEncoder, warmup);
+		changesConnectionPool.connect();
+		changesConnectionPool.start(changesHandlerFactory);
+		try {
+			changesHandlerFactory.getReadyLatch().await();
+		} catch (InterruptedException e) {
+			throw new BenchmarkException(e);
+		}
+		return changesHandlerFactory;
 	}
 
-	public List<CrudConnectionStatistics> performCrudOperations(List<CrudOperations> allCrudOperations,
+	/**
+	 * Waits until every connection consuming the changes feed has received
+	 * the changes of all writes, which have completed.
+	 */
+	private void stopChangesConsumers(ChangesHandlerFactory changesHandlerFactory)
+			throws BenchmarkException {
+		changesHandlerFactory.writesCompleted();
+		try {
+			changesHandlerFactory.getCountDownLatch().await();
+		} catch (InterruptedException e) {
+			throw new BenchmarkException(e);
+		}
+		allChangesConnectionStatistics = changesHandlerFactory.getAllConnectionStatistics();
+	}
+
+	public StepStatistics<CrudConnectionStatistics> performCrudOperations(List<CrudOperations> allCrudOperations,
 			String crudPath) throws BenchmarkException {
+		ChangesHandlerFactory changesHandlerFactory = null;
+		if (changesConnectionPool != null) {
+			changesHandlerFactory = startChangesConsumers(crudPath);
+		}
+
 		// Run the CRUD operations.
-		CrudPipelineFactory crudPipelineFactory = new CrudPipelineFactory(
-				numConnections, allCrudOperations, crudPath, authString, host, https);
-		run(crudPipelineFactory);
+		OpenLoopScheduler openLoopScheduler = newOpenLoopScheduler(crudTargetRate);
+		CrudHandlerFactory crudHandlerFactory = new CrudHandlerFactory(
+				numConnections, pipelineDepth, openLoopScheduler,
+				allCrudOperations, crudPath,
+				(changesHandlerFactory != null) ? changesHandlerFactory.getSentWrites() : null,
+				requestEncoder, warmup, crudDuration);
+		try {
+			run(crudHandlerFactory, openLoopScheduler, newIntervalReporter("crud",
+					CrudConnectionStatistics.OPERATION_NAMES,
+					crudHandlerFactory.getAllConnectionStatistics()));
+		} finally {
+			if (changesHandlerFactory != null) {
+				stopChangesConsumers(changesHandlerFactory);
+			}
+		}
 
 		// Return the times for each connection.
-		return crudPipelineFactory.getAllConnectionStatistics();
+		return crudHandlerFactory.getStepStatistics();
 	}
 }
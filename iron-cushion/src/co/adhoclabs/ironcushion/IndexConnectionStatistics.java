@@ -0,0 +1,157 @@
+package co.adhoclabs.ironcushion;
+
+/**
+ * Statistics for a connection preparing an index and then building it, such
+ * as installing the design document of views or creating Mango indexes.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class IndexConnectionStatistics extends AbstractConnectionStatistics {
+	/**
+	 * The type of operation that prepares the index.
+	 */
+	public static final int PREPARE = 0;
+	/**
+	 * The type of operation that builds the index.
+	 */
+	public static final int BUILD = 1;
+
+	private final String[] operationNames;
+	private final Timer remoteProcessingTimer;
+	private long prepareTimeNanos;
+	private long buildTimeNanos;
+
+	/**
+	 * @param operationNames the names of the types of operations, indexed by
+	 *        {@link #PREPARE} and {@link #BUILD}
+	 */
+	public IndexConnectionStatistics(String[] operationNames) {
+		super(operationNames.length);
+		this.operationNames = operationNames;
+		remoteProcessingTimer = new Timer();
+		prepareTimeNanos = 0;
+		buildTimeNanos = 0;
+	}
+
+	/**
+	 * @return the names of the types of operations, indexed by {@link #PREPARE}
+	 *         and {@link #BUILD}
+	 */
+	public String[] getOperationNames() {
+		return operationNames;
+	}
+
+	/**
+	 * An enumeration over all timers.
+	 */
+	public enum RunningConnectionTimer {
+		LOCAL_PROCESSING,
+		SEND_DATA,
+		REMOTE_PROCESSING,
+	}
+
+	private RunningConnectionTimer runningTimer;
+
+	/**
+	 * @return the currently running timer
+	 */
+	public RunningConnectionTimer getRunningConnectionTimer() {
+		return runningTimer;
+	}
+
+	@Override
+	public void stop() {
+		if (runningTimer != null) {
+			switch (runningTimer) {
+			case LOCAL_PROCESSING:
+				localProcessingTimer.stop();
+				break;
+			case SEND_DATA:
+				sendDataTimer.stop();
+				break;
+			case REMOTE_PROCESSING:
+				remoteProcessingTimer.stop();
+				break;
+			default:
+				break;
+			}
+			runningTimer = null;
+		}
+	}
+
+	@Override
+	public void startLocalProcessing() {
+		if (runningTimer == RunningConnectionTimer.LOCAL_PROCESSING) {
+			return;
+		}
+		stop();
+		localProcessingTimer.start();
+		runningTimer = RunningConnectionTimer.LOCAL_PROCESSING;
+	}
+
+	@Override
+	public void startSendData() {
+		if (runningTimer == RunningConnectionTimer.SEND_DATA) {
+			return;
+		}
+		stop();
+		sendDataTimer.start();
+		runningTimer = RunningConnectionTimer.SEND_DATA;
+	}
+
+	/**
+	 * Starts the timer for remote processing.
+	 */
+	public void startRemoteProcessing() {
+		if (runningTimer == RunningConnectionTimer.REMOTE_PROCESSING) {
+			return;
+		}
+		stop();
+		remoteProcessingTimer.start();
+		runningTimer = RunningConnectionTimer.REMOTE_PROCESSING;
+	}
+
+	/**
+	 * @return the number of nanoseconds spent on remote processing
+	 */
+	public long getRemoteProcessingTimeNanos() {
+		return remoteProcessingTimer.getTotalTimeNanos();
+	}
+
+	/**
+	 * @param nanos the number of nanoseconds taken to prepare the index
+	 */
+	public void prepared(long nanos) {
+		prepareTimeNanos = nanos;
+	}
+
+	/**
+	 * @return the number of nanoseconds taken to prepare the index, or
+	 *         {@code 0} if it was not prepared
+	 */
+	public long getPrepareTimeNanos() {
+		return prepareTimeNanos;
+	}
+
+	/**
+	 * @param nanos the number of nanoseconds taken to build the index
+	 */
+	public void built(long nanos) {
+		buildTimeNanos = nanos;
+	}
+
+	/**
+	 * @return the number of nanoseconds taken to build the index, or {@code 0}
+	 *         if it was not built
+	 */
+	public long getBuildTimeNanos() {
+		return buildTimeNanos;
+	}
+
+	@Override
+	public long getTotalTimeNanos() {
+		return (localProcessingTimer.getTotalTimeNanos() +
+				sendDataTimer.getTotalTimeNanos() +
+				remoteProcessingTimer.getTotalTimeNanos());
+	}
+}
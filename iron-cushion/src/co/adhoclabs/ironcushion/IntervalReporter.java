@@ -0,0 +1,201 @@
+package co.adhoclabs.ironcushion;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.json.simple.JSONObject;
+
+import co.adhoclabs.ironcushion.BenchmarkResults.LatencyStatistics;
+
+/**
+ * Reports the throughput and latencies of a step of the benchmark at a fixed
+ * interval while it runs, so that changes in throughput over a long run are
+ * not hidden by the results for the whole step. Each interval is printed to
+ * the console, and optionally written to a file as CSV or as JSON lines.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class IntervalReporter {
+	/**
+	 * The format of the file that intervals are written to.
+	 */
+	public enum Format {
+		CSV,
+		JSON
+	}
+
+	/**
+	 * The header of a CSV file, which has one row for each type of operation in each interval.
+	 */
+	public static final String CSV_HEADER = "step,elapsedSecs,intervalSecs,operation,count,opsPerSec," +
+			"p50Ms,p90Ms,p99Ms,p999Ms,p9999Ms,maxMs,jsonBytesSentPerSec,jsonBytesReceivedPerSec";
+
+	private static final double NANOS_PER_SEC = 1000000000.0;
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	private final String stepName;
+	private final String[] operationNames;
+	private final List<? extends AbstractConnectionStatistics> allConnectionStatistics;
+	private final long intervalNanos;
+	private final PrintWriter writer;
+	private final Format format;
+	private final ScheduledExecutorService executor;
+
+	private long startTime;
+	private long lastIntervalTime;
+
+	/**
+	 * @param stepName the name of the step
+	 * @param operationNames the name of each type of operation in the step
+	 * @param allConnectionStatistics the statistics of every connection performing the step
+	 * @param intervalSecs the number of seconds between reports
+	 * @param writer the writer of the file to report to, or {@code null} for only the console
+	 * @param format the format of the file
+	 */
+	public IntervalReporter(String stepName, String[] operationNames,
+			List<? extends AbstractConnectionStatistics> allConnectionStatistics,
+			int intervalSecs, PrintWriter writer, Format format) {
+		this.stepName = stepName;
+		this.operationNames = operationNames;
+		this.allConnectionStatistics = allConnectionStatistics;
+		this.intervalNanos = TimeUnit.SECONDS.toNanos(intervalSecs);
+		this.writer = writer;
+		this.format = format;
+		this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Interval reporter");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Starts reporting, which must be called when the step starts.
+	 */
+	public void start() {
+		startTime = System.nanoTime();
+		lastIntervalTime = startTime;
+		executor.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				report();
+			}
+		}, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Stops reporting, which must be called when the step completes, and
+	 * reports the last partial interval.
+	 */
+	public void stop() {
+		executor.shutdownNow();
+		try {
+			executor.awaitTermination(intervalNanos, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		report();
+	}
+
+	private synchronized void report() {
+		long now = System.nanoTime();
+		LatencyHistogram[] latencies = new LatencyHistogram[operationNames.length];
+		for (int i = 0; i < latencies.length; ++i) {
+			latencies[i] = new LatencyHistogram();
+		}
+		long[] jsonBytes = new long[2];
+		for (AbstractConnectionStatistics connectionStatistics : allConnectionStatistics) {
+			connectionStatistics.getIntervalStatistics().takeInterval(latencies, jsonBytes);
+		}
+
+		double elapsedSecs = (now - startTime) / NANOS_PER_SEC;
+		double intervalSecs = (now - lastIntervalTime) / NANOS_PER_SEC;
+		lastIntervalTime = now;
+		if (intervalSecs <= 0) {
+			return;
+		}
+		double jsonBytesSentPerSec = jsonBytes[0] / intervalSecs;
+		double jsonBytesReceivedPerSec = jsonBytes[1] / intervalSecs;
+
+		printToConsole(elapsedSecs, latencies, intervalSecs, jsonBytesSentPerSec, jsonBytesReceivedPerSec);
+		if (writer != null) {
+			if (format == Format.CSV) {
+				writeCsv(elapsedSecs, intervalSecs, latencies, jsonBytesSentPerSec, jsonBytesReceivedPerSec);
+			} else {
+				writeJson(elapsedSecs, intervalSecs, latencies, jsonBytesSentPerSec, jsonBytesReceivedPerSec);
+			}
+			writer.flush();
+		}
+	}
+
+	private void printToConsole(double elapsedSecs, LatencyHistogram[] latencies,
+			double intervalSecs, double jsonBytesSentPerSec, double jsonBytesReceivedPerSec) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("  [").append(stepName).append(' ').append(BenchmarkResults.format(elapsedSecs))
+				.append(" secs] jsonBytesSent=").append(BenchmarkResults.format(jsonBytesSentPerSec))
+				.append(" bytes/sec, jsonBytesReceived=").append(BenchmarkResults.format(jsonBytesReceivedPerSec))
+				.append(" bytes/sec\n");
+		for (int i = 0; i < latencies.length; ++i) {
+			double opsPerSec = latencies[i].getTotalCount() / intervalSecs;
+			sb.append("    ").append(operationNames[i]).append('=')
+					.append(BenchmarkResults.format(opsPerSec)).append(" ops/sec {")
+					.append(LatencyStatistics.statisticsForHistogram(latencies[i])).append("}");
+			if (i < latencies.length - 1) {
+				sb.append('\n');
+			}
+		}
+		System.out.println(sb.toString());
+	}
+
+	private static String toMillis(long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / NANOS_PER_MILLI);
+	}
+
+	private void writeCsv(double elapsedSecs, double intervalSecs, LatencyHistogram[] latencies,
+			double jsonBytesSentPerSec, double jsonBytesReceivedPerSec) {
+		for (int i = 0; i < latencies.length; ++i) {
+			LatencyStatistics statistics = LatencyStatistics.statisticsForHistogram(latencies[i]);
+			writer.println(String.format(Locale.ROOT, "%s,%.3f,%.3f,%s,%d,%.3f,%s,%s,%s,%s,%s,%s,%.3f,%.3f",
+					stepName, elapsedSecs, intervalSecs, operationNames[i], statistics.count,
+					statistics.count / intervalSecs,
+					toMillis(statistics.p50), toMillis(statistics.p90), toMillis(statistics.p99),
+					toMillis(statistics.p999), toMillis(statistics.p9999), toMillis(statistics.max),
+					jsonBytesSentPerSec, jsonBytesReceivedPerSec));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void writeJson(double elapsedSecs, double intervalSecs, LatencyHistogram[] latencies,
+			double jsonBytesSentPerSec, double jsonBytesReceivedPerSec) {
+		JSONObject operations = new JSONObject();
+		for (int i = 0; i < latencies.length; ++i) {
+			LatencyStatistics statistics = LatencyStatistics.statisticsForHistogram(latencies[i]);
+			JSONObject operation = new JSONObject();
+			operation.put("count", statistics.count);
+			operation.put("opsPerSec", statistics.count / intervalSecs);
+			operation.put("p50Ms", statistics.p50 / NANOS_PER_MILLI);
+			operation.put("p90Ms", statistics.p90 / NANOS_PER_MILLI);
+			operation.put("p99Ms", statistics.p99 / NANOS_PER_MILLI);
+			operation.put("p999Ms", statistics.p999 / NANOS_PER_MILLI);
+			operation.put("p9999Ms", statistics.p9999 / NANOS_PER_MILLI);
+			operation.put("maxMs", statistics.max / NANOS_PER_MILLI);
+			operations.put(operationNames[i], operation);
+		}
+
+		JSONObject json = new JSONObject();
+		json.put("step", stepName);
+		json.put("elapsedSecs", elapsedSecs);
+		json.put("intervalSecs", intervalSecs);
+		json.put("jsonBytesSentPerSec", jsonBytesSentPerSec);
+		json.put("jsonBytesReceivedPerSec", jsonBytesReceivedPerSec);
+		json.put("operations", operations);
+		writer.println(json.toJSONString());
+	}
+}
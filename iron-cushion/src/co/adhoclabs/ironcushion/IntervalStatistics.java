@@ -0,0 +1,75 @@
+package co.adhoclabs.ironcushion;
+
+/**
+ * The statistics recorded by a connection since the last interval reported by
+ * an {@link IntervalReporter}. The I/O thread of the connection records them
+ * while the reporter thread takes them, and so all methods are synchronized.
+ * Each connection has its own instance, so the lock is rarely contended.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class IntervalStatistics {
+	private LatencyHistogram[] latencies;
+	private long jsonBytesSent;
+	private long jsonBytesReceived;
+
+	/**
+	 * @param numOperationTypes the number of types of operations whose latencies are recorded
+	 */
+	public IntervalStatistics(int numOperationTypes) {
+		latencies = newLatencies(numOperationTypes);
+		jsonBytesSent = 0;
+		jsonBytesReceived = 0;
+	}
+
+	private static LatencyHistogram[] newLatencies(int numOperationTypes) {
+		LatencyHistogram[] latencies = new LatencyHistogram[numOperationTypes];
+		for (int i = 0; i < latencies.length; ++i) {
+			latencies[i] = new LatencyHistogram();
+		}
+		return latencies;
+	}
+
+	/**
+	 * Records the latency of a completed operation.
+	 *
+	 * @param operationType the index of the type of operation
+	 * @param nanos the latency in nanoseconds
+	 */
+	public synchronized void recordLatency(int operationType, long nanos) {
+		latencies[operationType].record(nanos);
+	}
+
+	/**
+	 * @param numBytes the number of bytes of JSON sent
+	 */
+	public synchronized void sentJsonBytes(long numBytes) {
+		jsonBytesSent += numBytes;
+	}
+
+	/**
+	 * @param numBytes the number of bytes of JSON received
+	 */
+	public synchronized void receivedJsonBytes(long numBytes) {
+		jsonBytesReceived += numBytes;
+	}
+
+	/**
+	 * Adds the statistics recorded since the last call to the given totals,
+	 * and then clears them.
+	 *
+	 * @param totalLatencies the latencies of each type of operation to add to
+	 * @param totalJsonBytes the number of bytes of JSON sent and received to add to
+	 */
+	synchronized void takeInterval(LatencyHistogram[] totalLatencies, long[] totalJsonBytes) {
+		for (int i = 0; i < latencies.length; ++i) {
+			totalLatencies[i].add(latencies[i]);
+		}
+		totalJsonBytes[0] += jsonBytesSent;
+		totalJsonBytes[1] += jsonBytesReceived;
+
+		latencies = newLatencies(latencies.length);
+		jsonBytesSent = 0;
+		jsonBytesReceived = 0;
+	}
+}
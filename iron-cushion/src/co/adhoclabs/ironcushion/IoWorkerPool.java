@@ -0,0 +1,116 @@
+package co.adhoclabs.ironcushion;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.jboss.netty.channel.socket.ClientSocketChannelFactory;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+
+/**
+ * The threads that perform all network I/O, shared by every step of the
+ * benchmark. Each I/O thread runs one Netty event loop on a fixed-size pool,
+ * so the same thread serves an event loop across steps, and its CPU time
+ * measures how busy that event loop was.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class IoWorkerPool {
+	private final int numIoThreads;
+	private final ExecutorService bossExecutor;
+	private final ExecutorService workerExecutor;
+	private final NioClientSocketChannelFactory channelFactory;
+	private final ThreadMXBean threadMXBean;
+	private final List<Thread> workerThreads;
+
+	/**
+	 * @param numIoThreads the number of threads performing I/O
+	 */
+	public IoWorkerPool(int numIoThreads) {
+		this.numIoThreads = numIoThreads;
+		this.workerThreads = new ArrayList<Thread>(numIoThreads);
+		this.bossExecutor = Executors.newCachedThreadPool();
+		this.workerExecutor = Executors.newFixedThreadPool(numIoThreads, new WorkerThreadFactory());
+		this.channelFactory = new NioClientSocketChannelFactory(
+				bossExecutor, workerExecutor, numIoThreads);
+
+		this.threadMXBean = ManagementFactory.getThreadMXBean();
+		if (threadMXBean.isThreadCpuTimeSupported() && !threadMXBean.isThreadCpuTimeEnabled()) {
+			threadMXBean.setThreadCpuTimeEnabled(true);
+		}
+	}
+
+	/**
+	 * The {@link ThreadFactory} that records every I/O thread it creates.
+	 */
+	private final class WorkerThreadFactory implements ThreadFactory {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			synchronized (workerThreads) {
+				Thread thread = new Thread(runnable, "I/O worker #" + (workerThreads.size() + 1));
+				workerThreads.add(thread);
+				return thread;
+			}
+		}
+	}
+
+	/**
+	 * @return the factory for channels whose I/O is performed by this pool
+	 */
+	public ClientSocketChannelFactory getChannelFactory() {
+		return channelFactory;
+	}
+
+	/**
+	 * Returns the CPU time consumed by each I/O thread so far. The value for a
+	 * thread that has not started, or if CPU time cannot be measured, is {@code 0}.
+	 *
+	 * @return the CPU time of each I/O thread in nanoseconds
+	 */
+	public long[] getCpuTimesNanos() {
+		long[] cpuTimesNanos = new long[numIoThreads];
+		if (!threadMXBean.isThreadCpuTimeEnabled()) {
+			return cpuTimesNanos;
+		}
+		synchronized (workerThreads) {
+			for (int i = 0; i < workerThreads.size(); ++i) {
+				long cpuTimeNanos = threadMXBean.getThreadCpuTime(workerThreads.get(i).getId());
+				cpuTimesNanos[i] = Math.max(0, cpuTimeNanos);
+			}
+		}
+		return cpuTimesNanos;
+	}
+
+	/**
+	 * Returns the fraction of the given elapsed time that each I/O thread spent
+	 * using the CPU.
+	 *
+	 * @param startCpuTimesNanos the value of {@link #getCpuTimesNanos()} at the start
+	 * @param endCpuTimesNanos the value of {@link #getCpuTimesNanos()} at the end
+	 * @param elapsedTimeNanos the elapsed time between the two
+	 * @return the utilization of each I/O thread, between {@code 0} and {@code 1}
+	 */
+	public static double[] getUtilizations(long[] startCpuTimesNanos, long[] endCpuTimesNanos,
+			long elapsedTimeNanos) {
+		double[] utilizations = new double[endCpuTimesNanos.length];
+		if (elapsedTimeNanos <= 0) {
+			return utilizations;
+		}
+		for (int i = 0; i < utilizations.length; ++i) {
+			long cpuTimeNanos = endCpuTimesNanos[i] - startCpuTimesNanos[i];
+			utilizations[i] = Math.min(1.0, ((double) cpuTimeNanos) / elapsedTimeNanos);
+		}
+		return utilizations;
+	}
+
+	/**
+	 * Stops all I/O threads after the benchmark has completed.
+	 */
+	public void release() {
+		channelFactory.releaseExternalResources();
+	}
+}
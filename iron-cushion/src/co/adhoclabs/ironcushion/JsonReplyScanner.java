@@ -0,0 +1,499 @@
+package co.adhoclabs.ironcushion;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.util.CharsetUtil;
+
+/**
+ * Extracts fields of a JSON reply from CouchDB by scanning its bytes, without
+ * decoding the reply to a string or building a {@code JSONObject}. Only the
+ * values of the extracted fields are allocated.
+ *
+ * <p>The extracted top-level fields are:
+ * <ul>
+ * <li>{@code ok}, {@code error}, and {@code bookmark}.</li>
+ * <li>{@code id} and {@code rev}, or the {@code _id} and {@code _rev} of a
+ * document.</li>
+ * <li>The number of elements of a {@code rows} array, such as of a view, and
+ * of a {@code docs} array, such as of a Mango query.</li>
+ * <li>{@code total_docs_examined} in the {@code execution_stats} object of a
+ * Mango query, whose other fields are skipped.</li>
+ * </ul>
+ * All other fields, including nested objects and arrays, are skipped.
+ *
+ * <p>A reply that is an array of objects, such as from {@code _bulk_docs}, is
+ * scanned by calling {@link #startArray(ChannelBuffer)} and then
+ * {@link #scanNextObject()} for each object.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class JsonReplyScanner {
+	private static final byte[] OK_KEY = "ok".getBytes(CharsetUtil.US_ASCII);
+	private static final byte[] ID_KEY = "id".getBytes(CharsetUtil.US_ASCII);
+	private static final byte[] DOCUMENT_ID_KEY = "_id".getBytes(CharsetUtil.US_ASCII);
+	private static final byte[] REV_KEY = "rev".getBytes(CharsetUtil.US_ASCII);
+	private static final byte[] DOCUMENT_REV_KEY = "_rev".getBytes(CharsetUtil.US_ASCII);
+	private static final byte[] ERROR_KEY = "error".getBytes(CharsetUtil.US_ASCII);
+	private static final byte[] ROWS_KEY = "rows".getBytes(CharsetUtil.US_ASCII);
+	private static final byte[] DOCS_KEY = "docs".getBytes(CharsetUtil.US_ASCII);
+	private static final byte[] BOOKMARK_KEY = "bookmark".getBytes(CharsetUtil.US_ASCII);
+	private static final byte[] EXECUTION_STATS_KEY = "execution_stats".getBytes(CharsetUtil.US_ASCII);
+	private static final byte[] TOTAL_DOCS_EXAMINED_KEY = "total_docs_examined".getBytes(CharsetUtil.US_ASCII);
+
+	private ChannelBuffer buffer;
+	private int index;
+	private int endIndex;
+
+	private boolean ok;
+	private String id;
+	private String rev;
+	private String error;
+	private int numRows;
+	private int numDocs;
+	private String bookmark;
+	private long totalDocsExamined;
+
+	public JsonReplyScanner() {
+		reset();
+	}
+
+	private void reset() {
+		buffer = null;
+		ok = false;
+		id = null;
+		rev = null;
+		error = null;
+		numRows = -1;
+		numDocs = -1;
+		bookmark = null;
+		totalDocsExamined = -1;
+	}
+
+	/**
+	 * Scans the given reply, which must be a JSON object. The reader index of
+	 * the buffer is not changed.
+	 *
+	 * @param reply the reply to scan
+	 * @return {@code true} if the reply is a well-formed JSON object
+	 */
+	public boolean scan(ChannelBuffer reply) {
+		reset();
+		buffer = reply;
+		index = reply.readerIndex();
+		endIndex = reply.writerIndex();
+		try {
+			return scanObject();
+		} finally {
+			buffer = null;
+		}
+	}
+
+	/**
+	 * Starts scanning the given reply, which must be a JSON array of objects.
+	 * The reader index of the buffer is not changed.
+	 *
+	 * @param reply the reply to scan
+	 * @return {@code true} if the reply starts with an array
+	 */
+	public boolean startArray(ChannelBuffer reply) {
+		reset();
+		buffer = reply;
+		index = reply.readerIndex();
+		endIndex = reply.writerIndex();
+		if (!skipWhitespace() || (buffer.getByte(index) != '[')) {
+			buffer = null;
+			return false;
+		}
+		index++;
+		return true;
+	}
+
+	/**
+	 * Scans the next object of the array started by
+	 * {@link #startArray(ChannelBuffer)}, whose fields are then returned by
+	 * the getters of this scanner.
+	 *
+	 * @return {@code true} if an object was scanned, or {@code false} if the
+	 *         array ended or is malformed
+	 */
+	public boolean scanNextObject() {
+		if (buffer == null) {
+			return false;
+		}
+		ok = false;
+		id = null;
+		rev = null;
+		error = null;
+		numRows = -1;
+		numDocs = -1;
+		bookmark = null;
+		totalDocsExamined = -1;
+		if (skipWhitespace() && (buffer.getByte(index) == ',')) {
+			index++;
+		}
+		if (skipWhitespace() && (buffer.getByte(index) != ']') && scanObject()) {
+			return true;
+		}
+		buffer = null;
+		return false;
+	}
+
+	/**
+	 * @return {@code true} if the reply contained {@code "ok":true}
+	 */
+	public boolean isOk() {
+		return ok;
+	}
+
+	/**
+	 * @return the value of {@code id} or {@code _id}, or {@code null} if absent
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return the value of {@code rev} or {@code _rev}, or {@code null} if absent
+	 */
+	public String getRev() {
+		return rev;
+	}
+
+	/**
+	 * @return the value of {@code error}, or {@code null} if absent
+	 */
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * @return the number of elements of {@code rows}, or {@code -1} if absent
+	 */
+	public int getNumRows() {
+		return numRows;
+	}
+
+	/**
+	 * @return the number of elements of {@code docs}, or {@code -1} if absent
+	 */
+	public int getNumDocs() {
+		return numDocs;
+	}
+
+	/**
+	 * @return the value of {@code bookmark}, or {@code null} if absent
+	 */
+	public String getBookmark() {
+		return bookmark;
+	}
+
+	/**
+	 * @return the value of {@code total_docs_examined} in
+	 *         {@code execution_stats}, or {@code -1} if absent
+	 */
+	public long getTotalDocsExamined() {
+		return totalDocsExamined;
+	}
+
+	private boolean skipWhitespace() {
+		while (index < endIndex) {
+			byte b = buffer.getByte(index);
+			if ((b != ' ') && (b != '\t') && (b != '\n') && (b != '\r')) {
+				return true;
+			}
+			index++;
+		}
+		return false;
+	}
+
+	private boolean scanObject() {
+		return scanObject(false);
+	}
+
+	/**
+	 * Scans the object starting at the current index, and advances past it.
+	 *
+	 * @param executionStats whether the object is the {@code execution_stats}
+	 *        of a Mango query, of which only {@code total_docs_examined} is
+	 *        extracted
+	 */
+	private boolean scanObject(boolean executionStats) {
+		if (!skipWhitespace() || (buffer.getByte(index) != '{')) {
+			return false;
+		}
+		index++;
+		if (!skipWhitespace()) {
+			return false;
+		}
+		if (buffer.getByte(index) == '}') {
+			return true;
+		}
+		while (true) {
+			// Find the bounds of the key, excluding its quotes.
+			if (!skipWhitespace() || (buffer.getByte(index) != '"')) {
+				return false;
+			}
+			int keyStartIndex = index + 1;
+			if (!skipString()) {
+				return false;
+			}
+			int keyEndIndex = index - 1;
+
+			if (!skipWhitespace() || (buffer.getByte(index) != ':')) {
+				return false;
+			}
+			index++;
+			if (!skipWhitespace()) {
+				return false;
+			}
+			boolean scanned = executionStats ?
+					scanExecutionStatsValue(keyStartIndex, keyEndIndex) :
+					scanValue(keyStartIndex, keyEndIndex);
+			if (!scanned) {
+				return false;
+			}
+
+			if (!skipWhitespace()) {
+				return false;
+			}
+			byte b = buffer.getByte(index++);
+			if (b == '}') {
+				return true;
+			} else if (b != ',') {
+				return false;
+			}
+		}
+	}
+
+	private boolean keyEquals(int keyStartIndex, int keyEndIndex, byte[] key) {
+		if ((keyEndIndex - keyStartIndex) != key.length) {
+			return false;
+		}
+		for (int i = 0; i < key.length; ++i) {
+			if (buffer.getByte(keyStartIndex + i) != key[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean scanValue(int keyStartIndex, int keyEndIndex) {
+		byte b = buffer.getByte(index);
+		if (b == '"') {
+			if (keyEquals(keyStartIndex, keyEndIndex, ID_KEY) ||
+					keyEquals(keyStartIndex, keyEndIndex, DOCUMENT_ID_KEY)) {
+				id = readString();
+				return (id != null);
+			} else if (keyEquals(keyStartIndex, keyEndIndex, REV_KEY) ||
+					keyEquals(keyStartIndex, keyEndIndex, DOCUMENT_REV_KEY)) {
+				rev = readString();
+				return (rev != null);
+			} else if (keyEquals(keyStartIndex, keyEndIndex, ERROR_KEY)) {
+				error = readString();
+				return (error != null);
+			} else if (keyEquals(keyStartIndex, keyEndIndex, BOOKMARK_KEY)) {
+				bookmark = readString();
+				return (bookmark != null);
+			}
+		} else if ((b == 't') && keyEquals(keyStartIndex, keyEndIndex, OK_KEY)) {
+			ok = true;
+		} else if (b == '[') {
+			if (keyEquals(keyStartIndex, keyEndIndex, ROWS_KEY)) {
+				numRows = countElements();
+				return (numRows >= 0);
+			} else if (keyEquals(keyStartIndex, keyEndIndex, DOCS_KEY)) {
+				numDocs = countElements();
+				return (numDocs >= 0);
+			}
+		} else if ((b == '{') && keyEquals(keyStartIndex, keyEndIndex, EXECUTION_STATS_KEY)) {
+			return scanObject(true);
+		}
+		return skipValue();
+	}
+
+	/**
+	 * Scans a value of the {@code execution_stats} object, extracting only
+	 * {@code total_docs_examined} and skipping all other values.
+	 */
+	private boolean scanExecutionStatsValue(int keyStartIndex, int keyEndIndex) {
+		byte b = buffer.getByte(index);
+		if (((b >= '0') && (b <= '9')) &&
+				keyEquals(keyStartIndex, keyEndIndex, TOTAL_DOCS_EXAMINED_KEY)) {
+			totalDocsExamined = readLong();
+			return (totalDocsExamined >= 0);
+		}
+		return skipValue();
+	}
+
+	/**
+	 * Counts the elements of the array starting at the current index, and
+	 * advances past it. Returns {@code -1} if the array is malformed.
+	 */
+	private int countElements() {
+		index++;
+		int numElements = 0;
+		if (!skipWhitespace()) {
+			return -1;
+		}
+		if (buffer.getByte(index) == ']') {
+			index++;
+			return numElements;
+		}
+		while (true) {
+			if (!skipWhitespace() || !skipValue()) {
+				return -1;
+			}
+			numElements++;
+			if (!skipWhitespace()) {
+				return -1;
+			}
+			byte b = buffer.getByte(index++);
+			if (b == ']') {
+				return numElements;
+			} else if (b != ',') {
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * Reads the non-negative integer starting at the current index, and
+	 * advances past it. Returns {@code -1} if it is followed by a fraction or
+	 * exponent.
+	 */
+	private long readLong() {
+		long value = 0;
+		while (index < endIndex) {
+			byte b = buffer.getByte(index);
+			if ((b < '0') || (b > '9')) {
+				break;
+			}
+			value = (10 * value) + (b - '0');
+			index++;
+		}
+		if (index < endIndex) {
+			byte b = buffer.getByte(index);
+			if ((b == '.') || (b == 'e') || (b == 'E')) {
+				return -1;
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Reads the string starting at the current index, and advances past it.
+	 */
+	private String readString() {
+		int startIndex = index + 1;
+		boolean escaped = false;
+		for (int i = startIndex; i < endIndex; ++i) {
+			byte b = buffer.getByte(i);
+			if (b == '\\') {
+				escaped = true;
+				i++;
+			} else if (b == '"') {
+				index = i + 1;
+				String value = buffer.toString(startIndex, i - startIndex, CharsetUtil.UTF_8);
+				return escaped ? unescape(value) : value;
+			}
+		}
+		return null;
+	}
+
+	private static String unescape(String value) {
+		StringBuilder sb = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); ++i) {
+			char c = value.charAt(i);
+			if ((c != '\\') || (i + 1 == value.length())) {
+				sb.append(c);
+				continue;
+			}
+			c = value.charAt(++i);
+			switch (c) {
+			case 'b':
+				sb.append('\b');
+				break;
+			case 'f':
+				sb.append('\f');
+				break;
+			case 'n':
+				sb.append('\n');
+				break;
+			case 'r':
+				sb.append('\r');
+				break;
+			case 't':
+				sb.append('\t');
+				break;
+			case 'u':
+				if (i + 4 < value.length()) {
+					sb.append((char) Integer.parseInt(value.substring(i + 1, i + 5), 16));
+					i += 4;
+				}
+				break;
+			default:
+				sb.append(c);
+				break;
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Advances past the string starting at the current index.
+	 */
+	private boolean skipString() {
+		for (int i = index + 1; i < endIndex; ++i) {
+			byte b = buffer.getByte(i);
+			if (b == '\\') {
+				i++;
+			} else if (b == '"') {
+				index = i + 1;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Advances past the value starting at the current index.
+	 */
+	private boolean skipValue() {
+		byte b = buffer.getByte(index);
+		if (b == '"') {
+			return skipString();
+		} else if ((b == '{') || (b == '[')) {
+			// Skip nested objects and arrays by counting their depth.
+			int depth = 0;
+			while (index < endIndex) {
+				b = buffer.getByte(index);
+				if (b == '"') {
+					if (!skipString()) {
+						return false;
+					}
+					continue;
+				}
+				index++;
+				if ((b == '{') || (b == '[')) {
+					depth++;
+				} else if ((b == '}') || (b == ']')) {
+					depth--;
+					if (depth == 0) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		// Skip a number, true, false, or null.
+		while (index < endIndex) {
+			b = buffer.getByte(index);
+			if ((b == ',') || (b == '}') || (b == ']') ||
+					(b == ' ') || (b == '\t') || (b == '\n') || (b == '\r')) {
+				return true;
+			}
+			index++;
+		}
+		return false;
+	}
+}
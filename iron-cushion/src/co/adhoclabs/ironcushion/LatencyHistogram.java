@@ -0,0 +1,185 @@
+package co.adhoclabs.ironcushion;
+
+/**
+ * A histogram of request latencies in nanoseconds. Buckets grow exponentially
+ * in width but are subdivided linearly, so every recorded latency is kept to
+ * within 1/64 of its value regardless of its magnitude. Histograms recorded by
+ * different connections can be merged with {@link #add(LatencyHistogram)}.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+	/**
+	 * Latencies above roughly 18 minutes share the last bucket.
+	 */
+	private static final long MAX_TRACKABLE_NANOS = (1L << 40) - 1;
+	private static final int MAX_NUM_BUCKETS = getIndex(MAX_TRACKABLE_NANOS) + 1;
+
+	private long[] counts;
+	private long totalCount;
+	private long totalNanos;
+	private long minNanos;
+	private long maxNanos;
+
+	public LatencyHistogram() {
+		counts = new long[SUB_BUCKET_COUNT];
+		totalCount = 0;
+		totalNanos = 0;
+		minNanos = Long.MAX_VALUE;
+		maxNanos = 0;
+	}
+
+	private static int getIndex(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		// Shift the value so that it falls in the upper half of a sub-bucket.
+		int shift = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+		return (shift * SUB_BUCKET_HALF_COUNT) + (int) (value >>> shift);
+	}
+
+	private static long getHighestEquivalentValue(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = (index / SUB_BUCKET_HALF_COUNT) - 1;
+		long subBucket = index - (shift * SUB_BUCKET_HALF_COUNT);
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	private void ensureCapacity(int index) {
+		if (index < counts.length) {
+			return;
+		}
+		int newLength = counts.length;
+		while (newLength <= index) {
+			newLength <<= 1;
+		}
+		long[] newCounts = new long[Math.min(newLength, MAX_NUM_BUCKETS)];
+		System.arraycopy(counts, 0, newCounts, 0, counts.length);
+		counts = newCounts;
+	}
+
+	/**
+	 * Records the given latency.
+	 *
+	 * @param nanos the latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		int index = getIndex(Math.min(nanos, MAX_TRACKABLE_NANOS));
+		ensureCapacity(index);
+		counts[index]++;
+
+		totalCount++;
+		totalNanos += nanos;
+		if (nanos < minNanos) {
+			minNanos = nanos;
+		}
+		if (nanos > maxNanos) {
+			maxNanos = nanos;
+		}
+	}
+
+	/**
+	 * Adds all latencies recorded by the given histogram to this histogram.
+	 *
+	 * @param histogram the histogram to merge into this one
+	 */
+	public void add(LatencyHistogram histogram) {
+		ensureCapacity(histogram.counts.length - 1);
+		for (int i = 0; i < histogram.counts.length; ++i) {
+			counts[i] += histogram.counts[i];
+		}
+
+		totalCount += histogram.totalCount;
+		totalNanos += histogram.totalNanos;
+		if (histogram.minNanos < minNanos) {
+			minNanos = histogram.minNanos;
+		}
+		if (histogram.maxNanos > maxNanos) {
+			maxNanos = histogram.maxNanos;
+		}
+	}
+
+	/**
+	 * @return the number of latencies recorded
+	 */
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	/**
+	 * @return the smallest latency recorded in nanoseconds, or {@code 0} if empty
+	 */
+	public long getMinNanos() {
+		return (totalCount == 0) ? 0 : minNanos;
+	}
+
+	/**
+	 * @return the largest latency recorded in nanoseconds
+	 */
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+
+	/**
+	 * @return the mean latency recorded in nanoseconds, or {@code 0} if empty
+	 */
+	public double getMeanNanos() {
+		return (totalCount == 0) ? 0 : ((double) totalNanos) / totalCount;
+	}
+
+	/**
+	 * Returns the count of every non-empty bucket, and the highest latency
+	 * that the bucket contains.
+	 *
+	 * @return pairs of the highest latency in nanoseconds and the count of each
+	 *         non-empty bucket, in increasing order of latency
+	 */
+	public long[][] getNonEmptyBuckets() {
+		int numNonEmptyBuckets = 0;
+		for (int i = 0; i < counts.length; ++i) {
+			if (counts[i] > 0) {
+				numNonEmptyBuckets++;
+			}
+		}
+		long[][] buckets = new long[numNonEmptyBuckets][];
+		int bucketIndex = 0;
+		for (int i = 0; i < counts.length; ++i) {
+			if (counts[i] > 0) {
+				buckets[bucketIndex++] = new long[] { getHighestEquivalentValue(i), counts[i] };
+			}
+		}
+		return buckets;
+	}
+
+	/**
+	 * Returns the latency that the given percentage of all recorded latencies
+	 * are less than or equal to.
+	 *
+	 * @param percentile the percentile, between {@code 0} and {@code 100}
+	 * @return the latency at the percentile in nanoseconds, or {@code 0} if empty
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (totalCount == 0) {
+			return 0;
+		}
+		long countAtPercentile = (long) Math.ceil((percentile / 100.0) * totalCount);
+		countAtPercentile = Math.max(1, Math.min(countAtPercentile, totalCount));
+
+		long cumulativeCount = 0;
+		for (int i = 0; i < counts.length; ++i) {
+			cumulativeCount += counts[i];
+			if (cumulativeCount >= countAtPercentile) {
+				return Math.min(getHighestEquivalentValue(i), maxNanos);
+			}
+		}
+		return maxNanos;
+	}
+}
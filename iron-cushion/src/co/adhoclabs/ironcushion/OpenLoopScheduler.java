@@ -0,0 +1,176 @@
+package co.adhoclabs.ironcushion;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.TimerTask;
+
+/**
+ * Schedules the requests of every connection at a target arrival rate, from a
+ * timer wheel, independently of when responses arrive. Each request is timed
+ * from its intended start time rather than from when it was actually sent, so
+ * that stalls of the server are not hidden by the benchmark backing off.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class OpenLoopScheduler {
+	/**
+	 * An enumeration over distributions of the time between requests.
+	 */
+	public enum ArrivalDistribution {
+		/**
+		 * Requests arrive at a fixed interval.
+		 */
+		FIXED,
+		/**
+		 * Requests arrive as a Poisson process, with exponentially distributed intervals.
+		 */
+		POISSON,
+	}
+
+	private static final long TICK_DURATION_MILLIS = 1;
+	/**
+	 * A request is late if sent more than two ticks of the timer wheel after its intended start.
+	 */
+	private static final long LATE_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(2 * TICK_DURATION_MILLIS);
+
+	private final HashedWheelTimer timer;
+	private final double meanIntervalNanos;
+	private final ArrivalDistribution arrivalDistribution;
+	private final Random rng;
+
+	/**
+	 * @param requestsPerSecond the target rate of requests summed over all connections
+	 * @param numConnections the number of connections
+	 * @param arrivalDistribution the distribution of the time between requests
+	 * @param rng the random number generator used to seed each connection
+	 */
+	public OpenLoopScheduler(double requestsPerSecond, int numConnections,
+			ArrivalDistribution arrivalDistribution, Random rng) {
+		this.timer = new HashedWheelTimer(TICK_DURATION_MILLIS, TimeUnit.MILLISECONDS);
+		this.meanIntervalNanos = (TimeUnit.SECONDS.toNanos(1) * numConnections) / requestsPerSecond;
+		this.arrivalDistribution = arrivalDistribution;
+		this.rng = rng;
+	}
+
+	/**
+	 * @return a new schedule for the requests of one connection
+	 */
+	public synchronized ConnectionSchedule newConnectionSchedule() {
+		return new ConnectionSchedule(new Random(rng.nextLong()));
+	}
+
+	/**
+	 * Stops the timer wheel after all connections have completed.
+	 */
+	public void stop() {
+		timer.stop();
+	}
+
+	/**
+	 * A handler that sends requests when they are due.
+	 */
+	public interface ScheduledHandler {
+		/**
+		 * Called from the timer thread when the next request on the given channel is due.
+		 *
+		 * @param channel the channel to send the request on
+		 */
+		void requestScheduled(Channel channel);
+	}
+
+	/**
+	 * The intended start times of the requests of one connection. This is only
+	 * accessed while holding the lock of its handler.
+	 */
+	public final class ConnectionSchedule {
+		private final Random rng;
+		private long nextStartTime;
+		private boolean started;
+		private boolean armed;
+
+		private ConnectionSchedule(Random rng) {
+			this.rng = rng;
+			this.started = false;
+			this.armed = false;
+		}
+
+		private long nextIntervalNanos() {
+			switch (arrivalDistribution) {
+			case POISSON:
+				return (long) (-Math.log(1.0 - rng.nextDouble()) * meanIntervalNanos);
+			case FIXED:
+			default:
+				return (long) meanIntervalNanos;
+			}
+		}
+
+		private void startIfNeeded(long now) {
+			if (!started) {
+				// Stagger connections so that their requests do not arrive together.
+				nextStartTime = now + (long) (rng.nextDouble() * meanIntervalNanos);
+				started = true;
+			}
+		}
+
+		/**
+		 * @param now the value of {@link System#nanoTime()}
+		 * @return {@code true} if the intended start time of the next request has passed
+		 */
+		public boolean isDue(long now) {
+			startIfNeeded(now);
+			return nextStartTime <= now;
+		}
+
+		/**
+		 * Consumes the intended start time of the next request.
+		 *
+		 * @param now the value of {@link System#nanoTime()}
+		 * @param connectionStatistics the statistics to record a late request to
+		 * @return the intended start time
+		 */
+		public long take(long now, AbstractConnectionStatistics connectionStatistics) {
+			long startTime = nextStartTime;
+			if ((now - startTime) > LATE_THRESHOLD_NANOS) {
+				connectionStatistics.lateRequest();
+			}
+			nextStartTime += nextIntervalNanos();
+			return startTime;
+		}
+
+		/**
+		 * Arms the timer wheel to call the handler when the next request is due,
+		 * unless it is already armed. If the handler is not ready to send, because
+		 * it has no more requests or is waiting on a pending response, then the
+		 * timer is not armed, and the handler sends when that response arrives.
+		 *
+		 * @param handler the handler sending requests
+		 * @param channel the channel of the handler
+		 * @param readyToSend whether the handler can send the next request once it is due
+		 */
+		public void arm(final ScheduledHandler handler, final Channel channel, boolean readyToSend) {
+			if (armed || !readyToSend) {
+				return;
+			}
+			long now = System.nanoTime();
+			startIfNeeded(now);
+			armed = true;
+			timer.newTimeout(new TimerTask() {
+				@Override
+				public void run(Timeout timeout) throws Exception {
+					handler.requestScheduled(channel);
+				}
+			}, Math.max(0, nextStartTime - now), TimeUnit.NANOSECONDS);
+		}
+
+		/**
+		 * Called by the handler when the armed timer fires.
+		 */
+		public void fired() {
+			armed = false;
+		}
+	}
+}
@@ -1,6 +1,12 @@
 package co.adhoclabs.ironcushion;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import co.adhoclabs.ironcushion.changes.ChangesHandler;
+import co.adhoclabs.ironcushion.crud.KeyChooser;
 
 /**
  * The parsed and validated command line arguments.
@@ -24,6 +30,51 @@ public class ParsedArguments {
 	 * The seed for the random number generator, or {@code null} if not provided.
 	 */
 	public final Integer seed;
+	/**
+	 * The maximum number of requests each connection sends before receiving a response.
+	 */
+	public final int pipelineDepth;
+	/**
+	 * The distribution of the time between requests when run open loop.
+	 */
+	public final OpenLoopScheduler.ArrivalDistribution arrivalDistribution;
+	/**
+	 * The number of threads performing network I/O for all connections.
+	 */
+	public final int ioThreads;
+	/**
+	 * The number of seconds between reports of throughput and latency while
+	 * each step runs, or {@code 0} if only the results of each step are reported.
+	 */
+	public final int reportInterval;
+	/**
+	 * The file that interval reports are written to, or {@code null} if they
+	 * are only printed to the console.
+	 */
+	public final File intervalFile;
+	/**
+	 * The format of the file that interval reports are written to.
+	 */
+	public final IntervalReporter.Format intervalFormat;
+	/**
+	 * The file that the results of all steps are written to, or {@code null}
+	 * if they are only printed to the console.
+	 */
+	public final File resultsFile;
+	/**
+	 * The format of the file that the results are written to.
+	 */
+	public final ResultsExporter.Format resultsFormat;
+	/**
+	 * The minimum number of seconds each connection runs a step before its
+	 * operations are measured.
+	 */
+	public final int warmupSeconds;
+	/**
+	 * The minimum number of operations each connection completes in a step
+	 * before its operations are measured.
+	 */
+	public final int warmupOperations;
 
 	/**
 	 * The number of documents in each bulk insert operation.
@@ -33,6 +84,30 @@ public class ParsedArguments {
 	 * The number of bulk insert operations performed by each connection.
 	 */
 	public final int numBulkInsertOperations;
+	/**
+	 * The target number of bulk insert operations per second summed over all
+	 * connections, or {@code 0} if bulk inserts are run closed loop.
+	 */
+	public final double bulkInsertTargetRate;
+	/**
+	 * The number of seconds each connection performs bulk insert operations,
+	 * or {@code 0} if bulk inserting is bounded only by the number of operations.
+	 */
+	public final int bulkInsertDuration;
+	/**
+	 * The number of threads generating bulk insert buffers ahead of need, or
+	 * {@code 0} if each buffer is generated by the I/O thread when needed.
+	 */
+	public final int producerThreads;
+	/**
+	 * The maximum number of buffers generated ahead of need for each connection.
+	 */
+	public final int producerQueueCapacity;
+	/**
+	 * The file of bulk insert buffers to replay, which is written first if it
+	 * does not exist, or {@code null} if buffers are generated.
+	 */
+	public final File bulkInsertCorpusFile;
 
 	/**
 	 * The number of CRUD operations by each connection after bulk inserting finishes.
@@ -54,6 +129,138 @@ public class ParsedArguments {
 	 * The relative weight of delete operations to other operations.
 	 */
 	public final int deleteWeight;
+	/**
+	 * The target number of CRUD operations per second summed over all
+	 * connections, or {@code 0} if CRUD operations are run closed loop.
+	 */
+	public final double crudTargetRate;
+	/**
+	 * The number of seconds each connection performs CRUD operations, or
+	 * {@code 0} if CRUD operations are bounded only by their number.
+	 */
+	public final int crudDuration;
+	/**
+	 * The distribution of the keys of the documents read by CRUD operations.
+	 */
+	public final KeyChooser.Distribution keyDistribution;
+	/**
+	 * The skew of the zipfian and latest key distributions.
+	 */
+	public final double zipfianTheta;
+	/**
+	 * The fraction of keys that are hot in the hotspot key distribution.
+	 */
+	public final double hotspotKeyFraction;
+	/**
+	 * The fraction of reads of hot keys in the hotspot key distribution.
+	 */
+	public final double hotspotOperationFraction;
+	/**
+	 * Whether UPDATE and DELETE operations choose from all live documents by
+	 * their revisions in a {@link DocumentRegistry},
+	 * instead of using the document last created or read.
+	 */
+	public final boolean useDocumentRegistry;
+
+	/**
+	 * The number of view queries by each connection after bulk inserting
+	 * finishes and the view index is built.
+	 */
+	public final int numViewQueries;
+	/**
+	 * The target number of view queries per second summed over all
+	 * connections, or {@code 0} if view queries are run closed loop.
+	 */
+	public final double viewTargetRate;
+	/**
+	 * The number of seconds each connection performs view queries, or
+	 * {@code 0} if view queries are bounded only by their number.
+	 */
+	public final int viewDuration;
+	/**
+	 * The relative weight of queries for a single key to other view queries.
+	 */
+	public final int viewKeyWeight;
+	/**
+	 * The relative weight of queries for a range of keys to other view queries.
+	 */
+	public final int viewRangeWeight;
+	/**
+	 * The relative weight of reduced queries for a range of keys to other view queries.
+	 */
+	public final int viewReduceWeight;
+	/**
+	 * The relative weight of grouped queries to other view queries.
+	 */
+	public final int viewGroupWeight;
+	/**
+	 * The maximum number of rows returned by each view query that is not reduced.
+	 */
+	public final int viewQueryLimit;
+	/**
+	 * The fields of documents that views are defined on, or {@code null} for
+	 * all top-level fields that are strings, booleans, integers, or floats.
+	 */
+	public final List<String> viewFields;
+	/**
+	 * The built-in reduce function of every view, which is {@code _count},
+	 * {@code _sum}, or {@code _stats}.
+	 */
+	public final String viewReduce;
+
+	/**
+	 * The number of Mango {@code _find} queries by each connection after
+	 * bulk inserting finishes and their indexes are built.
+	 */
+	public final int numFindQueries;
+	/**
+	 * The target number of {@code _find} requests per second summed over all
+	 * connections, including those for following pages, or {@code 0} if
+	 * {@code _find} queries are run closed loop.
+	 */
+	public final double findTargetRate;
+	/**
+	 * The number of seconds each connection performs {@code _find} queries,
+	 * or {@code 0} if {@code _find} queries are bounded only by their number.
+	 */
+	public final int findDuration;
+	/**
+	 * The relative weight of queries for a single value to other {@code _find} queries.
+	 */
+	public final int findEqualityWeight;
+	/**
+	 * The relative weight of queries for a range of values to other {@code _find} queries.
+	 */
+	public final int findRangeWeight;
+	/**
+	 * The relative weight of queries for a set of values to other {@code _find} queries.
+	 */
+	public final int findInWeight;
+	/**
+	 * The maximum number of documents returned by each {@code _find} request.
+	 */
+	public final int findQueryLimit;
+	/**
+	 * The maximum number of pages read by each {@code _find} query by
+	 * following its bookmark, including its first page.
+	 */
+	public final int findPages;
+	/**
+	 * The fields of documents that Mango indexes are created on, or
+	 * {@code null} for all top-level fields that are strings, booleans,
+	 * integers, or floats.
+	 */
+	public final List<String> findFields;
+
+	/**
+	 * The number of additional connections that consume the changes feed of
+	 * the database while the CRUD operations are performed.
+	 */
+	public final int numChangesConnections;
+	/**
+	 * The type of changes feed consumed by each such connection.
+	 */
+	public final ChangesHandler.Feed changesFeed;
 
 	/**
 	 * The JSON file containing field names in documents and their respective types,
@@ -78,13 +285,56 @@ public class ParsedArguments {
 			String databaseName,
 			int numConnections,
 			Integer seed,
+			int pipelineDepth,
+			OpenLoopScheduler.ArrivalDistribution arrivalDistribution,
+			int ioThreads,
+			int reportInterval,
+			File intervalFile,
+			IntervalReporter.Format intervalFormat,
+			File resultsFile,
+			ResultsExporter.Format resultsFormat,
+			int warmupSeconds,
+			int warmupOperations,
 			int numDocumentsPerBulkInsert,
 			int numBulkInsertOperations,
+			double bulkInsertTargetRate,
+			int bulkInsertDuration,
+			int producerThreads,
+			int producerQueueCapacity,
+			File bulkInsertCorpusFile,
 			int numCrudOperations,
 			int createWeight,
 			int readWeight,
 			int updateWeight,
 			int deleteWeight,
+			double crudTargetRate,
+			int crudDuration,
+			KeyChooser.Distribution keyDistribution,
+			double zipfianTheta,
+			double hotspotKeyFraction,
+			double hotspotOperationFraction,
+			boolean useDocumentRegistry,
+			int numViewQueries,
+			double viewTargetRate,
+			int viewDuration,
+			int viewKeyWeight,
+			int viewRangeWeight,
+			int viewReduceWeight,
+			int viewGroupWeight,
+			int viewQueryLimit,
+			List<String> viewFields,
+			String viewReduce,
+			int numFindQueries,
+			double findTargetRate,
+			int findDuration,
+			int findEqualityWeight,
+			int findRangeWeight,
+			int findInWeight,
+			int findQueryLimit,
+			int findPages,
+			List<String> findFields,
+			int numChangesConnections,
+			ChangesHandler.Feed changesFeed,
 			File jsonDocumentSchemaFile,
 			File xmlDocumentSchemaFile,
 			int timeoutDelay) {
@@ -92,13 +342,56 @@ public class ParsedArguments {
 		this.databaseName = databaseName;
 		this.numConnections = numConnections;
 		this.seed = seed;
+		this.pipelineDepth = pipelineDepth;
+		this.arrivalDistribution = arrivalDistribution;
+		this.ioThreads = ioThreads;
+		this.reportInterval = reportInterval;
+		this.intervalFile = intervalFile;
+		this.intervalFormat = intervalFormat;
+		this.resultsFile = resultsFile;
+		this.resultsFormat = resultsFormat;
+		this.warmupSeconds = warmupSeconds;
+		this.warmupOperations = warmupOperations;
 		this.numDocumentsPerBulkInsert = numDocumentsPerBulkInsert;
 		this.numBulkInsertOperations = numBulkInsertOperations;
+		this.bulkInsertTargetRate = bulkInsertTargetRate;
+		this.bulkInsertDuration = bulkInsertDuration;
+		this.producerThreads = producerThreads;
+		this.producerQueueCapacity = producerQueueCapacity;
+		this.bulkInsertCorpusFile = bulkInsertCorpusFile;
 		this.numCrudOperations = numCrudOperations;
 		this.createWeight = createWeight;
 		this.readWeight = readWeight;
 		this.updateWeight = updateWeight;
 		this.deleteWeight = deleteWeight;
+		this.crudTargetRate = crudTargetRate;
+		this.crudDuration = crudDuration;
+		this.keyDistribution = keyDistribution;
+		this.zipfianTheta = zipfianTheta;
+		this.hotspotKeyFraction = hotspotKeyFraction;
+		this.hotspotOperationFraction = hotspotOperationFraction;
+		this.useDocumentRegistry = useDocumentRegistry;
+		this.numViewQueries = numViewQueries;
+		this.viewTargetRate = viewTargetRate;
+		this.viewDuration = viewDuration;
+		this.viewKeyWeight = viewKeyWeight;
+		this.viewRangeWeight = viewRangeWeight;
+		this.viewReduceWeight = viewReduceWeight;
+		this.viewGroupWeight = viewGroupWeight;
+		this.viewQueryLimit = viewQueryLimit;
+		this.viewFields = viewFields;
+		this.viewReduce = viewReduce;
+		this.numFindQueries = numFindQueries;
+		this.findTargetRate = findTargetRate;
+		this.findDuration = findDuration;
+		this.findEqualityWeight = findEqualityWeight;
+		this.findRangeWeight = findRangeWeight;
+		this.findInWeight = findInWeight;
+		this.findQueryLimit = findQueryLimit;
+		this.findPages = findPages;
+		this.findFields = findFields;
+		this.numChangesConnections = numChangesConnections;
+		this.changesFeed = changesFeed;
 		this.jsonDocumentSchemaFile = jsonDocumentSchemaFile;
 		this.xmlDocumentSchemaFile = xmlDocumentSchemaFile;
 		this.timeoutDelay = timeoutDelay;
@@ -108,15 +401,60 @@ public class ParsedArguments {
 	private static final String DATABASE_NAME_PREFIX = "--database_name=";
 	private static final String NUM_CONNECTIONS_PREFIX = "--num_connections=";
 	private static final String SEED_PREFIX = "--seed=";
+	private static final String PIPELINE_DEPTH_PREFIX = "--pipeline_depth=";
+	private static final String ARRIVAL_DISTRIBUTION_PREFIX = "--arrival_distribution=";
+	private static final String IO_THREADS_PREFIX = "--io_threads=";
+	private static final String REPORT_INTERVAL_PREFIX = "--report_interval=";
+	private static final String INTERVAL_FILENAME_PREFIX = "--interval_filename=";
+	private static final String WARMUP_SECONDS_PREFIX = "--warmup_seconds=";
+	private static final String WARMUP_OPERATIONS_PREFIX = "--warmup_operations=";
+	private static final String INTERVAL_FORMAT_PREFIX = "--interval_format=";
+	private static final String RESULTS_FILENAME_PREFIX = "--results_filename=";
+	private static final String RESULTS_FORMAT_PREFIX = "--results_format=";
 
 	private static final String NUM_DOCUMENTS_PER_BULK_INSERT_PREFIX = "--num_documents_per_bulk_insert=";
 	private static final String NUM_BULK_INSERT_OPERATIONS_PREFIX = "--num_bulk_insert_operations=";
+	private static final String BULK_INSERT_TARGET_RATE_PREFIX = "--bulk_insert_target_rate=";
+	private static final String BULK_INSERT_DURATION_PREFIX = "--bulk_insert_duration=";
+	private static final String PRODUCER_THREADS_PREFIX = "--producer_threads=";
+	private static final String PRODUCER_QUEUE_CAPACITY_PREFIX = "--producer_queue_capacity=";
+	private static final String BULK_INSERT_CORPUS_FILENAME_PREFIX = "--bulk_insert_corpus_filename=";
 
 	private static final String NUM_CRUD_OPERATIONS_PREFIX = "--num_crud_operations=";
 	private static final String CREATE_WEIGHT_PREFIX = "--create_weight=";
 	private static final String READ_WEIGHT_PREFIX = "--read_weight=";
 	private static final String UPDATE_WEIGHT_PREFIX = "--update_weight=";
 	private static final String DELETE_WEIGHT_PREFIX = "--delete_weight=";
+	private static final String CRUD_TARGET_RATE_PREFIX = "--crud_target_rate=";
+	private static final String CRUD_DURATION_PREFIX = "--crud_duration=";
+	private static final String KEY_DISTRIBUTION_PREFIX = "--key_distribution=";
+	private static final String ZIPFIAN_THETA_PREFIX = "--zipfian_theta=";
+	private static final String HOTSPOT_KEY_FRACTION_PREFIX = "--hotspot_key_fraction=";
+	private static final String HOTSPOT_OPERATION_FRACTION_PREFIX = "--hotspot_operation_fraction=";
+	private static final String DOCUMENT_REGISTRY_PREFIX = "--document_registry=";
+
+	private static final String NUM_VIEW_QUERIES_PREFIX = "--num_view_queries=";
+	private static final String VIEW_TARGET_RATE_PREFIX = "--view_target_rate=";
+	private static final String VIEW_DURATION_PREFIX = "--view_duration=";
+	private static final String VIEW_KEY_WEIGHT_PREFIX = "--view_key_weight=";
+	private static final String VIEW_RANGE_WEIGHT_PREFIX = "--view_range_weight=";
+	private static final String VIEW_REDUCE_WEIGHT_PREFIX = "--view_reduce_weight=";
+	private static final String VIEW_GROUP_WEIGHT_PREFIX = "--view_group_weight=";
+	private static final String VIEW_QUERY_LIMIT_PREFIX = "--view_query_limit=";
+	private static final String VIEW_FIELDS_PREFIX = "--view_fields=";
+	private static final String VIEW_REDUCE_PREFIX = "--view_reduce=";
+	private static final String NUM_FIND_QUERIES_PREFIX = "--num_find_queries=";
+	private static final String FIND_TARGET_RATE_PREFIX = "--find_target_rate=";
+	private static final String FIND_DURATION_PREFIX = "--find_duration=";
+	private static final String FIND_EQUALITY_WEIGHT_PREFIX = "--find_equality_weight=";
+	private static final String FIND_RANGE_WEIGHT_PREFIX = "--find_range_weight=";
+	private static final String FIND_IN_WEIGHT_PREFIX = "--find_in_weight=";
+	private static final String FIND_QUERY_LIMIT_PREFIX = "--find_query_limit=";
+	private static final String FIND_PAGES_PREFIX = "--find_pages=";
+	private static final String FIND_FIELDS_PREFIX = "--find_fields=";
+
+	private static final String NUM_CHANGES_CONNECTIONS_PREFIX = "--num_changes_connections=";
+	private static final String CHANGES_FEED_PREFIX = "--changes_feed=";
 
 	private static final String JSON_DOCUMENT_SCHEMA_FILENAME_PREFIX = "--json_document_schema_filename=";
 	private static final String XML_DOCUMENT_SCHEMA_FILENAME_PREFIX = "--xml_document_schema_filename=";
@@ -132,18 +470,66 @@ public class ParsedArguments {
 		return Integer.valueOf(value).intValue();
 	}
 
+	private static double doubleValueForArgument(String arg, String argumentPrefix) {
+		String value = valueForArgument(arg, argumentPrefix);
+		return Double.valueOf(value).doubleValue();
+	}
+
 	public static ParsedArguments parseArguments(String[] args) {
 		String databaseAddress = null;
 		String databaseName = null;
 		int numConnections = 1;
 		Integer seed = null;
+		int pipelineDepth = 1;
+		String arrivalDistributionName = "fixed";
+		int ioThreads = Runtime.getRuntime().availableProcessors();
+		int reportInterval = 0;
+		String intervalFilename = null;
+		String intervalFormatName = "csv";
+		String resultsFilename = null;
+		String resultsFormatName = "json";
+		int warmupSeconds = 0;
+		int warmupOperations = 0;
 		int numDocumentsPerBulkInsert = 0;
 		int numBulkInsertOperations = 0;
+		double bulkInsertTargetRate = 0;
+		int bulkInsertDuration = 0;
+		int producerThreads = 0;
+		int producerQueueCapacity = 4;
+		String bulkInsertCorpusFilename = null;
 		int numCrudOperations = 0;
 		int createWeight = 0;
 		int readWeight = 0;
 		int updateWeight = 0;
 		int deleteWeight = 0;
+		double crudTargetRate = 0;
+		int crudDuration = 0;
+		String keyDistributionName = "sequential";
+		double zipfianTheta = 0.99;
+		double hotspotKeyFraction = 0.2;
+		double hotspotOperationFraction = 0.8;
+		String documentRegistryName = "false";
+		int numViewQueries = 0;
+		double viewTargetRate = 0;
+		int viewDuration = 0;
+		int viewKeyWeight = 1;
+		int viewRangeWeight = 1;
+		int viewReduceWeight = 1;
+		int viewGroupWeight = 1;
+		int viewQueryLimit = 10;
+		String viewFieldNames = null;
+		String viewReduce = "_count";
+		int numFindQueries = 0;
+		double findTargetRate = 0;
+		int findDuration = 0;
+		int findEqualityWeight = 1;
+		int findRangeWeight = 1;
+		int findInWeight = 1;
+		int findQueryLimit = 10;
+		int findPages = 1;
+		String findFieldNames = null;
+		int numChangesConnections = 0;
+		String changesFeedName = "continuous";
 		int timeoutDelay = 1000;
 		String jsonDocumentSchemaFilename = null;
 		String xmlDocumentSchemaFilename = null;
@@ -157,10 +543,40 @@ public class ParsedArguments {
 				numConnections = intValueForArgument(arg, NUM_CONNECTIONS_PREFIX);
 			} else if (arg.startsWith(SEED_PREFIX)) {
 				seed = Integer.valueOf(valueForArgument(arg, SEED_PREFIX));
+			} else if (arg.startsWith(PIPELINE_DEPTH_PREFIX)) {
+				pipelineDepth = intValueForArgument(arg, PIPELINE_DEPTH_PREFIX);
+			} else if (arg.startsWith(ARRIVAL_DISTRIBUTION_PREFIX)) {
+				arrivalDistributionName = valueForArgument(arg, ARRIVAL_DISTRIBUTION_PREFIX);
+			} else if (arg.startsWith(IO_THREADS_PREFIX)) {
+				ioThreads = intValueForArgument(arg, IO_THREADS_PREFIX);
+			} else if (arg.startsWith(REPORT_INTERVAL_PREFIX)) {
+				reportInterval = intValueForArgument(arg, REPORT_INTERVAL_PREFIX);
+			} else if (arg.startsWith(INTERVAL_FILENAME_PREFIX)) {
+				intervalFilename = valueForArgument(arg, INTERVAL_FILENAME_PREFIX);
+			} else if (arg.startsWith(INTERVAL_FORMAT_PREFIX)) {
+				intervalFormatName = valueForArgument(arg, INTERVAL_FORMAT_PREFIX);
+			} else if (arg.startsWith(RESULTS_FILENAME_PREFIX)) {
+				resultsFilename = valueForArgument(arg, RESULTS_FILENAME_PREFIX);
+			} else if (arg.startsWith(RESULTS_FORMAT_PREFIX)) {
+				resultsFormatName = valueForArgument(arg, RESULTS_FORMAT_PREFIX);
+			} else if (arg.startsWith(WARMUP_SECONDS_PREFIX)) {
+				warmupSeconds = intValueForArgument(arg, WARMUP_SECONDS_PREFIX);
+			} else if (arg.startsWith(WARMUP_OPERATIONS_PREFIX)) {
+				warmupOperations = intValueForArgument(arg, WARMUP_OPERATIONS_PREFIX);
 			} else if (arg.startsWith(NUM_DOCUMENTS_PER_BULK_INSERT_PREFIX)) {
 				numDocumentsPerBulkInsert = intValueForArgument(arg, NUM_DOCUMENTS_PER_BULK_INSERT_PREFIX);
 			} else if (arg.startsWith(NUM_BULK_INSERT_OPERATIONS_PREFIX)) {
 				numBulkInsertOperations = intValueForArgument(arg, NUM_BULK_INSERT_OPERATIONS_PREFIX);
+			} else if (arg.startsWith(BULK_INSERT_TARGET_RATE_PREFIX)) {
+				bulkInsertTargetRate = doubleValueForArgument(arg, BULK_INSERT_TARGET_RATE_PREFIX);
+			} else if (arg.startsWith(BULK_INSERT_DURATION_PREFIX)) {
+				bulkInsertDuration = intValueForArgument(arg, BULK_INSERT_DURATION_PREFIX);
+			} else if (arg.startsWith(PRODUCER_THREADS_PREFIX)) {
+				producerThreads = intValueForArgument(arg, PRODUCER_THREADS_PREFIX);
+			} else if (arg.startsWith(PRODUCER_QUEUE_CAPACITY_PREFIX)) {
+				producerQueueCapacity = intValueForArgument(arg, PRODUCER_QUEUE_CAPACITY_PREFIX);
+			} else if (arg.startsWith(BULK_INSERT_CORPUS_FILENAME_PREFIX)) {
+				bulkInsertCorpusFilename = valueForArgument(arg, BULK_INSERT_CORPUS_FILENAME_PREFIX);
 			} else if (arg.startsWith(NUM_CRUD_OPERATIONS_PREFIX)) {
 				numCrudOperations = intValueForArgument(arg, NUM_CRUD_OPERATIONS_PREFIX);
 			} else if (arg.startsWith(CREATE_WEIGHT_PREFIX)) {
@@ -171,6 +587,62 @@ public class ParsedArguments {
 				updateWeight = intValueForArgument(arg, UPDATE_WEIGHT_PREFIX);
 			} else if (arg.startsWith(DELETE_WEIGHT_PREFIX)) {
 				deleteWeight = intValueForArgument(arg, DELETE_WEIGHT_PREFIX);
+			} else if (arg.startsWith(CRUD_TARGET_RATE_PREFIX)) {
+				crudTargetRate = doubleValueForArgument(arg, CRUD_TARGET_RATE_PREFIX);
+			} else if (arg.startsWith(CRUD_DURATION_PREFIX)) {
+				crudDuration = intValueForArgument(arg, CRUD_DURATION_PREFIX);
+			} else if (arg.startsWith(KEY_DISTRIBUTION_PREFIX)) {
+				keyDistributionName = valueForArgument(arg, KEY_DISTRIBUTION_PREFIX);
+			} else if (arg.startsWith(ZIPFIAN_THETA_PREFIX)) {
+				zipfianTheta = doubleValueForArgument(arg, ZIPFIAN_THETA_PREFIX);
+			} else if (arg.startsWith(HOTSPOT_KEY_FRACTION_PREFIX)) {
+				hotspotKeyFraction = doubleValueForArgument(arg, HOTSPOT_KEY_FRACTION_PREFIX);
+			} else if (arg.startsWith(HOTSPOT_OPERATION_FRACTION_PREFIX)) {
+				hotspotOperationFraction = doubleValueForArgument(arg, HOTSPOT_OPERATION_FRACTION_PREFIX);
+			} else if (arg.startsWith(DOCUMENT_REGISTRY_PREFIX)) {
+				documentRegistryName = valueForArgument(arg, DOCUMENT_REGISTRY_PREFIX);
+			} else if (arg.startsWith(NUM_VIEW_QUERIES_PREFIX)) {
+				numViewQueries = intValueForArgument(arg, NUM_VIEW_QUERIES_PREFIX);
+			} else if (arg.startsWith(VIEW_TARGET_RATE_PREFIX)) {
+				viewTargetRate = doubleValueForArgument(arg, VIEW_TARGET_RATE_PREFIX);
+			} else if (arg.startsWith(VIEW_DURATION_PREFIX)) {
+				viewDuration = intValueForArgument(arg, VIEW_DURATION_PREFIX);
+			} else if (arg.startsWith(VIEW_KEY_WEIGHT_PREFIX)) {
+				viewKeyWeight = intValueForArgument(arg, VIEW_KEY_WEIGHT_PREFIX);
+			} else if (arg.startsWith(VIEW_RANGE_WEIGHT_PREFIX)) {
+				viewRangeWeight = intValueForArgument(arg, VIEW_RANGE_WEIGHT_PREFIX);
+			} else if (arg.startsWith(VIEW_REDUCE_WEIGHT_PREFIX)) {
+				viewReduceWeight = intValueForArgument(arg, VIEW_REDUCE_WEIGHT_PREFIX);
+			} else if (arg.startsWith(VIEW_GROUP_WEIGHT_PREFIX)) {
+				viewGroupWeight = intValueForArgument(arg, VIEW_GROUP_WEIGHT_PREFIX);
+			} else if (arg.startsWith(VIEW_QUERY_LIMIT_PREFIX)) {
+				viewQueryLimit = intValueForArgument(arg, VIEW_QUERY_LIMIT_PREFIX);
+			} else if (arg.startsWith(VIEW_FIELDS_PREFIX)) {
+				viewFieldNames = valueForArgument(arg, VIEW_FIELDS_PREFIX);
+			} else if (arg.startsWith(VIEW_REDUCE_PREFIX)) {
+				viewReduce = valueForArgument(arg, VIEW_REDUCE_PREFIX);
+			} else if (arg.startsWith(NUM_FIND_QUERIES_PREFIX)) {
+				numFindQueries = intValueForArgument(arg, NUM_FIND_QUERIES_PREFIX);
+			} else if (arg.startsWith(FIND_TARGET_RATE_PREFIX)) {
+				findTargetRate = doubleValueForArgument(arg, FIND_TARGET_RATE_PREFIX);
+			} else if (arg.startsWith(FIND_DURATION_PREFIX)) {
+				findDuration = intValueForArgument(arg, FIND_DURATION_PREFIX);
+			} else if (arg.startsWith(FIND_EQUALITY_WEIGHT_PREFIX)) {
+				findEqualityWeight = intValueForArgument(arg, FIND_EQUALITY_WEIGHT_PREFIX);
+			} else if (arg.startsWith(FIND_RANGE_WEIGHT_PREFIX)) {
+				findRangeWeight = intValueForArgument(arg, FIND_RANGE_WEIGHT_PREFIX);
+			} else if (arg.startsWith(FIND_IN_WEIGHT_PREFIX)) {
+				findInWeight = intValueForArgument(arg, FIND_IN_WEIGHT_PREFIX);
+			} else if (arg.startsWith(FIND_QUERY_LIMIT_PREFIX)) {
+				findQueryLimit = intValueForArgument(arg, FIND_QUERY_LIMIT_PREFIX);
+			} else if (arg.startsWith(FIND_PAGES_PREFIX)) {
+				findPages = intValueForArgument(arg, FIND_PAGES_PREFIX);
+			} else if (arg.startsWith(FIND_FIELDS_PREFIX)) {
+				findFieldNames = valueForArgument(arg, FIND_FIELDS_PREFIX);
+			} else if (arg.startsWith(NUM_CHANGES_CONNECTIONS_PREFIX)) {
+				numChangesConnections = intValueForArgument(arg, NUM_CHANGES_CONNECTIONS_PREFIX);
+			} else if (arg.startsWith(CHANGES_FEED_PREFIX)) {
+				changesFeedName = valueForArgument(arg, CHANGES_FEED_PREFIX);
 			} else if (arg.startsWith(JSON_DOCUMENT_SCHEMA_FILENAME_PREFIX)) {
 				jsonDocumentSchemaFilename = valueForArgument(arg, JSON_DOCUMENT_SCHEMA_FILENAME_PREFIX);
 			} else if (arg.startsWith(XML_DOCUMENT_SCHEMA_FILENAME_PREFIX)) {
@@ -192,12 +664,81 @@ public class ParsedArguments {
 		if (numConnections <= 0) {
 			throw new IllegalArgumentException("Value --num_connections must be > 0");
 		}
+		if (pipelineDepth <= 0) {
+			throw new IllegalArgumentException("Value --pipeline_depth must be > 0");
+		}
+		OpenLoopScheduler.ArrivalDistribution arrivalDistribution;
+		if (arrivalDistributionName.equals("fixed")) {
+			arrivalDistribution = OpenLoopScheduler.ArrivalDistribution.FIXED;
+		} else if (arrivalDistributionName.equals("poisson")) {
+			arrivalDistribution = OpenLoopScheduler.ArrivalDistribution.POISSON;
+		} else {
+			throw new IllegalArgumentException("Value --arrival_distribution must be fixed or poisson");
+		}
+		if (ioThreads <= 0) {
+			throw new IllegalArgumentException("Value --io_threads must be > 0");
+		}
+		if (reportInterval < 0) {
+			throw new IllegalArgumentException("Value --report_interval must be >= 0");
+		}
+		File intervalFile = null;
+		if (intervalFilename != null) {
+			if (reportInterval == 0) {
+				throw new IllegalArgumentException("Value --report_interval must be > 0 if --interval_filename is provided");
+			}
+			intervalFile = new File(intervalFilename);
+		}
+		IntervalReporter.Format intervalFormat;
+		if (intervalFormatName.equals("csv")) {
+			intervalFormat = IntervalReporter.Format.CSV;
+		} else if (intervalFormatName.equals("json")) {
+			intervalFormat = IntervalReporter.Format.JSON;
+		} else {
+			throw new IllegalArgumentException("Value --interval_format must be csv or json");
+		}
+		File resultsFile = null;
+		if (resultsFilename != null) {
+			if (resultsFilename.isEmpty()) {
+				throw new IllegalArgumentException("Filename --results_filename must not be empty");
+			}
+			resultsFile = new File(resultsFilename);
+		}
+		ResultsExporter.Format resultsFormat;
+		if (resultsFormatName.equals("json")) {
+			resultsFormat = ResultsExporter.Format.JSON;
+		} else if (resultsFormatName.equals("csv")) {
+			resultsFormat = ResultsExporter.Format.CSV;
+		} else {
+			throw new IllegalArgumentException("Value --results_format must be json or csv");
+		}
+		if (warmupSeconds < 0) {
+			throw new IllegalArgumentException("Value --warmup_seconds must be >= 0");
+		}
+		if (warmupOperations < 0) {
+			throw new IllegalArgumentException("Value --warmup_operations must be >= 0");
+		}
 		if (numDocumentsPerBulkInsert < 0) {
 			throw new IllegalArgumentException("Value --num_documents_per_bulk_insert must be >= 0");
 		}
 		if (numBulkInsertOperations < 0) {
 			throw new IllegalArgumentException("Value --num_bulk_insert_operations must be >= 0");
 		}
+		if (bulkInsertTargetRate < 0) {
+			throw new IllegalArgumentException("Value --bulk_insert_target_rate must be >= 0");
+		}
+		if (bulkInsertDuration < 0) {
+			throw new IllegalArgumentException("Value --bulk_insert_duration must be >= 0");
+		}
+		if ((bulkInsertDuration > 0) && (numDocumentsPerBulkInsert == 0)) {
+			throw new IllegalArgumentException(
+					"Value --num_documents_per_bulk_insert must be > 0 if --bulk_insert_duration is provided");
+		}
+		if (producerThreads < 0) {
+			throw new IllegalArgumentException("Value --producer_threads must be >= 0");
+		}
+		if (producerQueueCapacity <= 0) {
+			throw new IllegalArgumentException("Value --producer_queue_capacity must be > 0");
+		}
 		if (numCrudOperations < 0) {
 			throw new IllegalArgumentException("Value --num_crud_operations must be >= 0");
 		}
@@ -213,16 +754,154 @@ public class ParsedArguments {
 		if (deleteWeight < 0) {
 			throw new IllegalArgumentException("Value --delete_weight must be >= 0");
 		}
-		if (numCrudOperations > 0) {
+		if (crudTargetRate < 0) {
+			throw new IllegalArgumentException("Value --crud_target_rate must be >= 0");
+		}
+		if (crudDuration < 0) {
+			throw new IllegalArgumentException("Value --crud_duration must be >= 0");
+		}
+		KeyChooser.Distribution keyDistribution;
+		if (keyDistributionName.equals("sequential")) {
+			keyDistribution = KeyChooser.Distribution.SEQUENTIAL;
+		} else if (keyDistributionName.equals("uniform")) {
+			keyDistribution = KeyChooser.Distribution.UNIFORM;
+		} else if (keyDistributionName.equals("zipfian")) {
+			keyDistribution = KeyChooser.Distribution.ZIPFIAN;
+		} else if (keyDistributionName.equals("hotspot")) {
+			keyDistribution = KeyChooser.Distribution.HOTSPOT;
+		} else if (keyDistributionName.equals("latest")) {
+			keyDistribution = KeyChooser.Distribution.LATEST;
+		} else {
+			throw new IllegalArgumentException(
+					"Value --key_distribution must be sequential, uniform, zipfian, hotspot, or latest");
+		}
+		if (zipfianTheta <= 0) {
+			throw new IllegalArgumentException("Value --zipfian_theta must be > 0");
+		}
+		if ((hotspotKeyFraction <= 0) || (hotspotKeyFraction >= 1)) {
+			throw new IllegalArgumentException("Value --hotspot_key_fraction must be > 0 and < 1");
+		}
+		if ((hotspotOperationFraction < 0) || (hotspotOperationFraction > 1)) {
+			throw new IllegalArgumentException("Value --hotspot_operation_fraction must be >= 0 and <= 1");
+		}
+		boolean useDocumentRegistry;
+		if (documentRegistryName.equals("true")) {
+			useDocumentRegistry = true;
+		} else if (documentRegistryName.equals("false")) {
+			useDocumentRegistry = false;
+		} else {
+			throw new IllegalArgumentException("Value --document_registry must be true or false");
+		}
+		if (numViewQueries < 0) {
+			throw new IllegalArgumentException("Value --num_view_queries must be >= 0");
+		}
+		if (viewTargetRate < 0) {
+			throw new IllegalArgumentException("Value --view_target_rate must be >= 0");
+		}
+		if (viewDuration < 0) {
+			throw new IllegalArgumentException("Value --view_duration must be >= 0");
+		}
+		if (viewKeyWeight < 0) {
+			throw new IllegalArgumentException("Value --view_key_weight must be >= 0");
+		}
+		if (viewRangeWeight < 0) {
+			throw new IllegalArgumentException("Value --view_range_weight must be >= 0");
+		}
+		if (viewReduceWeight < 0) {
+			throw new IllegalArgumentException("Value --view_reduce_weight must be >= 0");
+		}
+		if (viewGroupWeight < 0) {
+			throw new IllegalArgumentException("Value --view_group_weight must be >= 0");
+		}
+		if ((viewKeyWeight + viewRangeWeight + viewReduceWeight + viewGroupWeight) == 0) {
+			throw new IllegalArgumentException("Sum of view weights must be > 0");
+		}
+		if (viewQueryLimit <= 0) {
+			throw new IllegalArgumentException("Value --view_query_limit must be > 0");
+		}
+		List<String> viewFields = null;
+		if (viewFieldNames != null) {
+			viewFields = new ArrayList<String>(Arrays.asList(viewFieldNames.split(",")));
+			if (viewFields.isEmpty() || viewFields.contains("")) {
+				throw new IllegalArgumentException("Value --view_fields must be a comma-separated list of fields");
+			}
+		}
+		if (!viewReduce.equals("_count") && !viewReduce.equals("_sum") && !viewReduce.equals("_stats")) {
+			throw new IllegalArgumentException("Value --view_reduce must be _count, _sum, or _stats");
+		}
+		if (numFindQueries < 0) {
+			throw new IllegalArgumentException("Value --num_find_queries must be >= 0");
+		}
+		if (findTargetRate < 0) {
+			throw new IllegalArgumentException("Value --find_target_rate must be >= 0");
+		}
+		if (findDuration < 0) {
+			throw new IllegalArgumentException("Value --find_duration must be >= 0");
+		}
+		if (findEqualityWeight < 0) {
+			throw new IllegalArgumentException("Value --find_equality_weight must be >= 0");
+		}
+		if (findRangeWeight < 0) {
+			throw new IllegalArgumentException("Value --find_range_weight must be >= 0");
+		}
+		if (findInWeight < 0) {
+			throw new IllegalArgumentException("Value --find_in_weight must be >= 0");
+		}
+		if ((findEqualityWeight + findRangeWeight + findInWeight) == 0) {
+			throw new IllegalArgumentException("Sum of find weights must be > 0");
+		}
+		if (findQueryLimit <= 0) {
+			throw new IllegalArgumentException("Value --find_query_limit must be > 0");
+		}
+		if (findPages <= 0) {
+			throw new IllegalArgumentException("Value --find_pages must be > 0");
+		}
+		List<String> findFields = null;
+		if (findFieldNames != null) {
+			findFields = new ArrayList<String>(Arrays.asList(findFieldNames.split(",")));
+			if (findFields.isEmpty() || findFields.contains("")) {
+				throw new IllegalArgumentException("Value --find_fields must be a comma-separated list of fields");
+			}
+		}
+		if (numChangesConnections < 0) {
+			throw new IllegalArgumentException("Value --num_changes_connections must be >= 0");
+		}
+		if ((numChangesConnections > 0) && (numCrudOperations == 0) && (crudDuration == 0)) {
+			throw new IllegalArgumentException(
+					"Value --num_crud_operations or --crud_duration must be > 0 if --num_changes_connections is provided");
+		}
+		ChangesHandler.Feed changesFeed;
+		if (changesFeedName.equals("continuous")) {
+			changesFeed = ChangesHandler.Feed.CONTINUOUS;
+		} else if (changesFeedName.equals("longpoll")) {
+			changesFeed = ChangesHandler.Feed.LONGPOLL;
+		} else {
+			throw new IllegalArgumentException("Value --changes_feed must be continuous or longpoll");
+		}
+		// Each connection must have operations left to measure after its warm-up.
+		if ((numBulkInsertOperations > 0) && (warmupOperations >= numBulkInsertOperations)) {
+			throw new IllegalArgumentException("Value --warmup_operations must be < --num_bulk_insert_operations");
+		}
+		if ((numCrudOperations > 0) && (warmupOperations >= numCrudOperations)) {
+			throw new IllegalArgumentException("Value --warmup_operations must be < --num_crud_operations");
+		}
+		if ((numViewQueries > 0) && (warmupOperations >= numViewQueries)) {
+			throw new IllegalArgumentException("Value --warmup_operations must be < --num_view_queries");
+		}
+		if ((numFindQueries > 0) && (warmupOperations >= numFindQueries)) {
+			throw new IllegalArgumentException("Value --warmup_operations must be < --num_find_queries");
+		}
+		if ((numCrudOperations > 0) || (crudDuration > 0)) {
 			int totalWeight = createWeight + readWeight + updateWeight + deleteWeight;
 			if (totalWeight == 0) {
 				throw new IllegalArgumentException("Sum of weights must be > 0");
 			}
 			int createReadWeightSum = createWeight + readWeight;
-			if (createReadWeightSum < deleteWeight) {
+			// The registry provides the documents of UPDATE and DELETE operations.
+			if (!useDocumentRegistry && (createReadWeightSum < deleteWeight)) {
 				throw new IllegalArgumentException("createWeight + readWeight must be >= deleteWeight");
 			}
-			if ((updateWeight > 0) && (createReadWeightSum == 0)) {
+			if (!useDocumentRegistry && (updateWeight > 0) && (createReadWeightSum == 0)) {
 				throw new IllegalArgumentException("createWeight + readWeight must be > 0 if updateWeight > 0");
 			}
 		}
@@ -231,6 +910,18 @@ public class ParsedArguments {
 					"Either value --json_document_schema_filename or --xml_document_schema_filename must be provided");
 		}
 
+		File bulkInsertCorpusFile = null;
+		if (bulkInsertCorpusFilename != null) {
+			if (bulkInsertCorpusFilename.isEmpty()) {
+				throw new IllegalArgumentException("Filename --bulk_insert_corpus_filename must not be empty");
+			}
+			if (numBulkInsertOperations == 0) {
+				// The corpus contains a fixed number of bulk insert operations.
+				throw new IllegalArgumentException(
+						"Value --num_bulk_insert_operations must be > 0 if --bulk_insert_corpus_filename is provided");
+			}
+			bulkInsertCorpusFile = new File(bulkInsertCorpusFilename);
+		}
 		File jsonDocumentSchemaFile = null;
 		if (jsonDocumentSchemaFilename != null) {
 			jsonDocumentSchemaFile = new File(jsonDocumentSchemaFilename);
@@ -250,13 +941,56 @@ public class ParsedArguments {
 				databaseName,
 				numConnections,
 				seed,
+				pipelineDepth,
+				arrivalDistribution,
+				ioThreads,
+				reportInterval,
+				intervalFile,
+				intervalFormat,
+				resultsFile,
+				resultsFormat,
+				warmupSeconds,
+				warmupOperations,
 				numDocumentsPerBulkInsert,
 				numBulkInsertOperations,
+				bulkInsertTargetRate,
+				bulkInsertDuration,
+				producerThreads,
+				producerQueueCapacity,
+				bulkInsertCorpusFile,
 				numCrudOperations,
 				createWeight,
 				readWeight,
 				updateWeight,
 				deleteWeight,
+				crudTargetRate,
+				crudDuration,
+				keyDistribution,
+				zipfianTheta,
+				hotspotKeyFraction,
+				hotspotOperationFraction,
+				useDocumentRegistry,
+				numViewQueries,
+				viewTargetRate,
+				viewDuration,
+				viewKeyWeight,
+				viewRangeWeight,
+				viewReduceWeight,
+				viewGroupWeight,
+				viewQueryLimit,
+				viewFields,
+				viewReduce,
+				numFindQueries,
+				findTargetRate,
+				findDuration,
+				findEqualityWeight,
+				findRangeWeight,
+				findInWeight,
+				findQueryLimit,
+				findPages,
+				findFields,
+				numChangesConnections,
+				changesFeed,
 				jsonDocumentSchemaFile,
 				xmlDocumentSchemaFile,
 				timeoutDelay);
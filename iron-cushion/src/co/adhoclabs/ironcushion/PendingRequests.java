@@ -0,0 +1,132 @@
+package co.adhoclabs.ironcushion;
+
+/**
+ * The requests written by a connection that have not yet received a response,
+ * in the order they were written. Because HTTP responses arrive in the order
+ * their requests were sent, the first pending request is always the one that
+ * the next response belongs to.
+ *
+ * <p>The bytes of the body of each request are recorded when its response
+ * arrives, so that they are recorded to the same statistics as its latency
+ * even if the warm-up ends while it is pending.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class PendingRequests {
+	private final int[] types;
+	private final long[] startTimes;
+	private final int[] sentBytes;
+	private final Object[] attachments;
+
+	private int first;
+	private int size;
+	private int numUnsent;
+
+	/**
+	 * @param capacity the maximum number of requests that can be pending
+	 */
+	public PendingRequests(int capacity) {
+		types = new int[capacity];
+		startTimes = new long[capacity];
+		sentBytes = new int[capacity];
+		attachments = new Object[capacity];
+		first = 0;
+		size = 0;
+		numUnsent = 0;
+	}
+
+	/**
+	 * Adds a request that is being written.
+	 *
+	 * @param type the type of the request
+	 * @param startTime the value of {@link System#nanoTime()} when the request started
+	 * @param numSentBytes the number of bytes in the body of the request
+	 * @param attachment any object needed to process the response, or {@code null}
+	 */
+	public void add(int type, long startTime, int numSentBytes, Object attachment) {
+		if (size == types.length) {
+			throw new IllegalStateException("Cannot exceed " + types.length + " pending requests");
+		}
+		int index = (first + size) % types.length;
+		types[index] = type;
+		startTimes[index] = startTime;
+		sentBytes[index] = numSentBytes;
+		attachments[index] = attachment;
+		size++;
+		numUnsent++;
+	}
+
+	/**
+	 * Records that the oldest request still being written has been sent.
+	 */
+	public void sent() {
+		if (numUnsent > 0) {
+			numUnsent--;
+		}
+	}
+
+	/**
+	 * Removes the first pending request after its response is received.
+	 */
+	public void removeFirst() {
+		attachments[first] = null;
+		first = (first + 1) % types.length;
+		size--;
+	}
+
+	/**
+	 * @return the type of the first pending request
+	 */
+	public int getFirstType() {
+		return types[first];
+	}
+
+	/**
+	 * @return the value of {@link System#nanoTime()} when the first pending request started
+	 */
+	public long getFirstStartTime() {
+		return startTimes[first];
+	}
+
+	/**
+	 * @return the number of bytes in the body of the first pending request
+	 */
+	public int getFirstSentBytes() {
+		return sentBytes[first];
+	}
+
+	/**
+	 * @return the attachment of the first pending request
+	 */
+	public Object getFirstAttachment() {
+		return attachments[first];
+	}
+
+	/**
+	 * @return the number of pending requests
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return {@code true} if no requests are pending
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return {@code true} if no more requests can be pending
+	 */
+	public boolean isFull() {
+		return size == types.length;
+	}
+
+	/**
+	 * @return {@code true} if every pending request has been completely sent
+	 */
+	public boolean allSent() {
+		return numUnsent == 0;
+	}
+}
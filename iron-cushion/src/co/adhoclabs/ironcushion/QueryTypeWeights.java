@@ -0,0 +1,48 @@
+package co.adhoclabs.ironcushion;
+
+/**
+ * Chooses the type of each query at random by the weights of all types, such
+ * as the types of view queries or Mango {@code _find} queries.
+ *
+ * @param <T> the enumeration over the types of queries
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class QueryTypeWeights<T extends Enum<T>> {
+	private final T[] types;
+	private final int[] weights;
+	private final int totalWeight;
+
+	/**
+	 * @param types all types of queries, in the order of their weights
+	 * @param weights the weight of each type, whose sum must be positive
+	 */
+	public QueryTypeWeights(T[] types, int... weights) {
+		if (types.length != weights.length) {
+			throw new IllegalArgumentException(
+					"Expected " + types.length + " weights, but was " + weights.length);
+		}
+		this.types = types;
+		this.weights = weights;
+		int totalWeight = 0;
+		for (int weight : weights) {
+			totalWeight += weight;
+		}
+		this.totalWeight = totalWeight;
+	}
+
+	/**
+	 * @param valueGenerator the generator of random values
+	 * @return the type of the next query
+	 */
+	public T nextType(ValueGenerator valueGenerator) {
+		int weight = valueGenerator.nextInt(totalWeight);
+		for (int i = 0; i < types.length - 1; ++i) {
+			if (weight < weights[i]) {
+				return types[i];
+			}
+			weight -= weights[i];
+		}
+		return types[types.length - 1];
+	}
+}
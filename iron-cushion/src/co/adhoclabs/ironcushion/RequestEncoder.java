@@ -0,0 +1,125 @@
+package co.adhoclabs.ironcushion;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.handler.codec.base64.Base64;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.util.CharsetUtil;
+
+/**
+ * Encodes HTTP requests to the database without copying their bodies. The
+ * headers that are the same for every request are encoded once into a
+ * read-only buffer shared by all connections, and each request is written as
+ * a composite of its request line, these headers, its {@code Content-Length}
+ * header, and its body.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class RequestEncoder {
+	private static final byte[] HTTP_VERSION_AND_CRLF = " HTTP/1.1\r\n".getBytes(CharsetUtil.US_ASCII);
+	private static final byte[] CONTENT_LENGTH = (HttpHeaders.Names.CONTENT_LENGTH + ": ")
+			.getBytes(CharsetUtil.US_ASCII);
+	private static final byte[] CRLF = "\r\n".getBytes(CharsetUtil.US_ASCII);
+	/**
+	 * Enough bytes for any {@code Content-Length} value, followed by two CRLFs.
+	 */
+	private static final int MAX_CONTENT_LENGTH_LINE_BYTES = CONTENT_LENGTH.length + 10 + (2 * CRLF.length);
+
+	private final ChannelBuffer headerBlock;
+
+	/**
+	 * @param host the value of the {@code Host} header
+	 * @param authString the user information to authenticate with, or the empty string
+	 */
+	public RequestEncoder(String host, String authString) {
+		StringBuilder sb = new StringBuilder();
+		appendHeader(sb, HttpHeaders.Names.HOST, host);
+		appendHeader(sb, HttpHeaders.Names.CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+		// appendHeader(sb, HttpHeaders.Names.ACCEPT_ENCODING, HttpHeaders.Values.GZIP);
+		appendHeader(sb, HttpHeaders.Names.CONTENT_TYPE, "application/json");
+		if (authString.length() > 0) {
+			ChannelBuffer authChannelBuffer = ChannelBuffers.copiedBuffer(authString, CharsetUtil.UTF_8);
+			ChannelBuffer encodedAuthChannelBuffer = Base64.encode(authChannelBuffer, false);
+			appendHeader(sb, HttpHeaders.Names.AUTHORIZATION,
+					"Basic " + encodedAuthChannelBuffer.toString(CharsetUtil.US_ASCII));
+		}
+		this.headerBlock = ChannelBuffers.unmodifiableBuffer(
+				ChannelBuffers.copiedBuffer(sb.toString(), CharsetUtil.US_ASCII));
+	}
+
+	private static void appendHeader(StringBuilder sb, String name, String value) {
+		sb.append(name).append(": ").append(value).append("\r\n");
+	}
+
+	private static void writeAscii(ChannelBuffer buffer, String value) {
+		for (int i = 0; i < value.length(); ++i) {
+			buffer.writeByte((byte) value.charAt(i));
+		}
+	}
+
+	/**
+	 * Returns the encoded request with the given method, path, and body. The
+	 * returned buffer shares the content of the body.
+	 *
+	 * @param method the method of the request
+	 * @param path the path of the request, which must be ASCII
+	 * @param content the body of the request, or {@code null} if there is none
+	 * @return the encoded request
+	 */
+	public ChannelBuffer encode(HttpMethod method, String path, ChannelBuffer content) {
+		ChannelBuffer head = encodeHead(method, path, content);
+		if (content == null) {
+			return head;
+		}
+		return ChannelBuffers.wrappedBuffer(head, content);
+	}
+
+	/**
+	 * Writes the request with the given method, path, and body to the given
+	 * channel. A direct body, such as a slice of a memory mapped file, is
+	 * written separately from the headers, so that it is written to the socket
+	 * from its own memory instead of being merged with the headers into a copy.
+	 *
+	 * @param channel the channel to write the request to
+	 * @param method the method of the request
+	 * @param path the path of the request, which must be ASCII
+	 * @param content the body of the request, or {@code null} if there is none
+	 * @return the future of writing the last part of the request
+	 */
+	public ChannelFuture write(Channel channel, HttpMethod method, String path, ChannelBuffer content) {
+		if ((content == null) || !content.isDirect()) {
+			return channel.write(encode(method, path, content));
+		}
+		channel.write(encodeHead(method, path, content));
+		return channel.write(content);
+	}
+
+	/**
+	 * Returns the encoded request line and headers of the request with the
+	 * given method, path, and body.
+	 */
+	private ChannelBuffer encodeHead(HttpMethod method, String path, ChannelBuffer content) {
+		String methodName = method.getName();
+		ChannelBuffer requestLine = ChannelBuffers.buffer(
+				methodName.length() + 1 + path.length() + HTTP_VERSION_AND_CRLF.length);
+		writeAscii(requestLine, methodName);
+		requestLine.writeByte(' ');
+		writeAscii(requestLine, path);
+		requestLine.writeBytes(HTTP_VERSION_AND_CRLF);
+
+		if (content == null) {
+			return ChannelBuffers.wrappedBuffer(requestLine, headerBlock,
+					ChannelBuffers.wrappedBuffer(CRLF));
+		}
+
+		ChannelBuffer contentLengthLine = ChannelBuffers.buffer(MAX_CONTENT_LENGTH_LINE_BYTES);
+		contentLengthLine.writeBytes(CONTENT_LENGTH);
+		writeAscii(contentLengthLine, String.valueOf(content.readableBytes()));
+		contentLengthLine.writeBytes(CRLF);
+		contentLengthLine.writeBytes(CRLF);
+		return ChannelBuffers.wrappedBuffer(requestLine, headerBlock, contentLengthLine);
+	}
+}
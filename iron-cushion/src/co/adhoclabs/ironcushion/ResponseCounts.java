@@ -0,0 +1,152 @@
+package co.adhoclabs.ironcushion;
+
+import org.json.simple.JSONObject;
+
+/**
+ * The number of responses to each type of operation by the class of their
+ * HTTP status, and the number of failed responses by the reason returned by
+ * CouchDB. A response succeeds only if its status is {@code 2xx}. Failed
+ * operations are excluded from the latencies and rates of each step, because
+ * errors are often returned faster than successes.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class ResponseCounts {
+	/**
+	 * The number of classes of HTTP status, from {@code 1xx} to {@code 5xx}.
+	 */
+	private static final int NUM_STATUS_CLASSES = 5;
+
+	private final long[][] statusClassCounts;
+	private final ErrorCounts[] errorCounts;
+
+	/**
+	 * @param numOperationTypes the number of types of operations whose responses are counted
+	 */
+	public ResponseCounts(int numOperationTypes) {
+		statusClassCounts = new long[numOperationTypes][NUM_STATUS_CLASSES];
+		errorCounts = new ErrorCounts[numOperationTypes];
+		for (int i = 0; i < numOperationTypes; ++i) {
+			errorCounts[i] = new ErrorCounts();
+		}
+	}
+
+	/**
+	 * @param statusCode the status code of a response
+	 * @return {@code true} if the status code is {@code 2xx}
+	 */
+	public static boolean isSuccess(int statusCode) {
+		return (statusCode >= 200) && (statusCode < 300);
+	}
+
+	private static int getStatusClass(int statusCode) {
+		int statusClass = (statusCode / 100) - 1;
+		if (statusClass < 0) {
+			return 0;
+		} else if (statusClass >= NUM_STATUS_CLASSES) {
+			return NUM_STATUS_CLASSES - 1;
+		}
+		return statusClass;
+	}
+
+	/**
+	 * Records a response that succeeded.
+	 *
+	 * @param operationType the index of the type of operation
+	 * @param statusCode the status code of the response
+	 */
+	public void recordSuccess(int operationType, int statusCode) {
+		statusClassCounts[operationType][getStatusClass(statusCode)]++;
+	}
+
+	/**
+	 * Records a response that failed.
+	 *
+	 * @param operationType the index of the type of operation
+	 * @param statusCode the status code of the response
+	 * @param reason the value of the {@code error} field of the response, or
+	 *        {@code null} if absent
+	 */
+	public void recordFailure(int operationType, int statusCode, String reason) {
+		statusClassCounts[operationType][getStatusClass(statusCode)]++;
+		errorCounts[operationType].record(reason);
+	}
+
+	/**
+	 * Adds the counts of the given responses to these responses.
+	 *
+	 * @param responseCounts the responses to add
+	 */
+	public void add(ResponseCounts responseCounts) {
+		for (int i = 0; i < statusClassCounts.length; ++i) {
+			for (int j = 0; j < NUM_STATUS_CLASSES; ++j) {
+				statusClassCounts[i][j] += responseCounts.statusClassCounts[i][j];
+			}
+			errorCounts[i].add(responseCounts.errorCounts[i]);
+		}
+	}
+
+	/**
+	 * @param operationType the index of the type of operation
+	 * @return the number of responses of every status class
+	 */
+	public long getResponses(int operationType) {
+		long responses = 0;
+		for (long count : statusClassCounts[operationType]) {
+			responses += count;
+		}
+		return responses;
+	}
+
+	/**
+	 * @param operationType the index of the type of operation
+	 * @return the number of responses that succeeded
+	 */
+	public long getSuccesses(int operationType) {
+		return statusClassCounts[operationType][getStatusClass(200)];
+	}
+
+	/**
+	 * @param operationType the index of the type of operation
+	 * @return the number of responses that failed
+	 */
+	public long getFailures(int operationType) {
+		return errorCounts[operationType].getTotal();
+	}
+
+	/**
+	 * @param operationType the index of the type of operation
+	 * @return the JSON of the count of each status class and error reason
+	 */
+	@SuppressWarnings("unchecked")
+	public JSONObject toJson(int operationType) {
+		JSONObject json = new JSONObject();
+		for (int i = 0; i < NUM_STATUS_CLASSES; ++i) {
+			json.put((i + 1) + "xx", statusClassCounts[operationType][i]);
+		}
+		json.put("errors", errorCounts[operationType].toJson());
+		return json;
+	}
+
+	/**
+	 * @param operationType the index of the type of operation
+	 * @return the count of each non-empty status class and error reason
+	 */
+	public String toString(int operationType) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < NUM_STATUS_CLASSES; ++i) {
+			long count = statusClassCounts[operationType][i];
+			if ((count == 0) && (i != getStatusClass(200))) {
+				continue;
+			}
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(i + 1).append("xx=").append(BenchmarkResults.format(count));
+		}
+		if (errorCounts[operationType].getTotal() > 0) {
+			sb.append(", errors={").append(errorCounts[operationType]).append('}');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,297 @@
+package co.adhoclabs.ironcushion;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Writes the results of every step of the benchmark to a file as JSON or CSV,
+ * so that they can be compared across runs without parsing the console output.
+ * The file contains the parameters of the run, the seed of its random number
+ * generators, and the results of each step as returned by
+ * {@link BenchmarkResults#toJson()}, including the histogram of each latency
+ * and the values of each connection. The user name and password in the
+ * database address are not written.
+ *
+ * <p>A CSV file has a row for each value, where its key is the path to the
+ * value in the JSON, separated by periods. All times are in nanoseconds. A file
+ * in either format can be read by {@link #read(File)}.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class ResultsExporter {
+	/**
+	 * The format of the file that results are written to.
+	 */
+	public enum Format {
+		JSON,
+		CSV
+	}
+
+	/**
+	 * The header of a CSV file.
+	 */
+	public static final String CSV_HEADER = "key,value";
+
+	private final JSONObject parameters;
+	private final int seed;
+	private final JSONObject steps;
+
+	/**
+	 * @param parsedArguments the parameters of the run
+	 * @param seed the seed of the random number generators, which was either
+	 *        provided or chosen for this run
+	 */
+	public ResultsExporter(ParsedArguments parsedArguments, int seed) {
+		this.parameters = parametersToJson(parsedArguments);
+		this.seed = seed;
+		this.steps = new JSONObject();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static JSONObject parametersToJson(ParsedArguments parsedArguments) {
+		JSONObject json = new JSONObject();
+		for (Field field : ParsedArguments.class.getFields()) {
+			if (Modifier.isStatic(field.getModifiers())) {
+				continue;
+			}
+			Object value;
+			try {
+				value = field.get(parsedArguments);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+			if (field.getName().equals("databaseAddress")) {
+				value = withoutUserInfo((String) value);
+			} else if (value instanceof File) {
+				value = ((File) value).getPath();
+			} else if (value instanceof Enum<?>) {
+				value = ((Enum<?>) value).name().toLowerCase(Locale.ROOT);
+			}
+			json.put(field.getName(), value);
+		}
+		return json;
+	}
+
+	/**
+	 * Returns the given URL without the user name and password before the
+	 * {@code @} of its authority, so that no credentials are written.
+	 *
+	 * @param address the URL
+	 * @return the URL without its user information
+	 */
+	static String withoutUserInfo(String address) {
+		int authorityIndex = address.indexOf("//");
+		if (authorityIndex < 0) {
+			return address;
+		}
+		authorityIndex += 2;
+		int authorityEndIndex = address.length();
+		for (char c : new char[] { '/', '?', '#' }) {
+			int index = address.indexOf(c, authorityIndex);
+			if ((index >= 0) && (index < authorityEndIndex)) {
+				authorityEndIndex = index;
+			}
+		}
+		// The password may contain an @, but the host cannot.
+		int userInfoEndIndex = address.lastIndexOf('@', authorityEndIndex - 1);
+		if (userInfoEndIndex < authorityIndex) {
+			return address;
+		}
+		return address.substring(0, authorityIndex) + address.substring(userInfoEndIndex + 1);
+	}
+
+	/**
+	 * Adds the results of a completed step.
+	 *
+	 * @param stepName the name of the step
+	 * @param results the results of the step
+	 */
+	@SuppressWarnings("unchecked")
+	public void addStepResults(String stepName, BenchmarkResults results) {
+		steps.put(stepName, results.toJson());
+	}
+
+	@SuppressWarnings("unchecked")
+	private JSONObject toJson() {
+		JSONObject json = new JSONObject();
+		json.put("parameters", parameters);
+		json.put("seed", seed);
+		json.put("steps", steps);
+		return json;
+	}
+
+	/**
+	 * Writes the parameters and the results of all added steps to the given
+	 * file, which is replaced if it exists.
+	 *
+	 * @param resultsFile the file to write
+	 * @param format the format of the file
+	 * @throws BenchmarkException if the file could not be written
+	 */
+	public void write(File resultsFile, Format format) throws BenchmarkException {
+		Object json = withoutNonFiniteValues(toJson());
+		PrintWriter writer;
+		try {
+			writer = new PrintWriter(new OutputStreamWriter(
+					new FileOutputStream(resultsFile), "UTF-8"));
+		} catch (IOException e) {
+			throw new BenchmarkException(e);
+		}
+		try {
+			if (format == Format.JSON) {
+				writer.println(((JSONObject) json).toJSONString());
+			} else {
+				Map<String, Object> values = new LinkedHashMap<String, Object>();
+				flatten("", json, values);
+				writer.println(CSV_HEADER);
+				for (Map.Entry<String, Object> entry : values.entrySet()) {
+					writer.append(entry.getKey()).append(',')
+							.append(toCsvValue(entry.getValue())).println();
+				}
+			}
+		} finally {
+			writer.close();
+		}
+		if (writer.checkError()) {
+			throw new BenchmarkException("Could not write results file " + resultsFile);
+		}
+	}
+
+	/**
+	 * Returns a copy of the given value where every {@code NaN} or infinite
+	 * number, such as the rate of a step without operations, is replaced by
+	 * {@code null}, because JSON cannot represent them.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Object withoutNonFiniteValues(Object value) {
+		if (value instanceof Map<?, ?>) {
+			JSONObject json = new JSONObject();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				json.put(entry.getKey(), withoutNonFiniteValues(entry.getValue()));
+			}
+			return json;
+		} else if (value instanceof List<?>) {
+			JSONArray json = new JSONArray();
+			for (Object element : (List<?>) value) {
+				json.add(withoutNonFiniteValues(element));
+			}
+			return json;
+		} else if ((value instanceof Double) || (value instanceof Float)) {
+			double number = ((Number) value).doubleValue();
+			return (Double.isNaN(number) || Double.isInfinite(number)) ? null : value;
+		}
+		return value;
+	}
+
+	/**
+	 * Adds each value in the given JSON to the given map by its key. The keys
+	 * of each object are sorted, so that rows are in the same order in every file.
+	 */
+	private static void flatten(String key, Object value, Map<String, Object> values) {
+		String prefix = key.isEmpty() ? "" : (key + '.');
+		if (value instanceof Map<?, ?>) {
+			Map<String, Object> sorted = new TreeMap<String, Object>();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				sorted.put(entry.getKey().toString(), entry.getValue());
+			}
+			for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+				flatten(prefix + entry.getKey(), entry.getValue(), values);
+			}
+		} else if (value instanceof List<?>) {
+			List<?> list = (List<?>) value;
+			for (int i = 0; i < list.size(); ++i) {
+				flatten(prefix + i, list.get(i), values);
+			}
+		} else {
+			values.put(key, value);
+		}
+	}
+
+	/**
+	 * Reads a file written by {@link #write(File, Format)} in either format.
+	 *
+	 * @param resultsFile the file to read
+	 * @return each value in the file by the key of its CSV row, in the order
+	 *         of the CSV rows, where {@code null} values are empty
+	 * @throws BenchmarkException if the file could not be read or parsed
+	 */
+	static Map<String, String> read(File resultsFile) throws BenchmarkException {
+		Map<String, String> values = new LinkedHashMap<String, String>();
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(resultsFile), "UTF-8"));
+			try {
+				// A JSON file is a single object.
+				reader.mark(1);
+				boolean json = (reader.read() == '{');
+				reader.reset();
+				if (!json) {
+					if (!CSV_HEADER.equals(reader.readLine())) {
+						throw new BenchmarkException("Not a results file: " + resultsFile);
+					}
+					readCsv(reader, values);
+				} else {
+					Map<String, Object> jsonValues = new LinkedHashMap<String, Object>();
+					flatten("", new JSONParser().parse(reader), jsonValues);
+					for (Map.Entry<String, Object> entry : jsonValues.entrySet()) {
+						Object value = entry.getValue();
+						values.put(entry.getKey(), (value == null) ? "" : value.toString());
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			throw new BenchmarkException(e);
+		} catch (ParseException e) {
+			throw new BenchmarkException("Could not parse results file " + resultsFile + ": " + e);
+		}
+		return values;
+	}
+
+	private static void readCsv(BufferedReader reader, Map<String, String> values)
+			throws IOException, BenchmarkException {
+		String line;
+		while ((line = reader.readLine()) != null) {
+			int separator = line.indexOf(',');
+			if (separator < 0) {
+				throw new BenchmarkException("Malformed results row: " + line);
+			}
+			String value = line.substring(separator + 1);
+			if (value.startsWith("\"")) {
+				value = value.substring(1, value.length() - 1).replace("\"\"", "\"");
+			}
+			values.put(line.substring(0, separator), value);
+		}
+	}
+
+	private static String toCsvValue(Object value) {
+		if (value == null) {
+			return "";
+		}
+		String csvValue = value.toString();
+		if ((csvValue.indexOf(',') >= 0) || (csvValue.indexOf('"') >= 0) ||
+				(csvValue.indexOf('\n') >= 0)) {
+			return '"' + csvValue.replace("\"", "\"\"") + '"';
+		}
+		return csvValue;
+	}
+}
@@ -0,0 +1,35 @@
+package co.adhoclabs.ironcushion;
+
+import java.util.List;
+
+/**
+ * The statistics of every connection that performed a step, recorded
+ * separately during and after the {@link Warmup} of each connection.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class StepStatistics<T extends AbstractConnectionStatistics> {
+	/**
+	 * The statistics of each connection during its warm-up.
+	 */
+	public final List<T> warmupConnectionStatistics;
+	/**
+	 * The statistics of each connection after its warm-up.
+	 */
+	public final List<T> measuredConnectionStatistics;
+
+	public StepStatistics(List<T> warmupConnectionStatistics, List<T> measuredConnectionStatistics) {
+		this.warmupConnectionStatistics = warmupConnectionStatistics;
+		this.measuredConnectionStatistics = measuredConnectionStatistics;
+	}
+
+	/**
+	 * @param connectionNum the number of the connection
+	 * @param operationType the index of the type of operation
+	 * @return the number of responses to the connection during and after its warm-up
+	 */
+	public long getResponses(int connectionNum, int operationType) {
+		return warmupConnectionStatistics.get(connectionNum).getResponseCounts().getResponses(operationType) +
+				measuredConnectionStatistics.get(connectionNum).getResponseCounts().getResponses(operationType);
+	}
+}
@@ -1,16 +1,17 @@
 package co.adhoclabs.ironcushion;
 
 /**
- * A timer for operations.
+ * A timer for operations. Elapsed time is accumulated in nanoseconds so that
+ * intervals shorter than a millisecond are not lost to truncation.
  * 
  * @author Michael Parker (michael.g.parker@gmail.com)
  */
 public class Timer {
-	private long totalTimeMillis;
+	private long totalTimeNanos;
 	private long startTime;
 	
 	public Timer() {
-		totalTimeMillis = 0;
+		totalTimeNanos = 0;
 		startTime = 0;
 	}
 
@@ -19,12 +20,10 @@ public class Timer {
 	}
 	
 	public void stop() {
-		long elapsedTime = System.nanoTime() - startTime;
-		// Convert to milliseconds.
-		totalTimeMillis += (elapsedTime / 1000000);
+		totalTimeNanos += (System.nanoTime() - startTime);
 	}
 	
-	public long getTotalTimeMillis() {
-		return totalTimeMillis;
+	public long getTotalTimeNanos() {
+		return totalTimeNanos;
 	}
 }
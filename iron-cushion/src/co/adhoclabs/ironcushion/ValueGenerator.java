@@ -2,6 +2,8 @@ package co.adhoclabs.ironcushion;
 
 import java.util.Random;
 
+import org.jboss.netty.buffer.ChannelBuffer;
+
 /**
  * Generates values for documents created by a {@link DocumentSchema}.
  * 
@@ -62,6 +64,16 @@ public class ValueGenerator {
 		this(words, rng.nextInt(), rng.nextInt(), rng.nextInt(), rng.nextInt(), rng.nextInt());
 	}
 
+	/**
+	 * Returns a generator in the same state as this one, which generates the
+	 * same values.
+	 * 
+	 * @return the copy of this generator
+	 */
+	public ValueGenerator copy() {
+		return new ValueGenerator(words, state1, state2, state3, state4, state5);
+	}
+
 	private int next(int bits) {
 		int t = (state1 ^ (state1 >> 7));
 		state1 = state2;
@@ -115,6 +127,13 @@ public class ValueGenerator {
 		return next(24) / ((float) (1 << 24));
 	}
 
+	/**
+	 * @return the next {@code double} value between {@code 0} and {@code 1}
+	 */
+	public double nextDouble() {
+		return ((((long) next(26)) << 27) + next(27)) / ((double) (1L << 53));
+	}
+
 	/**
 	 * @return the next {@link String}, which consists of anywhere from 1 to 5
 	 *         words, inclusive
@@ -131,6 +150,28 @@ public class ValueGenerator {
 		return wordJoiner.toString();
 	}
 
+	/**
+	 * Writes the next string to the given buffer as UTF-8, without its quotes.
+	 * The string is the same as would be returned by {@link #nextString()}.
+	 * 
+	 * @param buffer the buffer to write the string to
+	 */
+	public void writeString(ChannelBuffer buffer) {
+		int numWords = 1 + nextInt(4);
+		for (int i = 0; i < numWords; ++i) {
+			int wordIndex = nextInt(NUM_WORDS);
+			String word = words[wordIndex];
+			if (i != 0) {
+				buffer.writeByte(' ');
+			}
+			// All characters in the alphabet are ASCII, and need no escaping in JSON.
+			int length = word.length();
+			for (int j = 0; j < length; ++j) {
+				buffer.writeByte(word.charAt(j));
+			}
+		}
+	}
+
 	private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789!?";
 	private static final int ALPHABET_SIZE = ALPHABET.length();
 	private static final int NUM_WORDS = 4096;
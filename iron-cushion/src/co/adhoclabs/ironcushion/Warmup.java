@@ -0,0 +1,46 @@
+package co.adhoclabs.ironcushion;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The warm-up of each connection at the start of a step, which pays for JIT
+ * compilation of the benchmark, cold file caches of the database, and TCP slow
+ * start. Its operations are recorded to separate statistics from those that
+ * follow, so that they are reported separately and excluded from the measured
+ * results. The warm-up of a connection ends once it has both completed the
+ * given number of operations and run for the given time.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class Warmup {
+	private final int numOperations;
+	private final long durationNanos;
+
+	/**
+	 * @param numOperations the number of operations each connection completes during warm-up
+	 * @param durationSecs the number of seconds each connection runs during warm-up
+	 */
+	public Warmup(int numOperations, int durationSecs) {
+		this.numOperations = numOperations;
+		this.durationNanos = TimeUnit.SECONDS.toNanos(durationSecs);
+	}
+
+	/**
+	 * @return {@code true} if connections warm up before being measured
+	 */
+	public boolean isEnabled() {
+		return (numOperations > 0) || (durationNanos > 0);
+	}
+
+	/**
+	 * Returns whether the warm-up of a connection has ended.
+	 *
+	 * @param startTime the time the connection started the step, from {@link System#nanoTime()}
+	 * @param numOperationsCompleted the number of operations the connection has completed
+	 * @return {@code true} if the warm-up has ended
+	 */
+	public boolean isOver(long startTime, int numOperationsCompleted) {
+		return (numOperationsCompleted >= numOperations) &&
+				((System.nanoTime() - startTime) >= durationNanos);
+	}
+}
@@ -0,0 +1,194 @@
+package co.adhoclabs.ironcushion;
+
+/**
+ * Welch's t-test of whether two samples with possibly unequal variances have
+ * different means, and the Student's t-distribution that it and the confidence
+ * intervals of each sample rely on.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class WelchTTest {
+	private static final int MAX_ITERATIONS = 200;
+	private static final double EPSILON = 3.0e-14;
+	private static final double MIN_DOUBLE = 1.0e-300;
+
+	private static final double[] LANCZOS_COEFFICIENTS = {
+		76.18009172947146, -86.50532032941677, 24.01409824083091,
+		-1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5
+	};
+
+	private WelchTTest() {
+	}
+
+	/**
+	 * The mean, variance, and size of a sample.
+	 */
+	public static final class Sample {
+		public final int size;
+		public final double mean;
+		/**
+		 * The unbiased variance of the sample, or {@code 0} if it has one value.
+		 */
+		public final double variance;
+
+		public Sample(double[] values) {
+			this.size = values.length;
+			double sum = 0;
+			for (double value : values) {
+				sum += value;
+			}
+			this.mean = sum / size;
+			double sumOfSquares = 0;
+			for (double value : values) {
+				double difference = value - mean;
+				sumOfSquares += difference * difference;
+			}
+			this.variance = (size > 1) ? (sumOfSquares / (size - 1)) : 0;
+		}
+
+		/**
+		 * Returns half the width of the confidence interval of the mean, or
+		 * {@code NaN} if the sample has only one value.
+		 *
+		 * @param significanceLevel the significance level, such as {@code 0.05}
+		 *        for a 95% confidence interval
+		 * @return half the width of the confidence interval
+		 */
+		public double confidenceInterval(double significanceLevel) {
+			if (size < 2) {
+				return Double.NaN;
+			}
+			return criticalValue(significanceLevel, size - 1) * Math.sqrt(variance / size);
+		}
+	}
+
+	/**
+	 * Returns the two-sided p-value of the hypothesis that the given samples
+	 * have equal means, or {@code NaN} if either sample has only one value.
+	 *
+	 * @param first the first sample
+	 * @param second the second sample
+	 * @return the p-value
+	 */
+	public static double pValue(Sample first, Sample second) {
+		if ((first.size < 2) || (second.size < 2)) {
+			return Double.NaN;
+		}
+		double firstVariance = first.variance / first.size;
+		double secondVariance = second.variance / second.size;
+		double variance = firstVariance + secondVariance;
+		if (variance == 0) {
+			// Every value in each sample is the same.
+			return (first.mean == second.mean) ? 1.0 : 0.0;
+		}
+		double t = (first.mean - second.mean) / Math.sqrt(variance);
+		// The Welch-Satterthwaite approximation of the degrees of freedom.
+		double degreesOfFreedom = (variance * variance) / (
+				((firstVariance * firstVariance) / (first.size - 1)) +
+				((secondVariance * secondVariance) / (second.size - 1)));
+		return twoSidedPValue(t, degreesOfFreedom);
+	}
+
+	/**
+	 * Returns the probability that the magnitude of a value of Student's
+	 * t-distribution is at least that of the given value.
+	 */
+	static double twoSidedPValue(double t, double degreesOfFreedom) {
+		return regularizedIncompleteBeta(degreesOfFreedom / (degreesOfFreedom + (t * t)),
+				degreesOfFreedom / 2.0, 0.5);
+	}
+
+	/**
+	 * Returns the value of Student's t-distribution whose two-sided p-value
+	 * is the given significance level.
+	 */
+	static double criticalValue(double significanceLevel, double degreesOfFreedom) {
+		double low = 0;
+		double high = 1;
+		while (twoSidedPValue(high, degreesOfFreedom) > significanceLevel) {
+			low = high;
+			high *= 2;
+		}
+		// The p-value decreases as the value increases.
+		for (int i = 0; i < MAX_ITERATIONS; ++i) {
+			double middle = (low + high) / 2;
+			if (twoSidedPValue(middle, degreesOfFreedom) > significanceLevel) {
+				low = middle;
+			} else {
+				high = middle;
+			}
+		}
+		return (low + high) / 2;
+	}
+
+	private static double logGamma(double x) {
+		double y = x;
+		double tmp = x + 5.5;
+		tmp -= (x + 0.5) * Math.log(tmp);
+		double series = 1.000000000190015;
+		for (double coefficient : LANCZOS_COEFFICIENTS) {
+			series += coefficient / ++y;
+		}
+		return -tmp + Math.log(2.5066282746310005 * series / x);
+	}
+
+	private static double regularizedIncompleteBeta(double x, double a, double b) {
+		if (x <= 0) {
+			return 0;
+		} else if (x >= 1) {
+			return 1;
+		}
+		double front = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b) +
+				(a * Math.log(x)) + (b * Math.log(1 - x)));
+		// The continued fraction converges quickly only on this side of its mean.
+		if (x < ((a + 1) / (a + b + 2))) {
+			return front * betaContinuedFraction(x, a, b) / a;
+		}
+		return 1 - (front * betaContinuedFraction(1 - x, b, a) / b);
+	}
+
+	/**
+	 * Evaluates the continued fraction of the incomplete beta function by the
+	 * modified Lentz's method.
+	 */
+	private static double betaContinuedFraction(double x, double a, double b) {
+		double c = 1;
+		double d = 1 - ((a + b) * x / (a + 1));
+		if (Math.abs(d) < MIN_DOUBLE) {
+			d = MIN_DOUBLE;
+		}
+		d = 1 / d;
+		double result = d;
+		for (int m = 1; m <= MAX_ITERATIONS; ++m) {
+			int m2 = 2 * m;
+			double numerator = m * (b - m) * x / ((a + m2 - 1) * (a + m2));
+			d = 1 + (numerator * d);
+			if (Math.abs(d) < MIN_DOUBLE) {
+				d = MIN_DOUBLE;
+			}
+			c = 1 + (numerator / c);
+			if (Math.abs(c) < MIN_DOUBLE) {
+				c = MIN_DOUBLE;
+			}
+			d = 1 / d;
+			result *= d * c;
+
+			numerator = -(a + m) * (a + b + m) * x / ((a + m2) * (a + m2 + 1));
+			d = 1 + (numerator * d);
+			if (Math.abs(d) < MIN_DOUBLE) {
+				d = MIN_DOUBLE;
+			}
+			c = 1 + (numerator / c);
+			if (Math.abs(c) < MIN_DOUBLE) {
+				c = MIN_DOUBLE;
+			}
+			d = 1 / d;
+			double delta = d * c;
+			result *= delta;
+			if (Math.abs(delta - 1) < EPSILON) {
+				break;
+			}
+		}
+		return result;
+	}
+}
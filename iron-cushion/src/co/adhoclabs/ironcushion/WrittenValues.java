@@ -0,0 +1,152 @@
+package co.adhoclabs.ironcushion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.util.CharsetUtil;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * A sample of the values of top-level fields in documents that were bulk
+ * inserted, so that queries use keys that exist in the database.
+ *
+ * <p>The documents are regenerated from copies of the {@link ValueGenerator}
+ * instances that generated them. Each document is written by the
+ * {@link DocumentSerializer} and then parsed, so that every value is what was
+ * written, such as a float with at most eight digits after the decimal point.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class WrittenValues {
+	/**
+	 * The most documents regenerated across all connections.
+	 */
+	private static final int MAX_SAMPLED_DOCUMENTS = 10000;
+	/**
+	 * A string that collates after any string with the same prefix, as
+	 * recommended by CouchDB for prefix queries.
+	 */
+	private static final String PREFIX_END = "\ufff0";
+
+	/**
+	 * An inclusive range of values of a field.
+	 */
+	public static final class Range {
+		public final Object start;
+		public final Object end;
+
+		private Range(Object start, Object end) {
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	private final DocumentSchema schema;
+	private final List<String> fields;
+	/**
+	 * The sampled values of each field, in the order of {@link #fields}.
+	 */
+	private final List<Object[]> values;
+
+	private WrittenValues(DocumentSchema schema, List<String> fields, List<Object[]> values) {
+		this.schema = schema;
+		this.fields = fields;
+		this.values = values;
+	}
+
+	/**
+	 * Returns a value of the given field from a sampled document, or a new value
+	 * for the field if no documents were bulk inserted.
+	 *
+	 * @param field the name of a field in {@link DocumentSchema#getScalarFieldNames()}
+	 * @param valueGenerator the generator choosing the document
+	 * @return the value of the field
+	 */
+	public Object getValue(String field, ValueGenerator valueGenerator) {
+		int fieldIndex = fields.indexOf(field);
+		Object[] fieldValues = (fieldIndex >= 0) ? values.get(fieldIndex) : null;
+		if ((fieldValues == null) || (fieldValues.length == 0)) {
+			return schema.getNewValue(field, valueGenerator);
+		}
+		return fieldValues[valueGenerator.nextInt(fieldValues.length)];
+	}
+
+	/**
+	 * Returns a range of values of the given field from sampled documents. A
+	 * range of strings contains those starting with the first word of a
+	 * string, a range of booleans contains both, and a range of numbers is
+	 * between two numbers.
+	 *
+	 * @param field the name of a field in {@link DocumentSchema#getScalarFieldNames()}
+	 * @param valueGenerator the generator choosing the documents
+	 * @return the range
+	 */
+	public Range getRange(String field, ValueGenerator valueGenerator) {
+		Object start = getValue(field, valueGenerator);
+		if (start instanceof String) {
+			String value = (String) start;
+			int wordEndIndex = value.indexOf(' ');
+			String prefix = (wordEndIndex < 0) ? value : value.substring(0, wordEndIndex);
+			return new Range(prefix, prefix + PREFIX_END);
+		} else if (start instanceof Boolean) {
+			return new Range(Boolean.FALSE, Boolean.TRUE);
+		}
+		Object end = getValue(field, valueGenerator);
+		if (((Number) start).doubleValue() > ((Number) end).doubleValue()) {
+			return new Range(end, start);
+		}
+		return new Range(start, end);
+	}
+
+	/**
+	 * Regenerates a sample of the documents bulk inserted by each connection.
+	 *
+	 * @param schema the schema of the documents
+	 * @param allValueGenerators for each connection, a copy of the generator of
+	 *        its bulk inserted documents in its state before the first
+	 * @param allBulkInsertOperations for each connection, the number of its bulk
+	 *        insert operations that were answered
+	 * @param numDocumentsPerBulkInsert the number of documents in each bulk insert
+	 * @return the sampled values
+	 * @throws BenchmarkException if a regenerated document cannot be parsed
+	 */
+	public static WrittenValues create(DocumentSchema schema, List<ValueGenerator> allValueGenerators,
+			int[] allBulkInsertOperations, int numDocumentsPerBulkInsert) throws BenchmarkException {
+		List<String> fields = schema.getScalarFieldNames();
+		int maxDocumentsPerConnection = Math.max(1, MAX_SAMPLED_DOCUMENTS / allValueGenerators.size());
+		List<JSONObject> documents = new ArrayList<JSONObject>();
+		DocumentSerializer serializer = schema.compileSerializer();
+		ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+		JSONParser parser = new JSONParser();
+		for (int i = 0; i < allValueGenerators.size(); ++i) {
+			// Documents are generated in order, and so the first are regenerated.
+			long numDocuments = Math.min(maxDocumentsPerConnection,
+					(long) allBulkInsertOperations[i] * numDocumentsPerBulkInsert);
+			ValueGenerator valueGenerator = allValueGenerators.get(i).copy();
+			for (int j = 0; j < numDocuments; ++j) {
+				buffer.clear();
+				// The identifier is not sampled, and does not affect the values.
+				serializer.write(buffer, valueGenerator, 0);
+				try {
+					documents.add((JSONObject) parser.parse(buffer.toString(CharsetUtil.UTF_8)));
+				} catch (ParseException e) {
+					throw new BenchmarkException(e);
+				}
+			}
+		}
+
+		List<Object[]> values = new ArrayList<Object[]>(fields.size());
+		for (String field : fields) {
+			Object[] fieldValues = new Object[documents.size()];
+			for (int i = 0; i < fieldValues.length; ++i) {
+				fieldValues[i] = documents.get(i).get(field);
+			}
+			values.add(fieldValues);
+		}
+		return new WrittenValues(schema, fields, values);
+	}
+}
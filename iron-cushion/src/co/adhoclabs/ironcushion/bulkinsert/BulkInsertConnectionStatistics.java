@@ -1,6 +1,9 @@
 package co.adhoclabs.ironcushion.bulkinsert;
 
 import co.adhoclabs.ironcushion.AbstractConnectionStatistics;
+import co.adhoclabs.ironcushion.ErrorCounts;
+import co.adhoclabs.ironcushion.IntervalStatistics;
+import co.adhoclabs.ironcushion.LatencyHistogram;
 import co.adhoclabs.ironcushion.Timer;
 
 /**
@@ -11,11 +14,33 @@ import co.adhoclabs.ironcushion.Timer;
 public class BulkInsertConnectionStatistics extends AbstractConnectionStatistics {
 	private final Timer remoteProcessingTimer;
 	private final Timer receiveDataTimer;
+	private final LatencyHistogram bulkInsertLatencies;
+	private long producerWaits;
+	private long producerWaitTimeNanos;
+	private long insertedDocuments;
+	private final ErrorCounts documentErrors;
+
+	/**
+	 * The names of the types of operations whose latencies are recorded.
+	 */
+	public static final String[] OPERATION_NAMES = { "bulkInsert" };
 
 	public BulkInsertConnectionStatistics() {
-		super();
+		this(new IntervalStatistics(OPERATION_NAMES.length));
+	}
+
+	/**
+	 * @param intervalStatistics the interval statistics to also record to
+	 */
+	public BulkInsertConnectionStatistics(IntervalStatistics intervalStatistics) {
+		super(intervalStatistics, OPERATION_NAMES.length);
 		remoteProcessingTimer = new Timer();
 		receiveDataTimer = new Timer();
+		bulkInsertLatencies = new LatencyHistogram();
+		producerWaits = 0;
+		producerWaitTimeNanos = 0;
+		insertedDocuments = 0;
+		documentErrors = new ErrorCounts();
 	}
 	
 	/**
@@ -37,28 +62,26 @@ public class BulkInsertConnectionStatistics extends AbstractConnectionStatistics
 		return runningTimer;
 	}
 	
-	/**
-	 * Stops whichever timer is running.
-	 */
 	@Override
 	public void stop() {
 		if (runningTimer != null) {
 			switch (runningTimer) {
 			case LOCAL_PROCESSING:
 				localProcessingTimer.stop();
-				return;
+				break;
 			case SEND_DATA:
 				sendDataTimer.stop();
-				return;
+				break;
 			case REMOTE_PROCESSING:
 				remoteProcessingTimer.stop();
-				return;
+				break;
 			case RECEIVE_DATA:
 				receiveDataTimer.stop();
-				return;
+				break;
 			default:
 				break;
 			}
+			runningTimer = null;
 		}
 	}
 	
@@ -95,10 +118,10 @@ public class BulkInsertConnectionStatistics extends AbstractConnectionStatistics
 	}
 	
 	/**
-	 * @return the number of milliseconds spent on remote processing
+	 * @return the number of nanoseconds spent on remote processing
 	 */
-	public long getRemoteProcessingTimeMillis() {
-		return remoteProcessingTimer.getTotalTimeMillis();
+	public long getRemoteProcessingTimeNanos() {
+		return remoteProcessingTimer.getTotalTimeNanos();
 	}
 	
 	/**
@@ -114,17 +137,81 @@ public class BulkInsertConnectionStatistics extends AbstractConnectionStatistics
 	}
 	
 	/**
-	 * @return the number of milliseconds spent on receiving data
+	 * @return the number of nanoseconds spent on receiving data
+	 */
+	public long getReceivedDataTimeNanos() {
+		return receiveDataTimer.getTotalTimeNanos();
+	}
+	
+	/**
+	 * Records the latency of a successful bulk insert, from sending its request until
+	 * receiving its complete response.
+	 * 
+	 * @param nanos the latency in nanoseconds
+	 */
+	public void recordBulkInsertLatency(long nanos) {
+		bulkInsertLatencies.record(nanos);
+		intervalStatistics.recordLatency(0, nanos);
+	}
+
+	/**
+	 * @return the latencies of all bulk inserts
+	 */
+	public LatencyHistogram getBulkInsertLatencies() {
+		return bulkInsertLatencies;
+	}
+	
+	/**
+	 * Records that a document of a successful bulk insert was inserted.
+	 */
+	public void insertedDocument() {
+		insertedDocuments++;
+	}
+
+	/**
+	 * @return the number of documents inserted
+	 */
+	public long getInsertedDocuments() {
+		return insertedDocuments;
+	}
+
+	/**
+	 * @return the errors of documents that a successful bulk insert did not insert
+	 */
+	public ErrorCounts getDocumentErrors() {
+		return documentErrors;
+	}
+
+	/**
+	 * Records that a bulk insert waited for its buffer to be generated by a
+	 * {@link BulkInsertProducerPool}.
+	 * 
+	 * @param nanos the time waited in nanoseconds
+	 */
+	public void waitedForProducer(long nanos) {
+		producerWaits++;
+		producerWaitTimeNanos += nanos;
+	}
+
+	/**
+	 * @return the number of bulk inserts that waited for their buffers to be generated
+	 */
+	public long getProducerWaits() {
+		return producerWaits;
+	}
+
+	/**
+	 * @return the total time waited for buffers to be generated in nanoseconds
 	 */
-	public long getReceivedDataTimeMillis() {
-		return receiveDataTimer.getTotalTimeMillis();
+	public long getProducerWaitTimeNanos() {
+		return producerWaitTimeNanos;
 	}
 	
 	@Override
-	public long getTotalTimeMillis() {
-		return (localProcessingTimer.getTotalTimeMillis() +
-				sendDataTimer.getTotalTimeMillis() +
-				remoteProcessingTimer.getTotalTimeMillis() +
-				receiveDataTimer.getTotalTimeMillis());
+	public long getTotalTimeNanos() {
+		return (localProcessingTimer.getTotalTimeNanos() +
+				sendDataTimer.getTotalTimeNanos() +
+				remoteProcessingTimer.getTotalTimeNanos() +
+				receiveDataTimer.getTotalTimeNanos());
 	}
 }
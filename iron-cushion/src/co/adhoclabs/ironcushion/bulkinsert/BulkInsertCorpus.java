@@ -0,0 +1,238 @@
+package co.adhoclabs.ironcushion.bulkinsert;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.util.CharsetUtil;
+
+import co.adhoclabs.ironcushion.BenchmarkException;
+import co.adhoclabs.ironcushion.DocumentSchema;
+
+/**
+ * A file containing the bulk insert buffers of every connection, so that runs
+ * can replay the same bytes without generating them again.
+ *
+ * The file begins with a header containing the number of connections, bulk
+ * insert operations per connection, and documents per bulk insert operation,
+ * and the seed and a hash of the schema that the documents were generated from.
+ * A file is only replayed if all of these match the run, so that its documents
+ * are those that the run would generate. It is followed by an index of the
+ * offset and length of each buffer, and then by the buffers. When replayed, the
+ * file is memory mapped, and each buffer is a slice of the mapping, so that it
+ * is neither copied into the heap nor limited by its size.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class BulkInsertCorpus {
+	private static final byte[] MAGIC = "ICCORPUS".getBytes(CharsetUtil.US_ASCII);
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = MAGIC.length + (5 * 4) + 8;
+	/**
+	 * The size of the offset and length of each buffer in the index.
+	 */
+	private static final int INDEX_ENTRY_SIZE = 8 + 4;
+	/**
+	 * The maximum size of a single mapping of the file.
+	 */
+	private static final long MAX_MAPPING_SIZE = Integer.MAX_VALUE;
+
+	private BulkInsertCorpus() {
+	}
+
+	/**
+	 * Returns the first 8 bytes of the SHA-256 digest of the given schema.
+	 */
+	private static long getSchemaHash(DocumentSchema schema) throws BenchmarkException {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] hash = digest.digest(schema.toString().getBytes(CharsetUtil.UTF_8));
+			return ByteBuffer.wrap(hash).getLong();
+		} catch (NoSuchAlgorithmException e) {
+			throw new BenchmarkException(e);
+		}
+	}
+
+	private static long getIndexSize(int numConnections, int numInsertOperations) {
+		return ((long) numConnections) * numInsertOperations * INDEX_ENTRY_SIZE;
+	}
+
+	/**
+	 * Writes the buffers of the given generators to the given file, which is
+	 * replaced if it exists.
+	 *
+	 * @param corpusFile the file to write
+	 * @param seed the seed that the generators were created from
+	 * @param schema the schema of the generated documents
+	 * @param allBulkInsertDocumentGenerators the generators of each connection
+	 * @param numDocumentsPerInsert the number of documents in each buffer
+	 * @throws BenchmarkException if the file could not be written
+	 */
+	public static void write(File corpusFile, int seed, DocumentSchema schema,
+			List<BulkInsertDocumentGenerator> allBulkInsertDocumentGenerators,
+			int numDocumentsPerInsert) throws BenchmarkException {
+		int numConnections = allBulkInsertDocumentGenerators.size();
+		int numInsertOperations = (numConnections > 0) ?
+				allBulkInsertDocumentGenerators.get(0).size() : 0;
+		long indexSize = getIndexSize(numConnections, numInsertOperations);
+		if (indexSize > MAX_MAPPING_SIZE) {
+			throw new BenchmarkException("Too many bulk insert operations for a corpus file");
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.put(MAGIC);
+		header.putInt(VERSION);
+		header.putInt(numConnections);
+		header.putInt(numInsertOperations);
+		header.putInt(numDocumentsPerInsert);
+		header.putInt(seed);
+		header.putLong(getSchemaHash(schema));
+		header.flip();
+		ByteBuffer index = ByteBuffer.allocate((int) indexSize);
+
+		try {
+			RandomAccessFile file = new RandomAccessFile(corpusFile, "rw");
+			try {
+				file.setLength(0);
+				FileChannel fileChannel = file.getChannel();
+				long offset = HEADER_SIZE + indexSize;
+				for (BulkInsertDocumentGenerator generator : allBulkInsertDocumentGenerators) {
+					for (int i = 0; i < numInsertOperations; ++i) {
+						ChannelBuffer buffer = generator.getBuffer(i);
+						int length = buffer.readableBytes();
+						index.putLong(offset);
+						index.putInt(length);
+						writeFully(fileChannel, buffer.toByteBuffer(), offset);
+						offset += length;
+					}
+				}
+				index.flip();
+				writeFully(fileChannel, header, 0);
+				writeFully(fileChannel, index, HEADER_SIZE);
+			} finally {
+				file.close();
+			}
+		} catch (IOException e) {
+			throw new BenchmarkException(e);
+		}
+	}
+
+	private static void writeFully(FileChannel fileChannel, ByteBuffer buffer, long position)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			position += fileChannel.write(buffer, position);
+		}
+	}
+
+	/**
+	 * Maps the given file, and returns a generator replaying the buffers of
+	 * each connection.
+	 *
+	 * @param corpusFile the file to map
+	 * @param seed the expected seed
+	 * @param schema the expected schema of the documents
+	 * @param numConnections the expected number of connections
+	 * @param numInsertOperations the expected number of bulk insert operations per connection
+	 * @param numDocumentsPerInsert the expected number of documents in each buffer
+	 * @return the generator of each connection
+	 * @throws BenchmarkException if the file could not be read or was written
+	 *             for a different number of connections or operations, seed,
+	 *             or schema
+	 */
+	public static List<BulkInsertDocumentGenerator> map(File corpusFile, int seed, DocumentSchema schema,
+			int numConnections, int numInsertOperations, int numDocumentsPerInsert)
+			throws BenchmarkException {
+		try {
+			RandomAccessFile file = new RandomAccessFile(corpusFile, "r");
+			try {
+				FileChannel fileChannel = file.getChannel();
+				long fileSize = fileChannel.size();
+				if (fileSize < HEADER_SIZE) {
+					throw new BenchmarkException("Not a corpus file: " + corpusFile);
+				}
+				ByteBuffer header = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+				byte[] magic = new byte[MAGIC.length];
+				header.get(magic);
+				if (!Arrays.equals(magic, MAGIC)) {
+					throw new BenchmarkException("Not a corpus file: " + corpusFile);
+				}
+				if (header.getInt() != VERSION) {
+					throw new BenchmarkException("Corpus file " + corpusFile +
+							" was written by a different version, so delete it to write it again");
+				}
+				if ((header.getInt() != numConnections) ||
+						(header.getInt() != numInsertOperations) ||
+						(header.getInt() != numDocumentsPerInsert)) {
+					throw new BenchmarkException("Corpus file " + corpusFile +
+							" was written for different --num_connections, --num_bulk_insert_operations," +
+							" or --num_documents_per_bulk_insert values");
+				}
+				int corpusSeed = header.getInt();
+				if (corpusSeed != seed) {
+					throw new BenchmarkException("Corpus file " + corpusFile +
+							" was written with --seed=" + corpusSeed + ", so provide that value or delete it");
+				}
+				if (header.getLong() != getSchemaHash(schema)) {
+					throw new BenchmarkException("Corpus file " + corpusFile +
+							" was written for a different document schema, so delete it to write it again");
+				}
+
+				long indexSize = getIndexSize(numConnections, numInsertOperations);
+				if (fileSize < HEADER_SIZE + indexSize) {
+					throw new BenchmarkException("Corrupt corpus file index");
+				}
+				ByteBuffer index = fileChannel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, indexSize);
+				return mapBuffers(fileChannel, fileSize, index, numConnections, numInsertOperations);
+			} finally {
+				// Mappings remain valid after the file is closed.
+				file.close();
+			}
+		} catch (IOException e) {
+			throw new BenchmarkException(e);
+		}
+	}
+
+	private static List<BulkInsertDocumentGenerator> mapBuffers(FileChannel fileChannel,
+			long fileSize, ByteBuffer index, int numConnections, int numInsertOperations)
+			throws IOException, BenchmarkException {
+		// Buffers are written in order, so consecutive buffers share a mapping
+		// until the mapping would exceed its maximum size.
+		MappedByteBuffer mapping = null;
+		long mappingOffset = 0;
+		long mappingEnd = 0;
+
+		List<BulkInsertDocumentGenerator> allBulkInsertDocumentGenerators =
+				new ArrayList<BulkInsertDocumentGenerator>(numConnections);
+		for (int i = 0; i < numConnections; ++i) {
+			ByteBuffer[] insertBuffers = new ByteBuffer[numInsertOperations];
+			for (int j = 0; j < numInsertOperations; ++j) {
+				long offset = index.getLong();
+				int length = index.getInt();
+				if ((offset < 0) || (length < 0) || (offset + length > fileSize)) {
+					throw new BenchmarkException("Corrupt corpus file index");
+				}
+				if ((mapping == null) || (offset < mappingOffset) || (offset + length > mappingEnd)) {
+					mappingOffset = offset;
+					mappingEnd = Math.min(fileSize, offset + MAX_MAPPING_SIZE);
+					mapping = fileChannel.map(FileChannel.MapMode.READ_ONLY,
+							mappingOffset, mappingEnd - mappingOffset);
+				}
+				ByteBuffer insertBuffer = mapping.duplicate();
+				insertBuffer.position((int) (offset - mappingOffset));
+				insertBuffer.limit((int) (offset - mappingOffset) + length);
+				insertBuffers[j] = insertBuffer.slice();
+			}
+			allBulkInsertDocumentGenerators.add(BulkInsertDocumentGenerator.mapped(insertBuffers));
+		}
+		return allBulkInsertDocumentGenerators;
+	}
+}
@@ -1,15 +1,18 @@
 package co.adhoclabs.ironcushion.bulkinsert;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.util.CharsetUtil;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
 
+import co.adhoclabs.ironcushion.DocumentIds;
 import co.adhoclabs.ironcushion.DocumentSchema;
+import co.adhoclabs.ironcushion.DocumentSerializer;
 import co.adhoclabs.ironcushion.ValueGenerator;
 
 /**
@@ -33,6 +36,21 @@ public abstract class BulkInsertDocumentGenerator {
 	 */
 	public abstract ChannelBuffer getBuffer(int insertOperation);
 
+	/**
+	 * Returns the buffer for the given bulk insert operation if it is already
+	 * generated, without blocking. Otherwise returns {@code null}, and the given
+	 * listener is run by the thread generating the buffer once it is ready.
+	 * 
+	 * @param insertOperation
+	 *            the index of the bulk insert operation
+	 * @param bufferReadyListener
+	 *            the listener to run once the buffer is ready, if it is not
+	 * @return the generated buffer, or {@code null} if not yet generated
+	 */
+	public ChannelBuffer pollBuffer(int insertOperation, Runnable bufferReadyListener) {
+		return getBuffer(insertOperation);
+	}
+
 	/**
 	 * Returns number of {@link ChannelBuffer} instances generated.
 	 * 
@@ -40,21 +58,34 @@ public abstract class BulkInsertDocumentGenerator {
 	 */
 	public abstract int size();
 
-	@SuppressWarnings("unchecked")
+	private static final byte[] DOCS_PREFIX = "{\"docs\":[".getBytes(CharsetUtil.US_ASCII);
+	private static final byte[] DOCS_SUFFIX = "]}".getBytes(CharsetUtil.US_ASCII);
+	/**
+	 * The slack added to the size of the last buffer when allocating the next.
+	 */
+	private static final double BUFFER_SIZE_SLACK = 1.125;
+
+	/**
+	 * The size of the last generated buffer, from which the size of the next
+	 * buffer is estimated so that it is rarely resized.
+	 */
+	private int lastBufferSize = 0;
+
 	protected ChannelBuffer getNewBuffer(int numDocumentsPerInsert,
-			DocumentSchema schema, ValueGenerator valueGenerator,
+			DocumentSerializer serializer, ValueGenerator valueGenerator,
 			int firstDocumentId) {
-		JSONArray documents = new JSONArray(numDocumentsPerInsert);
+		int estimatedBufferSize = (lastBufferSize > 0) ?
+				(int) (lastBufferSize * BUFFER_SIZE_SLACK) : (256 * numDocumentsPerInsert);
+		ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(estimatedBufferSize);
+		buffer.writeBytes(DOCS_PREFIX);
 		for (int j = 0, nextDocumentId = firstDocumentId; j < numDocumentsPerInsert; ++j, ++nextDocumentId) {
-			JSONObject document = schema.getNewDocument(valueGenerator);
-			document.put("_id", String.valueOf(nextDocumentId));
-			documents.add(document);
+			if (j > 0) {
+				buffer.writeByte(',');
+			}
+			serializer.write(buffer, valueGenerator, nextDocumentId);
 		}
-
-		JSONObject json = new JSONObject();
-		json.put("docs", documents);
-		ChannelBuffer buffer = ChannelBuffers.copiedBuffer(json.toString(),
-				CharsetUtil.UTF_8);
+		buffer.writeBytes(DOCS_SUFFIX);
+		lastBufferSize = buffer.readableBytes();
 		return buffer;
 	}
 
@@ -63,17 +94,13 @@ public abstract class BulkInsertDocumentGenerator {
 		private final List<ChannelBuffer> insertBuffers;
 
 		private PreComputedBulkInsertDocumentGenerator(DocumentSchema schema,
-				ValueGenerator valueGenerator, int connectionNum,
+				ValueGenerator valueGenerator, DocumentIds documentIds, int connectionNum,
 				int numDocumentsPerInsert, int numInsertOperations) {
-			int numInsertedDocuments = numDocumentsPerInsert
-					* numInsertOperations;
-			int firstDocumentId = connectionNum * numInsertedDocuments;
-
+			DocumentSerializer serializer = schema.compileSerializer();
 			insertBuffers = new ArrayList<ChannelBuffer>(numInsertOperations);
 			for (int i = 0; i < numInsertOperations; ++i) {
-				insertBuffers.add(getNewBuffer(numDocumentsPerInsert, schema,
-						valueGenerator, firstDocumentId));
-				firstDocumentId += numDocumentsPerInsert;
+				insertBuffers.add(getNewBuffer(numDocumentsPerInsert, serializer,
+						valueGenerator, documentIds.getFirstBulkInsertedId(connectionNum, i)));
 			}
 			
 		}
@@ -93,6 +120,7 @@ public abstract class BulkInsertDocumentGenerator {
 	 * 
 	 * @param schema
 	 * @param valueGenerator
+	 * @param documentIds
 	 * @param connectionNum
 	 * @param numDocumentsPerInsert
 	 * @param numInsertOperations
@@ -100,36 +128,35 @@ public abstract class BulkInsertDocumentGenerator {
 	 */
 	public static BulkInsertDocumentGenerator preComputed(
 			DocumentSchema schema, ValueGenerator valueGenerator,
-			int connectionNum, int numDocumentsPerInsert,
+			DocumentIds documentIds, int connectionNum, int numDocumentsPerInsert,
 			int numInsertOperations) {
 		return new PreComputedBulkInsertDocumentGenerator(schema, valueGenerator,
-				connectionNum, numDocumentsPerInsert, numInsertOperations);
+				documentIds, connectionNum, numDocumentsPerInsert, numInsertOperations);
 	}
 
 	private static final class OnDemandBulkInsertDocumentGenerator extends
 			BulkInsertDocumentGenerator {
-		private final DocumentSchema schema;
+		private final DocumentSerializer serializer;
 		private final ValueGenerator valueGenerator;
+		private final DocumentIds documentIds;
+		private final int connectionNum;
 		private final int numDocumentsPerInsert;
 		private final int numInsertOperations;
-		private int firstDocumentId;
 
 		private OnDemandBulkInsertDocumentGenerator(DocumentSchema schema,
-				ValueGenerator valueGenerator, int connectionNum,
+				ValueGenerator valueGenerator, DocumentIds documentIds, int connectionNum,
 				int numDocumentsPerInsert, int numInsertOperations) {
-			this.schema = schema;
+			this.serializer = schema.compileSerializer();
 			this.valueGenerator = valueGenerator;
+			this.documentIds = documentIds;
+			this.connectionNum = connectionNum;
 			this.numDocumentsPerInsert = numDocumentsPerInsert;
 			this.numInsertOperations = numInsertOperations;
-
-			int numInsertedDocuments = numDocumentsPerInsert
-					* numInsertOperations;
-			firstDocumentId = connectionNum * numInsertedDocuments;
 		}
 
 		public ChannelBuffer getBuffer(int insertOperation) {
-			return getNewBuffer(numDocumentsPerInsert, schema, valueGenerator,
-					firstDocumentId + (insertOperation * numDocumentsPerInsert));
+			return getNewBuffer(numDocumentsPerInsert, serializer, valueGenerator,
+					documentIds.getFirstBulkInsertedId(connectionNum, insertOperation));
 		}
 
 		public int size() {
@@ -143,15 +170,190 @@ public abstract class BulkInsertDocumentGenerator {
 	 * 
 	 * @param schema
 	 * @param valueGenerator
+	 * @param documentIds
 	 * @param connectionNum
 	 * @param numDocumentsPerInsert
 	 * @param numInsertOperations
 	 * @return an on-demand generator of documents
 	 */
 	public static BulkInsertDocumentGenerator onDemand(DocumentSchema schema,
-			ValueGenerator valueGenerator, int connectionNum,
+			ValueGenerator valueGenerator, DocumentIds documentIds, int connectionNum,
 			int numDocumentsPerInsert, int numInsertOperations) {
 		return new OnDemandBulkInsertDocumentGenerator(schema, valueGenerator,
-				connectionNum, numDocumentsPerInsert, numInsertOperations);
+				documentIds, connectionNum, numDocumentsPerInsert, numInsertOperations);
+	}
+
+	private static final class ProducedBulkInsertDocumentGenerator extends
+			BulkInsertDocumentGenerator {
+		private final DocumentSerializer serializer;
+		private final ValueGenerator valueGenerator;
+		private final int numDocumentsPerInsert;
+		private final int numInsertOperations;
+		private final DocumentIds documentIds;
+		private final int connectionNum;
+		private final BulkInsertProducerPool producerPool;
+		private final BlockingQueue<ChannelBuffer> insertBuffers;
+		private final ProduceTask produceTask;
+
+		// Guarded by this generator.
+		private int nextInsertOperationProduced;
+		private boolean producing;
+		/**
+		 * The listener of the consumer waiting for the next buffer, or {@code null}.
+		 */
+		private Runnable bufferReadyListener;
+
+		private ProducedBulkInsertDocumentGenerator(DocumentSchema schema,
+				ValueGenerator valueGenerator, DocumentIds documentIds, int connectionNum,
+				int numDocumentsPerInsert, int numInsertOperations,
+				BulkInsertProducerPool producerPool, int queueCapacity) {
+			this.serializer = schema.compileSerializer();
+			this.valueGenerator = valueGenerator;
+			this.numDocumentsPerInsert = numDocumentsPerInsert;
+			this.numInsertOperations = numInsertOperations;
+			this.documentIds = documentIds;
+			this.connectionNum = connectionNum;
+			this.producerPool = producerPool;
+			this.insertBuffers = new ArrayBlockingQueue<ChannelBuffer>(queueCapacity);
+			this.produceTask = new ProduceTask();
+
+			this.nextInsertOperationProduced = 0;
+			this.producing = false;
+			produceIfNeeded();
+		}
+
+		private synchronized boolean canProduce() {
+			return (nextInsertOperationProduced < numInsertOperations) &&
+					(insertBuffers.remainingCapacity() > 0);
+		}
+
+		/**
+		 * Submits the task producing buffers if it is not running and the queue
+		 * has room. The consumer calls this after removing a buffer, and so the
+		 * task cannot miss that room was made.
+		 */
+		private synchronized void produceIfNeeded() {
+			if (!producing && canProduce()) {
+				producing = true;
+				producerPool.execute(produceTask);
+			}
+		}
+
+		/**
+		 * Generates the next buffer, and resubmits itself while the queue has room.
+		 * Then runs the listener of the consumer if it is waiting for the buffer.
+		 */
+		private final class ProduceTask implements Runnable {
+			@Override
+			public void run() {
+				int insertOperation;
+				synchronized (ProducedBulkInsertDocumentGenerator.this) {
+					insertOperation = nextInsertOperationProduced++;
+				}
+				insertBuffers.add(getNewBuffer(numDocumentsPerInsert, serializer, valueGenerator,
+						documentIds.getFirstBulkInsertedId(connectionNum, insertOperation)));
+				Runnable listener;
+				synchronized (ProducedBulkInsertDocumentGenerator.this) {
+					listener = bufferReadyListener;
+					bufferReadyListener = null;
+					if (canProduce()) {
+						// Yield to the tasks of other connections.
+						producerPool.execute(this);
+					} else {
+						producing = false;
+					}
+				}
+				if (listener != null) {
+					// Run without holding the lock, which the consumer acquires while polling.
+					listener.run();
+				}
+			}
+		}
+
+		public ChannelBuffer getBuffer(int insertOperation) {
+			// Buffers are returned in order, so insertOperation is the head of the queue.
+			ChannelBuffer insertBuffer;
+			try {
+				insertBuffer = insertBuffers.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			}
+			produceIfNeeded();
+			return insertBuffer;
+		}
+
+		@Override
+		public ChannelBuffer pollBuffer(int insertOperation, Runnable bufferReadyListener) {
+			ChannelBuffer insertBuffer;
+			synchronized (this) {
+				insertBuffer = insertBuffers.poll();
+				if (insertBuffer == null) {
+					// The producer adds the buffer before running the listener.
+					this.bufferReadyListener = bufferReadyListener;
+					return null;
+				}
+			}
+			produceIfNeeded();
+			return insertBuffer;
+		}
+
+		public int size() {
+			return numInsertOperations;
+		}
+	}
+
+	/**
+	 * Returns a {@link BulkInsertDocumentGenerator} implementation where
+	 * returned {@link ChannelBuffer} instances are generated ahead of need by
+	 * the given {@link BulkInsertProducerPool}, and held in a queue with the
+	 * given capacity until returned.
+	 * 
+	 * @param schema
+	 * @param valueGenerator
+	 * @param documentIds
+	 * @param connectionNum
+	 * @param numDocumentsPerInsert
+	 * @param numInsertOperations
+	 * @param producerPool
+	 * @param queueCapacity
+	 * @return a generator of documents produced by the given pool
+	 */
+	public static BulkInsertDocumentGenerator produced(DocumentSchema schema,
+			ValueGenerator valueGenerator, DocumentIds documentIds, int connectionNum,
+			int numDocumentsPerInsert, int numInsertOperations,
+			BulkInsertProducerPool producerPool, int queueCapacity) {
+		return new ProducedBulkInsertDocumentGenerator(schema, valueGenerator,
+				documentIds, connectionNum, numDocumentsPerInsert, numInsertOperations,
+				producerPool, queueCapacity);
+	}
+
+	private static final class MappedBulkInsertDocumentGenerator extends
+			BulkInsertDocumentGenerator {
+		private final ByteBuffer[] insertBuffers;
+
+		private MappedBulkInsertDocumentGenerator(ByteBuffer[] insertBuffers) {
+			this.insertBuffers = insertBuffers;
+		}
+
+		public ChannelBuffer getBuffer(int insertOperation) {
+			// Wrap the mapped memory, which is written to the socket without copying.
+			return ChannelBuffers.wrappedBuffer(insertBuffers[insertOperation]);
+		}
+
+		public int size() {
+			return insertBuffers.length;
+		}
+	}
+
+	/**
+	 * Returns a {@link BulkInsertDocumentGenerator} implementation that returns
+	 * the given buffers, which are slices of a {@link BulkInsertCorpus}.
+	 * 
+	 * @param insertBuffers
+	 * @return the generator of the given buffers
+	 */
+	static BulkInsertDocumentGenerator mapped(ByteBuffer[] insertBuffers) {
+		return new MappedBulkInsertDocumentGenerator(insertBuffers);
 	}
 }
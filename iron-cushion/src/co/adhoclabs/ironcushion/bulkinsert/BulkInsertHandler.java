@@ -9,21 +9,19 @@ import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelFutureListener;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelPipeline;
-import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
-import org.jboss.netty.handler.codec.base64.Base64;
-import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
 import org.jboss.netty.handler.codec.http.HttpChunk;
-import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpMethod;
-import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponse;
-import org.jboss.netty.handler.codec.http.HttpVersion;
-import org.jboss.netty.handler.ssl.SslHandler;
-import org.jboss.netty.util.CharsetUtil;
 
 import co.adhoclabs.ironcushion.AbstractBenchmarkHandler;
+import co.adhoclabs.ironcushion.DocumentRegistry;
+import co.adhoclabs.ironcushion.JsonReplyScanner;
+import co.adhoclabs.ironcushion.OpenLoopScheduler.ConnectionSchedule;
+import co.adhoclabs.ironcushion.RequestEncoder;
+import co.adhoclabs.ironcushion.ResponseCounts;
+import co.adhoclabs.ironcushion.Warmup;
 import co.adhoclabs.ironcushion.bulkinsert.BulkInsertConnectionStatistics.RunningConnectionTimer;
 
 /**
@@ -33,33 +31,61 @@ import co.adhoclabs.ironcushion.bulkinsert.BulkInsertConnectionStatistics.Runnin
  * @author Michael Parker (michael.g.parker@gmail.com)
  */
 public class BulkInsertHandler extends AbstractBenchmarkHandler {
-	private final BulkInsertConnectionStatistics connectionStatistics;
+	/**
+	 * The statistics being recorded, which are those of the warm-up until it ends.
+	 */
+	private BulkInsertConnectionStatistics connectionStatistics;
+	private final BulkInsertConnectionStatistics measuredConnectionStatistics;
 	private final BulkInsertDocumentGenerator bulkInsertDocumentGenerator;
+	/**
+	 * The registry of the inserted documents, or {@code null} if not used.
+	 */
+	private final DocumentRegistry documentRegistry;
 	private final String bulkInsertPath;
 
 	private final SendDataChannelFuture sendDataChannelFuture;
 
+	private final BufferReadyListener bufferReadyListener;
+
+	/**
+	 * The buffer of the next bulk insert once polled, or {@code null}.
+	 */
+	private ChannelBuffer nextInsertBuffer;
+	/**
+	 * The time that the connection began waiting for the next buffer to be
+	 * generated, or {@code 0} if it is not waiting.
+	 */
+	private long waitStartTime;
+	private int insertOperationsSent;
 	private int insertOperationsCompleted;
 	private boolean readingChunks;
-	private int numJsonBytesReceived;
-	private final String authString;
-	private final String host;
-	private final boolean https;
+	private int statusCode;
+	/**
+	 * The content of the chunked response being read.
+	 */
+	private ChannelBuffer chunkedContent;
+	private final RequestEncoder requestEncoder;
+	private final JsonReplyScanner jsonReplyScanner;
 
 	public BulkInsertHandler(
+			BulkInsertConnectionStatistics warmupConnectionStatistics,
 			BulkInsertConnectionStatistics connectionStatistics,
 			BulkInsertDocumentGenerator bulkInsertDocumentGenerator,
-			String bulkInsertPath, CountDownLatch countDownLatch,
-			String authString, String host, boolean https) {
-		super(countDownLatch);
+			DocumentRegistry documentRegistry, String bulkInsertPath, CountDownLatch countDownLatch, int pipelineDepth,
+			ConnectionSchedule connectionSchedule,
+			RequestEncoder requestEncoder, Warmup warmup, int durationSecs) {
+		super(countDownLatch, pipelineDepth, connectionSchedule, warmup, durationSecs);
 
-		this.connectionStatistics = connectionStatistics;
-		this.https = https;
+		this.connectionStatistics = warmup.isEnabled() ? warmupConnectionStatistics : connectionStatistics;
+		this.measuredConnectionStatistics = connectionStatistics;
 		this.bulkInsertDocumentGenerator = bulkInsertDocumentGenerator;
+		this.documentRegistry = documentRegistry;
 		this.bulkInsertPath = bulkInsertPath;
-		this.authString = authString;
+		this.requestEncoder = requestEncoder;
 		this.sendDataChannelFuture = new SendDataChannelFuture();
-		this.host = host;
+		this.bufferReadyListener = new BufferReadyListener();
+		this.jsonReplyScanner = new JsonReplyScanner();
+		this.insertOperationsSent = 0;
 		this.insertOperationsCompleted = 0;
 	}
 
@@ -70,106 +96,218 @@ public class BulkInsertHandler extends AbstractBenchmarkHandler {
 		@Override
 		public void operationComplete(ChannelFuture channelFuture)
 				throws Exception {
-			// Guard against starting RECEIVE_DATA before this listener runs.
-			if (connectionStatistics.getRunningConnectionTimer() == RunningConnectionTimer.SEND_DATA) {
-				connectionStatistics.startRemoteProcessing();
+			synchronized (BulkInsertHandler.this) {
+				pendingRequests.sent();
+				// Guard against starting RECEIVE_DATA before this listener runs.
+				if (connectionStatistics.getRunningConnectionTimer() == RunningConnectionTimer.SEND_DATA) {
+					awaitResponses();
+				}
 			}
 		}
 	}
 
-	private void writeNextBulkInsertOrClose(Channel channel) {
-		if (insertOperationsCompleted < bulkInsertDocumentGenerator.size()) {
-			// Perform the next bulk insert operation.
-			writeNextBulkInsert(channel);
-		} else {
-			// There are no more bulk insert operations to perform.
-			close(channel);
+	/**
+	 * The listener run by a producer thread once the buffer that the connection
+	 * is waiting for is generated, which then writes it. This does not block the
+	 * I/O thread waiting for the buffer.
+	 */
+	private final class BufferReadyListener implements Runnable {
+		private Channel channel;
+
+		@Override
+		public void run() {
+			synchronized (BulkInsertHandler.this) {
+				// Do nothing if the connection finished once the duration passed.
+				if (hasNextBulkInsert()) {
+					writeNextBulkInsertsOrFinish(channel);
+				}
+			}
 		}
 	}
 
-	private void writeNextBulkInsert(Channel channel) {
-		connectionStatistics.startLocalProcessing();
-		HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1,
-				HttpMethod.POST, bulkInsertPath);
-
-		request.addHeader(HttpHeaders.Names.HOST, host);
-		ChannelBuffer insertBuffer = bulkInsertDocumentGenerator
-				.getBuffer(insertOperationsCompleted);
-		// Assign the headers.
-		request.setHeader(HttpHeaders.Names.CONNECTION,
-				HttpHeaders.Values.KEEP_ALIVE);
-		//		 request.setHeader(HttpHeaders.Names.ACCEPT_ENCODING,
-		//		 HttpHeaders.Values.GZIP);
-		request.setHeader(HttpHeaders.Names.CONTENT_TYPE, "application/json");
-		request.setHeader(HttpHeaders.Names.CONTENT_LENGTH,
-				insertBuffer.readableBytes());
-
-		if (authString != "") {
-			ChannelBuffer authChannelBuffer = ChannelBuffers.copiedBuffer(
-					authString, CharsetUtil.UTF_8);
-			ChannelBuffer encodedAuthChannelBuffer = Base64
-					.encode(authChannelBuffer);
-			request.addHeader(HttpHeaders.Names.AUTHORIZATION, "Basic "
-					+ encodedAuthChannelBuffer.toString(CharsetUtil.UTF_8));
+	/**
+	 * Starts the timer for remote processing if all pending bulk inserts are
+	 * sent, or stops all timers if the connection is waiting to send the next.
+	 */
+	private void awaitResponses() {
+		if (pendingRequests.isEmpty()) {
+			connectionStatistics.stop();
+		} else if (pendingRequests.allSent()) {
+			connectionStatistics.startRemoteProcessing();
+		}
+	}
+
+	/**
+	 * Returns whether another bulk insert remains to be sent, which is false
+	 * once all are sent or the duration of the step has passed.
+	 */
+	private boolean hasNextBulkInsert() {
+		return (insertOperationsSent < bulkInsertDocumentGenerator.size()) && !isDurationOver();
+	}
+
+	private boolean canWriteNextBulkInsert() {
+		return !pendingRequests.isFull() && hasNextBulkInsert();
+	}
+
+	/**
+	 * Returns whether the buffer of the next bulk insert is generated, polling
+	 * for it if needed. If it is not, the {@link BufferReadyListener} writes it
+	 * once it is.
+	 */
+	private boolean pollNextInsertBuffer() {
+		if (nextInsertBuffer == null) {
+			nextInsertBuffer = bulkInsertDocumentGenerator.pollBuffer(
+					insertOperationsSent, bufferReadyListener);
+			if (nextInsertBuffer == null) {
+				if (waitStartTime == 0) {
+					waitStartTime = System.nanoTime();
+				}
+				return false;
+			} else if (waitStartTime != 0) {
+				connectionStatistics.waitedForProducer(System.nanoTime() - waitStartTime);
+				waitStartTime = 0;
+			}
 		}
+		return true;
+	}
 
-		// Assign the body.
-		request.setContent(insertBuffer);
+	private void writeNextBulkInsertsOrFinish(Channel channel) {
+		// Keep up to the pipeline depth of bulk insert operations outstanding.
+		boolean bufferReady = true;
+		while (canWriteNextBulkInsert()) {
+			bufferReady = pollNextInsertBuffer();
+			if (!bufferReady) {
+				break;
+			}
+			long startTime = getNextRequestStartTime(connectionStatistics);
+			if (startTime == NOT_DUE) {
+				break;
+			}
+			writeNextBulkInsert(channel, startTime);
+		}
 
-		connectionStatistics.sentJsonBytes(insertBuffer.readableBytes());
+		if (pendingRequests.isEmpty() && !hasNextBulkInsert()) {
+			// There are no more bulk insert operations to perform.
+			if (connectionStatistics != measuredConnectionStatistics) {
+				measuredConnectionStatistics.completedDuringWarmup();
+			}
+			finished();
+		} else {
+			scheduleNextRequest(channel, bufferReady && canWriteNextBulkInsert());
+			awaitResponses();
+		}
+	}
+
+	@Override
+	public synchronized void requestScheduled(Channel channel) {
+		connectionSchedule.fired();
+		writeNextBulkInsertsOrFinish(channel);
+	}
+
+	private void writeNextBulkInsert(Channel channel, long startTime) {
+		connectionStatistics.startLocalProcessing();
+		ChannelBuffer insertBuffer = nextInsertBuffer;
+		nextInsertBuffer = null;
 
 		connectionStatistics.startSendData();
-		ChannelFuture channelFuture = channel.write(request);
+		pendingRequests.add(0, startTime, insertBuffer.readableBytes(), null);
+		insertOperationsSent++;
+		ChannelFuture channelFuture = requestEncoder.write(channel, HttpMethod.POST, bulkInsertPath,
+				insertBuffer);
 		channelFuture.addListener(sendDataChannelFuture);
-		insertOperationsCompleted++;
 	}
 
-	@Override
-	public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) {
-		// Immediately perform the first bulk insert upon connecting.
-		//e.getFuture().awaitUninterruptibly();
+	/**
+	 * Counts the documents inserted by a successful bulk insert, and the
+	 * errors of those that were not. Inserted documents are registered with
+	 * their revisions if a {@link DocumentRegistry} is used.
+	 */
+	private void scanInsertedDocuments(ChannelBuffer content) {
+		if (!jsonReplyScanner.startArray(content)) {
+			return;
+		}
+		while (jsonReplyScanner.scanNextObject()) {
+			String error = jsonReplyScanner.getError();
+			if (error == null) {
+				connectionStatistics.insertedDocument();
+				if (documentRegistry != null) {
+					documentRegistry.put(jsonReplyScanner.getId(), jsonReplyScanner.getRev());
+				}
+			} else {
+				connectionStatistics.getDocumentErrors().record(error);
+			}
+		}
+	}
 
-		// Get the SslHandler from the pipeline
-		// which were added in SecureChatPipelineFactory.
-		if (https) {
-			SslHandler sslHandler = ctx.getPipeline().get(SslHandler.class);
+	private void receivedBulkInsertResponse(Channel channel, ChannelBuffer content) {
+		connectionStatistics.sentJsonBytes(pendingRequests.getFirstSentBytes());
+		connectionStatistics.receivedJsonBytes(content.readableBytes());
+		long latency = System.nanoTime() - pendingRequests.getFirstStartTime();
+		pendingRequests.removeFirst();
+		ResponseCounts responseCounts = connectionStatistics.getResponseCounts();
+		if (ResponseCounts.isSuccess(statusCode)) {
+			responseCounts.recordSuccess(0, statusCode);
+			connectionStatistics.recordBulkInsertLatency(latency);
+			scanInsertedDocuments(content);
+		} else {
+			String reason = jsonReplyScanner.scan(content) ? jsonReplyScanner.getError() : null;
+			responseCounts.recordFailure(0, statusCode, reason);
+		}
+		insertOperationsCompleted++;
+		endWarmupIfOver();
+		writeNextBulkInsertsOrFinish(channel);
+	}
 
-			// Begin handshake.
-			sslHandler.handshake();
+	/**
+	 * Records to the measured statistics once the warm-up has ended. Bulk
+	 * inserts that are pending when it ends are measured.
+	 */
+	private void endWarmupIfOver() {
+		if ((connectionStatistics != measuredConnectionStatistics) &&
+				isWarmupOver(insertOperationsCompleted)) {
+			connectionStatistics.stop();
+			connectionStatistics = measuredConnectionStatistics;
+			// This is called while receiving data.
+			connectionStatistics.startReceiveData();
 		}
+	}
 
-		writeNextBulkInsert(e.getChannel());
+	@Override
+	public synchronized void start(Channel channel) {
+		startStep();
+		bufferReadyListener.channel = channel;
+		// Immediately perform the first bulk insert.
+		writeNextBulkInsertsOrFinish(channel);
 	}
 
 	@Override
-	public void messageReceived(ChannelHandlerContext ctx, MessageEvent e)
+	public synchronized void messageReceived(ChannelHandlerContext ctx, MessageEvent e)
 			throws Exception {
 		connectionStatistics.startReceiveData();
 
 		Channel channel = e.getChannel();
 		if (!readingChunks) {
 			HttpResponse response = (HttpResponse) e.getMessage();
+			statusCode = response.getStatus().getCode();
 
 			if (response.isChunked()) {
-				numJsonBytesReceived = 0;
+				chunkedContent = ChannelBuffers.dynamicBuffer();
 				readingChunks = true;
 			} else {
 				ChannelBuffer content = response.getContent();
 				if (content.readable()) {
-					connectionStatistics.receivedJsonBytes(content
-							.readableBytes());
-					writeNextBulkInsertOrClose(channel);
+					receivedBulkInsertResponse(channel, content);
 				}
 			}
 		} else {
 			HttpChunk chunk = (HttpChunk) e.getMessage();
 			if (chunk.isLast()) {
-				connectionStatistics.receivedJsonBytes(numJsonBytesReceived);
 				readingChunks = false;
-				writeNextBulkInsertOrClose(channel);
+				ChannelBuffer content = chunkedContent;
+				chunkedContent = null;
+				receivedBulkInsertResponse(channel, content);
 			} else {
-				ChannelBuffer content = chunk.getContent();
-				numJsonBytesReceived += content.readableBytes();
+				chunkedContent.writeBytes(chunk.getContent());
 			}
 		}
 	}
@@ -0,0 +1,71 @@
+package co.adhoclabs.ironcushion.bulkinsert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import co.adhoclabs.ironcushion.AbstractBenchmarkHandler;
+import co.adhoclabs.ironcushion.AbstractBenchmarkHandlerFactory;
+import co.adhoclabs.ironcushion.DocumentRegistry;
+import co.adhoclabs.ironcushion.OpenLoopScheduler;
+import co.adhoclabs.ironcushion.RequestEncoder;
+import co.adhoclabs.ironcushion.StepStatistics;
+import co.adhoclabs.ironcushion.Warmup;
+/**
+ * The factory of handlers for connections that perform bulk inserts.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class BulkInsertHandlerFactory extends AbstractBenchmarkHandlerFactory {
+	private final List<BulkInsertConnectionStatistics> allWarmupConnectionStatistics;
+	private final List<BulkInsertConnectionStatistics> allConnectionStatistics;
+	private final List<BulkInsertDocumentGenerator> allBulkInsertDocumentGenerators;
+	private final DocumentRegistry documentRegistry;
+	private final String bulkInsertPath;
+	private final RequestEncoder requestEncoder;
+
+	public BulkInsertHandlerFactory(int numConnections, int pipelineDepth, OpenLoopScheduler openLoopScheduler,
+			List<BulkInsertDocumentGenerator> allBulkInsertDocumentGenerators, DocumentRegistry documentRegistry,
+			String bulkInsertPath, RequestEncoder requestEncoder, Warmup warmup,
+			int durationSecs) {
+		super(numConnections, pipelineDepth, openLoopScheduler, warmup, durationSecs);
+
+		this.allWarmupConnectionStatistics = new ArrayList<BulkInsertConnectionStatistics>();
+		this.allConnectionStatistics = new ArrayList<BulkInsertConnectionStatistics>();
+		for (int i = 0; i < numConnections; ++i) {
+			BulkInsertConnectionStatistics connectionStatistics = new BulkInsertConnectionStatistics();
+			// Report intervals of the warm-up and measured operations together.
+			allWarmupConnectionStatistics.add(new BulkInsertConnectionStatistics(
+					connectionStatistics.getIntervalStatistics()));
+			allConnectionStatistics.add(connectionStatistics);
+		}
+		this.allBulkInsertDocumentGenerators = allBulkInsertDocumentGenerators;
+		this.documentRegistry = documentRegistry;
+		this.bulkInsertPath = bulkInsertPath;
+		this.requestEncoder = requestEncoder;
+	}
+
+	/**
+	 * @return the {@link BulkInsertConnectionStatistics} used by connections after their warm-up
+	 */
+	public List<BulkInsertConnectionStatistics> getAllConnectionStatistics() {
+		return allConnectionStatistics;
+	}
+
+	/**
+	 * @return the {@link BulkInsertConnectionStatistics} used by connections during and after their warm-up
+	 */
+	public StepStatistics<BulkInsertConnectionStatistics> getStepStatistics() {
+		return new StepStatistics<BulkInsertConnectionStatistics>(
+				allWarmupConnectionStatistics, allConnectionStatistics);
+	}
+
+	@Override
+	public AbstractBenchmarkHandler newHandler(int connectionNum) {
+		BulkInsertConnectionStatistics warmupConnectionStatistics = allWarmupConnectionStatistics.get(connectionNum);
+		BulkInsertConnectionStatistics connectionStatistics = allConnectionStatistics.get(connectionNum);
+		BulkInsertDocumentGenerator documentGenerator = allBulkInsertDocumentGenerators.get(connectionNum);
+		return new BulkInsertHandler(warmupConnectionStatistics, connectionStatistics, documentGenerator,
+				documentRegistry, bulkInsertPath, countDownLatch, pipelineDepth, newConnectionSchedule(), requestEncoder, warmup,
+				durationSecs);
+	}
+}
@@ -0,0 +1,59 @@
+package co.adhoclabs.ironcushion.bulkinsert;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The threads that generate bulk insert buffers ahead of need, shared by all
+ * connections. Each connection generates its buffers in order by one task at a
+ * time, which generates a single buffer and then resubmits itself, so that a
+ * few threads take turns serving many connections.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class BulkInsertProducerPool {
+	private final ExecutorService executor;
+
+	/**
+	 * @param numProducerThreads the number of threads generating buffers
+	 */
+	public BulkInsertProducerPool(int numProducerThreads) {
+		this.executor = new ThreadPoolExecutor(numProducerThreads, numProducerThreads,
+				0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ProducerThreadFactory());
+	}
+
+	/**
+	 * The {@link ThreadFactory} for daemon threads that do not keep the
+	 * benchmark running if it fails.
+	 */
+	private static final class ProducerThreadFactory implements ThreadFactory {
+		private int numThreads = 0;
+
+		@Override
+		public synchronized Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "Bulk insert producer #" + (++numThreads));
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	/**
+	 * Runs the given task on a producer thread.
+	 *
+	 * @param task the task to run
+	 */
+	void execute(Runnable task) {
+		executor.execute(task);
+	}
+
+	/**
+	 * Stops all producer threads after the bulk inserts have completed.
+	 */
+	public void release() {
+		executor.shutdownNow();
+	}
+}
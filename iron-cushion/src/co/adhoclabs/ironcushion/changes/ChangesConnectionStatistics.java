@@ -0,0 +1,146 @@
+package co.adhoclabs.ironcushion.changes;
+
+import co.adhoclabs.ironcushion.AbstractConnectionStatistics;
+import co.adhoclabs.ironcushion.LatencyHistogram;
+import co.adhoclabs.ironcushion.Timer;
+
+/**
+ * Statistics for a connection consuming the changes feed of the database.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class ChangesConnectionStatistics extends AbstractConnectionStatistics {
+	private final Timer remoteProcessingTimer;
+	private final LatencyHistogram changeLatencies;
+	private long changes;
+
+	/**
+	 * The names of the types of requests, which are getting the update
+	 * sequence of the database and reading the changes feed.
+	 */
+	public static final String[] OPERATION_NAMES = { "info", "feed" };
+
+	public ChangesConnectionStatistics() {
+		super(OPERATION_NAMES.length);
+		remoteProcessingTimer = new Timer();
+		changeLatencies = new LatencyHistogram();
+		changes = 0;
+	}
+
+	/**
+	 * An enumeration over all timers.
+	 */
+	public enum RunningConnectionTimer {
+		LOCAL_PROCESSING,
+		SEND_DATA,
+		REMOTE_PROCESSING,
+	}
+
+	private RunningConnectionTimer runningTimer;
+
+	/**
+	 * @return the currently running timer
+	 */
+	public RunningConnectionTimer getRunningConnectionTimer() {
+		return runningTimer;
+	}
+
+	@Override
+	public void stop() {
+		if (runningTimer != null) {
+			switch (runningTimer) {
+			case LOCAL_PROCESSING:
+				localProcessingTimer.stop();
+				break;
+			case SEND_DATA:
+				sendDataTimer.stop();
+				break;
+			case REMOTE_PROCESSING:
+				remoteProcessingTimer.stop();
+				break;
+			default:
+				break;
+			}
+			runningTimer = null;
+		}
+	}
+
+	@Override
+	public void startLocalProcessing() {
+		if (runningTimer == RunningConnectionTimer.LOCAL_PROCESSING) {
+			return;
+		}
+		stop();
+		localProcessingTimer.start();
+		runningTimer = RunningConnectionTimer.LOCAL_PROCESSING;
+	}
+
+	@Override
+	public void startSendData() {
+		if (runningTimer == RunningConnectionTimer.SEND_DATA) {
+			return;
+		}
+		stop();
+		sendDataTimer.start();
+		runningTimer = RunningConnectionTimer.SEND_DATA;
+	}
+
+	/**
+	 * Starts the timer for remote processing, which includes waiting for
+	 * changes to arrive on the feed.
+	 */
+	public void startRemoteProcessing() {
+		if (runningTimer == RunningConnectionTimer.REMOTE_PROCESSING) {
+			return;
+		}
+		stop();
+		remoteProcessingTimer.start();
+		runningTimer = RunningConnectionTimer.REMOTE_PROCESSING;
+	}
+
+	/**
+	 * @return the number of nanoseconds spent on remote processing
+	 */
+	public long getRemoteProcessingTimeNanos() {
+		return remoteProcessingTimer.getTotalTimeNanos();
+	}
+
+	/**
+	 * Records a change received from the feed.
+	 */
+	public void receivedChange() {
+		changes++;
+	}
+
+	/**
+	 * Records the time from sending the write of a document until receiving
+	 * its change from the feed.
+	 *
+	 * @param nanos the latency in nanoseconds
+	 */
+	public void recordChangeLatency(long nanos) {
+		changeLatencies.record(nanos);
+	}
+
+	/**
+	 * @return the number of changes received from the feed
+	 */
+	public long getChanges() {
+		return changes;
+	}
+
+	/**
+	 * @return the latencies of all changes whose writes were sent by this
+	 *         process
+	 */
+	public LatencyHistogram getChangeLatencies() {
+		return changeLatencies;
+	}
+
+	@Override
+	public long getTotalTimeNanos() {
+		return (localProcessingTimer.getTotalTimeNanos() +
+				sendDataTimer.getTotalTimeNanos() +
+				remoteProcessingTimer.getTotalTimeNanos());
+	}
+}
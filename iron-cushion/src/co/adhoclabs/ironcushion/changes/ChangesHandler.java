@@ -0,0 +1,360 @@
+package co.adhoclabs.ironcushion.changes;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpChunkAggregator;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.util.CharsetUtil;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import co.adhoclabs.ironcushion.AbstractBenchmarkHandler;
+import co.adhoclabs.ironcushion.BenchmarkException;
+import co.adhoclabs.ironcushion.JsonReplyScanner;
+import co.adhoclabs.ironcushion.RequestEncoder;
+import co.adhoclabs.ironcushion.ResponseCounts;
+import co.adhoclabs.ironcushion.Warmup;
+import co.adhoclabs.ironcushion.changes.ChangesConnectionStatistics.RunningConnectionTimer;
+
+/**
+ * The {@link SimpleChannelUpstreamHandler} implementation for use in the
+ * {@link ChannelPipeline} of a connection that consumes the changes feed while
+ * other connections perform CRUD operations. Its pipeline has no
+ * {@link HttpChunkAggregator}, and so each change is parsed as soon as the
+ * chunk completing its line arrives, and its latency is measured from the
+ * time its write was sent, as recorded in the {@link SentWrites}.
+ *
+ * <p>The connection first gets the update sequence of the database, and then
+ * reads the feed from it, so that it sees every write of the CRUD operations.
+ * Each request of the feed ends once no change arrives for
+ * {@link #FEED_TIMEOUT_MILLIS}, and the next continues from its last sequence.
+ * The connection finishes once a request sent after all writes completed
+ * ends without any changes.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class ChangesHandler extends AbstractBenchmarkHandler {
+	/**
+	 * An enumeration over the types of changes feed.
+	 */
+	public enum Feed {
+		/**
+		 * A single response streams every change as it happens.
+		 */
+		CONTINUOUS("continuous"),
+		/**
+		 * Each response returns the changes since the last, once there are any.
+		 */
+		LONGPOLL("longpoll");
+
+		private final String parameter;
+
+		private Feed(String parameter) {
+			this.parameter = parameter;
+		}
+	}
+
+	/**
+	 * An enumeration over the requests sent by this handler.
+	 */
+	private enum Request {
+		INFO,
+		FEED,
+	}
+
+	/**
+	 * The number of milliseconds without changes after which CouchDB ends
+	 * each request of the feed.
+	 */
+	public static final int FEED_TIMEOUT_MILLIS = 1000;
+
+	/**
+	 * The line that starts the results of a longpoll feed.
+	 */
+	private static final String RESULTS_START = "{\"results\":[";
+
+	private final ChangesConnectionStatistics connectionStatistics;
+	private final SentWrites sentWrites;
+	private final Feed feed;
+	private final String databasePath;
+	private final CountDownLatch readyLatch;
+	private final AtomicBoolean writesCompleted;
+	private final RequestEncoder requestEncoder;
+	private final JsonReplyScanner jsonReplyScanner;
+	private final SendDataChannelFuture sendDataChannelFuture;
+	/**
+	 * The received bytes of the line not yet complete, or of the entire
+	 * response to the request for the update sequence.
+	 */
+	private final ChannelBuffer lineBuffer;
+
+	private Request pendingRequest;
+	/**
+	 * The sequence to read the feed from.
+	 */
+	private String since;
+	private int changesInRequest;
+	/**
+	 * Whether the pending request of the feed was sent after all writes completed.
+	 */
+	private boolean sentAfterWrites;
+
+	/**
+	 * @param readyLatch the latch counted down once this connection knows the
+	 *        sequence to read the feed from, or has failed
+	 * @param writesCompleted whether all CRUD operations have completed
+	 */
+	public ChangesHandler(ChangesConnectionStatistics connectionStatistics, SentWrites sentWrites,
+			Feed feed, String databasePath, CountDownLatch countDownLatch, CountDownLatch readyLatch,
+			AtomicBoolean writesCompleted, RequestEncoder requestEncoder, Warmup warmup) {
+		super(countDownLatch, 1, null, warmup, 0);
+
+		this.connectionStatistics = connectionStatistics;
+		this.sentWrites = sentWrites;
+		this.feed = feed;
+		this.databasePath = databasePath;
+		this.readyLatch = readyLatch;
+		this.writesCompleted = writesCompleted;
+		this.requestEncoder = requestEncoder;
+		this.jsonReplyScanner = new JsonReplyScanner();
+		this.sendDataChannelFuture = new SendDataChannelFuture();
+		this.lineBuffer = ChannelBuffers.dynamicBuffer();
+	}
+
+	/**
+	 * The {@link ChannelFutureListener} called after a request is sent.
+	 */
+	private final class SendDataChannelFuture implements ChannelFutureListener {
+		@Override
+		public void operationComplete(ChannelFuture channelFuture) throws Exception {
+			synchronized (ChangesHandler.this) {
+				if (connectionStatistics.getRunningConnectionTimer() == RunningConnectionTimer.SEND_DATA) {
+					connectionStatistics.startRemoteProcessing();
+				}
+			}
+		}
+	}
+
+	private static String encode(String value) {
+		try {
+			// The encoder is for forms, where a space is a plus sign.
+			return URLEncoder.encode(value, "UTF-8").replace("+", "%20");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void sendRequest(Channel channel, Request request, String path) {
+		ChannelBuffer encodedRequest = requestEncoder.encode(HttpMethod.GET, path, null);
+		connectionStatistics.startSendData();
+		pendingRequest = request;
+		lineBuffer.clear();
+		ChannelFuture channelFuture = channel.write(encodedRequest);
+		channelFuture.addListener(sendDataChannelFuture);
+	}
+
+	private void sendFeedRequest(Channel channel) {
+		connectionStatistics.startLocalProcessing();
+		StringBuilder sb = new StringBuilder();
+		sb.append(databasePath).append("/_changes?feed=").append(feed.parameter);
+		sb.append("&include_docs=true&timeout=").append(FEED_TIMEOUT_MILLIS);
+		sb.append("&since=").append(encode(since));
+		String path = sb.toString();
+
+		sentAfterWrites = writesCompleted.get();
+		changesInRequest = 0;
+		sendRequest(channel, Request.FEED, path);
+	}
+
+	private static JSONObject parseObject(String json) throws BenchmarkException {
+		try {
+			Object value = new JSONParser().parse(json);
+			if (value instanceof JSONObject) {
+				return (JSONObject) value;
+			}
+		} catch (ParseException e) {
+			throw new BenchmarkException(e);
+		}
+		throw new BenchmarkException("Changes response is not a JSON object: " + json);
+	}
+
+	private void receivedChange(JSONObject change, long receivedTime) {
+		since = String.valueOf(change.get("seq"));
+		changesInRequest++;
+		connectionStatistics.receivedChange();
+		// Deleted documents and those not written by this run have no sent time.
+		Object document = change.get("doc");
+		if (document instanceof JSONObject) {
+			Object id = ((JSONObject) document).get("_id");
+			Object rev = ((JSONObject) document).get("_rev");
+			if ((id instanceof String) && (rev instanceof String)) {
+				long sentTime = sentWrites.getSentTime((String) id, (String) rev);
+				if ((sentTime >= 0) && (receivedTime >= sentTime)) {
+					connectionStatistics.recordChangeLatency(receivedTime - sentTime);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parses a complete line of the feed. A continuous feed has a change on
+	 * each line followed by its last sequence. A longpoll feed has the same
+	 * lines between the start and end of its {@code results} array, each
+	 * followed by a comma, and then its last sequence.
+	 */
+	private void receivedLine(String line, long receivedTime) throws BenchmarkException {
+		line = line.trim();
+		if (line.endsWith(",")) {
+			line = line.substring(0, line.length() - 1);
+		}
+		// Skip heartbeats and the delimiters of the longpoll results array.
+		if (line.isEmpty() || line.equals(RESULTS_START) || line.equals("]")) {
+			return;
+		} else if (line.startsWith("\"")) {
+			// The fields following the longpoll results array.
+			line = "{" + line;
+		}
+
+		JSONObject object = parseObject(line);
+		if (object.get("results") instanceof JSONArray) {
+			// The entire longpoll response is on one line.
+			for (Object change : (JSONArray) object.get("results")) {
+				receivedChange((JSONObject) change, receivedTime);
+			}
+		} else if (object.containsKey("seq")) {
+			receivedChange(object, receivedTime);
+		}
+		Object lastSeq = object.get("last_seq");
+		if (lastSeq != null) {
+			since = String.valueOf(lastSeq);
+		}
+	}
+
+	private void receivedContent(ChannelBuffer content, long receivedTime) throws BenchmarkException {
+		connectionStatistics.receivedJsonBytes(content.readableBytes());
+		if (pendingRequest == Request.INFO) {
+			// The update sequence is parsed once the entire response is received.
+			lineBuffer.writeBytes(content);
+			return;
+		}
+		while (content.readable()) {
+			int newlineIndex = content.indexOf(content.readerIndex(), content.writerIndex(), (byte) '\n');
+			if (newlineIndex < 0) {
+				// Keep the partial line until the chunk completing it arrives.
+				lineBuffer.writeBytes(content);
+				break;
+			}
+			lineBuffer.writeBytes(content, newlineIndex - content.readerIndex());
+			content.skipBytes(1);
+			receivedLine(lineBuffer.toString(CharsetUtil.UTF_8), receivedTime);
+			lineBuffer.clear();
+		}
+	}
+
+	private void responseEnded(Channel channel, long receivedTime) throws BenchmarkException {
+		if (pendingRequest == Request.INFO) {
+			JSONObject info = parseObject(lineBuffer.toString(CharsetUtil.UTF_8));
+			since = String.valueOf(info.get("update_seq"));
+			// The CRUD operations can start once every connection will see their writes.
+			readyLatch.countDown();
+			sendFeedRequest(channel);
+			return;
+		}
+
+		if (lineBuffer.readable()) {
+			// The last line of the feed need not end with a newline.
+			receivedLine(lineBuffer.toString(CharsetUtil.UTF_8), receivedTime);
+		}
+		if (sentAfterWrites && (changesInRequest == 0)) {
+			// Every change of the CRUD operations has been received.
+			connectionStatistics.stop();
+			finished();
+		} else {
+			sendFeedRequest(channel);
+		}
+	}
+
+	/**
+	 * Returns the reason of a failed response, or {@code null} if its content
+	 * has no {@code error} field.
+	 */
+	private String getErrorReason(HttpResponse response) {
+		if (response.isChunked()) {
+			return null;
+		}
+		ChannelBuffer content = response.getContent();
+		connectionStatistics.receivedJsonBytes(content.readableBytes());
+		return jsonReplyScanner.scan(content) ? jsonReplyScanner.getError() : null;
+	}
+
+	public synchronized void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+		long receivedTime = System.nanoTime();
+		connectionStatistics.startLocalProcessing();
+
+		Channel channel = e.getChannel();
+		if (e.getMessage() instanceof HttpChunk) {
+			HttpChunk chunk = (HttpChunk) e.getMessage();
+			receivedContent(chunk.getContent(), receivedTime);
+			if (chunk.isLast()) {
+				responseEnded(channel, receivedTime);
+			} else {
+				connectionStatistics.startRemoteProcessing();
+			}
+			return;
+		}
+
+		HttpResponse response = (HttpResponse) e.getMessage();
+		int statusCode = response.getStatus().getCode();
+		ResponseCounts responseCounts = connectionStatistics.getResponseCounts();
+		if (!ResponseCounts.isSuccess(statusCode)) {
+			responseCounts.recordFailure(pendingRequest.ordinal(), statusCode, getErrorReason(response));
+			// Close the connection rather than read the rest of a chunked response.
+			connectionStatistics.stop();
+			close(channel);
+			return;
+		}
+		responseCounts.recordSuccess(pendingRequest.ordinal(), statusCode);
+		if (response.isChunked()) {
+			// Its content arrives in the chunks that follow.
+			connectionStatistics.startRemoteProcessing();
+			return;
+		}
+		receivedContent(response.getContent(), receivedTime);
+		responseEnded(channel, receivedTime);
+	}
+
+	@Override
+	protected void close(Channel channel) {
+		// Do not wait for this connection to start the CRUD operations.
+		readyLatch.countDown();
+		super.close(channel);
+	}
+
+	@Override
+	public synchronized void requestScheduled(Channel channel) {
+		// This handler is never run open loop.
+	}
+
+	@Override
+	public synchronized void start(Channel channel) {
+		startStep();
+		connectionStatistics.startLocalProcessing();
+		sendRequest(channel, Request.INFO, databasePath);
+	}
+}
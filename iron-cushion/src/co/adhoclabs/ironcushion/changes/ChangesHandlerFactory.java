@@ -0,0 +1,80 @@
+package co.adhoclabs.ironcushion.changes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import co.adhoclabs.ironcushion.AbstractBenchmarkHandler;
+import co.adhoclabs.ironcushion.AbstractBenchmarkHandlerFactory;
+import co.adhoclabs.ironcushion.RequestEncoder;
+import co.adhoclabs.ironcushion.Warmup;
+
+/**
+ * The factory of handlers for connections that consume the changes feed
+ * while the CRUD operations are performed.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class ChangesHandlerFactory extends AbstractBenchmarkHandlerFactory {
+	private final List<ChangesConnectionStatistics> allConnectionStatistics;
+	private final SentWrites sentWrites;
+	private final ChangesHandler.Feed feed;
+	private final String databasePath;
+	private final CountDownLatch readyLatch;
+	private final AtomicBoolean writesCompleted;
+	private final RequestEncoder requestEncoder;
+
+	public ChangesHandlerFactory(int numConnections, ChangesHandler.Feed feed, String databasePath,
+			RequestEncoder requestEncoder, Warmup warmup) {
+		super(numConnections, 1, null, warmup, 0);
+
+		this.allConnectionStatistics = new ArrayList<ChangesConnectionStatistics>(numConnections);
+		for (int i = 0; i < numConnections; ++i) {
+			this.allConnectionStatistics.add(new ChangesConnectionStatistics());
+		}
+		this.sentWrites = new SentWrites();
+		this.feed = feed;
+		this.databasePath = databasePath;
+		this.readyLatch = new CountDownLatch(numConnections);
+		this.writesCompleted = new AtomicBoolean(false);
+		this.requestEncoder = requestEncoder;
+	}
+
+	/**
+	 * @return the {@link ChangesConnectionStatistics} of every connection
+	 */
+	public List<ChangesConnectionStatistics> getAllConnectionStatistics() {
+		return allConnectionStatistics;
+	}
+
+	/**
+	 * @return the {@link SentWrites} that the CRUD operations must record
+	 *         their writes to
+	 */
+	public SentWrites getSentWrites() {
+		return sentWrites;
+	}
+
+	/**
+	 * @return the latch counted down once each connection knows the sequence
+	 *         to read the feed from, after which writes can start
+	 */
+	public CountDownLatch getReadyLatch() {
+		return readyLatch;
+	}
+
+	/**
+	 * Signals that all writes have completed, so that each connection finishes
+	 * once it has received their changes.
+	 */
+	public void writesCompleted() {
+		writesCompleted.set(true);
+	}
+
+	@Override
+	public AbstractBenchmarkHandler newHandler(int connectionNum) {
+		return new ChangesHandler(allConnectionStatistics.get(connectionNum), sentWrites, feed, databasePath,
+				countDownLatch, readyLatch, writesCompleted, requestEncoder, warmup);
+	}
+}
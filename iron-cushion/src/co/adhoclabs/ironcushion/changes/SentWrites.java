@@ -0,0 +1,104 @@
+package co.adhoclabs.ironcushion.changes;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The times at which the connections performing CRUD operations sent the
+ * latest write of each document, so that the connections consuming the
+ * changes feed can measure the latency of its change. Nothing is added to the
+ * documents, and so the feed is not changed by measuring it.
+ *
+ * <p>A write is identified by the id of its document and the generation of
+ * the revision it creates, which is known when it is sent. Its time is from
+ * {@link System#nanoTime()}, which is comparable to the time a change is
+ * received because the writers and consumers of the feed run in this process.
+ * Changes of documents written by other processes are not found, and so their
+ * latencies are not recorded.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class SentWrites {
+	/**
+	 * A write sent of a document.
+	 */
+	private static final class SentWrite {
+		private final int generation;
+		private final long sentTime;
+
+		private SentWrite(int generation, long sentTime) {
+			this.generation = generation;
+			this.sentTime = sentTime;
+		}
+	}
+
+	/**
+	 * The latest write sent of each document that is not deleted.
+	 */
+	private final ConcurrentHashMap<String, SentWrite> sentWrites;
+
+	public SentWrites() {
+		sentWrites = new ConcurrentHashMap<String, SentWrite>();
+	}
+
+	/**
+	 * Returns the generation of the given revision, which is the number before
+	 * its {@code -}, or {@code -1} if it is malformed.
+	 *
+	 * @param rev the revision, or {@code null}
+	 * @return the generation of the revision
+	 */
+	public static int getGeneration(String rev) {
+		int separatorIndex = (rev != null) ? rev.indexOf('-') : -1;
+		if ((separatorIndex <= 0) || (separatorIndex > 9)) {
+			return -1;
+		}
+		int generation = 0;
+		for (int i = 0; i < separatorIndex; ++i) {
+			char c = rev.charAt(i);
+			if ((c < '0') || (c > '9')) {
+				return -1;
+			}
+			generation = (10 * generation) + (c - '0');
+		}
+		return generation;
+	}
+
+	/**
+	 * Records that a write creating or updating a document was sent.
+	 *
+	 * @param id the id of the document
+	 * @param generation the generation of the revision created by the write
+	 * @param sentTime the value of {@link System#nanoTime()} when it was sent
+	 */
+	public void sent(String id, int generation, long sentTime) {
+		sentWrites.put(id, new SentWrite(generation, sentTime));
+	}
+
+	/**
+	 * Records that a write deleting a document was sent. Its change is not
+	 * measured, because a deleted document is not returned with its change.
+	 *
+	 * @param id the id of the document
+	 */
+	public void sentDelete(String id) {
+		sentWrites.remove(id);
+	}
+
+	/**
+	 * Returns the time at which the write creating the given revision of a
+	 * document was sent.
+	 *
+	 * @param id the id of the document
+	 * @param rev the revision of the document in its change
+	 * @return the value of {@link System#nanoTime()} when the write was sent,
+	 *         or {@code -1} if it was not sent by this process, or was followed
+	 *         by another write of the document
+	 */
+	public long getSentTime(String id, String rev) {
+		SentWrite sentWrite = sentWrites.get(id);
+		if ((sentWrite == null) || (sentWrite.generation != getGeneration(rev))) {
+			return -1;
+		}
+		return sentWrite.sentTime;
+	}
+}
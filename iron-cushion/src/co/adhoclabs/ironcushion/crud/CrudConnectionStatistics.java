@@ -1,6 +1,8 @@
 package co.adhoclabs.ironcushion.crud;
 
 import co.adhoclabs.ironcushion.AbstractConnectionStatistics;
+import co.adhoclabs.ironcushion.IntervalStatistics;
+import co.adhoclabs.ironcushion.LatencyHistogram;
 import co.adhoclabs.ironcushion.Timer;
 
 /**
@@ -13,13 +15,31 @@ public class CrudConnectionStatistics extends AbstractConnectionStatistics {
 	private final Timer remoteReadProcessingTimer;
 	private final Timer remoteUpdateProcessingTimer;
 	private final Timer remoteDeleteProcessingTimer;
+	private final LatencyHistogram[] latencies;
 	
+	/**
+	 * The names of the types of operations whose latencies are recorded, in
+	 * the order of {@link CrudOperations.Type}.
+	 */
+	public static final String[] OPERATION_NAMES = { "create", "read", "update", "delete" };
+
 	public CrudConnectionStatistics() {
-		super();
+		this(new IntervalStatistics(OPERATION_NAMES.length));
+	}
+
+	/**
+	 * @param intervalStatistics the interval statistics to also record to
+	 */
+	public CrudConnectionStatistics(IntervalStatistics intervalStatistics) {
+		super(intervalStatistics, OPERATION_NAMES.length);
 		remoteCreateProcessingTimer = new Timer();
 		remoteReadProcessingTimer = new Timer();
 		remoteUpdateProcessingTimer = new Timer();
 		remoteDeleteProcessingTimer = new Timer();
+		latencies = new LatencyHistogram[CrudOperations.Type.values().length];
+		for (int i = 0; i < latencies.length; ++i) {
+			latencies[i] = new LatencyHistogram();
+		}
 	}
 	
 	/**
@@ -43,22 +63,19 @@ public class CrudConnectionStatistics extends AbstractConnectionStatistics {
 		return runningTimer;
 	}
 	
-	/**
-	 * Stops whichever timer is running.
-	 */
 	@Override
 	public void stop() {
 		if (runningTimer != null) {
 			switch (runningTimer) {
 			case LOCAL_PROCESSING:
 				localProcessingTimer.stop();
-				return;
+				break;
 			case SEND_DATA:
 				sendDataTimer.stop();
-				return;
+				break;
 			case REMOTE_CREATE_PROCESSING:
 				remoteCreateProcessingTimer.stop();
-				return;
+				break;
 			case REMOTE_READ_PROCESSING:
 				remoteReadProcessingTimer.stop();
 				break;
@@ -71,6 +88,7 @@ public class CrudConnectionStatistics extends AbstractConnectionStatistics {
 			default:
 				break;
 			}
+			runningTimer = null;
 		}
 	}
 	
@@ -94,6 +112,30 @@ public class CrudConnectionStatistics extends AbstractConnectionStatistics {
 		runningTimer = RunningConnectionTimer.SEND_DATA;
 	}
 
+	/**
+	 * Starts the timer for remote processing of the given type of operation.
+	 * 
+	 * @param type the type of operation awaiting a response
+	 */
+	public void startRemoteProcessing(CrudOperations.Type type) {
+		switch (type) {
+		case CREATE:
+			startRemoteCreateProcessing();
+			break;
+		case READ:
+			startRemoteReadProcessing();
+			break;
+		case UPDATE:
+			startRemoteUpdateProcessing();
+			break;
+		case DELETE:
+			startRemoteDeleteProcessing();
+			break;
+		default:
+			break;
+		}
+	}
+
 	/**
 	 * Starts the timer for remote processing of create operations.
 	 */
@@ -107,10 +149,10 @@ public class CrudConnectionStatistics extends AbstractConnectionStatistics {
 	}
 	
 	/**
-	 * @return the number of milliseconds spent on remote processing of create operations
+	 * @return the number of nanoseconds spent on remote processing of create operations
 	 */
-	public long getRemoteCreateProcessingTimeMillis() {
-		return remoteCreateProcessingTimer.getTotalTimeMillis();
+	public long getRemoteCreateProcessingTimeNanos() {
+		return remoteCreateProcessingTimer.getTotalTimeNanos();
 	}
 	
 	/**
@@ -126,10 +168,10 @@ public class CrudConnectionStatistics extends AbstractConnectionStatistics {
 	}
 	
 	/**
-	 * @return the number of milliseconds spent on remote processing of read operations
+	 * @return the number of nanoseconds spent on remote processing of read operations
 	 */
-	public long getRemoteReadProcessingTimeMillis() {
-		return remoteReadProcessingTimer.getTotalTimeMillis();
+	public long getRemoteReadProcessingTimeNanos() {
+		return remoteReadProcessingTimer.getTotalTimeNanos();
 	}
 	
 	/**
@@ -145,10 +187,10 @@ public class CrudConnectionStatistics extends AbstractConnectionStatistics {
 	}
 	
 	/**
-	 * @return the number of milliseconds spent on remote processing of update operations
+	 * @return the number of nanoseconds spent on remote processing of update operations
 	 */
-	public long getRemoteUpdateProcessingTimeMillis() {
-		return remoteUpdateProcessingTimer.getTotalTimeMillis();
+	public long getRemoteUpdateProcessingTimeNanos() {
+		return remoteUpdateProcessingTimer.getTotalTimeNanos();
 	}
 	
 	/**
@@ -164,19 +206,39 @@ public class CrudConnectionStatistics extends AbstractConnectionStatistics {
 	}
 
 	/**
-	 * @return the number of milliseconds spent on remote processing of delete operations
+	 * @return the number of nanoseconds spent on remote processing of delete operations
+	 */
+	public long getRemoteDeleteProcessingTimeNanos() {
+		return remoteDeleteProcessingTimer.getTotalTimeNanos();
+	}
+	
+	/**
+	 * Records the latency of a successful CRUD operation, from sending its request until
+	 * receiving its complete response.
+	 * 
+	 * @param type the type of the CRUD operation
+	 * @param nanos the latency in nanoseconds
+	 */
+	public void recordLatency(CrudOperations.Type type, long nanos) {
+		latencies[type.ordinal()].record(nanos);
+		intervalStatistics.recordLatency(type.ordinal(), nanos);
+	}
+	
+	/**
+	 * @param type the type of CRUD operation
+	 * @return the latencies of all CRUD operations of that type
 	 */
-	public long getRemoteDeleteProcessingTimeMillis() {
-		return remoteDeleteProcessingTimer.getTotalTimeMillis();
+	public LatencyHistogram getLatencies(CrudOperations.Type type) {
+		return latencies[type.ordinal()];
 	}
 	
 	@Override
-	public long getTotalTimeMillis() {
-		return (localProcessingTimer.getTotalTimeMillis() +
-				sendDataTimer.getTotalTimeMillis() +
-				remoteCreateProcessingTimer.getTotalTimeMillis() +
-				remoteReadProcessingTimer.getTotalTimeMillis() +
-				remoteUpdateProcessingTimer.getTotalTimeMillis() +
-				remoteDeleteProcessingTimer.getTotalTimeMillis());
+	public long getTotalTimeNanos() {
+		return (localProcessingTimer.getTotalTimeNanos() +
+				sendDataTimer.getTotalTimeNanos() +
+				remoteCreateProcessingTimer.getTotalTimeNanos() +
+				remoteReadProcessingTimer.getTotalTimeNanos() +
+				remoteUpdateProcessingTimer.getTotalTimeNanos() +
+				remoteDeleteProcessingTimer.getTotalTimeNanos());
 	}
 }
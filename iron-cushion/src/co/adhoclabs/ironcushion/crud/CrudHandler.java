@@ -9,17 +9,10 @@ import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelFutureListener;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelPipeline;
-import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
-import org.jboss.netty.handler.codec.base64.Base64;
-import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
-import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpMethod;
-import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponse;
-import org.jboss.netty.handler.codec.http.HttpVersion;
-import org.jboss.netty.handler.ssl.SslHandler;
 import org.jboss.netty.util.CharsetUtil;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
@@ -27,6 +20,13 @@ import org.json.simple.parser.ParseException;
 
 import co.adhoclabs.ironcushion.AbstractBenchmarkHandler;
 import co.adhoclabs.ironcushion.BenchmarkException;
+import co.adhoclabs.ironcushion.DocumentRegistry;
+import co.adhoclabs.ironcushion.JsonReplyScanner;
+import co.adhoclabs.ironcushion.OpenLoopScheduler.ConnectionSchedule;
+import co.adhoclabs.ironcushion.RequestEncoder;
+import co.adhoclabs.ironcushion.ResponseCounts;
+import co.adhoclabs.ironcushion.Warmup;
+import co.adhoclabs.ironcushion.changes.SentWrites;
 import co.adhoclabs.ironcushion.crud.CrudConnectionStatistics.RunningConnectionTimer;
 
 /**
@@ -36,90 +36,99 @@ import co.adhoclabs.ironcushion.crud.CrudConnectionStatistics.RunningConnectionT
  * @author Michael Parker (michael.g.parker@gmail.com)
  */
 public class CrudHandler extends AbstractBenchmarkHandler {
-	private final CrudConnectionStatistics connectionStatistics;
+	/**
+	 * The statistics being recorded, which are those of the warm-up until it ends.
+	 */
+	private CrudConnectionStatistics connectionStatistics;
+	private final CrudConnectionStatistics measuredConnectionStatistics;
 	private final CrudOperations crudOperations;
+	/**
+	 * The documents of UPDATE and DELETE operations, or {@code null} if they
+	 * use the document last created or read. A pending UPDATE or DELETE
+	 * operation has its {@link CheckedOutDocument} as its attachment.
+	 */
+	private final DocumentRegistry documentRegistry;
 	private final String crudPath;
+	/**
+	 * The times at which writes are sent, for connections consuming the
+	 * changes feed, or {@code null} if it is not consumed.
+	 */
+	private final SentWrites sentWrites;
+
+	private final SendDataChannelFuture sendDataChannelFuture;
 
-	private final SendCreateDataChannelFuture sendCreateDataChannelFuture;
-	private final SendReadDataChannelFuture sendReadDataChannelFuture;
-	private final SendUpdateDataChannelFuture sendUpdateDataChannelFuture;
-	private final SendDeleteDataChannelFuture sendDeleteDataChannelFuture;
+	private final JsonReplyScanner jsonReplyScanner;
 
+	/**
+	 * The document last created or read, or {@code null} if the body of the
+	 * document last read has not been parsed.
+	 */
 	private JSONObject document;
+	/**
+	 * The unparsed body of the document last read, which is parsed only if an
+	 * update operation requires it.
+	 */
+	private ChannelBuffer documentContent;
+	private String documentId;
+	private String documentRev;
+	private int crudOperationsSent;
 	private int crudOperationsCompleted;
-	private final String authString;
-	private final String host;
-	private final boolean https;
-
-	public CrudHandler(CrudConnectionStatistics connectionStatistics,
-			CrudOperations crudOperations, String crudPath, CountDownLatch countDownLatch, String authString, String host, boolean https) {
-		super(countDownLatch);
-
-		this.connectionStatistics = connectionStatistics;
+	private final RequestEncoder requestEncoder;
+
+	public CrudHandler(CrudConnectionStatistics warmupConnectionStatistics,
+			CrudConnectionStatistics connectionStatistics,
+			CrudOperations crudOperations, String crudPath, SentWrites sentWrites,
+			CountDownLatch countDownLatch, int pipelineDepth,
+			ConnectionSchedule connectionSchedule, RequestEncoder requestEncoder, Warmup warmup,
+			int durationSecs) {
+		super(countDownLatch, pipelineDepth, connectionSchedule, warmup, durationSecs);
+
+		this.connectionStatistics = warmup.isEnabled() ? warmupConnectionStatistics : connectionStatistics;
+		this.measuredConnectionStatistics = connectionStatistics;
 		this.crudOperations = crudOperations;
+		this.documentRegistry = crudOperations.getDocumentRegistry();
 		this.crudPath = crudPath;
-		this.https = https;
-		this.authString = authString;
-		this.host = host;
+		this.sentWrites = sentWrites;
+		this.requestEncoder = requestEncoder;
 
-		this.sendCreateDataChannelFuture = new SendCreateDataChannelFuture();
-		this.sendReadDataChannelFuture = new SendReadDataChannelFuture();
-		this.sendUpdateDataChannelFuture = new SendUpdateDataChannelFuture();
-		this.sendDeleteDataChannelFuture = new SendDeleteDataChannelFuture();
+		this.sendDataChannelFuture = new SendDataChannelFuture();
+		this.jsonReplyScanner = new JsonReplyScanner();
 
+		this.crudOperationsSent = 0;
 		this.crudOperationsCompleted = 0;
 	}
 
 	/**
-	 * The The {@link ChannelFutureListener} called after a create operation is sent.
-	 */
-	private final class SendCreateDataChannelFuture implements ChannelFutureListener {
-		@Override
-		public void operationComplete(ChannelFuture channelFuture) throws Exception {
-			// Guard against starting RECEIVE_DATA before this listener runs.
-			if (connectionStatistics.getRunningConnectionTimer() == RunningConnectionTimer.SEND_DATA) {
-				connectionStatistics.startRemoteCreateProcessing();
-			}
-		}
-	}
-
-	/**
-	 * The The {@link ChannelFutureListener} called after a read operation is sent.
+	 * The {@link ChannelFutureListener} called after an operation is sent.
 	 */
-	private final class SendReadDataChannelFuture implements ChannelFutureListener {
+	private final class SendDataChannelFuture implements ChannelFutureListener {
 		@Override
 		public void operationComplete(ChannelFuture channelFuture) throws Exception {
-			// Guard against starting RECEIVE_DATA before this listener runs.
-			if (connectionStatistics.getRunningConnectionTimer() == RunningConnectionTimer.SEND_DATA) {
-				connectionStatistics.startRemoteReadProcessing();
+			synchronized (CrudHandler.this) {
+				pendingRequests.sent();
+				// Guard against starting RECEIVE_DATA before this listener runs.
+				if (connectionStatistics.getRunningConnectionTimer() == RunningConnectionTimer.SEND_DATA) {
+					awaitResponses();
+				}
 			}
 		}
 	}
 
 	/**
-	 * The The {@link ChannelFutureListener} called after an update operation is sent.
+	 * Starts the timer for remote processing of the first pending operation if
+	 * all pending operations are sent, or stops all timers if the connection is
+	 * waiting to send the next operation.
 	 */
-	private final class SendUpdateDataChannelFuture implements ChannelFutureListener {
-		@Override
-		public void operationComplete(ChannelFuture channelFuture) throws Exception {
-			// Guard against starting RECEIVE_DATA before this listener runs.
-			if (connectionStatistics.getRunningConnectionTimer() == RunningConnectionTimer.SEND_DATA) {
-				connectionStatistics.startRemoteUpdateProcessing();
-			}
+	private void awaitResponses() {
+		if (pendingRequests.isEmpty()) {
+			connectionStatistics.stop();
+		} else if (pendingRequests.allSent()) {
+			connectionStatistics.startRemoteProcessing(getFirstPendingOperation());
 		}
 	}
 
-	/**
-	 * The The {@link ChannelFutureListener} called after a delete operation is sent.
-	 */
-	private final class SendDeleteDataChannelFuture implements ChannelFutureListener {
-		@Override
-		public void operationComplete(ChannelFuture channelFuture) throws Exception {
-			// Guard against starting RECEIVE_DATA before this listener runs.
-			if (connectionStatistics.getRunningConnectionTimer() == RunningConnectionTimer.SEND_DATA) {
-				connectionStatistics.startRemoteDeleteProcessing();
-			}
-		}
+	private CrudOperations.Type getFirstPendingOperation() {
+		return CrudOperations.Type.values()[pendingRequests.getFirstType()];
 	}
 
 	private String getDocumentPath(String documentId) {
@@ -135,126 +144,335 @@ public class CrudHandler extends AbstractBenchmarkHandler {
 		StringBuilder sb = new StringBuilder();
 		sb.append(crudPath);
 		sb.append('/').append(documentId);
-		sb.append("?rev=").append(revision);
+		if (revision != null) {
+			sb.append("?rev=").append(revision);
+		}
 		return sb.toString();
 	}
 
-	private void performOperation(Channel channel,
+	private void performOperation(Channel channel, long startTime, CrudOperations.Type operation,
 			String documentPath, HttpMethod method, ChannelBuffer contentBuffer,
-			ChannelFutureListener channelFutureListener) {
-		HttpRequest request = new DefaultHttpRequest(
-				HttpVersion.HTTP_1_1, method, documentPath);
-
-
-		request.addHeader(HttpHeaders.Names.HOST, host);
-		// Assign the headers.
-		request.setHeader(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
-		// request.setHeader(HttpHeaders.Names.ACCEPT_ENCODING, HttpHeaders.Values.GZIP);
-		request.setHeader(HttpHeaders.Names.CONTENT_TYPE, "application/json");
-
-		if (authString != "") {
-			ChannelBuffer authChannelBuffer = ChannelBuffers.copiedBuffer(authString, CharsetUtil.UTF_8);
-			ChannelBuffer encodedAuthChannelBuffer = Base64.encode(authChannelBuffer);
-			request.addHeader(HttpHeaders.Names.AUTHORIZATION, "Basic " + encodedAuthChannelBuffer.toString(CharsetUtil.UTF_8));
-		}
-
-		if (contentBuffer != null) {
-			request.setHeader(HttpHeaders.Names.CONTENT_LENGTH, contentBuffer.readableBytes());
-			// Assign the body if present.
-			request.setContent(contentBuffer);
-			connectionStatistics.sentJsonBytes(contentBuffer.readableBytes());
-		}
+			Object attachment) {
+		ChannelBuffer request = requestEncoder.encode(method, documentPath, contentBuffer);
+		int numSentBytes = (contentBuffer != null) ? contentBuffer.readableBytes() : 0;
 
 		connectionStatistics.startSendData();
+		pendingRequests.add(operation.ordinal(), startTime, numSentBytes, attachment);
+		crudOperationsSent++;
 		ChannelFuture channelFuture = channel.write(request);
-		channelFuture.addListener(channelFutureListener);
+		channelFuture.addListener(sendDataChannelFuture);
+	}
+
+	/**
+	 * Records the current time as the time a write of the given document is
+	 * sent if the changes feed is consumed, which must be called immediately
+	 * before encoding it.
+	 *
+	 * @param rev the revision replaced by the write, or {@code null} if it
+	 *        creates the document
+	 */
+	private void sendingWrite(String documentId, String rev) {
+		if (sentWrites != null) {
+			int generation = (rev != null) ? SentWrites.getGeneration(rev) + 1 : 1;
+			sentWrites.sent(documentId, generation, System.nanoTime());
+		}
 	}
 
 	@SuppressWarnings("unchecked")
-	private void performCreateOperation(Channel channel) {
-		document = crudOperations.getNewDocumentWithoutId();
+	private void performCreateOperation(Channel channel, long startTime) {
+		JSONObject newDocument = crudOperations.getNewDocumentWithoutId();
 		String documentId = String.valueOf(crudOperations.getNextCreateId());
-		document.put("_id", documentId);
+		newDocument.put("_id", documentId);
+		sendingWrite(documentId, null);
 		String documentPath = getDocumentPath(documentId);
 		ChannelBuffer insertBuffer = ChannelBuffers.copiedBuffer(
-				document.toString(), CharsetUtil.UTF_8);
-		performOperation(channel, documentPath, HttpMethod.PUT, insertBuffer, sendCreateDataChannelFuture);
+				newDocument.toString(), CharsetUtil.UTF_8);
+		performOperation(channel, startTime, CrudOperations.Type.CREATE, documentPath, HttpMethod.PUT,
+				insertBuffer, newDocument);
 	}
 
-	private void performReadOperation(Channel channel) {
-		document = null;
+	private void performReadOperation(Channel channel, long startTime) {
 		String documentId = String.valueOf(crudOperations.getNextReadId());
 		String documentPath = getDocumentPath(documentId);
-		performOperation(channel, documentPath, HttpMethod.GET, null, sendReadDataChannelFuture);
+		performOperation(channel, startTime, CrudOperations.Type.READ, documentPath, HttpMethod.GET,
+				null, null);
+	}
+
+	/**
+	 * A document checked out of the {@link DocumentRegistry} by a pending UPDATE
+	 * or DELETE operation, which is checked in once its response arrives.
+	 */
+	private static final class CheckedOutDocument {
+		private final int id;
+		/**
+		 * The revision of the document when it was checked out.
+		 */
+		private final String rev;
+
+		private CheckedOutDocument(int id, String rev) {
+			this.id = id;
+			this.rev = rev;
+		}
 	}
 
-	private void performUpdateOperation(Channel channel) {
-		String documentId = (String) document.get("_id");
+	/**
+	 * Returns a live document checked out of the {@link DocumentRegistry}, or
+	 * {@code null} if no document is live.
+	 */
+	private CheckedOutDocument checkOutDocument() {
+		// Choose again if another connection checks out the document.
+		int registeredId = crudOperations.getNextRegisteredId();
+		while (registeredId >= 0) {
+			String registeredRev = documentRegistry.checkOut(registeredId);
+			if (registeredRev != null) {
+				return new CheckedOutDocument(registeredId, registeredRev);
+			}
+			registeredId = crudOperations.getNextRegisteredId();
+		}
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void performRegisteredUpdateOperation(Channel channel, long startTime) {
+		CheckedOutDocument checkedOutDocument = checkOutDocument();
+		if (checkedOutDocument == null) {
+			// Without the revision of a live document the update would conflict.
+			performReadOperation(channel, startTime);
+			return;
+		}
+		String registeredDocumentId = String.valueOf(checkedOutDocument.id);
+		// The body of the document is not known, and so it is replaced by a new one.
+		JSONObject updatedDocument = crudOperations.getNewDocumentWithoutId();
+		updatedDocument.put("_id", registeredDocumentId);
+		updatedDocument.put("_rev", checkedOutDocument.rev);
+		sendingWrite(registeredDocumentId, checkedOutDocument.rev);
+		ChannelBuffer updateBuffer = ChannelBuffers.copiedBuffer(
+				updatedDocument.toString(), CharsetUtil.UTF_8);
+		performOperation(channel, startTime, CrudOperations.Type.UPDATE,
+				getDocumentPath(registeredDocumentId), HttpMethod.PUT, updateBuffer, checkedOutDocument);
+	}
+
+	private void performUpdateOperation(Channel channel, long startTime) throws BenchmarkException {
+		if (documentRegistry != null) {
+			performRegisteredUpdateOperation(channel, startTime);
+			return;
+		} else if ((document == null) && (documentContent == null)) {
+			// No CREATE or READ operation has succeeded, so there is no document to update.
+			performReadOperation(channel, startTime);
+			return;
+		}
+		if (document == null) {
+			// Parse the document last read, since its body is now needed.
+			document = parseDocument(documentContent);
+			documentContent = null;
+		}
 		String documentPath = getDocumentPath(documentId);
 		crudOperations.updateDocument(document);
+		sendingWrite(documentId, (String) document.get("_rev"));
 		ChannelBuffer updateBuffer = ChannelBuffers.copiedBuffer(
 				document.toString(), CharsetUtil.UTF_8);
-		performOperation(channel, documentPath, HttpMethod.PUT, updateBuffer, sendUpdateDataChannelFuture);
+		performOperation(channel, startTime, CrudOperations.Type.UPDATE, documentPath, HttpMethod.PUT,
+				updateBuffer, document);
 	}
 
-	private void performDeleteOperation(Channel channel) {
-		String documentId = (String) document.get("_id");
-		String revision = (String) document.get("_rev");
-		String documentPath = getDocumentDeletePath(documentId, revision);
-		performOperation(channel, documentPath, HttpMethod.DELETE, null, sendDeleteDataChannelFuture);
+	private void performRegisteredDeleteOperation(Channel channel, long startTime) {
+		CheckedOutDocument checkedOutDocument = checkOutDocument();
+		if (checkedOutDocument == null) {
+			// Without the revision of a live document the delete would conflict.
+			performReadOperation(channel, startTime);
+			return;
+		}
+		String registeredDocumentId = String.valueOf(checkedOutDocument.id);
+		if (sentWrites != null) {
+			sentWrites.sentDelete(registeredDocumentId);
+		}
+		String documentPath = getDocumentDeletePath(registeredDocumentId, checkedOutDocument.rev);
+		performOperation(channel, startTime, CrudOperations.Type.DELETE, documentPath, HttpMethod.DELETE,
+				null, checkedOutDocument);
+	}
+
+	private void performDeleteOperation(Channel channel, long startTime) {
+		if (documentRegistry != null) {
+			performRegisteredDeleteOperation(channel, startTime);
+			return;
+		} else if (documentId == null) {
+			// No CREATE or READ operation has succeeded, so there is no document to delete.
+			performReadOperation(channel, startTime);
+			return;
+		}
+		crudOperations.performingDeleteOperation(Integer.parseInt(documentId));
+		if (sentWrites != null) {
+			sentWrites.sentDelete(documentId);
+		}
+		String documentPath = getDocumentDeletePath(documentId, documentRev);
+		performOperation(channel, startTime, CrudOperations.Type.DELETE, documentPath, HttpMethod.DELETE,
+				null, null);
 	}
 
-	private void performNextOperation(Channel channel) {
+	private void performNextOperation(Channel channel, long startTime) throws BenchmarkException {
 		connectionStatistics.startLocalProcessing();
 
-		switch (crudOperations.getOperation(crudOperationsCompleted)) {
+		switch (crudOperations.removeNextOperation()) {
 		case CREATE:
-			performCreateOperation(channel);
+			performCreateOperation(channel, startTime);
 			break;
 		case READ:
-			performReadOperation(channel);
+			performReadOperation(channel, startTime);
 			break;
 		case UPDATE:
-			performUpdateOperation(channel);
+			performUpdateOperation(channel, startTime);
 			break;
 		case DELETE:
-			performDeleteOperation(channel);
+			performDeleteOperation(channel, startTime);
 			break;
 		default:
 			break;
 		}
 	}
 
-	private void performNextOperationOrClose(Channel channel) {
-		if (crudOperationsCompleted < crudOperations.size()) {
-			// Perform the next CRUD operation.
-			performNextOperation(channel);
-		} else {
+	/**
+	 * Returns whether another operation remains to be sent, which is false once
+	 * all are sent or the duration of the step has passed.
+	 */
+	private boolean hasNextOperation() {
+		return (crudOperationsSent < crudOperations.size()) && !isDurationOver();
+	}
+
+	/**
+	 * Returns whether the next operation can be sent. An UPDATE or DELETE
+	 * operation requires the {@code _rev} of the document created or read by the
+	 * preceding operation, and so must wait for all pending operations to complete,
+	 * unless the {@code _rev} comes from the {@link DocumentRegistry}.
+	 */
+	private boolean canPerformNextOperation() {
+		if (pendingRequests.isFull() || !hasNextOperation()) {
+			return false;
+		} else if (documentRegistry != null) {
+			return true;
+		}
+		switch (crudOperations.getNextOperation()) {
+		case UPDATE:
+		case DELETE:
+			return pendingRequests.isEmpty();
+		default:
+			return true;
+		}
+	}
+
+	private void performNextOperationsOrFinish(Channel channel) throws BenchmarkException {
+		// Keep up to the pipeline depth of CRUD operations outstanding.
+		while (canPerformNextOperation()) {
+			long startTime = getNextRequestStartTime(connectionStatistics);
+			if (startTime == NOT_DUE) {
+				break;
+			}
+			performNextOperation(channel, startTime);
+		}
+
+		if (pendingRequests.isEmpty() && !hasNextOperation()) {
 			// There are no more CRUD operations to perform.
+			if (connectionStatistics != measuredConnectionStatistics) {
+				measuredConnectionStatistics.completedDuringWarmup();
+			}
+			finished();
+		} else {
+			scheduleNextRequest(channel, canPerformNextOperation());
+			awaitResponses();
+		}
+	}
+
+	/**
+	 * Performs the next operations when not called by Netty, which would
+	 * otherwise close the channel if an exception is thrown.
+	 */
+	private void performNextOperationsOrClose(Channel channel) {
+		try {
+			performNextOperationsOrFinish(channel);
+		} catch (BenchmarkException e) {
+			e.printStackTrace();
 			close(channel);
 		}
 	}
 
+	@Override
+	public synchronized void requestScheduled(Channel channel) {
+		connectionSchedule.fired();
+		performNextOperationsOrClose(channel);
+	}
+
 	@SuppressWarnings("unchecked")
-	private void receivedCreateResponse(JSONObject json) {
-		document.put("_rev", json.get("rev"));
+	private void receivedCreateResponse(JSONObject createdDocument) {
+		document = createdDocument;
+		documentContent = null;
+		documentId = (String) createdDocument.get("_id");
+		documentRev = jsonReplyScanner.getRev();
+		createdDocument.put("_rev", documentRev);
 	}
 
-	private void receivedReadResponse(JSONObject json) {
-		document = json;
+	private void receivedReadResponse(ChannelBuffer content) {
+		// Defer parsing the document until an update operation requires it.
+		document = null;
+		documentContent = content;
+		documentId = jsonReplyScanner.getId();
+		documentRev = jsonReplyScanner.getRev();
 	}
 
 	@SuppressWarnings("unchecked")
-	private void receivedUpdateRepsonse(JSONObject json) {
-		document.put("_rev", json.get("rev"));
+	private void receivedUpdateRepsonse(JSONObject updatedDocument) {
+		documentRev = jsonReplyScanner.getRev();
+		updatedDocument.put("_rev", documentRev);
 	}
 
-	private JSONObject getJsonReply(HttpResponse response) throws BenchmarkException {
+	/**
+	 * Updates the {@link DocumentRegistry} from the reply to a successful
+	 * operation, which has the identifier and the new revision of the document.
+	 */
+	private void receivedRegisteredResponse(CrudOperations.Type operation, Object attachment) {
+		switch (operation) {
+		case CREATE:
+			documentRegistry.put(jsonReplyScanner.getId(), jsonReplyScanner.getRev());
+			break;
+		case READ:
+			// The document may have been updated or deleted since it was read.
+			documentRegistry.putIfNewer(jsonReplyScanner.getId(), jsonReplyScanner.getRev());
+			break;
+		case UPDATE:
+			documentRegistry.checkIn(((CheckedOutDocument) attachment).id, jsonReplyScanner.getRev());
+			break;
+		case DELETE:
+			documentRegistry.checkInDeleted(((CheckedOutDocument) attachment).id);
+			break;
+		default:
+			break;
+		}
+	}
+
+	private ChannelBuffer getJsonReply(HttpResponse response) throws BenchmarkException {
 		if (response.isChunked()) {
 			throw new BenchmarkException("CRUD response is chunked");
 		}
 		ChannelBuffer content = response.getContent();
 		connectionStatistics.receivedJsonBytes(content.readableBytes());
+		if (!jsonReplyScanner.scan(content)) {
+			throw new BenchmarkException("CRUD response is not a JSON object");
+		}
+		return content;
+	}
+
+	/**
+	 * Returns the reason of a failed response, or {@code null} if its content
+	 * has no {@code error} field.
+	 */
+	private String getErrorReason(HttpResponse response) {
+		if (response.isChunked()) {
+			return null;
+		}
+		ChannelBuffer content = response.getContent();
+		connectionStatistics.receivedJsonBytes(content.readableBytes());
+		return jsonReplyScanner.scan(content) ? jsonReplyScanner.getError() : null;
+	}
+
+	private static JSONObject parseDocument(ChannelBuffer content) throws BenchmarkException {
 		String json = content.toString(CharsetUtil.UTF_8);
 		try {
 			return (JSONObject) new JSONParser().parse(json);
@@ -263,43 +481,78 @@ public class CrudHandler extends AbstractBenchmarkHandler {
 		}
 	}
 
-	public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+	public synchronized void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
 		// TODO: Method performNextOperation already does this.
 		connectionStatistics.startLocalProcessing();
+		// Responses arrive in the order that their requests were sent.
+		CrudOperations.Type operation = getFirstPendingOperation();
+		Object attachment = pendingRequests.getFirstAttachment();
+		long latency = System.nanoTime() - pendingRequests.getFirstStartTime();
+		connectionStatistics.sentJsonBytes(pendingRequests.getFirstSentBytes());
+		pendingRequests.removeFirst();
 
 		Channel channel = e.getChannel();
 		HttpResponse response = (HttpResponse) e.getMessage();
-		JSONObject json = getJsonReply(response);
-
-		switch (crudOperations.getOperation(crudOperationsCompleted)) {
-		case CREATE:
-			receivedCreateResponse(json);
-			break;
-		case READ:
-			receivedReadResponse(json);
-			break;
-		case UPDATE:
-			receivedUpdateRepsonse(json);
-			break;
-		default:
-			break;
+		int statusCode = response.getStatus().getCode();
+		ResponseCounts responseCounts = connectionStatistics.getResponseCounts();
+		boolean succeeded = ResponseCounts.isSuccess(statusCode);
+		if (succeeded) {
+			ChannelBuffer content = getJsonReply(response);
+			responseCounts.recordSuccess(operation.ordinal(), statusCode);
+			connectionStatistics.recordLatency(operation, latency);
+
+			switch (operation) {
+			case CREATE:
+				receivedCreateResponse((JSONObject) attachment);
+				break;
+			case READ:
+				receivedReadResponse(content);
+				break;
+			case UPDATE:
+				if (documentRegistry == null) {
+					receivedUpdateRepsonse((JSONObject) attachment);
+				}
+				break;
+			default:
+				break;
+			}
+			if (documentRegistry != null) {
+				receivedRegisteredResponse(operation, attachment);
+			}
+		} else {
+			// Following operations use the document of the last successful operation.
+			responseCounts.recordFailure(operation.ordinal(), statusCode, getErrorReason(response));
+			if (attachment instanceof CheckedOutDocument) {
+				// Restore the document with the revision it was checked out with.
+				CheckedOutDocument checkedOutDocument = (CheckedOutDocument) attachment;
+				documentRegistry.checkIn(checkedOutDocument.id, checkedOutDocument.rev);
+			}
 		}
-		crudOperations.completedOperation(crudOperationsCompleted);
+		crudOperations.completedOperation(operation, succeeded);
 
 		crudOperationsCompleted++;
-		performNextOperationOrClose(channel);
+		endWarmupIfOver();
+		performNextOperationsOrFinish(channel);
 	}
 
-	@Override
-	public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) {
-		// Immediately perform the first CRUD operation upon connecting.
-		if (https) {
-			SslHandler sslHandler = ctx.getPipeline().get(SslHandler.class);
-
-			// Begin handshake.
-			sslHandler.handshake();
+	/**
+	 * Records to the measured statistics once the warm-up has ended.
+	 * Operations that are pending when it ends are measured.
+	 */
+	private void endWarmupIfOver() {
+		if ((connectionStatistics != measuredConnectionStatistics) &&
+				isWarmupOver(crudOperationsCompleted)) {
+			connectionStatistics.stop();
+			connectionStatistics = measuredConnectionStatistics;
+			// This is called while processing a response.
+			connectionStatistics.startLocalProcessing();
 		}
+	}
 
-		performNextOperation(e.getChannel());
+	@Override
+	public synchronized void start(Channel channel) {
+		startStep();
+		// Immediately perform the first CRUD operation.
+		performNextOperationsOrClose(channel);
 	}
 }
@@ -0,0 +1,75 @@
+package co.adhoclabs.ironcushion.crud;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import co.adhoclabs.ironcushion.AbstractBenchmarkHandler;
+import co.adhoclabs.ironcushion.AbstractBenchmarkHandlerFactory;
+import co.adhoclabs.ironcushion.OpenLoopScheduler;
+import co.adhoclabs.ironcushion.RequestEncoder;
+import co.adhoclabs.ironcushion.StepStatistics;
+import co.adhoclabs.ironcushion.Warmup;
+import co.adhoclabs.ironcushion.changes.SentWrites;
+
+/**
+ * The factory of handlers for connections that perform CRUD operations.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class CrudHandlerFactory extends AbstractBenchmarkHandlerFactory {
+	private final List<CrudConnectionStatistics> allWarmupConnectionStatistics;
+	private final List<CrudConnectionStatistics> allConnectionStatistics;
+	private final List<CrudOperations> allCrudOperations;
+	private final String crudPath;
+	private final SentWrites sentWrites;
+	private final RequestEncoder requestEncoder;
+
+	/**
+	 * @param sentWrites the times at which writes are sent, or {@code null}
+	 *        if the changes feed is not consumed
+	 */
+	public CrudHandlerFactory(int numConnections, int pipelineDepth, OpenLoopScheduler openLoopScheduler,
+			List<CrudOperations> allCrudOperations, String crudPath, SentWrites sentWrites,
+			RequestEncoder requestEncoder, Warmup warmup, int durationSecs) {
+		super(numConnections, pipelineDepth, openLoopScheduler, warmup, durationSecs);
+
+		this.allWarmupConnectionStatistics = new ArrayList<CrudConnectionStatistics>(numConnections);
+		this.allConnectionStatistics = new ArrayList<CrudConnectionStatistics>(numConnections);
+		for (int i = 0; i < numConnections; ++i) {
+			CrudConnectionStatistics connectionStatistics = new CrudConnectionStatistics();
+			// Report intervals of the warm-up and measured operations together.
+			this.allWarmupConnectionStatistics.add(new CrudConnectionStatistics(
+					connectionStatistics.getIntervalStatistics()));
+			this.allConnectionStatistics.add(connectionStatistics);
+		}
+		this.allCrudOperations = allCrudOperations;
+		this.crudPath = crudPath;
+		this.sentWrites = sentWrites;
+		this.requestEncoder = requestEncoder;
+	}
+
+	/**
+	 * @return the {@link CrudConnectionStatistics} used by connections after their warm-up
+	 */
+	public List<CrudConnectionStatistics> getAllConnectionStatistics() {
+		return allConnectionStatistics;
+	}
+
+	/**
+	 * @return the {@link CrudConnectionStatistics} used by connections during and after their warm-up
+	 */
+	public StepStatistics<CrudConnectionStatistics> getStepStatistics() {
+		return new StepStatistics<CrudConnectionStatistics>(
+				allWarmupConnectionStatistics, allConnectionStatistics);
+	}
+
+	@Override
+	public AbstractBenchmarkHandler newHandler(int connectionNum) {
+		CrudConnectionStatistics warmupConnectionStatistics = allWarmupConnectionStatistics.get(connectionNum);
+		CrudConnectionStatistics connectionStatistics = allConnectionStatistics.get(connectionNum);
+		CrudOperations crudOperations = allCrudOperations.get(connectionNum);
+		return new CrudHandler(warmupConnectionStatistics, connectionStatistics, crudOperations, crudPath,
+				sentWrites, countDownLatch, pipelineDepth, newConnectionSchedule(), requestEncoder, warmup,
+				durationSecs);
+	}
+}
@@ -1,10 +1,12 @@
 package co.adhoclabs.ironcushion.crud;
 
 import java.util.Arrays;
-import java.util.List;
+import java.util.BitSet;
 
 import org.json.simple.JSONObject;
 
+import co.adhoclabs.ironcushion.DocumentIds;
+import co.adhoclabs.ironcushion.DocumentRegistry;
 import co.adhoclabs.ironcushion.DocumentSchema;
 import co.adhoclabs.ironcushion.ParsedArguments;
 import co.adhoclabs.ironcushion.ValueGenerator;
@@ -13,6 +15,24 @@ import co.adhoclabs.ironcushion.ValueGenerator;
  * Specifies the CRUD operations to be performed by one connection, and maintains the document
  * identifiers to use for each operation.
  * 
+ * Operations are chosen one at a time as they are performed, so that the memory used is
+ * constant however many operations are performed. Each operation is chosen at random with
+ * probability proportional to the number of operations of its type that remain, and so
+ * exactly the counts in {@link CrudOperationCounts} are performed. An UPDATE or DELETE
+ * operation requires a document created or read by an earlier operation and not yet deleted,
+ * and so types that would leave an UPDATE or DELETE operation without one are not chosen.
+ * 
+ * Unless keys are read sequentially, each READ operation chooses its document by a
+ * {@link KeyChooser} from the documents bulk inserted by all connections, then those
+ * bulk inserted only by this connection, and then those it created. A READ operation
+ * may therefore read a document that another connection updates, but it skips the
+ * documents that any connection deleted. Only documents whose CREATE operations
+ * succeeded are read.
+ * 
+ * If a {@link DocumentRegistry} is used, then UPDATE and DELETE operations instead choose
+ * from all live documents in it, and so can be chosen at any time. READ operations chosen
+ * by a {@link KeyChooser} also choose from the live documents in it.
+ * 
  * @author Michael Parker (michael.g.parker@gmail.com)
  */
 public class CrudOperations {
@@ -27,7 +47,15 @@ public class CrudOperations {
 	}
 	
 	/**
-	 * The number of CRUD operations to be performed by one connection.
+	 * The number of operations in each repetition of the operations when the
+	 * step is bounded only by its duration.
+	 */
+	private static final int NUM_OPERATIONS_PER_CYCLE = 1000;
+	
+	/**
+	 * The number of CRUD operations to be performed by one connection, or
+	 * performed in each repetition of its operations if the step is bounded
+	 * only by its duration.
 	 */
 	public static final class CrudOperationCounts {
 		public final int numCreateOperations;
@@ -53,6 +81,10 @@ public class CrudOperations {
 	 * @return the counts for all CRUD operations
 	 */
 	public static CrudOperationCounts createOperationCounts(ParsedArguments parsedArguments) {
+		int numOperations = parsedArguments.numCrudOperations;
+		if ((numOperations == 0) && (parsedArguments.crudDuration > 0)) {
+			numOperations = NUM_OPERATIONS_PER_CYCLE;
+		}
 		double totalWeight = parsedArguments.createWeight +
 				parsedArguments.readWeight +
 				parsedArguments.updateWeight +
@@ -61,79 +93,256 @@ public class CrudOperations {
 		double readPercentage = parsedArguments.readWeight / totalWeight;
 		double deletePercentage = parsedArguments.deleteWeight / totalWeight;
 		// Equal CREATE, READ, and DELETE weights translate to equal numbers of operations. 
-		int numCreateOperations = (int) (createPercentage * parsedArguments.numCrudOperations);
-		int numReadOperations = (int) (readPercentage * parsedArguments.numCrudOperations);
-		int numDeleteOperations = (int) (deletePercentage * parsedArguments.numCrudOperations);
+		int numCreateOperations = (int) (createPercentage * numOperations);
+		int numReadOperations = (int) (readPercentage * numOperations);
+		int numDeleteOperations = (int) (deletePercentage * numOperations);
 		// The number of UPDATE operations may be subject to rounding.
-		int numUpdateOperations = parsedArguments.numCrudOperations -
+		int numUpdateOperations = numOperations -
 				(numCreateOperations + numReadOperations + numDeleteOperations);
+		// Rounding may leave too few CREATE and READ operations for the
+		// documents of the DELETE and UPDATE operations, unless the registry
+		// provides their documents.
+		int numCreateAndReadOperations = numCreateOperations + numReadOperations;
+		if (!parsedArguments.useDocumentRegistry) {
+			if (numDeleteOperations > numCreateAndReadOperations) {
+				numUpdateOperations += numDeleteOperations - numCreateAndReadOperations;
+				numDeleteOperations = numCreateAndReadOperations;
+			}
+			if ((numUpdateOperations > 0) && (numCreateAndReadOperations == 0)) {
+				numUpdateOperations--;
+				if (parsedArguments.createWeight > 0) {
+					numCreateOperations++;
+				} else {
+					numReadOperations++;
+				}
+			}
+		}
 		
 		return new CrudOperationCounts(
 				numCreateOperations, numReadOperations, numUpdateOperations, numDeleteOperations,
-				parsedArguments.numCrudOperations);
+				numOperations);
 	}
 	
-	private final Type[] operations;
+	private final CrudOperationCounts operationCounts;
+	private final int numOperations;
+	/**
+	 * The number of operations of each type that remain, which are replenished
+	 * from {@link #operationCounts} when all are performed if the step is
+	 * bounded only by its duration.
+	 */
+	private final int[] numRemainingOperations;
+	/**
+	 * Whether the operations chosen so far leave a document that an UPDATE or
+	 * DELETE operation can use.
+	 */
+	private boolean hasDocument;
+	/**
+	 * The next operation to perform, or {@code null} if not yet chosen.
+	 */
+	private Type nextOperation;
 	
 	private final DocumentSchema documentSchema;
 	private final ValueGenerator valueGenerator;
 	
-	private int nextCreateDocumentId;
-	private int nextReadBulkInsertedDocumentId;
-	private int nextReadCreatedDocumentId;
+	private final DocumentIds documentIds;
+	private final int connectionNum;
+	private final int numBulkInsertedDocuments;
+	private final int firstCreatedDocumentId;
+	/**
+	 * Chooses the documents to read, or {@code null} if read sequentially.
+	 */
+	private final KeyChooser keyChooser;
+	/**
+	 * The number of documents bulk inserted by every connection, which have
+	 * identifiers from {@code 0} until this value.
+	 */
+	private final int numSharedBulkInsertedDocuments;
+	/**
+	 * The index of the first document bulk inserted by this connection but
+	 * not by every connection.
+	 */
+	private final int firstOwnBulkInsertedDocumentIndex;
+	/**
+	 * The documents of UPDATE and DELETE operations, or {@code null} if they
+	 * use the document last created or read.
+	 */
+	private final DocumentRegistry documentRegistry;
+	
+	// Documents are identified by their index among those created or bulk
+	// inserted by this connection.
+	private int nextCreateDocumentIndex;
+	/**
+	 * The index of the document of the first CREATE operation whose response
+	 * was not received.
+	 */
+	private int nextCompletedCreateDocumentIndex;
+	/**
+	 * The indexes of the documents whose CREATE operations succeeded, in the
+	 * order that they were created, followed by unused elements.
+	 */
+	private int[] createdDocumentIndexes;
+	private int numCreatedDocuments;
+	private int nextReadBulkInsertedDocumentIndex;
+	/**
+	 * The position in {@link #createdDocumentIndexes} of the next created
+	 * document to read.
+	 */
+	private int nextReadCreatedDocumentNum;
+	/**
+	 * The identifiers of the documents deleted by all connections, which READ
+	 * operations chosen by the {@link #keyChooser} skip. It is shared by all
+	 * connections, and so is guarded by itself.
+	 */
+	private final BitSet deletedDocumentIds;
 	
-	private CrudOperations(Type[] operations,
+	private CrudOperations(CrudOperationCounts operationCounts, int numOperations,
 			DocumentSchema documentSchema, ValueGenerator valueGenerator,
-			int firstBulkInsertedDocumentId, int firstCreateDocumentId) {
-		this.operations = operations;
+			DocumentIds documentIds, int connectionNum,
+			int numBulkInsertedDocuments, int firstCreatedDocumentId,
+			KeyChooser keyChooser, int numSharedBulkInsertedDocuments,
+			int firstOwnBulkInsertedDocumentIndex, DocumentRegistry documentRegistry,
+			BitSet deletedDocumentIds) {
+		this.operationCounts = operationCounts;
+		this.numOperations = numOperations;
+		this.numRemainingOperations = new int[Type.values().length];
+		this.hasDocument = false;
+		this.nextOperation = null;
+		replenishRemainingOperations();
 		
 		this.documentSchema = documentSchema;
 		this.valueGenerator = valueGenerator;
 		
-		this.nextCreateDocumentId = firstCreateDocumentId;
-		this.nextReadBulkInsertedDocumentId = firstBulkInsertedDocumentId;
-		this.nextReadCreatedDocumentId = firstCreateDocumentId;
+		this.documentIds = documentIds;
+		this.connectionNum = connectionNum;
+		this.numBulkInsertedDocuments = numBulkInsertedDocuments;
+		this.firstCreatedDocumentId = firstCreatedDocumentId;
+		this.keyChooser = keyChooser;
+		this.numSharedBulkInsertedDocuments = numSharedBulkInsertedDocuments;
+		this.firstOwnBulkInsertedDocumentIndex = firstOwnBulkInsertedDocumentIndex;
+		this.documentRegistry = documentRegistry;
+		
+		this.nextCreateDocumentIndex = 0;
+		this.nextCompletedCreateDocumentIndex = 0;
+		this.createdDocumentIndexes = new int[16];
+		this.numCreatedDocuments = 0;
+		this.nextReadBulkInsertedDocumentIndex = 0;
+		this.nextReadCreatedDocumentNum = 0;
+		this.deletedDocumentIds = deletedDocumentIds;
+	}
+	
+	private void replenishRemainingOperations() {
+		numRemainingOperations[Type.CREATE.ordinal()] = operationCounts.numCreateOperations;
+		numRemainingOperations[Type.READ.ordinal()] = operationCounts.numReadOperations;
+		numRemainingOperations[Type.UPDATE.ordinal()] = operationCounts.numUpdateOperations;
+		numRemainingOperations[Type.DELETE.ordinal()] = operationCounts.numDeleteOperations;
 	}
 	
 	/**
-	 * Returns the CRUD operation at the given index.
-	 * 
-	 * @param operationIndex the index of the operation to return
-	 * @return the CRUD operation
+	 * Returns whether an operation of the given type can be chosen next, such
+	 * that every remaining UPDATE and DELETE operation can still have a document.
 	 */
-	public Type getOperation(int operationIndex) {
-		return operations[operationIndex];
+	private boolean canChoose(Type type) {
+		if (documentRegistry != null) {
+			return true;
+		}
+		int numCreateAndRead = numRemainingOperations[Type.CREATE.ordinal()] +
+				numRemainingOperations[Type.READ.ordinal()];
+		switch (type) {
+		case CREATE:
+		case READ:
+			// This replaces any document, which a DELETE operation may need.
+			return numRemainingOperations[Type.DELETE.ordinal()] <= numCreateAndRead;
+		case UPDATE:
+			return hasDocument;
+		case DELETE:
+			// This deletes the document, which a remaining UPDATE operation may need.
+			return hasDocument &&
+					((numRemainingOperations[Type.UPDATE.ordinal()] == 0) || (numCreateAndRead > 0));
+		default:
+			return false;
+		}
 	}
 	
-	private void completedCreateOperation() {
-		nextCreateDocumentId++;
+	private int getNumChoices() {
+		int numChoices = 0;
+		for (Type type : Type.values()) {
+			if (canChoose(type)) {
+				numChoices += numRemainingOperations[type.ordinal()];
+			}
+		}
+		return numChoices;
 	}
 	
-	private void completedReadOperation() {
-		if (nextReadCreatedDocumentId < nextCreateDocumentId) {
-			nextReadCreatedDocumentId++;
-		} else {
-			nextReadBulkInsertedDocumentId++;
+	private Type chooseOperation() {
+		int numChoices = getNumChoices();
+		if (numChoices == 0) {
+			// All operations are performed, and so repeat them.
+			replenishRemainingOperations();
+			numChoices = getNumChoices();
+		}
+		
+		int choice = valueGenerator.nextInt(numChoices);
+		for (Type type : Type.values()) {
+			if (canChoose(type)) {
+				choice -= numRemainingOperations[type.ordinal()];
+				if (choice < 0) {
+					numRemainingOperations[type.ordinal()]--;
+					hasDocument = (type != Type.DELETE);
+					return type;
+				}
+			}
 		}
+		throw new IllegalStateException();
 	}
 	
-	private void completedDeleteOperation() {
-		if (nextReadCreatedDocumentId < nextCreateDocumentId) {
-			// Do not attempt to read a deleted document.
-			nextReadCreatedDocumentId = nextCreateDocumentId;
+	/**
+	 * Returns the next CRUD operation to perform, which is chosen when first
+	 * returned and then returned until {@link #removeNextOperation()} is called.
+	 * 
+	 * @return the next CRUD operation
+	 */
+	public Type getNextOperation() {
+		if (nextOperation == null) {
+			nextOperation = chooseOperation();
+		}
+		return nextOperation;
+	}
+	
+	/**
+	 * Returns the next CRUD operation to perform, so that the following call
+	 * to {@link #getNextOperation()} chooses another.
+	 * 
+	 * @return the next CRUD operation
+	 */
+	public Type removeNextOperation() {
+		Type operation = getNextOperation();
+		nextOperation = null;
+		return operation;
+	}
+	
+	private void completedCreateOperation(boolean succeeded) {
+		// Responses arrive in order, so this is the document of the oldest pending CREATE.
+		int documentIndex = nextCompletedCreateDocumentIndex++;
+		if (!succeeded) {
+			// The document does not exist, and so is never read.
+			return;
 		}
+		if (numCreatedDocuments == createdDocumentIndexes.length) {
+			createdDocumentIndexes = Arrays.copyOf(createdDocumentIndexes, 2 * numCreatedDocuments);
+		}
+		createdDocumentIndexes[numCreatedDocuments++] = documentIndex;
 	}
 	
-	public void completedOperation(int operationIndex) {
-		switch (operations[operationIndex]) {
+	/**
+	 * Records that a response was received for an operation of the given type.
+	 * 
+	 * @param type the type of the completed operation
+	 * @param succeeded whether the response was successful
+	 */
+	public void completedOperation(Type type, boolean succeeded) {
+		switch (type) {
 		case CREATE:
-			completedCreateOperation();
-			break;
-		case READ:
-			completedReadOperation();
-			break;
-		case DELETE:
-			completedDeleteOperation();
+			completedCreateOperation(succeeded);
 			break;
 		default:
 			break;
@@ -141,10 +350,12 @@ public class CrudOperations {
 	}
 	
 	/**
-	 * @return the number of operations to perform
+	 * @return the number of operations to perform, which is the most whose
+	 *         document identifiers fit in an {@code int} if the step is bounded
+	 *         only by its duration
 	 */
 	public int size() {
-		return operations.length;
+		return numOperations;
 	}
 	
 	/**
@@ -164,88 +375,134 @@ public class CrudOperations {
 	}
 	
 	/**
-	 * @return the next identifier for a CREATE operation
+	 * Records that a DELETE operation is being sent. Because a DELETE operation
+	 * is sent only after all earlier operations complete, this ensures that no
+	 * READ operation sent while it is pending reads a document it deletes.
+	 * 
+	 * @param documentId the identifier of the document being deleted
+	 */
+	public void performingDeleteOperation(int documentId) {
+		synchronized (deletedDocumentIds) {
+			deletedDocumentIds.set(documentId);
+		}
+		if (nextReadCreatedDocumentNum < numCreatedDocuments) {
+			// Do not attempt to read a deleted document.
+			nextReadCreatedDocumentNum = numCreatedDocuments;
+		}
+	}
+	
+	/**
+	 * @return the identifier for the next CREATE operation, which is then consumed
 	 */
 	public int getNextCreateId() {
-		return nextCreateDocumentId;
+		return documentIds.getCreatedId(firstCreatedDocumentId, connectionNum,
+				nextCreateDocumentIndex++);
 	}
 	
 	/**
-	 * @return the next identifier for a READ operation
+	 * Returns the identifier for the next READ operation, which is then consumed.
+	 * Only documents whose CREATE operations have succeeded are read. Documents
+	 * bulk inserted by this connection are read in order, starting again from
+	 * the first once all are read. If a {@link KeyChooser} is used, then the
+	 * document is chosen by it instead, from the live documents in the
+	 * {@link DocumentRegistry} if it is used and any are live.
+	 * 
+	 * @return the identifier for the next READ operation
 	 */
 	public int getNextReadId() {
-		if (nextReadCreatedDocumentId < nextCreateDocumentId) {
+		if (keyChooser != null) {
+			if (documentRegistry != null) {
+				// A read does not check the document out, so it may be deleted before the read arrives.
+				int id = getNextRegisteredId();
+				if (id >= 0) {
+					return id;
+				}
+			}
+			return getChosenReadId();
+		}
+		if (nextReadCreatedDocumentNum < numCreatedDocuments) {
 			// Read the identifier of a document created individually.
-			return nextReadCreatedDocumentId;
+			return documentIds.getCreatedId(firstCreatedDocumentId, connectionNum,
+					createdDocumentIndexes[nextReadCreatedDocumentNum++]);
+		} else if (numBulkInsertedDocuments == 0) {
+			// No documents were bulk inserted, and so this may read a missing document.
+			return nextReadBulkInsertedDocumentIndex++;
 		} else {
 			// Return the identifier of a document created from a bulk insert.
-			return nextReadBulkInsertedDocumentId;
+			int documentIndex = nextReadBulkInsertedDocumentIndex;
+			nextReadBulkInsertedDocumentIndex = (documentIndex + 1) % numBulkInsertedDocuments;
+			return documentIds.getBulkInsertedId(connectionNum, documentIndex);
 		}
 	}
 	
-	private static void shuffle(ValueGenerator valueGenerator, List<Type> operations) {
-		for (int i = operations.size(); i > 1; --i) {
-			int srcIndex = valueGenerator.nextInt(i);
-			int dstIndex = i - 1;
-			operations.set(srcIndex, operations.set(dstIndex, operations.get(srcIndex)));
+	/**
+	 * Returns the identifier of the document with the given key, where keys
+	 * number the documents bulk inserted by every connection, then those bulk
+	 * inserted only by this connection, and then those it created.
+	 */
+	private int getKeyId(int key, int numOwnBulkInsertedDocuments) {
+		if (key < numSharedBulkInsertedDocuments) {
+			// The first documents are bulk inserted by every connection.
+			return key;
+		}
+		key -= numSharedBulkInsertedDocuments;
+		if (key < numOwnBulkInsertedDocuments) {
+			return documentIds.getBulkInsertedId(connectionNum, firstOwnBulkInsertedDocumentIndex + key);
 		}
+		key -= numOwnBulkInsertedDocuments;
+		return documentIds.getCreatedId(firstCreatedDocumentId, connectionNum, createdDocumentIndexes[key]);
 	}
 	
-	private static Type[] createCrudOperations(
-			CrudOperationCounts operationCounts, ValueGenerator valueGenerator) {
-		if (operationCounts.numDeleteOperations >
-				(operationCounts.numCreateOperations + operationCounts.numReadOperations)) {
-			throw new IllegalArgumentException();
-		}
-		
-		Type[] operations = new Type[operationCounts.numOperations];
-		Type[] createAndReadOperations = new Type[operationCounts.numCreateOperations + operationCounts.numReadOperations];
-		
-		// Randomize the order of all CREATE and READ operations.
-		Arrays.fill(createAndReadOperations, 0, operationCounts.numCreateOperations, Type.CREATE);
-		Arrays.fill(createAndReadOperations, operationCounts.numCreateOperations,
-				createAndReadOperations.length, Type.READ);
-		shuffle(valueGenerator, Arrays.asList(createAndReadOperations));
-		
-		// Add the CREATE and READ operations that are not paired with DELETE operations.
-		for (int i = 1 + operationCounts.numUpdateOperations, j = operationCounts.numDeleteOperations;
-				j < createAndReadOperations.length; ++i, ++j) {
-			operations[i] = createAndReadOperations[j];
-		}
-		// Randomize the order of these operations.
-		shuffle(valueGenerator, Arrays.asList(operations).subList(1, operations.length));
-		
-		// Determine the number of UPDATE operations to follow each CREATE and READ operation.
-		int[] numFollowingUpdates = new int[operationCounts.numDeleteOperations];
-		for (int i = 0; i < operationCounts.numUpdateOperations; ++i) {
-			int deleteIndex = valueGenerator.nextInt(operationCounts.numDeleteOperations);
-			numFollowingUpdates[deleteIndex]++;
+	/**
+	 * Returns the identifier of the document chosen by {@link #keyChooser}, or
+	 * of the next document not deleted if that was deleted.
+	 */
+	private int getChosenReadId() {
+		int numOwnBulkInsertedDocuments = numBulkInsertedDocuments - firstOwnBulkInsertedDocumentIndex;
+		int numKeys = numSharedBulkInsertedDocuments + numOwnBulkInsertedDocuments + numCreatedDocuments;
+		if (numKeys == 0) {
+			// No documents were written, and so this reads a missing document.
+			return 0;
 		}
-		
-		// Add the UPDATE, DELETE, and remaining CREATE AND READ operations.
-		for (int i = 0, j = 0; i < operationCounts.numDeleteOperations; ++i) {
-			// Add the CREATE or READ operation.
-			while (operations[j] != null) {
-				++j;
-			}
-			operations[j] = createAndReadOperations[i];
-			
-			// Add any following UPDATE operations.
-			for (int k = 0; k < numFollowingUpdates[i]; ++k) {
-				while (operations[j] != null) {
-					++j;
+		int key = keyChooser.nextKey(numKeys);
+		int chosenId = getKeyId(key, numOwnBulkInsertedDocuments);
+		synchronized (deletedDocumentIds) {
+			int id = chosenId;
+			for (int i = 1; deletedDocumentIds.get(id); ++i) {
+				if (i == numKeys) {
+					// Every document was deleted, and so this reads a missing document.
+					return chosenId;
 				}
-				operations[j] = Type.UPDATE;
-			}
-
-			// Add the DELETE operation.
-			while (operations[j] != null) {
-				++j;
+				key = (key + 1) % numKeys;
+				id = getKeyId(key, numOwnBulkInsertedDocuments);
 			}
-			operations[j] = Type.DELETE;
+			return id;
 		}
-		
-		return operations;
+	}
+	
+	/**
+	 * @return the documents of UPDATE and DELETE operations, or {@code null}
+	 *         if they use the document last created or read
+	 */
+	public DocumentRegistry getDocumentRegistry() {
+		return documentRegistry;
+	}
+	
+	/**
+	 * Returns the identifier of a live document in the {@link DocumentRegistry}
+	 * for the next UPDATE or DELETE operation. The document is chosen by the
+	 * key distribution from all identifiers registered, or uniformly if keys
+	 * are read sequentially, and is the next live document if that is not.
+	 * 
+	 * @return the identifier, or {@code -1} if no document is live
+	 */
+	public int getNextRegisteredId() {
+		int endId = documentRegistry.getEndId();
+		if (endId == 0) {
+			return -1;
+		}
+		int id = (keyChooser != null) ? keyChooser.nextKey(endId) : valueGenerator.nextInt(endId);
+		return documentRegistry.nextLiveId(id);
 	}
 	
 	/**
@@ -255,24 +512,43 @@ public class CrudOperations {
 	 * @param documentSchema the document schema
 	 * @param parsedArguments the parsed command line arguments
 	 * @param crudOperationCounts the counts for all CRUD operations
+	 * @param documentIds the layout of document identifiers
+	 * @param allBulkInsertOperations the number of bulk insert operations performed by each connection
+	 * @param documentRegistry the live documents shared by all connections, or {@code null}
+	 * @param deletedDocumentIds the identifiers of the documents deleted, shared by all connections
 	 * @return the CRUD operations to be performed
 	 */
 	public static CrudOperations createCrudOperations(int connectionNum,
 			DocumentSchema documentSchema, ValueGenerator valueGenerator,
-			ParsedArguments parsedArguments, CrudOperationCounts crudOperationCounts) {
-		Type[] operations = createCrudOperations(crudOperationCounts, valueGenerator);
-		// Compute the identifier of the first document bulk inserted by this connection.
-		int nextReadBulkInsertDocumentId = connectionNum *
-				parsedArguments.numDocumentsPerBulkInsert * parsedArguments.numBulkInsertOperations;
-		// Compute the total number of documents bulk inserted.
-		int numBulkInsertDocuments = (parsedArguments.numDocumentsPerBulkInsert *
-				parsedArguments.numBulkInsertOperations *
-				parsedArguments.numConnections);
-		// Compute the identifier for the next document inserted by this connection.
-		int nextCreateDocumentId = numBulkInsertDocuments +
-				(crudOperationCounts.numCreateOperations * connectionNum);
+			ParsedArguments parsedArguments, CrudOperationCounts crudOperationCounts,
+			DocumentIds documentIds, int[] allBulkInsertOperations,
+			DocumentRegistry documentRegistry, BitSet deletedDocumentIds) {
+		// Created documents follow the documents of the connection that bulk inserted the most.
+		int maxBulkInsertOperations = 0;
+		int minBulkInsertOperations = Integer.MAX_VALUE;
+		for (int numBulkInsertOperations : allBulkInsertOperations) {
+			maxBulkInsertOperations = Math.max(maxBulkInsertOperations, numBulkInsertOperations);
+			minBulkInsertOperations = Math.min(minBulkInsertOperations, numBulkInsertOperations);
+		}
+		int firstCreatedDocumentId = documentIds.getFirstCreatedId(maxBulkInsertOperations);
+		int numBulkInsertedDocuments = allBulkInsertOperations[connectionNum] *
+				parsedArguments.numDocumentsPerBulkInsert;
+		int numOperations = parsedArguments.numCrudOperations;
+		if ((numOperations == 0) && (parsedArguments.crudDuration > 0)) {
+			// Repeat the operations until the duration passes.
+			numOperations = Integer.MAX_VALUE;
+		}
+		// Every operation may be a CREATE operation, whose identifier must fit in an int.
+		numOperations = Math.min(numOperations, documentIds.getMaxCreatedDocuments(firstCreatedDocumentId));
+		
+		// Every connection performed the bulk insert operations that the connection performing the fewest did.
+		int numSharedBulkInsertedDocuments = documentIds.getFirstBulkInsertedId(0, minBulkInsertOperations);
+		int firstOwnBulkInsertedDocumentIndex = minBulkInsertOperations * parsedArguments.numDocumentsPerBulkInsert;
+		KeyChooser keyChooser = KeyChooser.create(parsedArguments, valueGenerator);
 		
-		return new CrudOperations(operations, documentSchema, valueGenerator,
-				nextReadBulkInsertDocumentId, nextCreateDocumentId);
+		return new CrudOperations(crudOperationCounts, numOperations, documentSchema, valueGenerator,
+				documentIds, connectionNum, numBulkInsertedDocuments, firstCreatedDocumentId,
+				keyChooser, numSharedBulkInsertedDocuments, firstOwnBulkInsertedDocumentIndex,
+				documentRegistry, deletedDocumentIds);
 	}
 }
@@ -0,0 +1,215 @@
+package co.adhoclabs.ironcushion.crud;
+
+import co.adhoclabs.ironcushion.ParsedArguments;
+import co.adhoclabs.ironcushion.ValueGenerator;
+
+/**
+ * Chooses the key of the document read by each READ operation, from the keys
+ * of all documents that are known to have been written. The keys are numbered
+ * from {@code 0} in the order the documents were written, and grow as
+ * documents are created.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public abstract class KeyChooser {
+	/**
+	 * An enumeration over distributions of the keys that are read.
+	 */
+	public enum Distribution {
+		/**
+		 * Each connection reads the documents it created and then those it bulk
+		 * inserted, one after another, and so every read is of a cold document.
+		 */
+		SEQUENTIAL,
+		/**
+		 * Every key is equally likely.
+		 */
+		UNIFORM,
+		/**
+		 * The key written at rank {@code k} is read with probability
+		 * proportional to {@code 1 / k^theta}, so the first written are hottest.
+		 */
+		ZIPFIAN,
+		/**
+		 * A fraction of the keys, which are the first written, receive a
+		 * fraction of the reads, and the remaining keys receive the rest.
+		 */
+		HOTSPOT,
+		/**
+		 * Like {@link #ZIPFIAN}, but ranked from the last key written, so that
+		 * recently written documents are hottest.
+		 */
+		LATEST,
+	}
+
+	protected final ValueGenerator valueGenerator;
+
+	protected KeyChooser(ValueGenerator valueGenerator) {
+		this.valueGenerator = valueGenerator;
+	}
+
+	/**
+	 * Returns the next key to read.
+	 *
+	 * @param numKeys the number of keys, which must be {@code > 0}
+	 * @return the key, between {@code 0} and {@code numKeys - 1}
+	 */
+	public abstract int nextKey(int numKeys);
+
+	/**
+	 * Chooses every key with equal probability.
+	 */
+	private static final class UniformKeyChooser extends KeyChooser {
+		private UniformKeyChooser(ValueGenerator valueGenerator) {
+			super(valueGenerator);
+		}
+
+		@Override
+		public int nextKey(int numKeys) {
+			return valueGenerator.nextInt(numKeys);
+		}
+	}
+
+	/**
+	 * Chooses the first {@code hotKeyFraction} of all keys for
+	 * {@code hotOperationFraction} of all reads.
+	 */
+	private static final class HotspotKeyChooser extends KeyChooser {
+		private final double hotKeyFraction;
+		private final double hotOperationFraction;
+
+		private HotspotKeyChooser(ValueGenerator valueGenerator, double hotKeyFraction,
+				double hotOperationFraction) {
+			super(valueGenerator);
+			this.hotKeyFraction = hotKeyFraction;
+			this.hotOperationFraction = hotOperationFraction;
+		}
+
+		@Override
+		public int nextKey(int numKeys) {
+			int numHotKeys = Math.max(1, (int) (hotKeyFraction * numKeys));
+			if ((numHotKeys == numKeys) || (valueGenerator.nextDouble() < hotOperationFraction)) {
+				return valueGenerator.nextInt(numHotKeys);
+			}
+			return numHotKeys + valueGenerator.nextInt(numKeys - numHotKeys);
+		}
+	}
+
+	/**
+	 * Chooses ranks from a Zipf distribution by rejection-inversion, as
+	 * described by Hormann and Derflinger in "Rejection-inversion to generate
+	 * variates from monotone discrete distributions". Unlike the method used
+	 * by YCSB, this needs no sum over all keys, and so each rank is chosen in
+	 * constant time as the number of keys grows.
+	 */
+	private static final class ZipfianKeyChooser extends KeyChooser {
+		private final double theta;
+		private final boolean latest;
+		private final double hIntegralX1;
+		private final double s;
+
+		private ZipfianKeyChooser(ValueGenerator valueGenerator, double theta, boolean latest) {
+			super(valueGenerator);
+			this.theta = theta;
+			this.latest = latest;
+			this.hIntegralX1 = hIntegral(1.5) - 1.0;
+			this.s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+		}
+
+		/**
+		 * Returns the rank of the next key, between {@code 1} and {@code numKeys}.
+		 */
+		private int nextRank(int numKeys) {
+			double hIntegralNumKeys = hIntegral(numKeys + 0.5);
+			while (true) {
+				double u = hIntegralNumKeys + valueGenerator.nextDouble() * (hIntegralX1 - hIntegralNumKeys);
+				double x = hIntegralInverse(u);
+				int k = (int) (x + 0.5);
+				if (k < 1) {
+					k = 1;
+				} else if (k > numKeys) {
+					k = numKeys;
+				}
+				if (((k - x) <= s) || (u >= (hIntegral(k + 0.5) - h(k)))) {
+					return k;
+				}
+			}
+		}
+
+		@Override
+		public int nextKey(int numKeys) {
+			int rank = nextRank(numKeys);
+			return latest ? (numKeys - rank) : (rank - 1);
+		}
+
+		/**
+		 * The probability density, up to a constant, of rank {@code x}.
+		 */
+		private double h(double x) {
+			return Math.exp(-theta * Math.log(x));
+		}
+
+		/**
+		 * The integral of {@link #h(double)}, up to a constant.
+		 */
+		private double hIntegral(double x) {
+			double logX = Math.log(x);
+			return helper2((1.0 - theta) * logX) * logX;
+		}
+
+		/**
+		 * The inverse of {@link #hIntegral(double)}.
+		 */
+		private double hIntegralInverse(double x) {
+			double t = x * (1.0 - theta);
+			if (t < -1.0) {
+				// Limit the value to the domain of log1p, despite rounding.
+				t = -1.0;
+			}
+			return Math.exp(helper1(t) * x);
+		}
+
+		/**
+		 * Returns {@code log1p(x) / x}, which is continuous at {@code 0}.
+		 */
+		private static double helper1(double x) {
+			if (Math.abs(x) > 1e-8) {
+				return Math.log1p(x) / x;
+			}
+			return 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+		}
+
+		/**
+		 * Returns {@code expm1(x) / x}, which is continuous at {@code 0}.
+		 */
+		private static double helper2(double x) {
+			if (Math.abs(x) > 1e-8) {
+				return Math.expm1(x) / x;
+			}
+			return 1.0 + x * 0.5 * (1.0 + x * (1.0 / 3.0) * (1.0 + 0.25 * x));
+		}
+	}
+
+	/**
+	 * Returns the chooser of the keys read by a connection.
+	 *
+	 * @param parsedArguments the parsed command line arguments
+	 * @param valueGenerator the generator of random values of the connection
+	 * @return the chooser, or {@code null} if keys are read sequentially
+	 */
+	public static KeyChooser create(ParsedArguments parsedArguments, ValueGenerator valueGenerator) {
+		switch (parsedArguments.keyDistribution) {
+		case UNIFORM:
+			return new UniformKeyChooser(valueGenerator);
+		case ZIPFIAN:
+			return new ZipfianKeyChooser(valueGenerator, parsedArguments.zipfianTheta, false);
+		case HOTSPOT:
+			return new HotspotKeyChooser(valueGenerator, parsedArguments.hotspotKeyFraction,
+					parsedArguments.hotspotOperationFraction);
+		case LATEST:
+			return new ZipfianKeyChooser(valueGenerator, parsedArguments.zipfianTheta, true);
+		default:
+			return null;
+		}
+	}
+}
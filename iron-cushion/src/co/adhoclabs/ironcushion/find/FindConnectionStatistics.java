@@ -0,0 +1,85 @@
+package co.adhoclabs.ironcushion.find;
+
+import co.adhoclabs.ironcushion.AbstractQueryConnectionStatistics;
+import co.adhoclabs.ironcushion.IntervalStatistics;
+
+/**
+ * Statistics for a connection performing Mango {@code _find} queries. Each
+ * page of a query is a request, whose latency is recorded separately.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class FindConnectionStatistics extends AbstractQueryConnectionStatistics<FindQueries.Type> {
+	private final long[] docs;
+	private final long[] docsExamined;
+	private final long[] followingPages;
+
+	/**
+	 * The names of the types of queries whose latencies are recorded, in the
+	 * order of {@link FindQueries.Type}.
+	 */
+	public static final String[] OPERATION_NAMES = { "equality", "range", "in" };
+
+	public FindConnectionStatistics() {
+		this(new IntervalStatistics(OPERATION_NAMES.length));
+	}
+
+	/**
+	 * @param intervalStatistics the interval statistics to also record to
+	 */
+	public FindConnectionStatistics(IntervalStatistics intervalStatistics) {
+		super(intervalStatistics, OPERATION_NAMES.length);
+		docs = new long[OPERATION_NAMES.length];
+		docsExamined = new long[OPERATION_NAMES.length];
+		followingPages = new long[OPERATION_NAMES.length];
+	}
+
+	/**
+	 * Records a successful request for a page of a query, from sending it
+	 * until receiving its complete response.
+	 *
+	 * @param type the type of the query
+	 * @param nanos the latency in nanoseconds
+	 * @param numDocs the number of documents returned
+	 * @param numDocsExamined the number of documents examined by the server,
+	 *        or {@code -1} if it did not return its execution statistics
+	 * @param page the number of the page, starting at {@code 1}
+	 */
+	public void recordRequest(FindQueries.Type type, long nanos, int numDocs, long numDocsExamined,
+			int page) {
+		recordLatency(type, nanos);
+		docs[type.ordinal()] += numDocs;
+		if (numDocsExamined >= 0) {
+			docsExamined[type.ordinal()] += numDocsExamined;
+		}
+		if (page > 1) {
+			followingPages[type.ordinal()]++;
+		}
+	}
+
+	/**
+	 * @param type the type of query
+	 * @return the number of documents returned by all successful requests of that type
+	 */
+	public long getDocs(FindQueries.Type type) {
+		return docs[type.ordinal()];
+	}
+
+	/**
+	 * @param type the type of query
+	 * @return the number of documents examined by the server for all
+	 *         successful requests of that type
+	 */
+	public long getDocsExamined(FindQueries.Type type) {
+		return docsExamined[type.ordinal()];
+	}
+
+	/**
+	 * @param type the type of query
+	 * @return the number of successful requests of that type for a page
+	 *         after the first, by following a bookmark
+	 */
+	public long getFollowingPages(FindQueries.Type type) {
+		return followingPages[type.ordinal()];
+	}
+}
@@ -0,0 +1,278 @@
+package co.adhoclabs.ironcushion.find;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.util.CharsetUtil;
+
+import co.adhoclabs.ironcushion.AbstractBenchmarkHandler;
+import co.adhoclabs.ironcushion.AbstractQueryConnectionStatistics.RunningConnectionTimer;
+import co.adhoclabs.ironcushion.BenchmarkException;
+import co.adhoclabs.ironcushion.JsonReplyScanner;
+import co.adhoclabs.ironcushion.OpenLoopScheduler.ConnectionSchedule;
+import co.adhoclabs.ironcushion.RequestEncoder;
+import co.adhoclabs.ironcushion.ResponseCounts;
+import co.adhoclabs.ironcushion.Warmup;
+
+/**
+ * The {@link SimpleChannelUpstreamHandler} implementation for use in the
+ * {@code _find} query {@link ChannelPipeline}. Queries do not depend on each
+ * other, and so are always pipelined up to the pipeline depth.
+ *
+ * <p>If a page of a query returns as many documents as its limit, then the
+ * next page is requested with the returned bookmark, up to the maximum number
+ * of pages. Because it depends on the previous response, the request of the
+ * next page is sent before any new query, but after the queries already
+ * pipelined.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class FindHandler extends AbstractBenchmarkHandler {
+	/**
+	 * A request for a page of a query.
+	 */
+	private static final class Page {
+		private final FindQueries.Type type;
+		/**
+		 * The body of the query, without a bookmark.
+		 */
+		private final String body;
+		/**
+		 * The number of this page, starting at {@code 1}.
+		 */
+		private final int number;
+		/**
+		 * The bookmark returned with the previous page, or {@code null} if
+		 * this is the first page.
+		 */
+		private final String bookmark;
+
+		private Page(FindQueries.Type type, String body, int number, String bookmark) {
+			this.type = type;
+			this.body = body;
+			this.number = number;
+			this.bookmark = bookmark;
+		}
+	}
+
+	/**
+	 * The statistics being recorded, which are those of the warm-up until it ends.
+	 */
+	private FindConnectionStatistics connectionStatistics;
+	private final FindConnectionStatistics measuredConnectionStatistics;
+	private final FindQueries findQueries;
+	private final String findPath;
+
+	private final SendDataChannelFuture sendDataChannelFuture;
+
+	private final JsonReplyScanner jsonReplyScanner;
+	/**
+	 * The pages to request before any new query.
+	 */
+	private final Queue<Page> nextPages;
+
+	private int findQueriesSent;
+	private int requestsCompleted;
+	private final RequestEncoder requestEncoder;
+
+	public FindHandler(FindConnectionStatistics warmupConnectionStatistics,
+			FindConnectionStatistics connectionStatistics,
+			FindQueries findQueries, String findPath, CountDownLatch countDownLatch, int pipelineDepth,
+			ConnectionSchedule connectionSchedule, RequestEncoder requestEncoder, Warmup warmup,
+			int durationSecs) {
+		super(countDownLatch, pipelineDepth, connectionSchedule, warmup, durationSecs);
+
+		this.connectionStatistics = warmup.isEnabled() ? warmupConnectionStatistics : connectionStatistics;
+		this.measuredConnectionStatistics = connectionStatistics;
+		this.findQueries = findQueries;
+		this.findPath = findPath;
+		this.requestEncoder = requestEncoder;
+
+		this.sendDataChannelFuture = new SendDataChannelFuture();
+		this.jsonReplyScanner = new JsonReplyScanner();
+		this.nextPages = new ArrayDeque<Page>();
+
+		this.findQueriesSent = 0;
+		this.requestsCompleted = 0;
+	}
+
+	/**
+	 * The {@link ChannelFutureListener} called after a request is sent.
+	 */
+	private final class SendDataChannelFuture implements ChannelFutureListener {
+		@Override
+		public void operationComplete(ChannelFuture channelFuture) throws Exception {
+			synchronized (FindHandler.this) {
+				pendingRequests.sent();
+				// Guard against starting RECEIVE_DATA before this listener runs.
+				if (connectionStatistics.getRunningConnectionTimer() == RunningConnectionTimer.SEND_DATA) {
+					awaitResponses();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Starts the timer for remote processing of the first pending request if
+	 * all pending requests are sent, or stops all timers if the connection is
+	 * waiting to send the next request.
+	 */
+	private void awaitResponses() {
+		if (pendingRequests.isEmpty()) {
+			connectionStatistics.stop();
+		} else if (pendingRequests.allSent()) {
+			connectionStatistics.startRemoteProcessing(getFirstPendingQuery());
+		}
+	}
+
+	private FindQueries.Type getFirstPendingQuery() {
+		return FindQueries.Type.values()[pendingRequests.getFirstType()];
+	}
+
+	private void performNextRequest(Channel channel, long startTime) {
+		connectionStatistics.startLocalProcessing();
+
+		Page page = nextPages.poll();
+		if (page == null) {
+			FindQueries.Type type = findQueries.nextType();
+			page = new Page(type, findQueries.getBody(type), 1, null);
+			findQueriesSent++;
+		}
+		String body = (page.bookmark == null) ? page.body : FindQueries.getPageBody(page.body, page.bookmark);
+		ChannelBuffer content = ChannelBuffers.copiedBuffer(body, CharsetUtil.UTF_8);
+		ChannelBuffer request = requestEncoder.encode(HttpMethod.POST, findPath, content);
+
+		connectionStatistics.startSendData();
+		pendingRequests.add(page.type.ordinal(), startTime, content.readableBytes(), page);
+		ChannelFuture channelFuture = channel.write(request);
+		channelFuture.addListener(sendDataChannelFuture);
+	}
+
+	/**
+	 * Returns whether another request remains to be sent, which is false once
+	 * all queries are sent or the duration of the step has passed, and no
+	 * page of a query already sent remains.
+	 */
+	private boolean hasNextRequest() {
+		return !nextPages.isEmpty() ||
+				((findQueriesSent < findQueries.size()) && !isDurationOver());
+	}
+
+	private boolean canPerformNextRequest() {
+		return !pendingRequests.isFull() && hasNextRequest();
+	}
+
+	private void performNextRequestsOrFinish(Channel channel) {
+		// Keep up to the pipeline depth of requests outstanding.
+		while (canPerformNextRequest()) {
+			long startTime = getNextRequestStartTime(connectionStatistics);
+			if (startTime == NOT_DUE) {
+				break;
+			}
+			performNextRequest(channel, startTime);
+		}
+
+		if (pendingRequests.isEmpty() && !hasNextRequest()) {
+			// There are no more requests to perform.
+			if (connectionStatistics != measuredConnectionStatistics) {
+				measuredConnectionStatistics.completedDuringWarmup();
+			}
+			finished();
+		} else {
+			scheduleNextRequest(channel, canPerformNextRequest());
+			awaitResponses();
+		}
+	}
+
+	@Override
+	public synchronized void requestScheduled(Channel channel) {
+		connectionSchedule.fired();
+		performNextRequestsOrFinish(channel);
+	}
+
+	/**
+	 * Returns the reason of a failed response, or {@code null} if its content
+	 * has no {@code error} field.
+	 */
+	private String getErrorReason(HttpResponse response) {
+		if (response.isChunked()) {
+			return null;
+		}
+		ChannelBuffer content = response.getContent();
+		connectionStatistics.receivedJsonBytes(content.readableBytes());
+		return jsonReplyScanner.scan(content) ? jsonReplyScanner.getError() : null;
+	}
+
+	public synchronized void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+		connectionStatistics.startLocalProcessing();
+		// Responses arrive in the order that their requests were sent.
+		Page page = (Page) pendingRequests.getFirstAttachment();
+		long latency = System.nanoTime() - pendingRequests.getFirstStartTime();
+		connectionStatistics.sentJsonBytes(pendingRequests.getFirstSentBytes());
+		pendingRequests.removeFirst();
+
+		HttpResponse response = (HttpResponse) e.getMessage();
+		int statusCode = response.getStatus().getCode();
+		ResponseCounts responseCounts = connectionStatistics.getResponseCounts();
+		if (ResponseCounts.isSuccess(statusCode)) {
+			if (response.isChunked()) {
+				throw new BenchmarkException("Find response is chunked");
+			}
+			ChannelBuffer content = response.getContent();
+			connectionStatistics.receivedJsonBytes(content.readableBytes());
+			if (!jsonReplyScanner.scan(content) || (jsonReplyScanner.getNumDocs() < 0)) {
+				throw new BenchmarkException("Find response has no docs");
+			}
+			int numDocs = jsonReplyScanner.getNumDocs();
+			responseCounts.recordSuccess(page.type.ordinal(), statusCode);
+			connectionStatistics.recordRequest(page.type, latency, numDocs,
+					jsonReplyScanner.getTotalDocsExamined(), page.number);
+
+			// A full page may be followed by more documents.
+			String bookmark = jsonReplyScanner.getBookmark();
+			if ((numDocs == findQueries.getLimit()) && (bookmark != null) &&
+					(page.number < findQueries.getMaxPages())) {
+				nextPages.add(new Page(page.type, page.body, page.number + 1, bookmark));
+			}
+		} else {
+			responseCounts.recordFailure(page.type.ordinal(), statusCode, getErrorReason(response));
+		}
+
+		requestsCompleted++;
+		endWarmupIfOver();
+		performNextRequestsOrFinish(e.getChannel());
+	}
+
+	/**
+	 * Records to the measured statistics once the warm-up has ended.
+	 * Requests that are pending when it ends are measured.
+	 */
+	private void endWarmupIfOver() {
+		if ((connectionStatistics != measuredConnectionStatistics) &&
+				isWarmupOver(requestsCompleted)) {
+			connectionStatistics.stop();
+			connectionStatistics = measuredConnectionStatistics;
+			// This is called while processing a response.
+			connectionStatistics.startLocalProcessing();
+		}
+	}
+
+	@Override
+	public synchronized void start(Channel channel) {
+		startStep();
+		// Immediately perform the first query.
+		performNextRequestsOrFinish(channel);
+	}
+}
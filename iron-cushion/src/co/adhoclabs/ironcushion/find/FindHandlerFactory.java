@@ -0,0 +1,43 @@
+package co.adhoclabs.ironcushion.find;
+
+import java.util.List;
+
+import co.adhoclabs.ironcushion.AbstractBenchmarkHandler;
+import co.adhoclabs.ironcushion.AbstractQueryHandlerFactory;
+import co.adhoclabs.ironcushion.IntervalStatistics;
+import co.adhoclabs.ironcushion.OpenLoopScheduler;
+import co.adhoclabs.ironcushion.RequestEncoder;
+import co.adhoclabs.ironcushion.Warmup;
+
+/**
+ * The factory of handlers for connections that perform {@code _find} queries.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class FindHandlerFactory extends AbstractQueryHandlerFactory<FindConnectionStatistics> {
+	private final List<FindQueries> allFindQueries;
+	private final String findPath;
+
+	public FindHandlerFactory(int numConnections, int pipelineDepth, OpenLoopScheduler openLoopScheduler,
+			List<FindQueries> allFindQueries, String findPath, RequestEncoder requestEncoder, Warmup warmup,
+			int durationSecs) {
+		super(numConnections, pipelineDepth, openLoopScheduler, FindConnectionStatistics.OPERATION_NAMES.length,
+				requestEncoder, warmup, durationSecs);
+
+		this.allFindQueries = allFindQueries;
+		this.findPath = findPath;
+	}
+
+	@Override
+	protected FindConnectionStatistics newConnectionStatistics(IntervalStatistics intervalStatistics) {
+		return new FindConnectionStatistics(intervalStatistics);
+	}
+
+	@Override
+	protected AbstractBenchmarkHandler newHandler(FindConnectionStatistics warmupConnectionStatistics,
+			FindConnectionStatistics connectionStatistics, int connectionNum) {
+		return new FindHandler(warmupConnectionStatistics, connectionStatistics,
+				allFindQueries.get(connectionNum), findPath, countDownLatch, pipelineDepth,
+				newConnectionSchedule(), requestEncoder, warmup, durationSecs);
+	}
+}
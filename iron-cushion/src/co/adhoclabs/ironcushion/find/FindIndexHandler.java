@@ -0,0 +1,87 @@
+package co.adhoclabs.ironcushion.find;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.json.simple.JSONObject;
+
+import co.adhoclabs.ironcushion.AbstractIndexHandler;
+import co.adhoclabs.ironcushion.IndexConnectionStatistics;
+import co.adhoclabs.ironcushion.RequestEncoder;
+import co.adhoclabs.ironcushion.ResponseCounts;
+import co.adhoclabs.ironcushion.Warmup;
+
+/**
+ * The {@link SimpleChannelUpstreamHandler} implementation for use in the
+ * {@link ChannelPipeline} that creates the {@link FindIndexes} and builds
+ * them.
+ *
+ * <p>Creating an index that exists succeeds without changing it. The indexes
+ * are built by a query that uses one of them, which CouchDB answers only once
+ * every index of their design document is up to date.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class FindIndexHandler extends AbstractIndexHandler {
+	/**
+	 * The names of the types of operations, which are creating the indexes
+	 * and building them.
+	 */
+	public static final String[] OPERATION_NAMES = { "create", "build" };
+
+	private final List<JSONObject> indexes;
+	private final JSONObject buildQuery;
+	private final String indexPath;
+	private final String findPath;
+
+	private int indexesCreated;
+
+	/**
+	 * @param buildsIndexes whether this connection creates the indexes and
+	 *        builds them, instead of finishing immediately
+	 * @param indexes the bodies of the requests that create the indexes
+	 * @param buildQuery the body of the query that builds the indexes
+	 */
+	public FindIndexHandler(IndexConnectionStatistics connectionStatistics, boolean buildsIndexes,
+			List<JSONObject> indexes, JSONObject buildQuery, String indexPath, String findPath,
+			CountDownLatch countDownLatch, RequestEncoder requestEncoder, Warmup warmup) {
+		super(connectionStatistics, buildsIndexes, countDownLatch, requestEncoder, warmup);
+
+		this.indexes = indexes;
+		this.buildQuery = buildQuery;
+		this.indexPath = indexPath;
+		this.findPath = findPath;
+	}
+
+	@Override
+	protected void sendPrepareRequest(Channel channel) {
+		sendRequest(channel, HttpMethod.POST, indexPath, indexes.get(0));
+	}
+
+	@Override
+	protected void receivedPrepareResponse(Channel channel, HttpResponse response, int statusCode) {
+		if (!ResponseCounts.isSuccess(statusCode)) {
+			prepareFailed(response, statusCode);
+			return;
+		}
+
+		recordPrepareSuccess(statusCode);
+		indexesCreated++;
+		if (indexesCreated < indexes.size()) {
+			sendRequest(channel, HttpMethod.POST, indexPath, indexes.get(indexesCreated));
+			return;
+		}
+		// The indexes are built by the first query that uses any of them.
+		startBuild(channel);
+	}
+
+	@Override
+	protected void sendBuildRequest(Channel channel) {
+		sendRequest(channel, HttpMethod.POST, findPath, buildQuery);
+	}
+}
@@ -0,0 +1,41 @@
+package co.adhoclabs.ironcushion.find;
+
+import java.util.List;
+
+import org.json.simple.JSONObject;
+
+import co.adhoclabs.ironcushion.AbstractIndexHandler;
+import co.adhoclabs.ironcushion.AbstractIndexHandlerFactory;
+import co.adhoclabs.ironcushion.IndexConnectionStatistics;
+import co.adhoclabs.ironcushion.RequestEncoder;
+import co.adhoclabs.ironcushion.Warmup;
+
+/**
+ * The factory of handlers for connections that create the {@link FindIndexes}
+ * and build them, which only the first connection does.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class FindIndexHandlerFactory extends AbstractIndexHandlerFactory {
+	private final List<JSONObject> indexes;
+	private final JSONObject buildQuery;
+	private final String indexPath;
+	private final String findPath;
+
+	public FindIndexHandlerFactory(int numConnections, List<JSONObject> indexes, JSONObject buildQuery,
+			String indexPath, String findPath, RequestEncoder requestEncoder, Warmup warmup) {
+		super(numConnections, FindIndexHandler.OPERATION_NAMES, requestEncoder, warmup);
+
+		this.indexes = indexes;
+		this.buildQuery = buildQuery;
+		this.indexPath = indexPath;
+		this.findPath = findPath;
+	}
+
+	@Override
+	protected AbstractIndexHandler newHandler(IndexConnectionStatistics connectionStatistics,
+			boolean buildsIndexes) {
+		return new FindIndexHandler(connectionStatistics, buildsIndexes, indexes, buildQuery,
+				indexPath, findPath, countDownLatch, requestEncoder, warmup);
+	}
+}
@@ -0,0 +1,96 @@
+package co.adhoclabs.ironcushion.find;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+/**
+ * The Mango indexes created before {@code _find} queries. It defines a JSON
+ * index named {@code by_<field>} for each field of the documents, whose only
+ * field is that field. All indexes are in the same design document, so that
+ * CouchDB builds them together.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class FindIndexes {
+	/**
+	 * The name of the design document of the indexes, without its
+	 * {@code _design/} prefix.
+	 */
+	public static final String DESIGN_DOCUMENT_NAME = "iron_cushion_find";
+
+	private FindIndexes() {
+	}
+
+	/**
+	 * @param field the name of the field
+	 * @return the name of the index of the field
+	 */
+	public static String getIndexName(String field) {
+		return "by_" + field;
+	}
+
+	/**
+	 * Returns the body of the request that creates the index of the given field.
+	 *
+	 * @param field the field to index
+	 * @return the body of the request
+	 */
+	@SuppressWarnings("unchecked")
+	public static JSONObject createIndex(String field) {
+		JSONArray fields = new JSONArray();
+		fields.add(field);
+		JSONObject index = new JSONObject();
+		index.put("fields", fields);
+
+		JSONObject request = new JSONObject();
+		request.put("index", index);
+		request.put("ddoc", DESIGN_DOCUMENT_NAME);
+		request.put("name", getIndexName(field));
+		request.put("type", "json");
+		return request;
+	}
+
+	/**
+	 * Returns the bodies of the requests that create the indexes of the given
+	 * fields.
+	 *
+	 * @param fields the fields to index
+	 * @return the bodies of the requests, in the order of the fields
+	 */
+	public static List<JSONObject> create(List<String> fields) {
+		List<JSONObject> indexes = new ArrayList<JSONObject>(fields.size());
+		for (String field : fields) {
+			indexes.add(createIndex(field));
+		}
+		return indexes;
+	}
+
+	/**
+	 * Returns the body of the query that builds the indexes, which matches
+	 * every document with the first field using its index, and returns at
+	 * most one.
+	 *
+	 * @param fields the fields that are indexed
+	 * @return the body of the query
+	 */
+	@SuppressWarnings("unchecked")
+	public static JSONObject createBuildQuery(List<String> fields) {
+		String field = fields.get(0);
+		JSONObject condition = new JSONObject();
+		condition.put("$gt", null);
+		JSONObject selector = new JSONObject();
+		selector.put(field, condition);
+		JSONArray useIndex = new JSONArray();
+		useIndex.add(DESIGN_DOCUMENT_NAME);
+		useIndex.add(getIndexName(field));
+
+		JSONObject query = new JSONObject();
+		query.put("selector", selector);
+		query.put("use_index", useIndex);
+		query.put("limit", 1);
+		return query;
+	}
+}
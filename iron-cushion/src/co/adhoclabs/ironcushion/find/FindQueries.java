@@ -0,0 +1,186 @@
+package co.adhoclabs.ironcushion.find;
+
+import java.util.List;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+import co.adhoclabs.ironcushion.ParsedArguments;
+import co.adhoclabs.ironcushion.QueryTypeWeights;
+import co.adhoclabs.ironcushion.ValueGenerator;
+import co.adhoclabs.ironcushion.WrittenValues;
+
+/**
+ * The Mango {@code _find} queries performed by a connection. The type of each
+ * query is chosen at random by its weight, and its selector is on a single
+ * field with values of that field in bulk inserted documents from
+ * {@link WrittenValues}, so that they match documents in the database. Every
+ * query has a limit and requests its execution statistics.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class FindQueries {
+	/**
+	 * An enumeration over all types of {@code _find} queries.
+	 */
+	public enum Type {
+		/**
+		 * The documents whose field equals a value.
+		 */
+		EQUALITY,
+		/**
+		 * The documents whose field is in a range of values.
+		 */
+		RANGE,
+		/**
+		 * The documents whose field equals any of a set of values.
+		 */
+		IN,
+	}
+
+	/**
+	 * The number of values of each {@link Type#IN} query.
+	 */
+	private static final int NUM_IN_VALUES = 4;
+
+	private final WrittenValues writtenValues;
+	private final ValueGenerator valueGenerator;
+	private final List<String> fields;
+	private final int numQueries;
+	private final int limit;
+	private final int maxPages;
+	private final QueryTypeWeights<Type> typeWeights;
+
+	private FindQueries(WrittenValues writtenValues, ValueGenerator valueGenerator, List<String> fields,
+			int numQueries, ParsedArguments parsedArguments) {
+		this.writtenValues = writtenValues;
+		this.valueGenerator = valueGenerator;
+		this.fields = fields;
+		this.numQueries = numQueries;
+		this.limit = parsedArguments.findQueryLimit;
+		this.maxPages = parsedArguments.findPages;
+		this.typeWeights = new QueryTypeWeights<Type>(Type.values(),
+				parsedArguments.findEqualityWeight,
+				parsedArguments.findRangeWeight,
+				parsedArguments.findInWeight);
+	}
+
+	/**
+	 * @return the number of queries to perform, not counting their following pages
+	 */
+	public int size() {
+		return numQueries;
+	}
+
+	/**
+	 * @return the maximum number of documents returned by each request
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * @return the maximum number of pages read by each query, including its first
+	 */
+	public int getMaxPages() {
+		return maxPages;
+	}
+
+	/**
+	 * @return the type of the next query
+	 */
+	public Type nextType() {
+		return typeWeights.nextType(valueGenerator);
+	}
+
+	/**
+	 * Returns the condition on a range of values of the given field.
+	 */
+	@SuppressWarnings("unchecked")
+	private JSONObject getRangeCondition(String field) {
+		WrittenValues.Range range = writtenValues.getRange(field, valueGenerator);
+		JSONObject condition = new JSONObject();
+		condition.put("$gte", range.start);
+		condition.put("$lte", range.end);
+		return condition;
+	}
+
+	@SuppressWarnings("unchecked")
+	private JSONObject getInCondition(String field) {
+		JSONArray values = new JSONArray();
+		for (int i = 0; i < NUM_IN_VALUES; ++i) {
+			values.add(writtenValues.getValue(field, valueGenerator));
+		}
+		JSONObject condition = new JSONObject();
+		condition.put("$in", values);
+		return condition;
+	}
+
+	/**
+	 * Returns the body of a new query of the given type, which requests its
+	 * first page.
+	 *
+	 * @param type the type of the query
+	 * @return the body
+	 */
+	@SuppressWarnings("unchecked")
+	public String getBody(Type type) {
+		String field = fields.get(valueGenerator.nextInt(fields.size()));
+		JSONObject selector = new JSONObject();
+		switch (type) {
+		case EQUALITY:
+			selector.put(field, writtenValues.getValue(field, valueGenerator));
+			break;
+		case RANGE:
+			selector.put(field, getRangeCondition(field));
+			break;
+		case IN:
+			selector.put(field, getInCondition(field));
+			break;
+		default:
+			break;
+		}
+
+		JSONObject query = new JSONObject();
+		query.put("selector", selector);
+		query.put("limit", limit);
+		query.put("execution_stats", Boolean.TRUE);
+		return query.toString();
+	}
+
+	/**
+	 * Returns the body of a query that requests the page after the given
+	 * bookmark.
+	 *
+	 * @param body the body of the query, as returned by {@link #getBody(Type)}
+	 * @param bookmark the bookmark returned with the previous page
+	 * @return the body
+	 */
+	public static String getPageBody(String body, String bookmark) {
+		StringBuilder sb = new StringBuilder(body.length() + bookmark.length() + 16);
+		// Add the bookmark before the closing brace of the query.
+		sb.append(body, 0, body.length() - 1);
+		sb.append(",\"bookmark\":").append(JSONValue.toJSONString(bookmark)).append('}');
+		return sb.toString();
+	}
+
+	/**
+	 * Creates the {@code _find} queries performed by a connection.
+	 *
+	 * @param writtenValues the values of the fields of bulk inserted documents
+	 * @param valueGenerator the generator of random values of the connection
+	 * @param fields the fields that are indexed
+	 * @param parsedArguments the parsed command line arguments
+	 * @return the {@code _find} queries
+	 */
+	public static FindQueries createFindQueries(WrittenValues writtenValues, ValueGenerator valueGenerator,
+			List<String> fields, ParsedArguments parsedArguments) {
+		int numQueries = parsedArguments.numFindQueries;
+		if ((numQueries == 0) && (parsedArguments.findDuration > 0)) {
+			// Perform queries until the duration passes.
+			numQueries = Integer.MAX_VALUE;
+		}
+		return new FindQueries(writtenValues, valueGenerator, fields, numQueries, parsedArguments);
+	}
+}
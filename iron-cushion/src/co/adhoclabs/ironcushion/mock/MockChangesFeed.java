@@ -0,0 +1,195 @@
+package co.adhoclabs.ironcushion.mock;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.handler.codec.http.DefaultHttpChunk;
+import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.jboss.netty.util.CharsetUtil;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.Timer;
+import org.jboss.netty.util.TimerTask;
+import org.json.simple.JSONValue;
+
+/**
+ * A response of the changes feed of a {@link MockDatabase}, which is written
+ * as a chunked response like that of CouchDB. A normal feed lists the changes
+ * so far. A longpoll feed waits until there is a change, and then lists the
+ * changes so far. A continuous feed writes a line for each change as it
+ * happens. Longpoll and continuous feeds end once no change happens for their
+ * timeout.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class MockChangesFeed implements MockDatabase.ChangesListener, TimerTask {
+	/**
+	 * An enumeration over the types of feed.
+	 */
+	public enum Type {
+		NORMAL,
+		LONGPOLL,
+		CONTINUOUS,
+	}
+
+	private final Channel channel;
+	private final boolean keepAlive;
+	private final MockDatabase database;
+	private final Type type;
+	private final boolean includeDocs;
+	private final Timer timer;
+	private final long timeoutMillis;
+
+	/**
+	 * The sequence of the last change written.
+	 */
+	private long since;
+	private int changesWritten;
+	private Timeout timeout;
+	private boolean ended;
+
+	/**
+	 * @param since the update sequence to write the changes after
+	 * @param timer the timer that ends the feed after its timeout
+	 * @param timeoutMillis the number of milliseconds without changes after
+	 *        which a longpoll or continuous feed ends
+	 */
+	public MockChangesFeed(Channel channel, boolean keepAlive, MockDatabase database, Type type,
+			long since, boolean includeDocs, Timer timer, long timeoutMillis) {
+		this.channel = channel;
+		this.keepAlive = keepAlive;
+		this.database = database;
+		this.type = type;
+		this.since = since;
+		this.includeDocs = includeDocs;
+		this.timer = timer;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	private void writeChunk(String content) {
+		channel.write(new DefaultHttpChunk(ChannelBuffers.copiedBuffer(content, CharsetUtil.UTF_8)));
+	}
+
+	/**
+	 * Returns the line of the given change, which is the same as in CouchDB.
+	 */
+	private String getLine(MockDatabase.Change change) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"seq\":").append(change.seq);
+		sb.append(",\"id\":\"").append(JSONValue.escape(change.id)).append('"');
+		sb.append(",\"changes\":[{\"rev\":\"").append(change.revision.rev).append("\"}]");
+		if (change.revision.isDeleted()) {
+			sb.append(",\"deleted\":true");
+		}
+		if (includeDocs) {
+			sb.append(",\"doc\":");
+			if (change.revision.isDeleted()) {
+				sb.append("{\"_id\":\"").append(JSONValue.escape(change.id)).append('"');
+				sb.append(",\"_rev\":\"").append(change.revision.rev).append("\",\"_deleted\":true}");
+			} else {
+				sb.append(new String(change.revision.body, CharsetUtil.UTF_8));
+			}
+		}
+		sb.append('}');
+		return sb.toString();
+	}
+
+	/**
+	 * Writes the changes since the last written, and returns their number.
+	 */
+	private int writeChanges() {
+		List<MockDatabase.Change> changes = database.getChanges(since);
+		for (MockDatabase.Change change : changes) {
+			String line = getLine(change);
+			if (type == Type.CONTINUOUS) {
+				writeChunk(line + "\n");
+			} else {
+				// The results of other feeds are separated by commas.
+				writeChunk(((changesWritten == 0) ? "" : ",\n") + line);
+			}
+			since = change.seq;
+			changesWritten++;
+		}
+		return changes.size();
+	}
+
+	private void scheduleTimeout() {
+		if (timeout != null) {
+			timeout.cancel();
+		}
+		timeout = timer.newTimeout(this, timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private void end() {
+		ended = true;
+		database.removeChangesListener(this);
+		if (timeout != null) {
+			timeout.cancel();
+		}
+		if (type == Type.CONTINUOUS) {
+			writeChunk("{\"last_seq\":" + since + "}\n");
+		} else {
+			writeChunk("\n],\n\"last_seq\":" + since + "}\n");
+		}
+		ChannelFuture channelFuture = channel.write(HttpChunk.LAST_CHUNK);
+		if (!keepAlive) {
+			channelFuture.addListener(ChannelFutureListener.CLOSE);
+		}
+	}
+
+	/**
+	 * Writes the start of the response and the changes so far, and then waits
+	 * for changes if the feed has not ended.
+	 */
+	public synchronized void start() {
+		HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+		response.setHeader(HttpHeaders.Names.CONTENT_TYPE, "application/json");
+		response.setHeader(HttpHeaders.Names.TRANSFER_ENCODING, HttpHeaders.Values.CHUNKED);
+		response.setChunked(true);
+		channel.write(response);
+		if (type != Type.CONTINUOUS) {
+			writeChunk("{\"results\":[\n");
+		}
+
+		int numChanges = writeChanges();
+		if ((type == Type.NORMAL) || ((type == Type.LONGPOLL) && (numChanges > 0))) {
+			end();
+			return;
+		}
+		// Register before the timeout, so that no change is missed.
+		database.addChangesListener(this);
+		writeChanges();
+		if ((type == Type.LONGPOLL) && (changesWritten > 0)) {
+			end();
+		} else {
+			scheduleTimeout();
+		}
+	}
+
+	@Override
+	public synchronized void changed() {
+		if (ended || (writeChanges() == 0)) {
+			return;
+		}
+		if (type == Type.LONGPOLL) {
+			end();
+		} else {
+			scheduleTimeout();
+		}
+	}
+
+	@Override
+	public synchronized void run(Timeout timeout) {
+		if (!ended && (timeout == this.timeout)) {
+			end();
+		}
+	}
+}
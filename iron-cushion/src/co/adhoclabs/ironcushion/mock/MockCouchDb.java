@@ -0,0 +1,153 @@
+package co.adhoclabs.ironcushion.mock;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.handler.codec.http.HttpChunkAggregator;
+import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
+import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timer;
+
+/**
+ * A server that implements enough of the document API of CouchDB to run the
+ * benchmark against, so that the maximum throughput and the overhead of the
+ * benchmark itself can be measured without a database. All documents are kept
+ * in memory. Every database exists, and is created empty when first used.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class MockCouchDb {
+	private static final String PORT_PREFIX = "--port=";
+	private static final String LATENCY_PREFIX = "--latency=";
+	private static final String IO_THREADS_PREFIX = "--io_threads=";
+	/**
+	 * The largest request that is accepted, which bounds a bulk insert.
+	 */
+	private static final int MAX_CONTENT_LENGTH = 256 * 1024 * 1024;
+
+	private final ConcurrentMap<String, MockDatabase> databases;
+	private final ServerBootstrap serverBootstrap;
+	private final Timer timer;
+	private final Timer feedTimer;
+
+	/**
+	 * @param ioThreads the number of threads performing I/O
+	 * @param latencyMillis the number of milliseconds to delay every response by
+	 */
+	public MockCouchDb(int ioThreads, int latencyMillis) {
+		this.databases = new ConcurrentHashMap<String, MockDatabase>();
+		this.serverBootstrap = new ServerBootstrap(new NioServerSocketChannelFactory(
+				Executors.newCachedThreadPool(), Executors.newCachedThreadPool(), ioThreads));
+		serverBootstrap.setOption("child.tcpNoDelay", true);
+		serverBootstrap.setOption("child.keepAlive", true);
+
+		final long latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+		// The default tick of 100 milliseconds is too coarse for latencies.
+		this.timer = (latencyNanos > 0) ? new HashedWheelTimer(1, TimeUnit.MILLISECONDS) : null;
+		this.feedTimer = new HashedWheelTimer();
+		serverBootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+			@Override
+			public ChannelPipeline getPipeline() throws Exception {
+				ChannelPipeline pipeline = Channels.pipeline();
+				pipeline.addLast("decoder", new HttpRequestDecoder());
+				pipeline.addLast("aggregator", new HttpChunkAggregator(MAX_CONTENT_LENGTH));
+				pipeline.addLast("encoder", new HttpResponseEncoder());
+				pipeline.addLast("handler", new MockHandler(MockCouchDb.this, timer, feedTimer, latencyNanos));
+				return pipeline;
+			}
+		});
+	}
+
+	/**
+	 * @param name the name of the database
+	 * @return the database, which is created if it does not exist
+	 */
+	public MockDatabase getDatabase(String name) {
+		MockDatabase database = databases.get(name);
+		if (database == null) {
+			MockDatabase newDatabase = new MockDatabase(name);
+			database = databases.putIfAbsent(name, newDatabase);
+			if (database == null) {
+				database = newDatabase;
+			}
+		}
+		return database;
+	}
+
+	/**
+	 * @param name the name of the database
+	 * @return {@code true} if the database was created, or {@code false} if it exists
+	 */
+	public boolean createDatabase(String name) {
+		return (databases.putIfAbsent(name, new MockDatabase(name)) == null);
+	}
+
+	/**
+	 * @param name the name of the database
+	 * @return {@code true} if the database was deleted, or {@code false} if it did not exist
+	 */
+	public boolean deleteDatabase(String name) {
+		return (databases.remove(name) != null);
+	}
+
+	/**
+	 * Starts accepting connections on the given address.
+	 *
+	 * @param address the address to listen on
+	 */
+	public void bind(InetSocketAddress address) {
+		serverBootstrap.bind(address);
+	}
+
+	/**
+	 * Closes all connections and stops all threads.
+	 */
+	public void release() {
+		serverBootstrap.releaseExternalResources();
+		if (timer != null) {
+			timer.stop();
+		}
+		feedTimer.stop();
+	}
+
+	public static void main(String[] args) {
+		int port = 5984;
+		int latencyMillis = 0;
+		int ioThreads = Runtime.getRuntime().availableProcessors();
+
+		for (String arg : args) {
+			if (arg.startsWith(PORT_PREFIX)) {
+				port = Integer.parseInt(arg.substring(PORT_PREFIX.length()));
+			} else if (arg.startsWith(LATENCY_PREFIX)) {
+				latencyMillis = Integer.parseInt(arg.substring(LATENCY_PREFIX.length()));
+			} else if (arg.startsWith(IO_THREADS_PREFIX)) {
+				ioThreads = Integer.parseInt(arg.substring(IO_THREADS_PREFIX.length()));
+			} else {
+				throw new IllegalArgumentException("Unrecognized command line argument: " + arg);
+			}
+		}
+
+		if ((port <= 0) || (port > 65535)) {
+			throw new IllegalArgumentException("Value --port must be > 0 and <= 65535");
+		}
+		if (latencyMillis < 0) {
+			throw new IllegalArgumentException("Value --latency must be >= 0");
+		}
+		if (ioThreads <= 0) {
+			throw new IllegalArgumentException("Value --io_threads must be > 0");
+		}
+
+		MockCouchDb mockCouchDb = new MockCouchDb(ioThreads, latencyMillis);
+		mockCouchDb.bind(new InetSocketAddress(port));
+		System.out.println("Mock CouchDB listening on port " + port);
+	}
+}
@@ -0,0 +1,420 @@
+package co.adhoclabs.ironcushion.mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.netty.util.CharsetUtil;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+/**
+ * A database of the {@link MockCouchDb} server, which keeps the latest
+ * revision of every document in memory. Writes are atomic per document by
+ * replacing its latest revision only if it was not replaced concurrently, and
+ * so concurrent writes of the same document conflict as they do in CouchDB.
+ *
+ * <p>Every method that writes a document returns its result as the JSON
+ * object that CouchDB returns for it, whether or not it succeeded.
+ *
+ * <p>Each write is given the next update sequence of the database, and the
+ * changes feed lists each document once, at the sequence of its latest write.
+ * A write that completes after a concurrent write with a later sequence may
+ * be missed by a feed that has already read past it.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class MockDatabase {
+	/**
+	 * The latest revision of a document, which may be deleted.
+	 */
+	public static final class Revision {
+		public final String rev;
+		/**
+		 * The body of the document with its {@code _id} and {@code _rev}, or
+		 * {@code null} if deleted.
+		 */
+		public final byte[] body;
+		/**
+		 * The update sequence of the database at the write of this revision.
+		 */
+		public final long seq;
+
+		private Revision(String rev, byte[] body, long seq) {
+			this.rev = rev;
+			this.body = body;
+			this.seq = seq;
+		}
+
+		public boolean isDeleted() {
+			return (body == null);
+		}
+	}
+
+	/**
+	 * A document in the changes feed, at the sequence of its latest write.
+	 */
+	public static final class Change {
+		public final long seq;
+		public final String id;
+		public final Revision revision;
+
+		private Change(long seq, String id, Revision revision) {
+			this.seq = seq;
+			this.id = id;
+			this.revision = revision;
+		}
+	}
+
+	/**
+	 * A listener notified after every write of the database.
+	 */
+	public interface ChangesListener {
+		/**
+		 * Called after a document is written, by the thread that wrote it.
+		 */
+		void changed();
+	}
+
+	private final String name;
+	private final ConcurrentMap<String, Revision> revisions;
+	private final AtomicLong updateSeq;
+	/**
+	 * The identifier of each document by the sequence of its latest write.
+	 */
+	private final ConcurrentSkipListMap<Long, String> changes;
+	private final List<ChangesListener> changesListeners;
+	/**
+	 * The design document and name of each Mango index, separated by a slash.
+	 */
+	private final Set<String> indexes;
+
+	public MockDatabase(String name) {
+		this.name = name;
+		this.revisions = new ConcurrentHashMap<String, Revision>();
+		this.updateSeq = new AtomicLong();
+		this.changes = new ConcurrentSkipListMap<Long, String>();
+		this.changesListeners = new CopyOnWriteArrayList<ChangesListener>();
+		this.indexes = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	}
+
+	/**
+	 * Returns a new revision following the given one. Its number is one more
+	 * than that of the given revision, and its hash is the update sequence of
+	 * the database at the write, which is unique.
+	 */
+	private static String nextRev(Revision revision, long seq) {
+		int revNumber = 1;
+		if (revision != null) {
+			revNumber += Integer.parseInt(revision.rev.substring(0, revision.rev.indexOf('-')));
+		}
+		String hash = Long.toHexString(seq);
+		StringBuilder sb = new StringBuilder(43);
+		sb.append(revNumber).append('-');
+		for (int i = hash.length(); i < 32; ++i) {
+			sb.append('0');
+		}
+		sb.append(hash);
+		return sb.toString();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static JSONObject okResult(String id, String rev) {
+		JSONObject result = new JSONObject();
+		result.put("ok", Boolean.TRUE);
+		result.put("id", id);
+		result.put("rev", rev);
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	static JSONObject errorResult(String id, String error, String reason) {
+		JSONObject result = new JSONObject();
+		if (id != null) {
+			result.put("id", id);
+		}
+		result.put("error", error);
+		result.put("reason", reason);
+		return result;
+	}
+
+	private static JSONObject conflictResult(String id) {
+		return errorResult(id, "conflict", "Document update conflict.");
+	}
+
+	/**
+	 * Returns whether the given revision of the document is the one being
+	 * replaced. A document that does not exist or is deleted can be written
+	 * without a revision.
+	 */
+	private static boolean isCurrent(Revision revision, String rev) {
+		if (rev == null) {
+			return (revision == null) || revision.isDeleted();
+		}
+		return (revision != null) && rev.equals(revision.rev);
+	}
+
+	/**
+	 * Replaces the latest revision of the given document, unless it was
+	 * replaced concurrently.
+	 */
+	private boolean replace(String id, Revision revision, Revision newRevision) {
+		if (revision == null) {
+			return (revisions.putIfAbsent(id, newRevision) == null);
+		}
+		return revisions.replace(id, revision, newRevision);
+	}
+
+	/**
+	 * Moves the given document to the sequence of its new revision in the
+	 * changes feed, and notifies every listener.
+	 */
+	private void changed(String id, Revision revision, Revision newRevision) {
+		changes.put(newRevision.seq, id);
+		if (revision != null) {
+			changes.remove(revision.seq);
+		}
+		for (ChangesListener changesListener : changesListeners) {
+			changesListener.changed();
+		}
+	}
+
+	/**
+	 * @return the name of this database
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @param id the identifier of the document
+	 * @return the latest revision of the document, or {@code null} if it was never written
+	 */
+	public Revision get(String id) {
+		return revisions.get(id);
+	}
+
+	/**
+	 * Creates or updates a document.
+	 *
+	 * @param id the identifier of the document
+	 * @param document the body of the document, whose {@code _rev} is that of
+	 *        the revision being updated, and which is modified
+	 * @return the result of the write
+	 */
+	@SuppressWarnings("unchecked")
+	public JSONObject put(String id, JSONObject document) {
+		if (Boolean.TRUE.equals(document.get("_deleted"))) {
+			return delete(id, (String) document.get("_rev"));
+		}
+		Revision revision = revisions.get(id);
+		if (!isCurrent(revision, (String) document.get("_rev"))) {
+			return conflictResult(id);
+		}
+		long seq = updateSeq.incrementAndGet();
+		String rev = nextRev(revision, seq);
+		document.put("_id", id);
+		document.put("_rev", rev);
+		byte[] body = document.toString().getBytes(CharsetUtil.UTF_8);
+		Revision newRevision = new Revision(rev, body, seq);
+		if (!replace(id, revision, newRevision)) {
+			return conflictResult(id);
+		}
+		changed(id, revision, newRevision);
+		return okResult(id, rev);
+	}
+
+	/**
+	 * Deletes a document.
+	 *
+	 * @param id the identifier of the document
+	 * @param rev the revision being deleted
+	 * @return the result of the delete
+	 */
+	public JSONObject delete(String id, String rev) {
+		Revision revision = revisions.get(id);
+		if (revision == null) {
+			return errorResult(id, "not_found", "missing");
+		} else if (revision.isDeleted()) {
+			return errorResult(id, "not_found", "deleted");
+		} else if (!isCurrent(revision, rev)) {
+			return conflictResult(id);
+		}
+		long seq = updateSeq.incrementAndGet();
+		String newRev = nextRev(revision, seq);
+		Revision newRevision = new Revision(newRev, null, seq);
+		if (!replace(id, revision, newRevision)) {
+			return conflictResult(id);
+		}
+		changed(id, revision, newRevision);
+		return okResult(id, newRev);
+	}
+
+	/**
+	 * @return the information about this database returned by {@code GET /{db}}
+	 */
+	@SuppressWarnings("unchecked")
+	public JSONObject getInfo() {
+		long docCount = 0;
+		long docDelCount = 0;
+		for (Revision revision : revisions.values()) {
+			if (revision.isDeleted()) {
+				docDelCount++;
+			} else {
+				docCount++;
+			}
+		}
+		JSONObject info = new JSONObject();
+		info.put("db_name", name);
+		info.put("doc_count", docCount);
+		info.put("doc_del_count", docDelCount);
+		info.put("update_seq", updateSeq.get());
+		return info;
+	}
+
+	/**
+	 * @return the update sequence of the latest write of this database
+	 */
+	public long getUpdateSeq() {
+		return updateSeq.get();
+	}
+
+	/**
+	 * @param since the update sequence to list the changes after
+	 * @return every document whose latest write follows the given sequence,
+	 *         in the order of their sequences
+	 */
+	public List<Change> getChanges(long since) {
+		List<Change> changesSince = new ArrayList<Change>();
+		for (Map.Entry<Long, String> entry : changes.tailMap(since, false).entrySet()) {
+			long seq = entry.getKey();
+			String id = entry.getValue();
+			Revision revision = revisions.get(id);
+			// Skip a document written again since its entry was read.
+			if ((revision != null) && (revision.seq == seq)) {
+				changesSince.add(new Change(seq, id, revision));
+			}
+		}
+		return changesSince;
+	}
+
+	/**
+	 * @param changesListener the listener to notify after every write
+	 */
+	public void addChangesListener(ChangesListener changesListener) {
+		changesListeners.add(changesListener);
+	}
+
+	/**
+	 * @param changesListener the listener to no longer notify
+	 */
+	public void removeChangesListener(ChangesListener changesListener) {
+		changesListeners.remove(changesListener);
+	}
+
+	/**
+	 * Returns the result of querying a view. Map functions are not evaluated,
+	 * and so every view has a row with a {@code null} key for each document
+	 * that is not a design document, and its reduced value is the number of
+	 * documents ever written, without deleted documents being counted out.
+	 *
+	 * @param reduce whether the view is reduced
+	 * @param limit the maximum number of rows if not reduced
+	 * @return the result returned by {@code GET /{db}/_design/{ddoc}/_view/{view}}
+	 */
+	@SuppressWarnings("unchecked")
+	public JSONObject getViewResult(boolean reduce, int limit) {
+		JSONObject result = new JSONObject();
+		JSONArray rows = new JSONArray();
+		if (reduce) {
+			JSONObject row = new JSONObject();
+			row.put("key", null);
+			row.put("value", (long) revisions.size());
+			rows.add(row);
+			result.put("rows", rows);
+			return result;
+		}
+		for (Map.Entry<String, Revision> entry : revisions.entrySet()) {
+			if (rows.size() == limit) {
+				break;
+			}
+			String id = entry.getKey();
+			if (!entry.getValue().isDeleted() && !id.startsWith("_design/")) {
+				JSONObject row = new JSONObject();
+				row.put("id", id);
+				row.put("key", null);
+				row.put("value", 1L);
+				rows.add(row);
+			}
+		}
+		result.put("total_rows", (long) revisions.size());
+		result.put("offset", 0L);
+		result.put("rows", rows);
+		return result;
+	}
+
+	/**
+	 * Creates a Mango index. Its fields are not indexed.
+	 *
+	 * @param designDocumentId the identifier of the design document of the index
+	 * @param indexName the name of the index
+	 * @return {@code true} if the index was created, or {@code false} if it exists
+	 */
+	public boolean createIndex(String designDocumentId, String indexName) {
+		return indexes.add(designDocumentId + '/' + indexName);
+	}
+
+	/**
+	 * Returns the result of a Mango query. Selectors are not evaluated, and so
+	 * every document that is not a design document matches, in the order of
+	 * this database. The bookmark of the result is the number of matching
+	 * documents before the next page, and every document up to the last one
+	 * returned is examined.
+	 *
+	 * @param skip the number of matching documents before this page
+	 * @param limit the maximum number of documents returned
+	 * @param executionStats whether to include the execution statistics
+	 * @return the JSON of the result returned by {@code POST /{db}/_find}
+	 */
+	public String getFindResult(int skip, int limit, boolean executionStats) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"docs\":[");
+		int matched = 0;
+		int returned = 0;
+		long examined = 0;
+		for (Map.Entry<String, Revision> entry : revisions.entrySet()) {
+			if (returned == limit) {
+				break;
+			}
+			Revision revision = entry.getValue();
+			examined++;
+			if (revision.isDeleted() || entry.getKey().startsWith("_design/")) {
+				continue;
+			} else if (matched++ < skip) {
+				continue;
+			}
+			if (returned++ > 0) {
+				sb.append(',');
+			}
+			// The body is already the JSON of the document.
+			sb.append(new String(revision.body, CharsetUtil.UTF_8));
+		}
+		sb.append("],\"bookmark\":\"").append(skip + returned).append('"');
+		if (executionStats) {
+			sb.append(",\"execution_stats\":{\"total_keys_examined\":0");
+			sb.append(",\"total_docs_examined\":").append(examined);
+			sb.append(",\"total_quorum_docs_examined\":0");
+			sb.append(",\"results_returned\":").append(returned);
+			sb.append(",\"execution_time_ms\":0}");
+		}
+		sb.append('}');
+		return sb.toString();
+	}
+}
@@ -0,0 +1,482 @@
+package co.adhoclabs.ironcushion.mock;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ExceptionEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.jboss.netty.handler.codec.http.QueryStringDecoder;
+import org.jboss.netty.util.CharsetUtil;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.Timer;
+import org.jboss.netty.util.TimerTask;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONAware;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * The {@link SimpleChannelUpstreamHandler} implementation for use in the
+ * {@link ChannelPipeline} of each connection to the {@link MockCouchDb}
+ * server. Responses are written in the order that their requests were
+ * received, so that requests can be pipelined. If the server has latency, each
+ * response is queued until its latency has passed. Responses of the changes
+ * feed are written as changes happen, and so are not delayed by the latency.
+ * Mango indexes can be created and queried, but selectors are not evaluated.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class MockHandler extends SimpleChannelUpstreamHandler implements TimerTask {
+	private static final String BULK_DOCS = "_bulk_docs";
+	private static final String CHANGES = "_changes";
+	private static final String DESIGN_PREFIX = "_design";
+	private static final String FIND = "_find";
+	private static final String INDEX = "_index";
+	private static final String LOCAL_PREFIX = "_local";
+	private static final String VIEW = "_view";
+	/**
+	 * The number of milliseconds a longpoll or continuous feed waits for a
+	 * change if no timeout is given, which is the default of CouchDB.
+	 */
+	private static final long DEFAULT_FEED_TIMEOUT_MILLIS = 60000;
+
+	private final MockCouchDb server;
+	private final Timer timer;
+	private final Timer feedTimer;
+	private final long latencyNanos;
+	/**
+	 * The responses waiting for their latency to pass, in the order of their requests.
+	 */
+	private final Queue<DelayedResponse> delayedResponses;
+
+	/**
+	 * @param timer the timer that delays responses, or {@code null} if the
+	 *        server has no latency
+	 * @param feedTimer the timer that ends changes feeds after their timeouts
+	 */
+	public MockHandler(MockCouchDb server, Timer timer, Timer feedTimer, long latencyNanos) {
+		this.server = server;
+		this.timer = timer;
+		this.feedTimer = feedTimer;
+		this.latencyNanos = latencyNanos;
+		this.delayedResponses = new LinkedList<DelayedResponse>();
+	}
+
+	/**
+	 * A response waiting for its latency to pass.
+	 */
+	private static final class DelayedResponse {
+		private final Channel channel;
+		private final HttpResponse response;
+		private final boolean keepAlive;
+
+		private DelayedResponse(Channel channel, HttpResponse response, boolean keepAlive) {
+			this.channel = channel;
+			this.response = response;
+			this.keepAlive = keepAlive;
+		}
+	}
+
+	private static HttpResponse newResponse(HttpResponseStatus status, JSONAware json) {
+		return newResponse(status, ChannelBuffers.copiedBuffer(json.toJSONString(), CharsetUtil.UTF_8));
+	}
+
+	private static HttpResponse newResponse(HttpResponseStatus status, ChannelBuffer content) {
+		HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, status);
+		response.setHeader(HttpHeaders.Names.CONTENT_TYPE, "application/json");
+		response.setHeader(HttpHeaders.Names.CONTENT_LENGTH, content.readableBytes());
+		response.setContent(content);
+		return response;
+	}
+
+	private static HttpResponse newErrorResponse(HttpResponseStatus status, String error, String reason) {
+		return newResponse(status, MockDatabase.errorResult(null, error, reason));
+	}
+
+	/**
+	 * Returns the response to the result of writing a document, whose status is
+	 * that of its error if it failed.
+	 */
+	private static HttpResponse newWriteResponse(HttpResponseStatus okStatus, JSONObject result) {
+		String error = (String) result.get("error");
+		if (error == null) {
+			return newResponse(okStatus, result);
+		} else if (error.equals("conflict")) {
+			return newResponse(HttpResponseStatus.CONFLICT, result);
+		} else if (error.equals("not_found")) {
+			return newResponse(HttpResponseStatus.NOT_FOUND, result);
+		}
+		return newResponse(HttpResponseStatus.BAD_REQUEST, result);
+	}
+
+	private static HttpResponse newMethodNotAllowedResponse(String allowedMethods) {
+		return newErrorResponse(HttpResponseStatus.METHOD_NOT_ALLOWED, "method_not_allowed",
+				"Only " + allowedMethods + " allowed");
+	}
+
+	private static String newDocumentId() {
+		return UUID.randomUUID().toString().replace("-", "");
+	}
+
+	/**
+	 * Returns the body of the given request, or {@code null} if it is not a
+	 * JSON object.
+	 */
+	private static JSONObject parseBody(HttpRequest request) {
+		String json = request.getContent().toString(CharsetUtil.UTF_8);
+		try {
+			Object body = new JSONParser().parse(json);
+			return (body instanceof JSONObject) ? (JSONObject) body : null;
+		} catch (ParseException e) {
+			return null;
+		}
+	}
+
+	private static HttpResponse newBadRequestResponse() {
+		return newErrorResponse(HttpResponseStatus.BAD_REQUEST, "bad_request",
+				"Request body must be a JSON object");
+	}
+
+	/**
+	 * Returns the value of the given query parameter, or {@code null} if absent.
+	 */
+	private static String getParameter(QueryStringDecoder queryStringDecoder, String name) {
+		List<String> values = queryStringDecoder.getParameters().get(name);
+		return ((values == null) || values.isEmpty()) ? null : values.get(0);
+	}
+
+	@SuppressWarnings("unchecked")
+	private HttpResponse handleRoot(HttpRequest request) {
+		if (!request.getMethod().equals(HttpMethod.GET)) {
+			return newMethodNotAllowedResponse("GET");
+		}
+		JSONObject welcome = new JSONObject();
+		welcome.put("couchdb", "Welcome");
+		welcome.put("version", "mock");
+		return newResponse(HttpResponseStatus.OK, welcome);
+	}
+
+	@SuppressWarnings("unchecked")
+	private HttpResponse handleDatabase(HttpRequest request, String databaseName) {
+		HttpMethod method = request.getMethod();
+		if (method.equals(HttpMethod.GET)) {
+			return newResponse(HttpResponseStatus.OK, server.getDatabase(databaseName).getInfo());
+		} else if (method.equals(HttpMethod.PUT)) {
+			if (!server.createDatabase(databaseName)) {
+				return newErrorResponse(HttpResponseStatus.PRECONDITION_FAILED, "file_exists",
+						"The database could not be created, the file already exists.");
+			}
+			JSONObject result = new JSONObject();
+			result.put("ok", Boolean.TRUE);
+			return newResponse(HttpResponseStatus.CREATED, result);
+		} else if (method.equals(HttpMethod.DELETE)) {
+			if (!server.deleteDatabase(databaseName)) {
+				return newErrorResponse(HttpResponseStatus.NOT_FOUND, "not_found", "missing");
+			}
+			JSONObject result = new JSONObject();
+			result.put("ok", Boolean.TRUE);
+			return newResponse(HttpResponseStatus.OK, result);
+		} else if (method.equals(HttpMethod.POST)) {
+			// Create a document with the given identifier, or a new one.
+			JSONObject document = parseBody(request);
+			if (document == null) {
+				return newBadRequestResponse();
+			}
+			String id = (String) document.get("_id");
+			if (id == null) {
+				id = newDocumentId();
+			}
+			return newWriteResponse(HttpResponseStatus.CREATED,
+					server.getDatabase(databaseName).put(id, document));
+		}
+		return newMethodNotAllowedResponse("DELETE,GET,POST,PUT");
+	}
+
+	@SuppressWarnings("unchecked")
+	private HttpResponse handleBulkDocs(HttpRequest request, String databaseName) {
+		if (!request.getMethod().equals(HttpMethod.POST)) {
+			return newMethodNotAllowedResponse("POST");
+		}
+		JSONObject body = parseBody(request);
+		if ((body == null) || !(body.get("docs") instanceof JSONArray)) {
+			return newErrorResponse(HttpResponseStatus.BAD_REQUEST, "bad_request",
+					"Missing JSON list of 'docs'");
+		}
+		MockDatabase database = server.getDatabase(databaseName);
+		JSONArray results = new JSONArray();
+		for (Object element : (JSONArray) body.get("docs")) {
+			if (!(element instanceof JSONObject)) {
+				results.add(MockDatabase.errorResult(null, "bad_request", "Document must be a JSON object"));
+				continue;
+			}
+			JSONObject document = (JSONObject) element;
+			String id = (String) document.get("_id");
+			if (id == null) {
+				id = newDocumentId();
+			}
+			// Each document succeeds or fails independently of the others.
+			results.add(database.put(id, document));
+		}
+		return newResponse(HttpResponseStatus.CREATED, results);
+	}
+
+	@SuppressWarnings("unchecked")
+	private HttpResponse handleDocument(HttpRequest request, QueryStringDecoder queryStringDecoder,
+			String databaseName, String id) {
+		MockDatabase database = server.getDatabase(databaseName);
+		HttpMethod method = request.getMethod();
+		if (method.equals(HttpMethod.GET)) {
+			MockDatabase.Revision revision = database.get(id);
+			if (revision == null) {
+				return newErrorResponse(HttpResponseStatus.NOT_FOUND, "not_found", "missing");
+			} else if (revision.isDeleted()) {
+				return newErrorResponse(HttpResponseStatus.NOT_FOUND, "not_found", "deleted");
+			}
+			return newResponse(HttpResponseStatus.OK, ChannelBuffers.wrappedBuffer(revision.body));
+		} else if (method.equals(HttpMethod.PUT)) {
+			JSONObject document = parseBody(request);
+			if (document == null) {
+				return newBadRequestResponse();
+			}
+			String rev = getParameter(queryStringDecoder, "rev");
+			if (rev != null) {
+				document.put("_rev", rev);
+			}
+			return newWriteResponse(HttpResponseStatus.CREATED, database.put(id, document));
+		} else if (method.equals(HttpMethod.DELETE)) {
+			String rev = getParameter(queryStringDecoder, "rev");
+			return newWriteResponse(HttpResponseStatus.OK, database.delete(id, rev));
+		}
+		return newMethodNotAllowedResponse("DELETE,GET,PUT");
+	}
+
+	private HttpResponse handleView(HttpRequest request, QueryStringDecoder queryStringDecoder,
+			String databaseName, String designDocumentId) {
+		if (!request.getMethod().equals(HttpMethod.GET)) {
+			return newMethodNotAllowedResponse("GET");
+		}
+		MockDatabase database = server.getDatabase(databaseName);
+		MockDatabase.Revision revision = database.get(designDocumentId);
+		if ((revision == null) || revision.isDeleted()) {
+			return newErrorResponse(HttpResponseStatus.NOT_FOUND, "not_found", "missing");
+		}
+		String limit = getParameter(queryStringDecoder, "limit");
+		int maxRows;
+		try {
+			maxRows = (limit != null) ? Integer.parseInt(limit) : Integer.MAX_VALUE;
+		} catch (NumberFormatException e) {
+			return newErrorResponse(HttpResponseStatus.BAD_REQUEST, "query_parse_error",
+					"Invalid value for integer: \"" + limit + "\"");
+		}
+		boolean reduce = !"false".equals(getParameter(queryStringDecoder, "reduce"));
+		return newResponse(HttpResponseStatus.OK, database.getViewResult(reduce, maxRows));
+	}
+
+	@SuppressWarnings("unchecked")
+	private HttpResponse handleIndex(HttpRequest request, String databaseName) {
+		if (!request.getMethod().equals(HttpMethod.POST)) {
+			return newMethodNotAllowedResponse("POST");
+		}
+		JSONObject body = parseBody(request);
+		if ((body == null) || !(body.get("index") instanceof JSONObject)) {
+			return newErrorResponse(HttpResponseStatus.BAD_REQUEST, "missing_required_key",
+					"Missing required key: index");
+		}
+		// Like CouchDB, generate the design document and name if absent.
+		String designDocumentId = (String) body.get("ddoc");
+		if (designDocumentId == null) {
+			designDocumentId = newDocumentId();
+		}
+		if (!designDocumentId.startsWith(DESIGN_PREFIX + '/')) {
+			designDocumentId = DESIGN_PREFIX + '/' + designDocumentId;
+		}
+		String indexName = (String) body.get("name");
+		if (indexName == null) {
+			indexName = newDocumentId();
+		}
+		boolean created = server.getDatabase(databaseName).createIndex(designDocumentId, indexName);
+		JSONObject result = new JSONObject();
+		result.put("result", created ? "created" : "exists");
+		result.put("id", designDocumentId);
+		result.put("name", indexName);
+		return newResponse(HttpResponseStatus.OK, result);
+	}
+
+	private HttpResponse handleFind(HttpRequest request, String databaseName) {
+		if (!request.getMethod().equals(HttpMethod.POST)) {
+			return newMethodNotAllowedResponse("POST");
+		}
+		JSONObject body = parseBody(request);
+		if ((body == null) || !(body.get("selector") instanceof JSONObject)) {
+			return newErrorResponse(HttpResponseStatus.BAD_REQUEST, "missing_required_key",
+					"Missing required key: selector");
+		}
+		// The default limit is that of CouchDB.
+		int limit = 25;
+		if (body.get("limit") instanceof Number) {
+			limit = ((Number) body.get("limit")).intValue();
+		}
+		int skip = 0;
+		Object bookmark = body.get("bookmark");
+		if (bookmark != null) {
+			try {
+				skip = Integer.parseInt((String) bookmark);
+			} catch (RuntimeException e) {
+				return newErrorResponse(HttpResponseStatus.BAD_REQUEST, "invalid_bookmark",
+						"Invalid bookmark value: " + bookmark);
+			}
+		}
+		boolean executionStats = Boolean.TRUE.equals(body.get("execution_stats"));
+		String result = server.getDatabase(databaseName).getFindResult(skip, limit, executionStats);
+		return newResponse(HttpResponseStatus.OK, ChannelBuffers.copiedBuffer(result, CharsetUtil.UTF_8));
+	}
+
+	/**
+	 * Starts writing the changes feed of the given database, and returns
+	 * {@code null}, or returns the response to a request that is invalid.
+	 */
+	private HttpResponse handleChanges(HttpRequest request, QueryStringDecoder queryStringDecoder,
+			String databaseName, Channel channel, boolean keepAlive) {
+		if (!request.getMethod().equals(HttpMethod.GET)) {
+			return newMethodNotAllowedResponse("GET");
+		}
+		MockDatabase database = server.getDatabase(databaseName);
+		String feed = getParameter(queryStringDecoder, "feed");
+		MockChangesFeed.Type type;
+		if ((feed == null) || feed.equals("normal")) {
+			type = MockChangesFeed.Type.NORMAL;
+		} else if (feed.equals("longpoll")) {
+			type = MockChangesFeed.Type.LONGPOLL;
+		} else if (feed.equals("continuous")) {
+			type = MockChangesFeed.Type.CONTINUOUS;
+		} else {
+			return newErrorResponse(HttpResponseStatus.BAD_REQUEST, "bad_request",
+					"Supported `feed` types: normal, continuous, longpoll");
+		}
+		String since = getParameter(queryStringDecoder, "since");
+		String timeout = getParameter(queryStringDecoder, "timeout");
+		long sinceSeq;
+		long timeoutMillis;
+		try {
+			sinceSeq = ((since == null) ? 0 :
+					since.equals("now") ? database.getUpdateSeq() : Long.parseLong(since));
+			timeoutMillis = (timeout != null) ? Long.parseLong(timeout) : DEFAULT_FEED_TIMEOUT_MILLIS;
+		} catch (NumberFormatException e) {
+			return newErrorResponse(HttpResponseStatus.BAD_REQUEST, "bad_request",
+					"Invalid value for `since` or `timeout`");
+		}
+		boolean includeDocs = "true".equals(getParameter(queryStringDecoder, "include_docs"));
+		new MockChangesFeed(channel, keepAlive, database, type, sinceSeq, includeDocs,
+				feedTimer, timeoutMillis).start();
+		return null;
+	}
+
+	/**
+	 * Returns the response to the given request, or {@code null} if it is
+	 * written by a changes feed.
+	 */
+	private HttpResponse handle(HttpRequest request, Channel channel, boolean keepAlive) {
+		QueryStringDecoder queryStringDecoder = new QueryStringDecoder(request.getUri());
+		String[] segments = queryStringDecoder.getPath().split("/");
+		// Ignore the empty segment before the leading slash.
+		int numSegments = 0;
+		for (String segment : segments) {
+			if (!segment.isEmpty()) {
+				segments[numSegments++] = QueryStringDecoder.decodeComponent(segment);
+			}
+		}
+
+		if (numSegments == 0) {
+			return handleRoot(request);
+		}
+		String databaseName = segments[0];
+		if (numSegments == 1) {
+			return handleDatabase(request, databaseName);
+		}
+		String firstSegment = segments[1];
+		if ((numSegments == 2) && firstSegment.equals(BULK_DOCS)) {
+			return handleBulkDocs(request, databaseName);
+		} else if ((numSegments == 2) && firstSegment.equals(CHANGES)) {
+			return handleChanges(request, queryStringDecoder, databaseName, channel, keepAlive);
+		} else if ((numSegments == 2) && firstSegment.equals(INDEX)) {
+			return handleIndex(request, databaseName);
+		} else if ((numSegments == 2) && firstSegment.equals(FIND)) {
+			return handleFind(request, databaseName);
+		} else if ((numSegments == 2) && !firstSegment.startsWith("_")) {
+			return handleDocument(request, queryStringDecoder, databaseName, firstSegment);
+		} else if ((numSegments == 3) &&
+				(firstSegment.equals(DESIGN_PREFIX) || firstSegment.equals(LOCAL_PREFIX))) {
+			return handleDocument(request, queryStringDecoder, databaseName,
+					firstSegment + '/' + segments[2]);
+		} else if ((numSegments == 5) && firstSegment.equals(DESIGN_PREFIX) && segments[3].equals(VIEW)) {
+			return handleView(request, queryStringDecoder, databaseName,
+					firstSegment + '/' + segments[2]);
+		}
+		return newErrorResponse(HttpResponseStatus.NOT_FOUND, "not_found", "missing");
+	}
+
+	private static void write(Channel channel, HttpResponse response, boolean keepAlive) {
+		ChannelFuture channelFuture = channel.write(response);
+		if (!keepAlive) {
+			channelFuture.addListener(ChannelFutureListener.CLOSE);
+		}
+	}
+
+	@Override
+	public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+		HttpRequest request = (HttpRequest) e.getMessage();
+		boolean keepAlive = HttpHeaders.isKeepAlive(request);
+		HttpResponse response = handle(request, e.getChannel(), keepAlive);
+		if (response == null) {
+			return;
+		} else if (latencyNanos == 0) {
+			write(e.getChannel(), response, keepAlive);
+			return;
+		}
+		synchronized (delayedResponses) {
+			delayedResponses.add(new DelayedResponse(e.getChannel(), response, keepAlive));
+		}
+		timer.newTimeout(this, latencyNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Writes the first delayed response. Every response has the same latency,
+	 * and so the first is due no later than the response whose timeout this is.
+	 */
+	@Override
+	public void run(Timeout timeout) {
+		synchronized (delayedResponses) {
+			DelayedResponse delayedResponse = delayedResponses.remove();
+			write(delayedResponse.channel, delayedResponse.response, delayedResponse.keepAlive);
+		}
+	}
+
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
+		// A client closing its connection is expected.
+		if (!(e.getCause() instanceof IOException)) {
+			e.getCause().printStackTrace();
+		}
+		e.getChannel().close();
+	}
+}
@@ -0,0 +1,52 @@
+package co.adhoclabs.ironcushion.view;
+
+import co.adhoclabs.ironcushion.AbstractQueryConnectionStatistics;
+import co.adhoclabs.ironcushion.IntervalStatistics;
+
+/**
+ * Statistics for a connection performing view queries.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class ViewConnectionStatistics extends AbstractQueryConnectionStatistics<ViewQueries.Type> {
+	private final long[] rows;
+
+	/**
+	 * The names of the types of queries whose latencies are recorded, in the
+	 * order of {@link ViewQueries.Type}.
+	 */
+	public static final String[] OPERATION_NAMES = { "key", "range", "reduce", "group" };
+
+	public ViewConnectionStatistics() {
+		this(new IntervalStatistics(OPERATION_NAMES.length));
+	}
+
+	/**
+	 * @param intervalStatistics the interval statistics to also record to
+	 */
+	public ViewConnectionStatistics(IntervalStatistics intervalStatistics) {
+		super(intervalStatistics, OPERATION_NAMES.length);
+		rows = new long[OPERATION_NAMES.length];
+	}
+
+	/**
+	 * Records a successful view query, from sending its request until
+	 * receiving its complete response.
+	 *
+	 * @param type the type of the query
+	 * @param nanos the latency in nanoseconds
+	 * @param numRows the number of rows returned
+	 */
+	public void recordQuery(ViewQueries.Type type, long nanos, int numRows) {
+		recordLatency(type, nanos);
+		rows[type.ordinal()] += numRows;
+	}
+
+	/**
+	 * @param type the type of query
+	 * @return the number of rows returned by all successful queries of that type
+	 */
+	public long getRows(ViewQueries.Type type) {
+		return rows[type.ordinal()];
+	}
+}
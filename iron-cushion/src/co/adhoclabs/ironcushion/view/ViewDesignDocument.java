@@ -0,0 +1,87 @@
+package co.adhoclabs.ironcushion.view;
+
+import java.util.List;
+
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+/**
+ * The design document installed before view queries. It defines a view named
+ * {@code by_<field>} for each field of the documents, whose key is the value of
+ * that field, and a view named {@code by_all} whose key is the array of the
+ * values of all fields, so that it can be grouped. Every view emits the value
+ * {@code 1}, and has the same built-in reduce function.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class ViewDesignDocument {
+	/**
+	 * The identifier of the design document.
+	 */
+	public static final String ID = "_design/iron_cushion";
+	/**
+	 * The name of the view whose key is an array of the values of all fields.
+	 */
+	public static final String ALL_FIELDS_VIEW_NAME = "by_all";
+
+	private ViewDesignDocument() {
+	}
+
+	/**
+	 * @param field the name of the field
+	 * @return the name of the view whose key is the value of the field
+	 */
+	public static String getViewName(String field) {
+		return "by_" + field;
+	}
+
+	private static String getFieldExpression(String field) {
+		// Quote the name, which may not be a JavaScript identifier.
+		return "doc[" + JSONValue.toJSONString(field) + "]";
+	}
+
+	@SuppressWarnings("unchecked")
+	private static JSONObject createView(String mapFunction, String reduce) {
+		JSONObject view = new JSONObject();
+		view.put("map", mapFunction);
+		view.put("reduce", reduce);
+		return view;
+	}
+
+	/**
+	 * Returns the design document, without its {@code _rev}.
+	 *
+	 * @param fields the fields to define views on
+	 * @param reduce the built-in reduce function of every view
+	 * @return the design document
+	 */
+	@SuppressWarnings("unchecked")
+	public static JSONObject create(List<String> fields, String reduce) {
+		JSONObject views = new JSONObject();
+		StringBuilder allFieldsCondition = new StringBuilder();
+		StringBuilder allFieldsKey = new StringBuilder();
+		for (String field : fields) {
+			String fieldExpression = getFieldExpression(field);
+			String condition = fieldExpression + " !== undefined";
+			views.put(getViewName(field), createView(
+					"function(doc) { if (" + condition + ") { emit(" + fieldExpression + ", 1); } }",
+					reduce));
+
+			if (allFieldsKey.length() > 0) {
+				allFieldsCondition.append(" && ");
+				allFieldsKey.append(", ");
+			}
+			allFieldsCondition.append(condition);
+			allFieldsKey.append(fieldExpression);
+		}
+		views.put(ALL_FIELDS_VIEW_NAME, createView(
+				"function(doc) { if (" + allFieldsCondition + ") { emit([" + allFieldsKey + "], 1); } }",
+				reduce));
+
+		JSONObject designDocument = new JSONObject();
+		designDocument.put("_id", ID);
+		designDocument.put("language", "javascript");
+		designDocument.put("views", views);
+		return designDocument;
+	}
+}
@@ -0,0 +1,216 @@
+package co.adhoclabs.ironcushion.view;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+
+import co.adhoclabs.ironcushion.AbstractBenchmarkHandler;
+import co.adhoclabs.ironcushion.AbstractQueryConnectionStatistics.RunningConnectionTimer;
+import co.adhoclabs.ironcushion.BenchmarkException;
+import co.adhoclabs.ironcushion.JsonReplyScanner;
+import co.adhoclabs.ironcushion.OpenLoopScheduler.ConnectionSchedule;
+import co.adhoclabs.ironcushion.RequestEncoder;
+import co.adhoclabs.ironcushion.ResponseCounts;
+import co.adhoclabs.ironcushion.Warmup;
+
+/**
+ * The {@link SimpleChannelUpstreamHandler} implementation for use in the view
+ * query {@link ChannelPipeline}. Queries do not depend on each other, and so
+ * are always pipelined up to the pipeline depth.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class ViewHandler extends AbstractBenchmarkHandler {
+	/**
+	 * The statistics being recorded, which are those of the warm-up until it ends.
+	 */
+	private ViewConnectionStatistics connectionStatistics;
+	private final ViewConnectionStatistics measuredConnectionStatistics;
+	private final ViewQueries viewQueries;
+
+	private final SendDataChannelFuture sendDataChannelFuture;
+
+	private final JsonReplyScanner jsonReplyScanner;
+
+	private int viewQueriesSent;
+	private int viewQueriesCompleted;
+	private final RequestEncoder requestEncoder;
+
+	public ViewHandler(ViewConnectionStatistics warmupConnectionStatistics,
+			ViewConnectionStatistics connectionStatistics,
+			ViewQueries viewQueries, CountDownLatch countDownLatch, int pipelineDepth,
+			ConnectionSchedule connectionSchedule, RequestEncoder requestEncoder, Warmup warmup,
+			int durationSecs) {
+		super(countDownLatch, pipelineDepth, connectionSchedule, warmup, durationSecs);
+
+		this.connectionStatistics = warmup.isEnabled() ? warmupConnectionStatistics : connectionStatistics;
+		this.measuredConnectionStatistics = connectionStatistics;
+		this.viewQueries = viewQueries;
+		this.requestEncoder = requestEncoder;
+
+		this.sendDataChannelFuture = new SendDataChannelFuture();
+		this.jsonReplyScanner = new JsonReplyScanner();
+
+		this.viewQueriesSent = 0;
+		this.viewQueriesCompleted = 0;
+	}
+
+	/**
+	 * The {@link ChannelFutureListener} called after a query is sent.
+	 */
+	private final class SendDataChannelFuture implements ChannelFutureListener {
+		@Override
+		public void operationComplete(ChannelFuture channelFuture) throws Exception {
+			synchronized (ViewHandler.this) {
+				pendingRequests.sent();
+				// Guard against starting RECEIVE_DATA before this listener runs.
+				if (connectionStatistics.getRunningConnectionTimer() == RunningConnectionTimer.SEND_DATA) {
+					awaitResponses();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Starts the timer for remote processing of the first pending query if
+	 * all pending queries are sent, or stops all timers if the connection is
+	 * waiting to send the next query.
+	 */
+	private void awaitResponses() {
+		if (pendingRequests.isEmpty()) {
+			connectionStatistics.stop();
+		} else if (pendingRequests.allSent()) {
+			connectionStatistics.startRemoteProcessing(getFirstPendingQuery());
+		}
+	}
+
+	private ViewQueries.Type getFirstPendingQuery() {
+		return ViewQueries.Type.values()[pendingRequests.getFirstType()];
+	}
+
+	private void performNextQuery(Channel channel, long startTime) {
+		connectionStatistics.startLocalProcessing();
+
+		ViewQueries.Type type = viewQueries.nextType();
+		ChannelBuffer request = requestEncoder.encode(HttpMethod.GET, viewQueries.getPath(type), null);
+
+		connectionStatistics.startSendData();
+		pendingRequests.add(type.ordinal(), startTime, 0, null);
+		viewQueriesSent++;
+		ChannelFuture channelFuture = channel.write(request);
+		channelFuture.addListener(sendDataChannelFuture);
+	}
+
+	/**
+	 * Returns whether another query remains to be sent, which is false once
+	 * all are sent or the duration of the step has passed.
+	 */
+	private boolean hasNextQuery() {
+		return (viewQueriesSent < viewQueries.size()) && !isDurationOver();
+	}
+
+	private boolean canPerformNextQuery() {
+		return !pendingRequests.isFull() && hasNextQuery();
+	}
+
+	private void performNextQueriesOrFinish(Channel channel) {
+		// Keep up to the pipeline depth of queries outstanding.
+		while (canPerformNextQuery()) {
+			long startTime = getNextRequestStartTime(connectionStatistics);
+			if (startTime == NOT_DUE) {
+				break;
+			}
+			performNextQuery(channel, startTime);
+		}
+
+		if (pendingRequests.isEmpty() && !hasNextQuery()) {
+			// There are no more queries to perform.
+			if (connectionStatistics != measuredConnectionStatistics) {
+				measuredConnectionStatistics.completedDuringWarmup();
+			}
+			finished();
+		} else {
+			scheduleNextRequest(channel, canPerformNextQuery());
+			awaitResponses();
+		}
+	}
+
+	@Override
+	public synchronized void requestScheduled(Channel channel) {
+		connectionSchedule.fired();
+		performNextQueriesOrFinish(channel);
+	}
+
+	/**
+	 * Returns the reason of a failed response, or {@code null} if its content
+	 * has no {@code error} field.
+	 */
+	private String getErrorReason(HttpResponse response) {
+		if (response.isChunked()) {
+			return null;
+		}
+		ChannelBuffer content = response.getContent();
+		connectionStatistics.receivedJsonBytes(content.readableBytes());
+		return jsonReplyScanner.scan(content) ? jsonReplyScanner.getError() : null;
+	}
+
+	public synchronized void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+		connectionStatistics.startLocalProcessing();
+		// Responses arrive in the order that their requests were sent.
+		ViewQueries.Type type = getFirstPendingQuery();
+		long latency = System.nanoTime() - pendingRequests.getFirstStartTime();
+		pendingRequests.removeFirst();
+
+		HttpResponse response = (HttpResponse) e.getMessage();
+		int statusCode = response.getStatus().getCode();
+		ResponseCounts responseCounts = connectionStatistics.getResponseCounts();
+		if (ResponseCounts.isSuccess(statusCode)) {
+			if (response.isChunked()) {
+				throw new BenchmarkException("View response is chunked");
+			}
+			ChannelBuffer content = response.getContent();
+			connectionStatistics.receivedJsonBytes(content.readableBytes());
+			if (!jsonReplyScanner.scan(content) || (jsonReplyScanner.getNumRows() < 0)) {
+				throw new BenchmarkException("View response has no rows");
+			}
+			responseCounts.recordSuccess(type.ordinal(), statusCode);
+			connectionStatistics.recordQuery(type, latency, jsonReplyScanner.getNumRows());
+		} else {
+			responseCounts.recordFailure(type.ordinal(), statusCode, getErrorReason(response));
+		}
+
+		viewQueriesCompleted++;
+		endWarmupIfOver();
+		performNextQueriesOrFinish(e.getChannel());
+	}
+
+	/**
+	 * Records to the measured statistics once the warm-up has ended.
+	 * Queries that are pending when it ends are measured.
+	 */
+	private void endWarmupIfOver() {
+		if ((connectionStatistics != measuredConnectionStatistics) &&
+				isWarmupOver(viewQueriesCompleted)) {
+			connectionStatistics.stop();
+			connectionStatistics = measuredConnectionStatistics;
+			// This is called while processing a response.
+			connectionStatistics.startLocalProcessing();
+		}
+	}
+
+	@Override
+	public synchronized void start(Channel channel) {
+		startStep();
+		// Immediately perform the first query.
+		performNextQueriesOrFinish(channel);
+	}
+}
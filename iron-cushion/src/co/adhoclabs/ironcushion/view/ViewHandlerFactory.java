@@ -0,0 +1,41 @@
+package co.adhoclabs.ironcushion.view;
+
+import java.util.List;
+
+import co.adhoclabs.ironcushion.AbstractBenchmarkHandler;
+import co.adhoclabs.ironcushion.AbstractQueryHandlerFactory;
+import co.adhoclabs.ironcushion.IntervalStatistics;
+import co.adhoclabs.ironcushion.OpenLoopScheduler;
+import co.adhoclabs.ironcushion.RequestEncoder;
+import co.adhoclabs.ironcushion.Warmup;
+
+/**
+ * The factory of handlers for connections that perform view queries.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class ViewHandlerFactory extends AbstractQueryHandlerFactory<ViewConnectionStatistics> {
+	private final List<ViewQueries> allViewQueries;
+
+	public ViewHandlerFactory(int numConnections, int pipelineDepth, OpenLoopScheduler openLoopScheduler,
+			List<ViewQueries> allViewQueries, RequestEncoder requestEncoder, Warmup warmup,
+			int durationSecs) {
+		super(numConnections, pipelineDepth, openLoopScheduler, ViewConnectionStatistics.OPERATION_NAMES.length,
+				requestEncoder, warmup, durationSecs);
+
+		this.allViewQueries = allViewQueries;
+	}
+
+	@Override
+	protected ViewConnectionStatistics newConnectionStatistics(IntervalStatistics intervalStatistics) {
+		return new ViewConnectionStatistics(intervalStatistics);
+	}
+
+	@Override
+	protected AbstractBenchmarkHandler newHandler(ViewConnectionStatistics warmupConnectionStatistics,
+			ViewConnectionStatistics connectionStatistics, int connectionNum) {
+		return new ViewHandler(warmupConnectionStatistics, connectionStatistics,
+				allViewQueries.get(connectionNum), countDownLatch, pipelineDepth, newConnectionSchedule(),
+				requestEncoder, warmup, durationSecs);
+	}
+}
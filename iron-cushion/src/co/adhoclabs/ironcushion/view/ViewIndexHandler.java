@@ -0,0 +1,110 @@
+package co.adhoclabs.ironcushion.view;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.json.simple.JSONObject;
+
+import co.adhoclabs.ironcushion.AbstractIndexHandler;
+import co.adhoclabs.ironcushion.IndexConnectionStatistics;
+import co.adhoclabs.ironcushion.RequestEncoder;
+import co.adhoclabs.ironcushion.ResponseCounts;
+import co.adhoclabs.ironcushion.Warmup;
+
+/**
+ * The {@link SimpleChannelUpstreamHandler} implementation for use in the
+ * {@link ChannelPipeline} that installs the {@link ViewDesignDocument} and
+ * builds its index.
+ *
+ * <p>If the design document exists, then it is replaced by its current
+ * revision, which rebuilds the index if its views changed. The index is built
+ * by querying a view, which CouchDB answers only once the index of every view
+ * of the design document is up to date.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class ViewIndexHandler extends AbstractIndexHandler {
+	/**
+	 * The names of the types of operations, which are installing the design
+	 * document and building its index.
+	 */
+	public static final String[] OPERATION_NAMES = { "install", "build" };
+
+	private final JSONObject designDocument;
+	private final String designDocumentPath;
+	private final String buildPath;
+
+	/**
+	 * Whether the revision of the existing design document was requested.
+	 */
+	private boolean gettingRevision;
+	/**
+	 * Whether the existing design document is being replaced.
+	 */
+	private boolean replacing;
+
+	/**
+	 * @param buildsIndex whether this connection installs the design document
+	 *        and builds its index, instead of finishing immediately
+	 */
+	public ViewIndexHandler(IndexConnectionStatistics connectionStatistics, boolean buildsIndex,
+			JSONObject designDocument, String designDocumentPath, String buildPath,
+			CountDownLatch countDownLatch, RequestEncoder requestEncoder, Warmup warmup) {
+		super(connectionStatistics, buildsIndex, countDownLatch, requestEncoder, warmup);
+
+		this.designDocument = designDocument;
+		this.designDocumentPath = designDocumentPath;
+		this.buildPath = buildPath;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void sendInstallRequest(Channel channel, String revision) {
+		JSONObject document = designDocument;
+		if (revision != null) {
+			document = new JSONObject();
+			document.putAll(designDocument);
+			document.put("_rev", revision);
+		}
+		sendRequest(channel, HttpMethod.PUT, designDocumentPath, document);
+	}
+
+	@Override
+	protected void sendPrepareRequest(Channel channel) {
+		sendInstallRequest(channel, null);
+	}
+
+	@Override
+	protected void receivedPrepareResponse(Channel channel, HttpResponse response, int statusCode) {
+		if (!replacing && (statusCode == HttpResponseStatus.CONFLICT.getCode())) {
+			// The design document exists, so replace its current revision.
+			replacing = true;
+			gettingRevision = true;
+			sendRequest(channel, HttpMethod.GET, designDocumentPath, null);
+			return;
+		} else if (!ResponseCounts.isSuccess(statusCode)) {
+			// Getting the revision of the design document is part of installing it.
+			prepareFailed(response, statusCode);
+			return;
+		}
+
+		if (gettingRevision) {
+			gettingRevision = false;
+			jsonReplyScanner.scan(response.getContent());
+			sendInstallRequest(channel, jsonReplyScanner.getRev());
+			return;
+		}
+		recordPrepareSuccess(statusCode);
+		// The index is built by the first query of any of its views.
+		startBuild(channel);
+	}
+
+	@Override
+	protected void sendBuildRequest(Channel channel) {
+		sendRequest(channel, HttpMethod.GET, buildPath, null);
+	}
+}
@@ -0,0 +1,38 @@
+package co.adhoclabs.ironcushion.view;
+
+import org.json.simple.JSONObject;
+
+import co.adhoclabs.ironcushion.AbstractIndexHandler;
+import co.adhoclabs.ironcushion.AbstractIndexHandlerFactory;
+import co.adhoclabs.ironcushion.IndexConnectionStatistics;
+import co.adhoclabs.ironcushion.RequestEncoder;
+import co.adhoclabs.ironcushion.Warmup;
+
+/**
+ * The factory of handlers for connections that install the
+ * {@link ViewDesignDocument} and build its index, which only the first
+ * connection does.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class ViewIndexHandlerFactory extends AbstractIndexHandlerFactory {
+	private final JSONObject designDocument;
+	private final String designDocumentPath;
+	private final String buildPath;
+
+	public ViewIndexHandlerFactory(int numConnections, JSONObject designDocument,
+			String designDocumentPath, String buildPath, RequestEncoder requestEncoder, Warmup warmup) {
+		super(numConnections, ViewIndexHandler.OPERATION_NAMES, requestEncoder, warmup);
+
+		this.designDocument = designDocument;
+		this.designDocumentPath = designDocumentPath;
+		this.buildPath = buildPath;
+	}
+
+	@Override
+	protected AbstractIndexHandler newHandler(IndexConnectionStatistics connectionStatistics,
+			boolean buildsIndex) {
+		return new ViewIndexHandler(connectionStatistics, buildsIndex, designDocument,
+				designDocumentPath, buildPath, countDownLatch, requestEncoder, warmup);
+	}
+}
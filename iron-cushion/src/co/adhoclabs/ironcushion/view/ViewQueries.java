@@ -0,0 +1,166 @@
+package co.adhoclabs.ironcushion.view;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.simple.JSONValue;
+
+import co.adhoclabs.ironcushion.ParsedArguments;
+import co.adhoclabs.ironcushion.QueryTypeWeights;
+import co.adhoclabs.ironcushion.ValueGenerator;
+import co.adhoclabs.ironcushion.WrittenValues;
+
+/**
+ * The view queries performed by a connection. The type of each query is
+ * chosen at random by its weight, and its keys are values of the fields of
+ * bulk inserted documents from {@link WrittenValues}, so that they are keys
+ * emitted by the views.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class ViewQueries {
+	/**
+	 * An enumeration over all types of view queries.
+	 */
+	public enum Type {
+		/**
+		 * The rows with a single key in the view of a field.
+		 */
+		KEY,
+		/**
+		 * The rows with a range of keys in the view of a field.
+		 */
+		RANGE,
+		/**
+		 * The reduced value of a range of keys in the view of a field.
+		 */
+		REDUCE,
+		/**
+		 * The reduced values of the view of all fields, grouped by a prefix of
+		 * its keys.
+		 */
+		GROUP,
+	}
+
+	private final WrittenValues writtenValues;
+	private final ValueGenerator valueGenerator;
+	private final List<String> fields;
+	private final String viewsPath;
+	private final int numQueries;
+	private final int limit;
+	private final QueryTypeWeights<Type> typeWeights;
+
+	private ViewQueries(WrittenValues writtenValues, ValueGenerator valueGenerator, List<String> fields,
+			String viewsPath, int numQueries, ParsedArguments parsedArguments) {
+		this.writtenValues = writtenValues;
+		this.valueGenerator = valueGenerator;
+		this.fields = fields;
+		this.viewsPath = viewsPath;
+		this.numQueries = numQueries;
+		this.limit = parsedArguments.viewQueryLimit;
+		this.typeWeights = new QueryTypeWeights<Type>(Type.values(),
+				parsedArguments.viewKeyWeight,
+				parsedArguments.viewRangeWeight,
+				parsedArguments.viewReduceWeight,
+				parsedArguments.viewGroupWeight);
+	}
+
+	/**
+	 * @return the number of queries to perform
+	 */
+	public int size() {
+		return numQueries;
+	}
+
+	/**
+	 * @return the type of the next query
+	 */
+	public Type nextType() {
+		return typeWeights.nextType(valueGenerator);
+	}
+
+	private static String encode(String value) {
+		try {
+			// The encoder is for forms, where a space is a plus sign.
+			return URLEncoder.encode(value, "UTF-8").replace("+", "%20");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String encodeJson(Object value) {
+		return encode(JSONValue.toJSONString(value));
+	}
+
+	/**
+	 * Appends the start and end keys of a range of values of the given field.
+	 */
+	private void appendRange(StringBuilder sb, String field) {
+		WrittenValues.Range range = writtenValues.getRange(field, valueGenerator);
+		sb.append("startkey=").append(encodeJson(range.start));
+		sb.append("&endkey=").append(encodeJson(range.end));
+	}
+
+	/**
+	 * Returns the path of a new query of the given type.
+	 *
+	 * @param type the type of the query
+	 * @return the path, including its query string
+	 */
+	public String getPath(Type type) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(viewsPath);
+		if (type == Type.GROUP) {
+			sb.append(ViewDesignDocument.ALL_FIELDS_VIEW_NAME).append('?');
+			// Start grouping from a random value of the first field.
+			List<Object> startKey = new ArrayList<Object>(1);
+			startKey.add(writtenValues.getValue(fields.get(0), valueGenerator));
+			sb.append("startkey=").append(encodeJson(startKey));
+			sb.append("&group_level=").append(1 + valueGenerator.nextInt(fields.size()));
+			sb.append("&limit=").append(limit);
+			return sb.toString();
+		}
+
+		String field = fields.get(valueGenerator.nextInt(fields.size()));
+		sb.append(encode(ViewDesignDocument.getViewName(field))).append('?');
+		switch (type) {
+		case KEY:
+			sb.append("key=").append(encodeJson(writtenValues.getValue(field, valueGenerator)));
+			sb.append("&reduce=false&limit=").append(limit);
+			break;
+		case RANGE:
+			appendRange(sb, field);
+			sb.append("&reduce=false&limit=").append(limit);
+			break;
+		case REDUCE:
+			appendRange(sb, field);
+			sb.append("&reduce=true");
+			break;
+		default:
+			break;
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Creates the view queries performed by a connection.
+	 *
+	 * @param writtenValues the values of the fields of bulk inserted documents
+	 * @param valueGenerator the generator of random values of the connection
+	 * @param fields the fields that views are defined on
+	 * @param viewsPath the path of the views of the design document, ending with {@code /}
+	 * @param parsedArguments the parsed command line arguments
+	 * @return the view queries
+	 */
+	public static ViewQueries createViewQueries(WrittenValues writtenValues, ValueGenerator valueGenerator,
+			List<String> fields, String viewsPath, ParsedArguments parsedArguments) {
+		int numQueries = parsedArguments.numViewQueries;
+		if ((numQueries == 0) && (parsedArguments.viewDuration > 0)) {
+			// Perform queries until the duration passes.
+			numQueries = Integer.MAX_VALUE;
+		}
+		return new ViewQueries(writtenValues, valueGenerator, fields, viewsPath, numQueries, parsedArguments);
+	}
+}
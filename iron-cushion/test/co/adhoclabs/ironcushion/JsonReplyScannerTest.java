@@ -0,0 +1,72 @@
+package co.adhoclabs.ironcushion;
+
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.util.CharsetUtil;
+
+/**
+ * Tests that {@link JsonReplyScanner} extracts only the top-level fields of a
+ * reply, and only {@code total_docs_examined} from its
+ * {@code execution_stats}. The project has no test framework, and so this is
+ * run by its main method, which throws an {@link AssertionError} if a test
+ * fails.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class JsonReplyScannerTest {
+	private static void assertEquals(Object expected, Object actual) {
+		if ((expected == null) ? (actual != null) : !expected.equals(actual)) {
+			throw new AssertionError("Expected " + expected + " but was " + actual);
+		}
+	}
+
+	private static JsonReplyScanner scan(String reply) {
+		JsonReplyScanner jsonReplyScanner = new JsonReplyScanner();
+		if (!jsonReplyScanner.scan(ChannelBuffers.copiedBuffer(reply, CharsetUtil.UTF_8))) {
+			throw new AssertionError("Failed to scan " + reply);
+		}
+		return jsonReplyScanner;
+	}
+
+	private static void testFindReply() {
+		JsonReplyScanner jsonReplyScanner = scan("{\"docs\":[{\"_id\":\"a\"},{\"_id\":\"b\"}]," +
+				"\"bookmark\":\"g1\",\"execution_stats\":{\"total_keys_examined\":0," +
+				"\"total_docs_examined\":12,\"execution_time_ms\":1.5}}");
+		assertEquals(2, jsonReplyScanner.getNumDocs());
+		assertEquals("g1", jsonReplyScanner.getBookmark());
+		assertEquals(12L, jsonReplyScanner.getTotalDocsExamined());
+		// The ids of the returned documents are nested, and so not extracted.
+		assertEquals(null, jsonReplyScanner.getId());
+	}
+
+	private static void testExecutionStatsDoNotOverwriteTopLevelFields() {
+		JsonReplyScanner jsonReplyScanner = scan("{\"bookmark\":\"g1\",\"error\":\"e\"," +
+				"\"execution_stats\":{\"bookmark\":\"g2\",\"error\":\"f\",\"rev\":\"1-x\",\"ok\":true," +
+				"\"docs\":[1,2,3],\"total_docs_examined\":5}}");
+		assertEquals("g1", jsonReplyScanner.getBookmark());
+		assertEquals("e", jsonReplyScanner.getError());
+		assertEquals(null, jsonReplyScanner.getRev());
+		assertEquals(false, jsonReplyScanner.isOk());
+		assertEquals(-1, jsonReplyScanner.getNumDocs());
+		assertEquals(5L, jsonReplyScanner.getTotalDocsExamined());
+	}
+
+	private static void testTopLevelTotalDocsExaminedIgnored() {
+		JsonReplyScanner jsonReplyScanner = scan("{\"total_docs_examined\":7,\"docs\":[]}");
+		assertEquals(-1L, jsonReplyScanner.getTotalDocsExamined());
+		assertEquals(0, jsonReplyScanner.getNumDocs());
+	}
+
+	private static void testNestedTotalDocsExaminedIgnored() {
+		JsonReplyScanner jsonReplyScanner = scan(
+				"{\"execution_stats\":{\"nested\":{\"total_docs_examined\":9}}}");
+		assertEquals(-1L, jsonReplyScanner.getTotalDocsExamined());
+	}
+
+	public static void main(String[] args) {
+		testFindReply();
+		testExecutionStatsDoNotOverwriteTopLevelFields();
+		testTopLevelTotalDocsExaminedIgnored();
+		testNestedTotalDocsExaminedIgnored();
+		System.out.println("JsonReplyScannerTest passed");
+	}
+}
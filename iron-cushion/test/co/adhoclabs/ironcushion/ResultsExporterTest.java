@@ -0,0 +1,80 @@
+package co.adhoclabs.ironcushion;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * Tests that {@link ResultsExporter} does not write the credentials in the
+ * database address. The project has no test framework, and so this is run by
+ * its main method, which throws an {@link AssertionError} if a test fails.
+ *
+ * @author Michael Parker (michael.g.parker@gmail.com)
+ */
+public class ResultsExporterTest {
+	private static final String PASSWORD = "s3cr3t@pass";
+
+	private static void assertEquals(String expected, String actual) {
+		if (!expected.equals(actual)) {
+			throw new AssertionError("Expected " + expected + " but was " + actual);
+		}
+	}
+
+	private static void assertTrue(String message, boolean condition) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+
+	private static String readFile(File file) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(file), "UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				sb.append(line).append('\n');
+			}
+		} finally {
+			reader.close();
+		}
+		return sb.toString();
+	}
+
+	private static void testWithoutUserInfo() {
+		assertEquals("http://localhost:5984",
+				ResultsExporter.withoutUserInfo("http://admin:" + PASSWORD + "@localhost:5984"));
+		assertEquals("https://example.com/couch?a=b@c",
+				ResultsExporter.withoutUserInfo("https://admin@example.com/couch?a=b@c"));
+		assertEquals("http://localhost:5984/",
+				ResultsExporter.withoutUserInfo("http://localhost:5984/"));
+	}
+
+	private static void testPasswordNotWritten(ResultsExporter.Format format) throws Exception {
+		ParsedArguments parsedArguments = ParsedArguments.parseArguments(new String[] {
+				"--database_address=http://admin:" + PASSWORD + "@localhost:5984",
+				"--database_name=db",
+				"--json_document_schema_filename=data/example_schema.json",
+		});
+		ResultsExporter resultsExporter = new ResultsExporter(parsedArguments, 1);
+		File resultsFile = File.createTempFile("results", "." + format.name().toLowerCase());
+		try {
+			resultsExporter.write(resultsFile, format);
+			String contents = readFile(resultsFile);
+			assertTrue("Password written to " + format + " results", !contents.contains(PASSWORD));
+			assertTrue("User name written to " + format + " results", !contents.contains("admin"));
+			assertTrue("Address not written to " + format + " results", contents.contains("localhost:5984"));
+		} finally {
+			resultsFile.delete();
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		testWithoutUserInfo();
+		testPasswordNotWritten(ResultsExporter.Format.JSON);
+		testPasswordNotWritten(ResultsExporter.Format.CSV);
+		System.out.println("ResultsExporterTest passed");
+	}
+}